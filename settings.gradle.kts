@@ -44,6 +44,7 @@ rootProject.name = "jmeter"
 
 include(
     "src:bom",
+    "src:benchmarks",
     "src:bshclient",
     "src:launcher",
     "src:components",
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.vlsi.gradle.properties.dsl.props
+
+dependencies {
+    implementation(project(":src:core"))
+    implementation(project(":src:components"))
+    implementation(project(":src:functions"))
+    implementation("org.openjdk.jmh:jmh-core")
+
+    annotationProcessor(platform(project(":src:bom")))
+    annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess")
+}
+
+// Regular expression of the benchmarks to run, all of them by default
+val jmhInclude by props("")
+
+val jmh by tasks.registering(JavaExec::class) {
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    description = "Runs the JMH benchmarks and writes the results to build/reports/jmh/results.json," +
+        " -PjmhInclude=<regexp> selects the benchmarks to run"
+
+    val sourceSets: SourceSetContainer by project
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    // The benchmarks read bin/jmeter.properties, forked JVMs inherit the system property
+    systemProperty("jmeter.home", rootDir)
+
+    val resultFile = file("$buildDir/reports/jmh/results.json")
+    outputs.file(resultFile)
+    outputs.upToDateWhen { false }
+    doFirst {
+        resultFile.parentFile.mkdirs()
+    }
+    args("-rf", "json", "-rff", resultFile)
+    if (jmhInclude.isNotBlank()) {
+        args(jmhInclude)
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import java.io.File;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+
+/**
+ * Shared setup of the benchmarks.
+ */
+final class BenchmarkSupport {
+
+    /** Body of the results produced by {@link StubSampler} */
+    static final String RESPONSE_BODY = "{\"id\":1234,\"token\":\"a1b2c3d4e5\",\"user\":{\"name\":\"jmeter\","
+            + "\"roles\":[\"admin\",\"tester\"]},\"items\":[{\"sku\":\"A-1\",\"price\":12.5},"
+            + "{\"sku\":\"B-2\",\"price\":7.25},{\"sku\":\"C-3\",\"price\":3.0}],\"status\":\"OK\"}";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Loads bin/jmeter.properties of the JMeter home given by the {@code jmeter.home} system property,
+     * as the elements read their defaults from the properties.
+     * The classpath is added to the search paths, so that functions are found without a lib/ext folder.
+     */
+    static synchronized void initJMeterProperties() {
+        if (JMeterUtils.getJMeterProperties() != null) {
+            return;
+        }
+        String home = new File(System.getProperty("jmeter.home", ".")).getAbsolutePath();
+        JMeterUtils.setJMeterHome(home);
+        new JMeterUtils().initializeProperties(new File(home, "bin/jmeter.properties").getPath());
+        JMeterUtils.setProperty("search_paths", // $NON-NLS-1$
+                System.getProperty("java.class.path").replace(File.pathSeparatorChar, ';'));
+    }
+
+    /**
+     * @return a successful result with {@link #RESPONSE_BODY}, like the one of an HTTP request
+     */
+    static SampleResult createResult() {
+        SampleResult result = new SampleResult();
+        result.setSampleLabel("GET /api/orders");
+        result.setThreadName("Thread Group 1-1");
+        result.setStampAndTime(System.currentTimeMillis(), 12);
+        result.setLatency(10);
+        result.setConnectTime(2);
+        result.setResponseCode("200");
+        result.setResponseMessage("OK");
+        result.setContentType("application/json;charset=UTF-8");
+        result.setDataType(SampleResult.TEXT);
+        result.setResponseData(RESPONSE_BODY, "UTF-8");
+        result.setSuccessful(true);
+        result.setAllThreads(1);
+        result.setGroupThreads(1);
+        return result;
+    }
+
+    /**
+     * Makes the result the previous result of the current thread, so post-processors and assertions see it.
+     *
+     * @param result the result
+     * @return the context of the current thread
+     */
+    static JMeterContext setPreviousResult(SampleResult result) {
+        JMeterContext context = JMeterContextService.getContext();
+        if (context.getVariables() == null) {
+            context.setVariables(new JMeterVariables());
+        }
+        context.setPreviousResult(result);
+        return context;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.assertions.ResponseAssertion;
+import org.apache.jmeter.control.GenericController;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.extractor.RegexExtractor;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.HashTreeTraverser;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.apache.jorphan.collections.SearchByClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the traversals of a test plan tree that the engine performs when threads start.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HashTreeBenchmark {
+
+    /** Number of controllers, each one holds 10 samplers with 2 children */
+    @Param({"10", "100"})
+    public int controllers;
+
+    private ListedHashTree tree;
+
+    /**
+     * Counts the nodes of a tree.
+     */
+    private static final class CountingTraverser implements HashTreeTraverser {
+        private int count;
+
+        @Override
+        public void addNode(Object node, HashTree subTree) {
+            count++;
+        }
+
+        @Override
+        public void subtractNode() {
+            // not used
+        }
+
+        @Override
+        public void processPath() {
+            // not used
+        }
+    }
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initJMeterProperties();
+        LoopController loop = new LoopController();
+        tree = new ListedHashTree();
+        HashTree loopTree = tree.add(loop);
+        for (int i = 0; i < controllers; i++) {
+            GenericController controller = new GenericController();
+            controller.setName("Controller " + i);
+            HashTree controllerTree = loopTree.add(controller);
+            for (int j = 0; j < 10; j++) {
+                StubSampler sampler = new StubSampler();
+                sampler.setName("Sampler " + i + "-" + j);
+                HashTree samplerTree = controllerTree.add(sampler);
+                samplerTree.add(new RegexExtractor());
+                samplerTree.add(new ResponseAssertion());
+            }
+        }
+    }
+
+    @Benchmark
+    public int traverse() {
+        CountingTraverser traverser = new CountingTraverser();
+        tree.traverse(traverser);
+        return traverser.count;
+    }
+
+    @Benchmark
+    public Collection<Sampler> searchByClass() {
+        SearchByClass<Sampler> search = new SearchByClass<>(Sampler.class);
+        tree.traverse(search);
+        return search.getSearchResults();
+    }
+
+    @Benchmark
+    public ListedHashTree cloneTree() {
+        TreeCloner cloner = new TreeCloner();
+        tree.traverse(cloner);
+        return cloner.getClonedTree();
+    }
+}
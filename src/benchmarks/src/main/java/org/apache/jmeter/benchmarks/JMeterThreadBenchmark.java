@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.assertions.ResponseAssertion;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.extractor.RegexExtractor;
+import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.threads.CompiledTestTree;
+import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the iterations of a JMeter thread, so it measures the whole sampling path of
+ * {@code JMeterThread#executeSamplePackage}: configuration of the sample package, sampler,
+ * post-processors, assertions and notification of the listeners.
+ * The sampler is a {@link StubSampler}, so the time is the overhead of JMeter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JMeterThreadBenchmark {
+
+    private static final int LOOPS = 1000;
+
+    /** Whether the thread tree comes from a {@link CompiledTestTree}, or is cloned and compiled by the thread */
+    @Param({"true", "false"})
+    public boolean compiled;
+
+    private ListedHashTree tree;
+    private CompiledTestTree compiledTree;
+    private ThreadGroup threadGroup;
+    private ListenerNotifier notifier;
+    private JMeterThread thread;
+
+    /**
+     * Listener that ignores the samples, so the notification itself is measured.
+     */
+    public static class NoopListener extends AbstractTestElement implements SampleListener {
+        private static final long serialVersionUID = 240L;
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            // not used
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+            // not used
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+            // not used
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createTree() {
+        BenchmarkSupport.initJMeterProperties();
+
+        LoopController loop = new LoopController();
+        loop.setLoops(LOOPS);
+        loop.setContinueForever(false);
+
+        StubSampler sampler = new StubSampler();
+        sampler.setName("GET /api/orders");
+
+        RegexExtractor regexExtractor = new RegexExtractor();
+        regexExtractor.setRefName("token");
+        regexExtractor.setRegex("\"token\":\"(\\w+)\"");
+        regexExtractor.setTemplate("$1$");
+        regexExtractor.setMatchNumber(1);
+
+        JSONPostProcessor jsonPostProcessor = new JSONPostProcessor();
+        jsonPostProcessor.setRefNames("firstSku");
+        jsonPostProcessor.setJsonPathExpressions("$.items[0].sku");
+        jsonPostProcessor.setMatchNumbers("1");
+        jsonPostProcessor.setDefaultValues("NOT_FOUND");
+
+        ResponseAssertion assertion = new ResponseAssertion();
+        assertion.setTestFieldResponseCode();
+        assertion.setToEqualsType();
+        assertion.addTestString("200");
+
+        tree = new ListedHashTree();
+        tree.add(loop);
+        tree.add(loop, sampler);
+        tree.add(loop, new NoopListener());
+        tree.add(sampler, regexExtractor);
+        tree.add(sampler, jsonPostProcessor);
+        tree.add(sampler, assertion);
+        compiledTree = CompiledTestTree.compile(tree);
+
+        threadGroup = new ThreadGroup();
+        threadGroup.setNumThreads(1);
+        notifier = new ListenerNotifier();
+    }
+
+    @Setup(Level.Invocation)
+    public void createThread() {
+        if (compiled) {
+            thread = new JMeterThread(compiledTree.newThreadTree(), threadGroup, notifier, false);
+        } else {
+            TreeCloner cloner = new TreeCloner();
+            tree.traverse(cloner);
+            thread = new JMeterThread(cloner.getClonedTree(), threadGroup, notifier);
+        }
+        thread.setThreadGroup(threadGroup);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOPS)
+    public void executeSamples() {
+        thread.run();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.assertions.ResponseAssertion;
+import org.apache.jmeter.extractor.RegexExtractor;
+import org.apache.jmeter.extractor.json.jsonpath.JSONPostProcessor;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the post-processors and assertions that usually follow an HTTP request,
+ * applied to the result of a {@link StubSampler}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PostProcessorBenchmark {
+
+    private SampleResult result;
+    private JMeterContext context;
+    private RegexExtractor regexExtractor;
+    private JSONPostProcessor jsonPostProcessor;
+    private ResponseAssertion codeAssertion;
+    private ResponseAssertion bodyAssertion;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initJMeterProperties();
+        result = BenchmarkSupport.createResult();
+        context = BenchmarkSupport.setPreviousResult(result);
+
+        regexExtractor = new RegexExtractor();
+        regexExtractor.setRefName("token");
+        regexExtractor.setRegex("\"token\":\"(\\w+)\"");
+        regexExtractor.setTemplate("$1$");
+        regexExtractor.setMatchNumber(1);
+        regexExtractor.setDefaultValue("NOT_FOUND");
+
+        jsonPostProcessor = new JSONPostProcessor();
+        jsonPostProcessor.setRefNames("firstSku;roles");
+        jsonPostProcessor.setJsonPathExpressions("$.items[0].sku;$.user.roles");
+        jsonPostProcessor.setMatchNumbers("1;-1");
+        jsonPostProcessor.setDefaultValues("NOT_FOUND;NOT_FOUND");
+
+        codeAssertion = new ResponseAssertion();
+        codeAssertion.setTestFieldResponseCode();
+        codeAssertion.setToEqualsType();
+        codeAssertion.addTestString("200");
+
+        bodyAssertion = new ResponseAssertion();
+        bodyAssertion.setTestFieldResponseData();
+        bodyAssertion.setToContainsType();
+        bodyAssertion.addTestString("\"status\":\"OK\"");
+    }
+
+    @Benchmark
+    public Object regexExtractor() {
+        regexExtractor.process();
+        return context.getVariables().get("token");
+    }
+
+    @Benchmark
+    public Object jsonPostProcessor() {
+        jsonPostProcessor.process();
+        return context.getVariables().get("firstSku");
+    }
+
+    @Benchmark
+    public AssertionResult responseCodeAssertion() {
+        return codeAssertion.getResult(result);
+    }
+
+    @Benchmark
+    public AssertionResult responseDataAssertion() {
+        return bodyAssertion.getResult(result);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.reporters.ResultCollector;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.save.CSVSaveService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how results are formatted and written to a CSV result file by a {@link ResultCollector}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultSavingBenchmark {
+
+    private File resultFile;
+    private ResultCollector collector;
+    private SampleEvent event;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkSupport.initJMeterProperties();
+        event = new SampleEvent(BenchmarkSupport.createResult(), "Thread Group");
+        resultFile = Files.createTempFile("jmeter-benchmark", ".csv").toFile();
+        collector = new ResultCollector();
+        collector.setFilename(resultFile.getPath());
+        collector.testStarted();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        collector.testEnded();
+        Files.deleteIfExists(resultFile.toPath());
+    }
+
+    @Benchmark
+    public String resultToDelimitedString() {
+        return CSVSaveService.resultToDelimitedString(event);
+    }
+
+    @Benchmark
+    public void sampleOccurred() {
+        collector.sampleOccurred(event);
+    }
+}
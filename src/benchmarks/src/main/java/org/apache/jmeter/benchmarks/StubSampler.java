@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import org.apache.jmeter.samplers.AbstractSampler;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Sampler that returns a fixed response without any I/O, so the benchmarks measure JMeter itself.
+ */
+public class StubSampler extends AbstractSampler {
+    private static final long serialVersionUID = 240L;
+
+    @Override
+    public SampleResult sample(Entry e) {
+        SampleResult result = new SampleResult();
+        result.setSampleLabel(getName());
+        result.sampleStart();
+        result.setResponseCode("200");
+        result.setResponseMessage("OK");
+        result.setContentType("application/json;charset=UTF-8");
+        result.setDataType(SampleResult.TEXT);
+        result.setResponseData(BenchmarkSupport.RESPONSE_BODY, "UTF-8");
+        result.setSuccessful(true);
+        result.sampleEnd();
+        return result;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.threads.IndexedJMeterVariables;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of {@link CompoundVariable} templates and the accesses to {@link JMeterVariables}
+ * that the elements perform on each sample.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VariablesBenchmark {
+
+    /** Whether the thread uses {@link IndexedJMeterVariables} */
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    private JMeterVariables variables;
+    private VariableSlot orderIdSlot;
+    private CompoundVariable plainText;
+    private CompoundVariable withVariables;
+    private CompoundVariable withFunctions;
+    private int iteration;
+
+    @Setup
+    public void setup() {
+        BenchmarkSupport.initJMeterProperties();
+        variables = indexed ? new IndexedJMeterVariables() : new JMeterVariables();
+        variables.put("host", "example.org");
+        variables.put("orderId", "1234");
+        variables.put("token", "a1b2c3d4e5");
+        JMeterContextService.getContext().setVariables(variables);
+        orderIdSlot = VariableSlot.of("orderId");
+
+        plainText = new CompoundVariable("/api/orders?page=1&size=20");
+        withVariables = new CompoundVariable("https://${host}/api/orders/${orderId}?token=${token}");
+        withFunctions = new CompoundVariable("${__threadNum}-${__V(order${__intSum(1,2)})}-${orderId}");
+    }
+
+    @Benchmark
+    public String plainText() {
+        return plainText.execute();
+    }
+
+    @Benchmark
+    public String withVariables() {
+        return withVariables.execute();
+    }
+
+    @Benchmark
+    public String withFunctions() {
+        return withFunctions.execute();
+    }
+
+    @Benchmark
+    public String putAndGetByName() {
+        variables.put("orderId", iteration++ % 2 == 0 ? "1234" : "5678");
+        return variables.get("orderId");
+    }
+
+    @Benchmark
+    public String putAndGetBySlot() {
+        variables.put(orderIdSlot, iteration++ % 2 == 0 ? "1234" : "5678");
+        return variables.get(orderIdSlot);
+    }
+}
@@ -128,6 +128,9 @@ dependencies {
         apiv("org.apache.httpcomponents:httpcore-nio")
         apiv("org.apache.httpcomponents:httpcore")
         apiv("org.apache.httpcomponents:httpmime")
+        apiv("org.apache.httpcomponents.client5:httpclient5")
+        apiv("org.apache.httpcomponents.core5:httpcore5")
+        apiv("org.apache.httpcomponents.core5:httpcore5-h2")
         apiv("org.apache.logging.log4j:log4j-1.2-api", "log4j")
         apiv("org.apache.logging.log4j:log4j-api", "log4j")
         apiv("org.apache.logging.log4j:log4j-core", "log4j")
@@ -158,6 +161,8 @@ dependencies {
         apiv("org.mozilla:rhino")
         apiv("org.neo4j.driver:neo4j-java-driver")
         apiv("org.objenesis:objenesis")
+        apiv("org.openjdk.jmh:jmh-core", "jmh")
+        apiv("org.openjdk.jmh:jmh-generator-annprocess", "jmh")
         apiv("org.slf4j:jcl-over-slf4j", "slf4j")
         apiv("org.slf4j:slf4j-api", "slf4j")
         apiv("org.spockframework:spock-core")
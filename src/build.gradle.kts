@@ -21,6 +21,7 @@ plugins {
     kotlin("jvm") apply false
 }
 val skipMavenPublication = setOf(
+    ":src:benchmarks",
     ":src:bshclient",
     ":src:dist",
     ":src:dist-check",
@@ -37,6 +37,7 @@ import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSlot;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.util.JMeterStopThreadException;
 import org.apache.jorphan.util.JOrphanUtils;
@@ -95,6 +96,8 @@ public class CSVDataSet extends ConfigTestElement
 
     private transient String[] vars;
 
+    private transient VariableSlot[] varSlots;
+
     private transient String alias;
 
     private transient String shareMode;
@@ -184,7 +187,7 @@ public class CSVDataSet extends ConfigTestElement
                 lineValues = JOrphanUtils.split(line, delim, false);
             }
             for (int a = 0; a < vars.length && a < lineValues.length; a++) {
-                threadVars.put(vars[a], lineValues[a]);
+                threadVars.put(varSlots[a], lineValues[a]);
             }
         } catch (IOException e) { // treat the same as EOF
             log.error(e.toString());
@@ -194,7 +197,7 @@ public class CSVDataSet extends ConfigTestElement
                 throw new JMeterStopThreadException("End of file:"+ getFilename()+" detected for CSV DataSet:"
                         +getName()+" configured with stopThread:"+ getStopThread()+", recycle:" + getRecycle());
             }
-            for (String var :vars) {
+            for (VariableSlot var : varSlots) {
                 threadVars.put(var, EOFVALUE);
             }
         }
@@ -217,6 +220,10 @@ public class CSVDataSet extends ConfigTestElement
             vars = JOrphanUtils.split(names, ","); // $NON-NLS-1$
         }
         trimVarNames(vars);
+        varSlots = new VariableSlot[vars.length];
+        for (int i = 0; i < vars.length; i++) {
+            varSlots[i] = VariableSlot.of(vars[i]);
+        }
     }
 
     private void setAlias(final JMeterContext context, String alias) {
@@ -277,6 +277,12 @@ public abstract class SamplerResultTab implements ResultRenderer {
                         .append(JMeterUtils
                                 .getResString("view_results_connect_time")) //$NON-NLS-1$
                         .append(sampleResult.getConnectTime()).append(NL);
+                if (sampleResult.getPoolWaitTime() > 0) {
+                    statsBuff
+                            .append(JMeterUtils
+                                    .getResString("view_results_pool_wait_time")) //$NON-NLS-1$
+                            .append(sampleResult.getPoolWaitTime()).append(NL);
+                }
                 statsBuff
                         .append(JMeterUtils
                                 .getResString("view_results_latency")) //$NON-NLS-1$
@@ -378,6 +384,11 @@ public abstract class SamplerResultTab implements ResultRenderer {
                 resultModel.addRow(new RowResult(
                         JMeterUtils.getParsedLabel("view_results_connect_time"), //$NON-NLS-1$
                         sampleResult.getConnectTime()));
+                if (sampleResult.getPoolWaitTime() > 0) {
+                    resultModel.addRow(new RowResult(
+                            JMeterUtils.getParsedLabel("view_results_pool_wait_time"), //$NON-NLS-1$
+                            sampleResult.getPoolWaitTime()));
+                }
                 resultModel.addRow(new RowResult(
                         JMeterUtils.getParsedLabel("view_results_latency"), //$NON-NLS-1$
                         sampleResult.getLatency()));
@@ -160,6 +160,8 @@ implements ActionListener, TreeSelectionListener, Clearable, ItemListener {
     /** {@inheritDoc} */
     @Override
     public void add(final SampleResult sample) {
+        // The GUI reads the data later, once pooled buffers may be reused
+        sample.retainResponseData();
         synchronized (buffer) {
             buffer.add(sample);
             dataChanged = true;
@@ -17,10 +17,9 @@
 
 package org.apache.jmeter.visualizers.backend;
 
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.jmeter.control.TransactionController;
@@ -28,9 +27,18 @@ import org.apache.jmeter.report.processor.DescriptiveStatisticsFactory;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.documentation.VisibleForTesting;
+import org.apache.jorphan.math.LogLinearHistogram;
 
 /**
  * Sampler metric
+ * <p>
+ * The counters and response times of the current time interval are recorded under the lock of the interval,
+ * that the reporting thread never takes: {@link #endTimeInterval()} swaps in a fresh interval, waits for the
+ * samples being added to the old one, and the getters then return the old one until
+ * {@link #resetForTimeInterval()} recycles it. The lock is uncontended when samples are added by one thread,
+ * as the backend listener does, and keeps the interval consistent when several threads add samples.
+ * The sliding windows of {@link WindowMode#FIXED} and {@link WindowMode#TIMED} modes,
+ * that span intervals, keep their own lock.
  * @since 2.13
  */
 public class SamplerMetric {
@@ -40,42 +48,199 @@ public class SamplerMetric {
     private static volatile WindowMode globalWindowMode = WindowMode.get();
 
     /**
-     * Response times for OK samples
+     * Response times of OK, KO or all samples
      */
-    private DescriptiveStatistics okResponsesStats = DescriptiveStatisticsFactory.createDescriptiveStatistics(LARGE_SLIDING_WINDOW_SIZE);
+    private interface ResponseTimes {
+        void addValue(long time);
+
+        /** Called when the interval is recycled */
+        void clear();
+
+        double getMin();
+
+        double getMax();
+
+        double getMean();
+
+        double getPercentile(double percentile);
+    }
+
     /**
-     * Response times for KO samples
+     * Response times counted in a histogram, used in {@link WindowMode#HISTOGRAM} mode.
+     * The histogram keeps its buckets when cleared, so it does not allocate once the range of the response times is known.
      */
-    private DescriptiveStatistics koResponsesStats = DescriptiveStatisticsFactory.createDescriptiveStatistics(LARGE_SLIDING_WINDOW_SIZE);
+    private static final class HistogramResponseTimes implements ResponseTimes {
+        private final LogLinearHistogram histogram = new LogLinearHistogram();
+        private double sum;
+
+        @Override
+        public void addValue(long time) {
+            histogram.record(time);
+            sum += time;
+        }
+
+        @Override
+        public void clear() {
+            histogram.reset();
+            sum = 0;
+        }
+
+        @Override
+        public double getMin() {
+            return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getMin();
+        }
+
+        @Override
+        public double getMax() {
+            return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getMax();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getTotalCount() == 0 ? Double.NaN : sum / histogram.getTotalCount();
+        }
+
+        @Override
+        public double getPercentile(double percentile) {
+            return histogram.getTotalCount() == 0 ? Double.NaN : histogram.getValueAtPercentile(percentile);
+        }
+    }
+
     /**
-     * Response times for All samples
+     * Response times kept in a sliding window.
+     * Windows that slide across intervals are read while samples are added, so access is synchronized.
      */
-    private DescriptiveStatistics allResponsesStats = DescriptiveStatisticsFactory.createDescriptiveStatistics(LARGE_SLIDING_WINDOW_SIZE);
+    private static final class WindowResponseTimes implements ResponseTimes {
+        private final DescriptiveStatistics stats;
+        private final boolean slidesAcrossIntervals;
+
+        WindowResponseTimes(int windowSize, boolean slidesAcrossIntervals) {
+            this.stats = DescriptiveStatisticsFactory.createDescriptiveStatistics(windowSize);
+            this.slidesAcrossIntervals = slidesAcrossIntervals;
+        }
+
+        @Override
+        public synchronized void addValue(long time) {
+            stats.addValue(time);
+        }
+
+        @Override
+        public synchronized void clear() {
+            // We don't clear sliding windows as they slide as per my understanding of
+            // http://commons.apache.org/proper/commons-math/userguide/stat.html
+            if (!slidesAcrossIntervals) {
+                stats.clear();
+            }
+        }
+
+        @Override
+        public synchronized double getMin() {
+            return stats.getMin();
+        }
+
+        @Override
+        public synchronized double getMax() {
+            return stats.getMax();
+        }
+
+        @Override
+        public synchronized double getMean() {
+            return stats.getMean();
+        }
+
+        @Override
+        public synchronized double getPercentile(double percentile) {
+            return stats.getPercentile(percentile);
+        }
+    }
+
+    /**
+     * Counters and response times of a time interval
+     */
+    private static final class Interval {
+        /** Number of threads adding a sample to this interval */
+        private final AtomicInteger writers = new AtomicInteger();
+        private final ResponseTimes okResponses;
+        private final ResponseTimes koResponses;
+        private final ResponseTimes allResponses;
+        private int successes;
+        private int failures;
+        private int hits;
+        private final Map<ErrorMetric, Integer> errors = new HashMap<>();
+        private long sentBytes;
+        private long receivedBytes;
+
+        Interval(ResponseTimes okResponses, ResponseTimes koResponses, ResponseTimes allResponses) {
+            this.okResponses = okResponses;
+            this.koResponses = koResponses;
+            this.allResponses = allResponses;
+        }
+
+        void clear() {
+            okResponses.clear();
+            koResponses.clear();
+            allResponses.clear();
+            errors.clear();
+            successes = 0;
+            failures = 0;
+            hits = 0;
+            sentBytes = 0;
+            receivedBytes = 0;
+        }
+    }
+
+    private final WindowMode windowMode;
     /**
-     *  OK, KO, ALL stats
+     * Response times for OK, KO and All samples, shared by the intervals in FIXED mode
      */
-    private List<DescriptiveStatistics> windowedStats = initWindowedStats();
+    private final ResponseTimes okSlidingResponses;
+    private final ResponseTimes koSlidingResponses;
+    private final ResponseTimes allSlidingResponses;
     /**
-     * Timeboxed percentiles don't makes sense
+     * Timeboxed percentiles don't makes sense, null in HISTOGRAM mode where they cover the interval
      */
-    private DescriptiveStatistics pctResponseStats = DescriptiveStatisticsFactory.createDescriptiveStatistics(SLIDING_WINDOW_SIZE);
-    private int successes;
-    private int failures;
-    private int hits;
-    private Map<ErrorMetric, Integer> errors = new HashMap<>();
-    private long sentBytes;
-    private long receivedBytes;
-
+    private final ResponseTimes pctResponses;
+    /** Interval samples are added to */
+    private volatile Interval active;
+    /** Interval ended by {@link #endTimeInterval()}, read by the getters until {@link #resetForTimeInterval()} */
+    private volatile Interval ended;
+    /** Cleared interval, swapped in at the end of the next interval */
+    private Interval spare;
 
     /**
      *
      */
     public SamplerMetric() {
-        // Limit to sliding window of SLIDING_WINDOW_SIZE values for FIXED mode
-        if (globalWindowMode == WindowMode.FIXED) {
-            for (DescriptiveStatistics stat : windowedStats) {
-                stat.setWindowSize(SLIDING_WINDOW_SIZE);
-            }
+        windowMode = globalWindowMode;
+        if (windowMode == WindowMode.FIXED) {
+            // Limit to sliding window of SLIDING_WINDOW_SIZE values for FIXED mode
+            okSlidingResponses = new WindowResponseTimes(SLIDING_WINDOW_SIZE, true);
+            koSlidingResponses = new WindowResponseTimes(SLIDING_WINDOW_SIZE, true);
+            allSlidingResponses = new WindowResponseTimes(SLIDING_WINDOW_SIZE, true);
+        } else {
+            okSlidingResponses = null;
+            koSlidingResponses = null;
+            allSlidingResponses = null;
+        }
+        pctResponses = windowMode == WindowMode.HISTOGRAM
+                ? null
+                : new WindowResponseTimes(SLIDING_WINDOW_SIZE, true);
+        active = newInterval();
+    }
+
+    private Interval newInterval() {
+        switch (windowMode) {
+        case FIXED:
+            return new Interval(okSlidingResponses, koSlidingResponses, allSlidingResponses);
+        case TIMED:
+            return new Interval(
+                    new WindowResponseTimes(LARGE_SLIDING_WINDOW_SIZE, false),
+                    new WindowResponseTimes(LARGE_SLIDING_WINDOW_SIZE, false),
+                    new WindowResponseTimes(LARGE_SLIDING_WINDOW_SIZE, false));
+        case HISTOGRAM:
+            return new Interval(new HistogramResponseTimes(), new HistogramResponseTimes(), new HistogramResponseTimes());
+        default:
+            throw new IllegalStateException("Unknown window mode " + windowMode);
         }
     }
 
@@ -90,18 +255,11 @@ public class SamplerMetric {
         globalWindowMode = windowMode;
     }
 
-    /**
-     * @return List of {@link DescriptiveStatistics}
-     */
-    private List<DescriptiveStatistics> initWindowedStats() {
-        return Arrays.asList(okResponsesStats, koResponsesStats, allResponsesStats);
-    }
-
     /**
      * Add a {@link SampleResult} to be used in the statistics
      * @param result {@link SampleResult} to be used
      */
-    public synchronized void add(SampleResult result) {
+    public void add(SampleResult result) {
         add(result, false);
     }
 
@@ -109,7 +267,7 @@ public class SamplerMetric {
      * Add a {@link SampleResult} and its sub-results to be used in the statistics
      * @param result {@link SampleResult} to be used
      */
-    public synchronized void addCumulated(SampleResult result) {
+    public void addCumulated(SampleResult result) {
         add(result, true);
     }
 
@@ -118,84 +276,126 @@ public class SamplerMetric {
      * @param result {@link SampleResult} to be used
      * @param isCumulated is the overall Sampler Metric
      */
-    private synchronized void add(SampleResult result, boolean isCumulated) {
-        if(result.isSuccessful()) {
-            successes+=result.getSampleCount()-result.getErrorCount();
-        } else {
-            failures+=result.getErrorCount();
-            ErrorMetric error = new ErrorMetric(result);
-            errors.put(error, errors.getOrDefault(error, 0) + result.getErrorCount() );
+    private void add(SampleResult result, boolean isCumulated) {
+        Interval interval = enterActiveInterval();
+        try {
+            synchronized (interval) {
+                if(result.isSuccessful()) {
+                    interval.successes+=result.getSampleCount()-result.getErrorCount();
+                } else {
+                    interval.failures+=result.getErrorCount();
+                    ErrorMetric error = new ErrorMetric(result);
+                    interval.errors.put(error, interval.errors.getOrDefault(error, 0) + result.getErrorCount() );
+                }
+                long time = result.getTime();
+                interval.allResponses.addValue(time);
+                if(result.isSuccessful()) {
+                    // Should we also compute KO , all response time ?
+                    // only take successful requests for time computing
+                    interval.okResponses.addValue(time);
+                }else {
+                    interval.koResponses.addValue(time);
+                }
+                addHits(interval, result, isCumulated);
+                addNetworkData(interval, result, isCumulated);
+            }
+        } finally {
+            interval.writers.decrementAndGet();
         }
-        long time = result.getTime();
-        allResponsesStats.addValue(time);
-        pctResponseStats.addValue(time);
-        if(result.isSuccessful()) {
-            // Should we also compute KO , all response time ?
-            // only take successful requests for time computing
-            okResponsesStats.addValue(time);
-        }else {
-            koResponsesStats.addValue(time);
+        if (pctResponses != null) {
+            pctResponses.addValue(result.getTime());
+        }
+    }
+
+    /**
+     * @return the active interval, that {@link #endTimeInterval()} waits for until the caller decrements its writers
+     */
+    private Interval enterActiveInterval() {
+        while (true) {
+            Interval interval = active;
+            interval.writers.incrementAndGet();
+            // Checked after registering: endTimeInterval either sees us or has already swapped
+            if (interval == active) {
+                return interval;
+            }
+            interval.writers.decrementAndGet();
         }
-        addHits(result, isCumulated);
-        addNetworkData(result, isCumulated);
     }
 
     /**
      * Increment traffic metrics. A Parent sampler cumulates its children metrics.
+     * @param interval interval to update
      * @param result SampleResult
      * @param isCumulated related to the overall sampler metric
      */
-    private void addNetworkData(SampleResult result, boolean isCumulated) {
+    private static void addNetworkData(Interval interval, SampleResult result, boolean isCumulated) {
         if (isCumulated && TransactionController.isFromTransactionController(result)
                 && result.getSubResults().length == 0) { // Transaction controller without generate parent sampler
             return;
         }
-        sentBytes += result.getSentBytes();
-        receivedBytes += result.getBytesAsLong();
+        interval.sentBytes += result.getSentBytes();
+        interval.receivedBytes += result.getBytesAsLong();
     }
 
     /**
      * Compute hits from result
+     * @param interval interval to update
      * @param result {@link SampleResult}
      * @param isCumulated related to the overall sampler metric
      */
-    private void addHits(SampleResult result, boolean isCumulated) {
+    private static void addHits(Interval interval, SampleResult result, boolean isCumulated) {
         SampleResult[] subResults = result.getSubResults();
         if (isCumulated && TransactionController.isFromTransactionController(result)
                 && subResults.length == 0) { // Transaction controller without generate parent sampler
             return;
         }
         if (!(TransactionController.isFromTransactionController(result) && subResults.length > 0)) {
-            hits += result.getSampleCount();
+            interval.hits += result.getSampleCount();
         }
         for (SampleResult subResult : subResults) {
-            addHits(subResult, isCumulated);
+            addHits(interval, subResult, isCumulated);
         }
     }
 
     /**
-     * Reset metric except for percentile related data
+     * Ends the current time interval: samples added from now on are counted in the next one,
+     * and the getters return the statistics of the ended interval until {@link #resetForTimeInterval()}.
+     * Must be called by the thread that reports the metrics.
+     * @since 5.5.1
      */
-    public synchronized void resetForTimeInterval() {
-        switch (globalWindowMode) {
-        case FIXED:
-            // We don't clear responsesStats nor usersStats as it will slide as per my understanding of
-            // http://commons.apache.org/proper/commons-math/userguide/stat.html
-            break;
-        case TIMED:
-            for (DescriptiveStatistics stat : windowedStats) {
-                stat.clear();
-            }
-            break;
-        default:
-            // This cannot happen
+    public void endTimeInterval() {
+        if (ended != null) {
+            return;
         }
-        errors.clear();
-        successes = 0;
-        failures = 0;
-        hits = 0;
-        sentBytes = 0;
-        receivedBytes = 0;
+        Interval next = spare != null ? spare : newInterval();
+        spare = null;
+        Interval previous = active;
+        active = next;
+        // Samples being added to the previous interval are recorded in a few operations
+        while (previous.writers.get() != 0) {
+            Thread.yield();
+        }
+        ended = previous;
+    }
+
+    /**
+     * Reset metric except for percentile related data.
+     * Ends the current time interval first if {@link #endTimeInterval()} was not called.
+     */
+    public void resetForTimeInterval() {
+        endTimeInterval();
+        Interval previous = ended;
+        previous.clear();
+        spare = previous;
+        ended = null;
+    }
+
+    /**
+     * @return the interval read by the getters
+     */
+    private Interval current() {
+        Interval interval = ended;
+        return interval != null ? interval : active;
     }
 
     /**
@@ -204,7 +404,8 @@ public class SamplerMetric {
      * @return number of total requests
      */
     public int getTotal() {
-        return successes+failures;
+        Interval interval = current();
+        return interval.successes+interval.failures;
     }
 
     /**
@@ -213,7 +414,7 @@ public class SamplerMetric {
      * @return number of successful requests
      */
     public int getSuccesses() {
-        return successes;
+        return current().successes;
     }
 
     /**
@@ -222,7 +423,7 @@ public class SamplerMetric {
      * @return number of failed requests
      */
     public int getFailures() {
-        return failures;
+        return current().failures;
     }
 
     /**
@@ -232,7 +433,7 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getOkMaxTime() {
-        return okResponsesStats.getMax();
+        return current().okResponses.getMax();
     }
 
     /**
@@ -242,7 +443,7 @@ public class SamplerMetric {
      *         added yet
      */
     public double getOkMinTime() {
-        return okResponsesStats.getMin();
+        return current().okResponses.getMin();
     }
 
     /**
@@ -251,7 +452,7 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getOkMean() {
-        return okResponsesStats.getMean();
+        return current().okResponses.getMean();
     }
 
     /**
@@ -263,7 +464,7 @@ public class SamplerMetric {
      *         values.
      */
     public double getOkPercentile(double percentile) {
-        return okResponsesStats.getPercentile(percentile);
+        return current().okResponses.getPercentile(percentile);
     }
 
     /**
@@ -273,7 +474,7 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getKoMaxTime() {
-        return koResponsesStats.getMax();
+        return current().koResponses.getMax();
     }
 
     /**
@@ -283,7 +484,7 @@ public class SamplerMetric {
      *         added yet
      */
     public double getKoMinTime() {
-        return koResponsesStats.getMin();
+        return current().koResponses.getMin();
     }
 
     /**
@@ -292,7 +493,7 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getKoMean() {
-        return koResponsesStats.getMean();
+        return current().koResponses.getMean();
     }
 
     /**
@@ -304,7 +505,7 @@ public class SamplerMetric {
      *         values.
      */
     public double getKoPercentile(double percentile) {
-        return koResponsesStats.getPercentile(percentile);
+        return current().koResponses.getPercentile(percentile);
     }
 
     /**
@@ -314,7 +515,7 @@ public class SamplerMetric {
      *         been added yet
      */
     public double getAllMaxTime() {
-        return allResponsesStats.getMax();
+        return current().allResponses.getMax();
     }
 
     /**
@@ -324,7 +525,7 @@ public class SamplerMetric {
      *         added yet
      */
     public double getAllMinTime() {
-        return allResponsesStats.getMin();
+        return current().allResponses.getMin();
     }
 
     /**
@@ -333,7 +534,7 @@ public class SamplerMetric {
      * @return The arithmetic mean of the stored values
      */
     public double getAllMean() {
-        return allResponsesStats.getMean();
+        return current().allResponses.getMean();
     }
 
     /**
@@ -345,7 +546,10 @@ public class SamplerMetric {
      *         values.
      */
     public double getAllPercentile(double percentile) {
-        return pctResponseStats.getPercentile(percentile);
+        if (pctResponses == null) {
+            return current().allResponses.getPercentile(percentile);
+        }
+        return pctResponses.getPercentile(percentile);
     }
 
     /**
@@ -353,7 +557,7 @@ public class SamplerMetric {
      * @return the hits
      */
     public int getHits() {
-        return hits;
+        return current().hits;
     }
 
     /**
@@ -361,20 +565,20 @@ public class SamplerMetric {
      * @return errors
      */
     public Map<ErrorMetric, Integer> getErrors() {
-        return errors;
+        return current().errors;
     }
 
     /**
      * @return the sentBytes
      */
     public long getSentBytes() {
-        return sentBytes;
+        return current().sentBytes;
     }
 
     /**
      * @return the receivedBytes
      */
     public long getReceivedBytes() {
-        return receivedBytes;
+        return current().receivedBytes;
     }
 }
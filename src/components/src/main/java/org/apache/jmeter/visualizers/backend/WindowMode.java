@@ -27,7 +27,13 @@ public enum WindowMode {
     /** Fixed-size sliding window. **/
     FIXED,
     /** Time boxed. **/
-    TIMED;
+    TIMED,
+    /**
+     * Time boxed, response times are counted in histograms,
+     * so percentiles cover all the samples of the interval.
+     * @since 5.5.1
+     */
+    HISTOGRAM;
 
     /**
      * Gets defined JMeter mode.
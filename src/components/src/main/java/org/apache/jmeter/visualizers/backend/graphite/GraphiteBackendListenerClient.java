@@ -119,7 +119,6 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     private static final int MAX_POOL_SIZE = 1;
     private static final String DEFAULT_PERCENTILES = "90;95;99";
     private static final String SEPARATOR = ";"; //$NON-NLS-1$
-    private static final Object LOCK = new Object();
 
     private boolean summaryOnly;
     private String samplersList = ""; //$NON-NLS-1$
@@ -149,18 +148,18 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     protected void sendMetrics() {
         // Need to convert millis to seconds for Graphite
         long timestampInSeconds = TimeUnit.SECONDS.convert(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-        synchronized (LOCK) {
-            for (Map.Entry<String, SamplerMetric> entry : getMetricsPerSampler().entrySet()) {
-                final String key = entry.getKey();
-                final SamplerMetric metric = entry.getValue();
-                if (key.equals(CUMULATED_METRICS)) {
-                    addMetrics(timestampInSeconds, ALL_CONTEXT_NAME, metric);
-                } else {
-                    addMetrics(timestampInSeconds, AbstractGraphiteMetricsSender.sanitizeString(key), metric);
-                }
-                // We are computing on interval basis so cleanup
-                metric.resetForTimeInterval();
+        for (Map.Entry<String, SamplerMetric> entry : getMetricsPerSampler().entrySet()) {
+            final String key = entry.getKey();
+            final SamplerMetric metric = entry.getValue();
+            // Samples added from now on are counted in the next interval
+            metric.endTimeInterval();
+            if (key.equals(CUMULATED_METRICS)) {
+                addMetrics(timestampInSeconds, ALL_CONTEXT_NAME, metric);
+            } else {
+                addMetrics(timestampInSeconds, AbstractGraphiteMetricsSender.sanitizeString(key), metric);
             }
+            // We are computing on interval basis so cleanup
+            metric.resetForTimeInterval();
         }
         UserMetric userMetric = getUserMetrics();
         graphiteMetricsManager.addMetric(timestampInSeconds, TEST_CONTEXT_NAME,
@@ -271,25 +270,23 @@ public class GraphiteBackendListenerClient extends AbstractBackendListenerClient
     @Override
     public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
         boolean samplersToFilterMatch;
-        synchronized (LOCK) {
-            UserMetric userMetrics = getUserMetrics();
-            for (SampleResult sampleResult : sampleResults) {
-                userMetrics.add(sampleResult);
-
-                if (!summaryOnly) {
-                    if (useRegexpForSamplersList) {
-                        Matcher matcher = pattern.matcher(sampleResult.getSampleLabel());
-                        samplersToFilterMatch = matcher.matches();
-                    } else {
-                        samplersToFilterMatch = samplersToFilter.contains(sampleResult.getSampleLabel());
-                    }
-                    if (samplersToFilterMatch) {
-                        SamplerMetric samplerMetric = getSamplerMetric(sampleResult.getSampleLabel());
-                        samplerMetric.add(sampleResult);
-                    }
+        UserMetric userMetrics = getUserMetrics();
+        for (SampleResult sampleResult : sampleResults) {
+            userMetrics.add(sampleResult);
+
+            if (!summaryOnly) {
+                if (useRegexpForSamplersList) {
+                    Matcher matcher = pattern.matcher(sampleResult.getSampleLabel());
+                    samplersToFilterMatch = matcher.matches();
+                } else {
+                    samplersToFilterMatch = samplersToFilter.contains(sampleResult.getSampleLabel());
+                }
+                if (samplersToFilterMatch) {
+                    SamplerMetric samplerMetric = getSamplerMetric(sampleResult.getSampleLabel());
+                    samplerMetric.add(sampleResult);
                 }
-                getSamplerMetric(CUMULATED_METRICS).addCumulated(sampleResult);
             }
+            getSamplerMetric(CUMULATED_METRICS).addCumulated(sampleResult);
         }
     }
 
@@ -95,7 +95,6 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
     private static final long SEND_INTERVAL = JMeterUtils.getPropDefault("backend_influxdb.send_interval", 5);
     private static final int MAX_POOL_SIZE = 1;
     private static final String SEPARATOR = ";"; //$NON-NLS-1$
-    private static final Object LOCK = new Object();
     private static final Map<String, String> DEFAULT_ARGS = new LinkedHashMap<>();
 
     static {
@@ -137,17 +136,17 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
 
     private void sendMetrics() {
 
-        synchronized (LOCK) {
-            for (Map.Entry<String, SamplerMetric> entry : metricsPerSampler.entrySet()) {
-                SamplerMetric metric = entry.getValue();
-                if (entry.getKey().equals(CUMULATED_METRICS)) {
-                    addCumulatedMetrics(metric);
-                } else {
-                    addMetrics(AbstractInfluxdbMetricsSender.tagToStringValue(entry.getKey()), metric);
-                }
-                // We are computing on interval basis so cleanup
-                metric.resetForTimeInterval();
+        for (Map.Entry<String, SamplerMetric> entry : metricsPerSampler.entrySet()) {
+            SamplerMetric metric = entry.getValue();
+            // Samples added from now on are counted in the next interval
+            metric.endTimeInterval();
+            if (entry.getKey().equals(CUMULATED_METRICS)) {
+                addCumulatedMetrics(metric);
+            } else {
+                addMetrics(AbstractInfluxdbMetricsSender.tagToStringValue(entry.getKey()), metric);
             }
+            // We are computing on interval basis so cleanup
+            metric.resetForTimeInterval();
         }
 
         UserMetric userMetrics = getUserMetrics();
@@ -293,18 +292,16 @@ public class InfluxdbBackendListenerClient extends AbstractBackendListenerClient
 
     @Override
     public void handleSampleResults(List<SampleResult> sampleResults, BackendListenerContext context) {
-        synchronized (LOCK) {
-            UserMetric userMetrics = getUserMetrics();
-            for (SampleResult sampleResult : sampleResults) {
-                userMetrics.add(sampleResult);
-                Matcher matcher = samplersToFilter.matcher(sampleResult.getSampleLabel());
-                if (!summaryOnly && matcher.find()) {
-                    SamplerMetric samplerMetric = getSamplerMetricInfluxdb(sampleResult.getSampleLabel());
-                    samplerMetric.add(sampleResult);
-                }
-                SamplerMetric cumulatedMetrics = getSamplerMetricInfluxdb(CUMULATED_METRICS);
-                cumulatedMetrics.addCumulated(sampleResult);
+        UserMetric userMetrics = getUserMetrics();
+        for (SampleResult sampleResult : sampleResults) {
+            userMetrics.add(sampleResult);
+            Matcher matcher = samplersToFilter.matcher(sampleResult.getSampleLabel());
+            if (!summaryOnly && matcher.find()) {
+                SamplerMetric samplerMetric = getSamplerMetricInfluxdb(sampleResult.getSampleLabel());
+                samplerMetric.add(sampleResult);
             }
+            SamplerMetric cumulatedMetrics = getSamplerMetricInfluxdb(CUMULATED_METRICS);
+            cumulatedMetrics.addCumulated(sampleResult);
         }
     }
 
@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.visualizers.backend;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SamplerMetricHistogramModeTest {
+
+    @BeforeEach
+    @SuppressWarnings("deprecation")
+    public void initMode() throws Exception {
+        SamplerMetric.setDefaultWindowMode(WindowMode.HISTOGRAM);
+    }
+
+    @Test
+    public void checkPercentilesCoverTheWholeInterval() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        // More samples than the default sliding windows
+        for (int i = 1; i <= 10_000; i++) {
+            metric.add(createSampleResult(i % 10 != 0, i));
+        }
+
+        assertEquals("all.min", 1, metric.getAllMinTime(), 0.0);
+        assertEquals("all.max", 10_000, metric.getAllMaxTime(), 0.0);
+        assertEquals("all.mean", 5000.5, metric.getAllMean(), 0.001);
+        assertEquals("all.pct90", 9000, metric.getAllPercentile(90), 9000 * 0.004);
+        assertEquals("ko.min", 10, metric.getKoMinTime(), 0.0);
+        assertEquals("ko.pct50", 5000, metric.getKoPercentile(50), 5000 * 0.004);
+        assertEquals("ok.max", 9999, metric.getOkMaxTime(), 0.0);
+        assertEquals("failures", 1000, metric.getFailures());
+    }
+
+    @Test
+    public void checkResetStartsNewInterval() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        metric.add(createSampleResult(true, 1000));
+        metric.add(createSampleResult(false, 3000));
+        assertEquals("Before reset ok.max", 1000, metric.getOkMaxTime(), 0.0);
+        assertEquals("Before reset all.mean", 2000, metric.getAllMean(), 0.0);
+
+        metric.resetForTimeInterval();
+
+        assertEquals("After reset ok.max", Double.NaN, metric.getOkMaxTime(), 0.0);
+        assertEquals("After reset ko.pct90", Double.NaN, metric.getKoPercentile(90), 0.0);
+        assertEquals("After reset all.mean", Double.NaN, metric.getAllMean(), 0.0);
+        assertEquals("After reset total", 0, metric.getTotal());
+
+        metric.add(createSampleResult(true, 20));
+        assertEquals("Next interval all.pct99", 20, metric.getAllPercentile(99), 0.0);
+    }
+
+    @Test
+    public void checkEndedIntervalIsReadWhileNextOneIsRecorded() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        metric.add(createSampleResult(true, 100));
+        metric.endTimeInterval();
+        metric.add(createSampleResult(false, 500));
+
+        assertEquals("Ended interval total", 1, metric.getTotal());
+        assertEquals("Ended interval all.max", 100, metric.getAllMaxTime(), 0.0);
+
+        metric.resetForTimeInterval();
+
+        assertEquals("Next interval total", 1, metric.getTotal());
+        assertEquals("Next interval ko.max", 500, metric.getKoMaxTime(), 0.0);
+    }
+
+    @Test
+    public void checkNoSampleLostWhileIntervalsAreSwapped() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        int samples = 200_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= samples; i++) {
+                metric.add(createSampleResult(i % 4 != 0, i % 1000));
+            }
+        });
+        writer.start();
+        long total = 0;
+        long hits = 0;
+        while (writer.isAlive()) {
+            metric.endTimeInterval();
+            total += metric.getTotal();
+            hits += metric.getHits();
+            metric.resetForTimeInterval();
+        }
+        writer.join();
+        metric.endTimeInterval();
+        total += metric.getTotal();
+        hits += metric.getHits();
+        assertEquals("total", samples, total);
+        assertEquals("hits", samples, hits);
+    }
+
+    @Test
+    public void checkSamplesAddedByThreadsAreCounted() throws Exception {
+        SamplerMetric metric = new SamplerMetric();
+        int threads = 4;
+        int samples = 200_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 1; i <= samples; i++) {
+                    metric.add(createSampleResult(i % 4 != 0, i % 1000));
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        metric.endTimeInterval();
+        assertEquals("total", threads * samples, metric.getTotal());
+        assertEquals("hits", threads * samples, metric.getHits());
+        assertEquals("failures", threads * samples / 4, metric.getFailures());
+        assertEquals("all.max", 999, metric.getAllMaxTime(), 0.0);
+    }
+
+    private SampleResult createSampleResult(boolean success, long elapsed) {
+        SampleResult result = new SampleResult();
+        result.setSuccessful(success);
+        result.setSampleCount(1);
+        result.setErrorCount(success ? 0 : 1);
+        result.sampleStart();
+        result.setEndTime(result.getStartTime() + elapsed);
+        return result;
+    }
+}
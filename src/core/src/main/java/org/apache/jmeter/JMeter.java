@@ -76,6 +76,7 @@ import org.apache.jmeter.gui.tree.JMeterTreeNode;
 import org.apache.jmeter.plugin.JMeterPlugin;
 import org.apache.jmeter.plugin.PluginManager;
 import org.apache.jmeter.report.config.ConfigurationException;
+import org.apache.jmeter.report.core.BinarySampleConverter;
 import org.apache.jmeter.report.dashboard.ReportGenerator;
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.reporters.Summariser;
@@ -157,6 +158,7 @@ public class JMeter implements JMeterPlugin {
     private static final int REPORT_AT_END_OPT      = 'e';// $NON-NLS-1$
     private static final int REPORT_OUTPUT_FOLDER_OPT      = 'o';// $NON-NLS-1$
     private static final int FORCE_DELETE_RESULT_FILE      = 'f';// $NON-NLS-1$
+    private static final int CONVERT_RESULTS_OPT    = 'c';// $NON-NLS-1$
 
     private static final int SYSTEM_PROPERTY    = 'D';// $NON-NLS-1$
     private static final int JMETER_GLOBAL_PROP = 'G';// $NON-NLS-1$
@@ -282,6 +284,12 @@ public class JMeter implements JMeterPlugin {
             new CLOptionDescriptor("reportoutputfolder",
                     CLOptionDescriptor.ARGUMENT_REQUIRED, REPORT_OUTPUT_FOLDER_OPT,
                     "output folder for report dashboard");
+    private static final CLOptionDescriptor D_CONVERT_RESULTS_OPT =
+            new CLOptionDescriptor("convertresults",
+                    CLOptionDescriptor.ARGUMENT_REQUIRED, CONVERT_RESULTS_OPT,
+                    "convert a test results file from CSV to the binary format (.jtlb) or back to CSV",
+                    new CLOptionDescriptor[]{ D_NONGUI_OPT, D_REMOTE_OPT, D_REMOTE_OPT_PARAM, D_LOGFILE_OPT,
+                            D_REPORT_GENERATING_OPT }); // disallowed
      private static final CLOptionDescriptor D_FORCE_DELETE_RESULT_FILE =
             new CLOptionDescriptor("forceDeleteResultFile",
                     CLOptionDescriptor.ARGUMENT_DISALLOWED, FORCE_DELETE_RESULT_FILE,
@@ -332,6 +340,7 @@ public class JMeter implements JMeterPlugin {
             D_REPORT_GENERATING_OPT,
             D_REPORT_AT_END_OPT,
             D_REPORT_OUTPUT_FOLDER_OPT,
+            D_CONVERT_RESULTS_OPT,
     };
 
     /** Properties to be sent to remote servers */
@@ -455,7 +464,11 @@ public class JMeter implements JMeterPlugin {
                     }
                 }
                 CLOption testReportOpt = parser.getArgumentById(REPORT_GENERATING_OPT);
-                if (testReportOpt != null) { // generate report from existing file
+                CLOption convertResultsOpt = parser.getArgumentById(CONVERT_RESULTS_OPT);
+                if (convertResultsOpt != null) { // convert existing file
+                    File converted = BinarySampleConverter.convert(new File(convertResultsOpt.getArgument()));
+                    System.out.println("Results written to " + converted.getAbsolutePath());//NOSONAR
+                } else if (testReportOpt != null) { // generate report from existing file
                     String reportFile = testReportOpt.getArgument();
                     extractAndSetReportOutputFolder(parser, deleteResultFile);
                     ReportGenerator generator = new ReportGenerator(reportFile, null);
@@ -1223,6 +1236,7 @@ public class JMeter implements JMeterPlugin {
         public void testStarted(String host) {
             final long now=System.currentTimeMillis();
             log.info("Started remote host:  {} ({})", host, now);
+            startLiveReport();
         }
 
         @Override
@@ -1231,6 +1245,20 @@ public class JMeter implements JMeterPlugin {
                 final long now = System.currentTimeMillis();
                 log.info("{} ({})", JMeterUtils.getResString("running_test"), now);//$NON-NLS-1$
             }
+            startLiveReport();
+        }
+
+        /**
+         * Generates the dashboard while the test runs, if enabled
+         */
+        private void startLiveReport() {
+            if (reportGenerator != null) {
+                try {
+                    reportGenerator.startLiveGeneration();
+                } catch (Exception ex) {
+                    log.error("Error starting the generation of the report during the test: {}", ex.getMessage(), ex);
+                }
+            }
         }
 
         @SuppressWarnings("JdkObsolete")
@@ -30,6 +30,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.jmeter.JMeter;
+import org.apache.jmeter.engine.util.CompoundVariable;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.testbeans.TestBean;
 import org.apache.jmeter.testbeans.TestBeanHelper;
@@ -40,6 +41,8 @@ import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.ListenerNotifier;
 import org.apache.jmeter.threads.PostThreadGroup;
+import org.apache.jmeter.threads.SampleEventDispatcher;
+import org.apache.jmeter.threads.SamplePhaseMetrics;
 import org.apache.jmeter.threads.SetupThreadGroup;
 import org.apache.jmeter.threads.TestCompiler;
 import org.apache.jmeter.util.JMeterUtils;
@@ -372,6 +375,8 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
         SampleEvent.initSampleVariables();
 
         JMeterContextService.startTest();
+        SamplePhaseMetrics.clear();
+        CompoundVariable.clearParseCache();
         try {
             PreCompiler compiler = new PreCompiler();
             test.traverse(compiler);
@@ -407,6 +412,30 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
         test.traverse(postSearcher);
 
         TestCompiler.initialize();
+
+        ListenerNotifier notifier = new ListenerNotifier();
+        SampleEventDispatcher sampleEventDispatcher = SampleEventDispatcher.ENABLED
+                ? SampleEventDispatcher.start()
+                : null;
+        try {
+            runThreadGroups(setupSearcher, searcher, postSearcher, testLevelElements, notifier);
+        } finally {
+            if (sampleEventDispatcher != null) {
+                // Listeners must get the queued samples before they are told the test has ended
+                sampleEventDispatcher.stop();
+            }
+        }
+        notifyTestListenersOfEnd(testListeners);
+        JMeterContextService.endTest();
+        if (JMeter.isNonGUI() && SYSTEM_EXIT_FORCED) {
+            log.info("Forced JVM shutdown requested at end of test");
+            System.exit(0); // NOSONAR Intentional
+        }
+    }
+
+    private void runThreadGroups(SearchByClass<SetupThreadGroup> setupSearcher,
+            SearchByClass<AbstractThreadGroup> searcher, SearchByClass<PostThreadGroup> postSearcher,
+            List<?> testLevelElements, ListenerNotifier notifier) {
         // for each thread group, generate threads
         // hand each thread the sampler controller
         // and the listeners, and the timer
@@ -414,8 +443,6 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
         Iterator<AbstractThreadGroup> iter = searcher.getSearchResults().iterator();
         Iterator<PostThreadGroup> postIter = postSearcher.getSearchResults().iterator();
 
-        ListenerNotifier notifier = new ListenerNotifier();
-
         int groupCount = 0;
         JMeterContextService.clearTotalThreads();
 
@@ -503,13 +530,6 @@ public class StandardJMeterEngine implements JMeterEngine, Runnable {
             }
             waitThreadsStopped(); // wait for Post threads to stop
         }
-
-        notifyTestListenersOfEnd(testListeners);
-        JMeterContextService.endTest();
-        if (JMeter.isNonGUI() && SYSTEM_EXIT_FORCED) {
-            log.info("Forced JVM shutdown requested at end of test");
-            System.exit(0); // NOSONAR Intentional
-        }
     }
 
     private void startThreadGroup(AbstractThreadGroup group, int groupCount, SearchByClass<?> searcher, List<?> testLevelElements, ListenerNotifier notifier)
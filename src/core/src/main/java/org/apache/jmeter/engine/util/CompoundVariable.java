@@ -19,9 +19,12 @@ package org.apache.jmeter.engine.util;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.jmeter.functions.Function;
 import org.apache.jmeter.functions.InvalidVariableException;
@@ -31,6 +34,7 @@ import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.reflect.ClassFinder;
+import org.apiguardian.api.API;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +49,22 @@ public class CompoundVariable implements Function {
 
     private static final FunctionParser functionParser = new FunctionParser();
 
+    /**
+     * Maximum number of parsed strings kept in {@link #PARSE_CACHE}, 0 disables the cache.
+     */
+    private static final int PARSE_CACHE_SIZE =
+            JMeterUtils.getPropDefault("compoundvariable.parse_cache_size", 5000); // $NON-NLS-1$
+
+    /**
+     * Parsed strings that contain only text and variable references.
+     * Such components are immutable, so the parsed form can be shared by all elements and threads.
+     * Strings with function calls are not cached, as functions hold state and may register as test listeners.
+     */
+    private static final Map<String, List<Object>> PARSE_CACHE = new ConcurrentHashMap<>();
+
+    /** Number of entries of {@link #PARSE_CACHE}, reserved before they are added so the size limit holds */
+    private static final AtomicInteger PARSE_CACHE_COUNT = new AtomicInteger();
+
     // Created during class init; not modified thereafter
     private static final Map<String, Class<? extends Function>> functions = new HashMap<>();
 
@@ -53,8 +73,11 @@ public class CompoundVariable implements Function {
 
     private String permanentResults;
 
-    // Type is ArrayList, so we can use ArrayList#clone
-    private ArrayList<Object> compiledComponents = new ArrayList<>();
+    // Never modified once assigned, so it can be shared by clones
+    private List<Object> compiledComponents = Collections.emptyList();
+
+    // Initial capacity of the builder used to render the components
+    private int estimatedLength;
 
     static {
         try {
@@ -131,31 +154,43 @@ public class CompoundVariable implements Function {
             return ""; // $NON-NLS-1$
         }
 
-        StringBuilder results = new StringBuilder();
-        for (Object item : compiledComponents) {
-            if (item instanceof Function) {
-                try {
-                    results.append(((Function) item).execute(previousResult, currentSampler));
-                } catch (InvalidVariableException e) {
-                    // TODO should level be more than debug ?
-                    log.debug("Invalid variable: {}", item, e);
-                }
-            } else if (item instanceof SimpleVariable) {
-                results.append(((SimpleVariable) item).toString());
-            } else {
-                results.append(item);
+        String results;
+        if (compiledComponents.size() == 1) {
+            // Most strings are a single variable or function reference, no need to copy the result
+            results = render(compiledComponents.get(0), previousResult, currentSampler);
+        } else {
+            StringBuilder builder = new StringBuilder(estimatedLength);
+            for (Object item : compiledComponents) {
+                builder.append(render(item, previousResult, currentSampler));
             }
+            results = builder.toString();
         }
         if (!isDynamic) {
-            permanentResults = results.toString();
+            permanentResults = results;
+        }
+        return results;
+    }
+
+    private static String render(Object item, SampleResult previousResult, Sampler currentSampler) {
+        if (item instanceof Function) {
+            try {
+                return String.valueOf(((Function) item).execute(previousResult, currentSampler));
+            } catch (InvalidVariableException e) {
+                // TODO should level be more than debug ?
+                log.debug("Invalid variable: {}", item, e);
+                return ""; // $NON-NLS-1$
+            }
+        }
+        if (item instanceof String) {
+            return (String) item;
         }
-        return results.toString();
+        return String.valueOf(item);
     }
 
-    @SuppressWarnings("unchecked") // clone will produce correct type
     public CompoundVariable getFunction() {
         CompoundVariable func = new CompoundVariable();
-        func.compiledComponents = (ArrayList<Object>) compiledComponents.clone();
+        func.compiledComponents = compiledComponents;
+        func.estimatedLength = estimatedLength;
         func.rawParameters = rawParameters;
         func.hasFunction = hasFunction;
         func.isDynamic = isDynamic;
@@ -171,7 +206,7 @@ public class CompoundVariable implements Function {
     public void clear() {
         // TODO should this also clear isDynamic, rawParameters, permanentResults?
         hasFunction = false;
-        compiledComponents.clear();
+        compiledComponents = Collections.emptyList();
     }
 
     public void setParameters(String parameters) throws InvalidVariableException {
@@ -180,18 +215,95 @@ public class CompoundVariable implements Function {
             return;
         }
 
-        compiledComponents = functionParser.compileString(parameters);
+        compiledComponents = compile(parameters);
         if (compiledComponents.size() > 1 || !(compiledComponents.get(0) instanceof String)) {
             hasFunction = true;
         }
         permanentResults = null; // To be calculated and cached on first execution
         isDynamic = false;
+        estimatedLength = 0;
         for (Object item : compiledComponents) {
             if (item instanceof Function || item instanceof SimpleVariable) {
                 isDynamic = true;
-                break;
+                estimatedLength += 16;
+            } else if (item instanceof String) {
+                estimatedLength += ((String) item).length();
+            }
+        }
+    }
+
+    /**
+     * Parses the string, or returns the shared parsed form when the string was already parsed.
+     *
+     * @param parameters string containing the function / variable references (if any)
+     * @return unmodifiable list of Strings or Objects representing functions
+     * @throws InvalidVariableException when evaluation of variables fail
+     */
+    private static List<Object> compile(String parameters) throws InvalidVariableException {
+        List<Object> components = PARSE_CACHE.get(parameters);
+        if (components != null) {
+            return components;
+        }
+        if (parameters.indexOf('$') < 0 && parameters.indexOf('\\') < 0) {
+            // Nothing to parse nor to unescape
+            return Collections.singletonList(parameters);
+        }
+        components = foldConstants(functionParser.compileString(parameters));
+        if (PARSE_CACHE_COUNT.get() < PARSE_CACHE_SIZE && isShareable(components)) {
+            cache(parameters, components);
+        }
+        return components;
+    }
+
+    private static void cache(String parameters, List<Object> components) {
+        if (PARSE_CACHE_COUNT.incrementAndGet() > PARSE_CACHE_SIZE
+                || PARSE_CACHE.putIfAbsent(parameters, components) != null) {
+            // The cache is full, or another thread cached the same string
+            PARSE_CACHE_COUNT.decrementAndGet();
+        }
+    }
+
+    /**
+     * Clears the parsed strings shared by the elements. Elements keep the parsed form they already hold.
+     * Called by the engine when a test starts.
+     */
+    @API(status = API.Status.INTERNAL, since = "5.5.1")
+    public static void clearParseCache() {
+        PARSE_CACHE.clear();
+        // Strings cached while clearing stay counted
+        PARSE_CACHE_COUNT.set(PARSE_CACHE.size());
+    }
+
+    /**
+     * @return the number of parsed strings shared by the elements
+     */
+    static int getParseCacheSize() {
+        return PARSE_CACHE.size();
+    }
+
+    /**
+     * Merges consecutive text components, that the parser produces for invalid references.
+     */
+    private static List<Object> foldConstants(List<Object> components) {
+        List<Object> folded = new ArrayList<>(components.size());
+        for (Object item : components) {
+            int last = folded.size() - 1;
+            if (item instanceof String && last >= 0 && folded.get(last) instanceof String) {
+                folded.set(last, folded.get(last) + (String) item);
+            } else {
+                folded.add(item);
+            }
+        }
+        return Collections.unmodifiableList(folded);
+    }
+
+    private static boolean isShareable(List<Object> components) {
+        for (Object item : components) {
+            if (!(item instanceof String) && !(item instanceof SimpleVariable)) {
+                return false;
             }
         }
+        return true;
     }
 
     static Object getNamedFunction(String functionName) throws InvalidVariableException {
@@ -20,11 +20,15 @@ package org.apache.jmeter.engine.util;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.VariableSlot;
 
 public class SimpleVariable {
 
     private String name;
 
+    /** Resolved on first use, so the variable is looked up without hashing its name */
+    private VariableSlot slot;
+
     public SimpleVariable(String name) {
         this.name = name;
     }
@@ -39,6 +43,7 @@ public class SimpleVariable {
 
     public void setName(String name) {
         this.name = name;
+        this.slot = null;
     }
 
     /**
@@ -50,7 +55,10 @@ public class SimpleVariable {
         JMeterVariables vars = getVariables();
 
         if (vars != null) {
-            ret = vars.get(name);
+            if (slot == null) {
+                slot = VariableSlot.of(name);
+            }
+            ret = vars.get(slot);
         }
 
         if (ret == null) {
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader of aggregated result files, which hold per time bucket and per label aggregates instead of samples.
+ * <p>
+ * The file starts with the {@link #HEADER} line, then each line aggregates the samples of a time bucket
+ * that share a label, a thread group, a success status, a response code, whether they come from
+ * a transaction controller and, for failed samples, a failure message.
+ * The response message of a line is the one of its first failed sample, or the message of the controller.
+ * The {@code elapsed}, {@code Latency} and {@code Connect} columns hold histograms:
+ * space separated values, each followed by {@code *count} when it was recorded more than once.
+ * <p>
+ * The reader expands each line back to as many samples as it aggregates, so that the report generator
+ * builds the usual dashboard with its sample based consumers, in a time proportional to the number of results:
+ * <ul>
+ * <li>samples are stamped with the start of their bucket,</li>
+ * <li>elapsed times, latencies and connect times are taken from the histograms in ascending order,
+ * so the n-th sample gets the n-th lowest value of each histogram,</li>
+ * <li>received and sent bytes are spread evenly over the samples,</li>
+ * <li>thread names are the thread group name followed by {@code " *"}.</li>
+ * </ul>
+ * Statistics and graphs are then exact, except percentiles and distributions which are accurate
+ * within the precision of the histograms, and values over time which are accurate within the bucket length.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class AggregatedSampleReader implements SampleReader {
+
+    private static final Logger log = LoggerFactory.getLogger(AggregatedSampleReader.class);
+
+    /** Extension of the result files written aggregated by the listeners */
+    public static final String FILE_EXTENSION = ".jtla"; // $NON-NLS-1$
+
+    /** Name of the column holding the start time of the bucket, in milliseconds */
+    public static final String BUCKET_START = "bucketStart"; // $NON-NLS-1$
+
+    /** Name of the column holding the thread group name */
+    public static final String THREAD_GROUP = "threadGroup"; // $NON-NLS-1$
+
+    /** Name of the column holding the number of aggregated samples */
+    public static final String COUNT = "count"; // $NON-NLS-1$
+
+    /** Separator of the columns */
+    public static final char SEPARATOR = ',';
+
+    /** First line of an aggregated result file, naming its columns */
+    public static final String HEADER = String.join(String.valueOf(SEPARATOR),
+            BUCKET_START,
+            CSVSaveService.LABEL,
+            THREAD_GROUP,
+            CSVSaveService.SUCCESSFUL,
+            CSVSaveService.RESPONSE_CODE,
+            CSVSaveService.RESPONSE_MESSAGE,
+            CSVSaveService.FAILURE_MESSAGE,
+            COUNT,
+            CSVSaveService.CSV_BYTES,
+            CSVSaveService.CSV_SENT_BYTES,
+            CSVSaveService.CSV_THREAD_COUNT1,
+            CSVSaveService.CSV_THREAD_COUNT2,
+            CSVSaveService.CSV_ELAPSED,
+            CSVSaveService.CSV_LATENCY,
+            CSVSaveService.CSV_CONNECT_TIME);
+
+    private static final int COLUMN_COUNT = 15;
+
+    /** Columns of the samples produced by the reader */
+    private static final SampleMetadata METADATA = new SampleMetadata(SEPARATOR,
+            CSVSaveService.TIME_STAMP,
+            CSVSaveService.CSV_ELAPSED,
+            CSVSaveService.LABEL,
+            CSVSaveService.RESPONSE_CODE,
+            CSVSaveService.RESPONSE_MESSAGE,
+            CSVSaveService.THREAD_NAME,
+            CSVSaveService.SUCCESSFUL,
+            CSVSaveService.FAILURE_MESSAGE,
+            CSVSaveService.CSV_BYTES,
+            CSVSaveService.CSV_SENT_BYTES,
+            CSVSaveService.CSV_THREAD_COUNT1,
+            CSVSaveService.CSV_THREAD_COUNT2,
+            CSVSaveService.CSV_LATENCY,
+            CSVSaveService.CSV_CONNECT_TIME);
+
+    private static final String TIMESTAMP_FORMAT =
+            JMeterUtils.getPropDefault(
+                    "jmeter.save.saveservice.timestamp_format", // $NON-NLS-1$
+                    SampleSaveConfiguration.MILLISECONDS);
+
+    /**
+     * Values of a histogram column, in ascending order.
+     */
+    private static final class RankedValues {
+        private final long[] values;
+        private final long[] counts;
+        private int index;
+        private long remaining;
+
+        RankedValues(String text) {
+            String[] entries = text.isEmpty() ? new String[0] : text.split(" ");
+            values = new long[entries.length];
+            counts = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                String entry = entries[i];
+                int star = entry.indexOf('*');
+                if (star < 0) {
+                    values[i] = Long.parseLong(entry);
+                    counts[i] = 1;
+                } else {
+                    values[i] = Long.parseLong(entry.substring(0, star));
+                    counts[i] = Long.parseLong(entry.substring(star + 1));
+                }
+            }
+            remaining = counts.length > 0 ? counts[0] : 0;
+        }
+
+        /**
+         * @return the next value, or the highest one when all values were returned
+         */
+        long next() {
+            while (remaining == 0 && index < counts.length - 1) {
+                index++;
+                remaining = counts[index];
+            }
+            if (values.length == 0) {
+                return 0;
+            }
+            remaining = Math.max(0, remaining - 1);
+            return values[index];
+        }
+    }
+
+    private final File file;
+    private final BufferedReader reader;
+    private final SimpleDateFormat dateFormat;
+    private long line = 1;
+    private long row;
+
+    /* Line being expanded */
+    private String[] aggregate;
+    private String timeStamp;
+    private String threadName;
+    private long count;
+    private long produced;
+    private long bytes;
+    private long sentBytes;
+    private RankedValues elapsed;
+    private RankedValues latency;
+    private RankedValues connect;
+
+    private Sample lastSampleRead;
+
+    /**
+     * Instantiates a new aggregated sample reader.
+     *
+     * @param inputFile the input file (must not be {@code null})
+     */
+    public AggregatedSampleReader(File inputFile) {
+        if (!(inputFile.isFile() && inputFile.canRead())) {
+            throw new IllegalArgumentException(inputFile.getAbsolutePath()
+                    + " does not exist or is not readable");
+        }
+        this.file = inputFile;
+        try {
+            this.reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SampleException("Could not create file reader !", e);
+        }
+        try {
+            String header = reader.readLine();
+            if (!HEADER.equals(header)) {
+                throw new SampleException(file + " is not an aggregated result file, header is <" + header + ">");
+            }
+        } catch (IOException e) {
+            close();
+            throw new SampleException("Could not read metadata !", e);
+        }
+        this.dateFormat = SampleSaveConfiguration.MILLISECONDS.equalsIgnoreCase(TIMESTAMP_FORMAT)
+                ? null : new SimpleDateFormat(TIMESTAMP_FORMAT);
+        this.lastSampleRead = nextSample();
+    }
+
+    /**
+     * Checks whether a file starts like an aggregated result file.
+     *
+     * @param file the file to check
+     * @return true if the file is an aggregated result file
+     */
+    public static boolean isAggregatedFile(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            return HEADER.equals(in.readLine());
+        } catch (IOException e) {
+            log.debug("Could not read {}", file, e);
+            return false;
+        }
+    }
+
+    @Override
+    public SampleMetadata getMetadata() {
+        return METADATA;
+    }
+
+    private Sample nextSample() {
+        while (produced == count) {
+            if (!readAggregate()) {
+                return null;
+            }
+        }
+        produced++;
+        long share = bytes / count + (produced <= bytes % count ? 1 : 0);
+        long sentShare = sentBytes / count + (produced <= sentBytes % count ? 1 : 0);
+        return new Sample(row++, METADATA,
+                timeStamp,
+                Long.toString(elapsed.next()),
+                aggregate[1],
+                aggregate[4],
+                aggregate[5],
+                threadName,
+                aggregate[3],
+                aggregate[6],
+                Long.toString(share),
+                Long.toString(sentShare),
+                aggregate[10],
+                aggregate[11],
+                Long.toString(latency.next()),
+                Long.toString(connect.next()));
+    }
+
+    /**
+     * @return false at the end of the file
+     */
+    @SuppressWarnings("JavaUtilDate")
+    private boolean readAggregate() {
+        String[] data;
+        try {
+            data = CSVSaveService.csvReadFile(reader, SEPARATOR);
+        } catch (IOException e) {
+            throw new SampleException("Could not read line <" + line + "> of " + file, e);
+        }
+        if (data.length == 0) {
+            return false;
+        }
+        line++;
+        if (data.length != COLUMN_COUNT) {
+            throw new SampleException("Mismatch between expected number of columns:" + COLUMN_COUNT
+                    + " and columns at line " + line + " of '" + file + "':" + data.length);
+        }
+        try {
+            long bucketStart = Long.parseLong(data[0]);
+            timeStamp = dateFormat == null
+                    ? data[0]
+                    : dateFormat.format(new Date(bucketStart));
+            count = Long.parseLong(data[7]);
+            bytes = Long.parseLong(data[8]);
+            sentBytes = Long.parseLong(data[9]);
+            elapsed = new RankedValues(data[12]);
+            latency = new RankedValues(data[13]);
+            connect = new RankedValues(data[14]);
+        } catch (NumberFormatException e) {
+            throw new SampleException("Could not parse line " + line + " of '" + file + "'", e);
+        }
+        aggregate = data;
+        threadName = data[2] + " *";
+        produced = 0;
+        return true;
+    }
+
+    @Override
+    public Sample readSample() {
+        Sample out = lastSampleRead;
+        if (out != null) {
+            lastSampleRead = nextSample();
+        }
+        return out;
+    }
+
+    @Override
+    public Sample peek() {
+        return lastSampleRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return lastSampleRead != null;
+    }
+
+    @Override
+    public void close() {
+        JOrphanUtils.closeQuietly(reader);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encoding shared by {@link BinarySampleWriter} and {@link BinarySampleReader}.
+ * <p>
+ * A file is made of a header followed by blocks of rows:
+ * <pre>
+ * file    := header block*
+ * header  := "JTLB" version:byte separator:char columnCount:int columnName:utf*
+ * block   := rowCount:int rawLength:int compressedLength:int deflate(column*)
+ * column  := NUMBER first:varlong delta:varlong*
+ *          | DICTIONARY entryCount:varint entry:string* index:varint*
+ *          | TEXT value:string*
+ * string  := length:varint utf-8 bytes
+ * </pre>
+ * Numbers and deltas are zigzag encoded, so small negative values stay short.
+ * Each block is self-contained, so a file can be appended to and blocks can be decoded independently.
+ */
+final class BinarySampleCodec {
+
+    static final byte[] MAGIC = { 'J', 'T', 'L', 'B' };
+
+    static final int VERSION = 1;
+
+    /** Column whose values are all canonical longs, stored as deltas */
+    static final byte NUMBER = 0;
+
+    /** Column with few distinct values, stored as indexes in a dictionary of the block */
+    static final byte DICTIONARY = 1;
+
+    /** Column stored as plain strings */
+    static final byte TEXT = 2;
+
+    /** Length of the header of a block: row count, raw length and compressed length */
+    static final int BLOCK_HEADER_LENGTH = 12;
+
+    private BinarySampleCodec() {
+        // Utility class
+    }
+
+    /**
+     * Writes the header describing the columns.
+     *
+     * @param out the file
+     * @param metadata the columns
+     * @throws IOException when writing fails
+     */
+    static void writeHeader(DataOutput out, SampleMetadata metadata) throws IOException {
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        out.writeChar(metadata.getSeparator());
+        int columnCount = metadata.getColumnCount();
+        out.writeInt(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            out.writeUTF(metadata.getColumnName(i));
+        }
+    }
+
+    /**
+     * Reads the header describing the columns.
+     *
+     * @param in the file
+     * @param name name of the file for error messages
+     * @return the columns
+     * @throws IOException when reading fails
+     */
+    static SampleMetadata readHeader(DataInput in, String name) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(MAGIC, magic)) {
+            throw new SampleException(name + " is not a binary result file");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new SampleException("Unsupported version " + version + " of binary result file " + name);
+        }
+        char separator = in.readChar();
+        int columnCount = in.readInt();
+        String[] columns = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = in.readUTF();
+        }
+        return new SampleMetadata(separator, columns);
+    }
+
+    /**
+     * Parses a long only if formatting it back gives the same string,
+     * so the column can be stored as numbers without changing its text.
+     *
+     * @param value the value to parse
+     * @param into array receiving the number
+     * @param index index in the array
+     * @return true if the value was a canonical long
+     */
+    static boolean parseCanonicalLong(String value, long[] into, int index) {
+        int length = value == null ? 0 : value.length();
+        if (length == 0) {
+            return false;
+        }
+        boolean negative = value.charAt(0) == '-';
+        int start = negative ? 1 : 0;
+        int digits = length - start;
+        // 18 digits always fit in a long
+        if (digits == 0 || digits > 18 || (value.charAt(start) == '0' && (digits > 1 || negative))) {
+            return false;
+        }
+        long result = 0;
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            result = result * 10 + (c - '0');
+        }
+        into[index] = negative ? -result : result;
+        return true;
+    }
+
+    /**
+     * Growable byte array the columns of a block are encoded into.
+     */
+    static final class Output {
+        private byte[] buffer = new byte[64 * 1024];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] buffer() {
+            return buffer;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buffer[size++] = (byte) v;
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+    }
+
+    /**
+     * Reads the columns of a decompressed block.
+     */
+    static final class Input {
+        private final byte[] buffer;
+        private final int limit;
+        private int position;
+
+        Input(byte[] buffer, int limit) {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+
+        private void check(int length) {
+            if (length < 0 || position + length > limit) {
+                throw new SampleException("Corrupted block, unexpected end of data at " + position);
+            }
+        }
+
+        byte readByte() {
+            check(1);
+            return buffer[position++];
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new SampleException("Corrupted block, varint too long at " + position);
+        }
+
+        int readVarInt() {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new SampleException("Corrupted block, invalid length " + value);
+            }
+            return (int) value;
+        }
+
+        long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        String readString() {
+            int length = readVarInt();
+            check(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.io.File;
+
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Converts result files between the CSV format and the binary columnar format.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class BinarySampleConverter {
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySampleConverter.class);
+
+    private static final String CSV_EXTENSION = ".csv"; // $NON-NLS-1$
+
+    private BinarySampleConverter() {
+        // Utility class
+    }
+
+    /**
+     * Converts a binary result file to CSV, or a CSV result file to binary.
+     * The converted file is written next to the input, with the extension
+     * {@value #CSV_EXTENSION} or {@value BinarySampleWriter#FILE_EXTENSION}.
+     *
+     * @param input the file to convert (must not be {@code null})
+     * @return the converted file
+     */
+    public static File convert(File input) {
+        boolean binary = BinarySampleReader.isBinaryFile(input);
+        File output = new File(input.getAbsoluteFile().getParentFile(),
+                rootName(input.getName()) + (binary ? CSV_EXTENSION : BinarySampleWriter.FILE_EXTENSION));
+        long start = System.currentTimeMillis();
+        long samples = binary ? toCsv(input, output) : toBinary(input, output);
+        log.info("Converted {} samples from {} to {} in {}", samples, input, output,
+                TimeHelper.time(System.currentTimeMillis() - start));
+        return output;
+    }
+
+    private static String rootName(String name) {
+        int idx = name.lastIndexOf('.');
+        return idx < 0 ? name : name.substring(0, idx);
+    }
+
+    /**
+     * Converts a CSV result file to the binary format.
+     *
+     * @param csv    the CSV file, with a header line or written with the current
+     *               jmeter.save.saveservice.* properties
+     * @param binary the binary file to write, replaced if it exists
+     * @return the number of converted samples
+     */
+    public static long toBinary(File csv, File binary) {
+        char separator = SampleSaveConfiguration.staticConfig().getDelimiter().charAt(0);
+        long samples = 0;
+        try (CsvSampleReader reader = new CsvSampleReader(csv, separator, true);
+                BinarySampleWriter writer = new BinarySampleWriter(binary, reader.getMetadata())) {
+            Sample sample;
+            while ((sample = reader.readSample()) != null) {
+                samples = writer.write(sample);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Converts a binary result file to the CSV format, with a header line.
+     *
+     * @param binary the binary file
+     * @param csv    the CSV file to write, replaced if it exists
+     * @return the number of converted samples
+     */
+    public static long toCsv(File binary, File csv) {
+        long samples = 0;
+        try (BinarySampleReader reader = new BinarySampleReader(binary);
+                CsvSampleWriter writer = new CsvSampleWriter(csv, reader.getMetadata())) {
+            writer.writeHeader();
+            Sample sample;
+            while ((sample = reader.readSample()) != null) {
+                samples = writer.write(sample);
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.jorphan.util.JOrphanUtils;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader of the binary columnar result files written by {@link BinarySampleWriter}.
+ * <p>
+ * Blocks are decompressed and decoded one at a time, so memory use does not depend on the size of the file.
+ * Dictionary encoded values are shared by the samples of a block instead of being parsed for each row.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class BinarySampleReader implements SampleReader {
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySampleReader.class);
+
+    private static final int BUF_SIZE = 1024 * 1024;
+
+    private final File file;
+    private final DataInputStream input;
+    private final SampleMetadata metadata;
+    private final int columnCount;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] raw = new byte[0];
+    private String[][] block;
+    private int blockCapacity;
+    private int blockRows;
+    private int blockRow;
+    private long row;
+    private Sample lastSampleRead;
+
+    /**
+     * Instantiates a new binary sample reader.
+     *
+     * @param inputFile the input file (must not be {@code null})
+     */
+    public BinarySampleReader(File inputFile) {
+        if (!(inputFile.isFile() && inputFile.canRead())) {
+            throw new IllegalArgumentException(inputFile.getAbsolutePath()
+                    + " does not exist or is not readable");
+        }
+        this.file = inputFile;
+        try {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), BUF_SIZE));
+        } catch (IOException e) {
+            throw new SampleException("Could not create file reader !", e);
+        }
+        try {
+            this.metadata = BinarySampleCodec.readHeader(input, file.getAbsolutePath());
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new SampleException("Could not read metadata !", e);
+        }
+        this.columnCount = metadata.getColumnCount();
+        this.lastSampleRead = nextSample();
+    }
+
+    /**
+     * Checks whether a file starts like a binary result file.
+     *
+     * @param file the file to check
+     * @return true if the file is a binary result file
+     */
+    public static boolean isBinaryFile(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        byte[] magic = new byte[BinarySampleCodec.MAGIC.length];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read = 0;
+            while (read < magic.length) {
+                int count = in.read(magic, read, magic.length - read);
+                if (count < 0) {
+                    return false;
+                }
+                read += count;
+            }
+        } catch (IOException e) {
+            log.debug("Could not read {}", file, e);
+            return false;
+        }
+        return Arrays.equals(BinarySampleCodec.MAGIC, magic);
+    }
+
+    @Override
+    public SampleMetadata getMetadata() {
+        return metadata;
+    }
+
+    private Sample nextSample() {
+        if (blockRow == blockRows && !readBlock()) {
+            return null;
+        }
+        String[] data = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            data[i] = block[i][blockRow];
+        }
+        blockRow++;
+        return new Sample(row++, metadata, data);
+    }
+
+    /**
+     * @return false at the end of the file
+     */
+    private boolean readBlock() {
+        int rows;
+        int rawLength;
+        try {
+            rows = input.readInt();
+        } catch (EOFException e) { // NOSONAR End of file
+            return false;
+        } catch (IOException e) {
+            throw new SampleException("Could not read sample <" + row + ">", e);
+        }
+        try {
+            rawLength = input.readInt();
+            int compressedLength = input.readInt();
+            if (rows <= 0 || rawLength < 0 || compressedLength < 0) {
+                throw new SampleException("Corrupted block after sample <" + row + "> in " + file);
+            }
+            if (compressed.length < compressedLength) {
+                compressed = new byte[compressedLength];
+            }
+            input.readFully(compressed, 0, compressedLength);
+            if (raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            inflater.reset();
+            inflater.setInput(compressed, 0, compressedLength);
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int count = inflater.inflate(raw, length, rawLength - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += count;
+            }
+            if (length != rawLength) {
+                throw new SampleException("Corrupted block after sample <" + row + "> in " + file);
+            }
+        } catch (EOFException e) { // NOSONAR
+            log.warn("Ignoring incomplete block at the end of {}, JMeter may not have stopped properly", file);
+            return false;
+        } catch (IOException | DataFormatException e) {
+            throw new SampleException("Could not read sample <" + row + ">", e);
+        }
+        decode(new BinarySampleCodec.Input(raw, rawLength), rows);
+        return true;
+    }
+
+    private void decode(BinarySampleCodec.Input in, int rows) {
+        if (blockCapacity < rows) {
+            block = new String[columnCount][rows];
+            blockCapacity = rows;
+        }
+        for (String[] values : block) {
+            byte kind = in.readByte();
+            switch (kind) {
+            case BinarySampleCodec.NUMBER:
+                long value = 0;
+                for (int i = 0; i < rows; i++) {
+                    value += in.readZigZag();
+                    values[i] = Long.toString(value);
+                }
+                break;
+            case BinarySampleCodec.DICTIONARY:
+                String[] entries = new String[in.readVarInt()];
+                for (int i = 0; i < entries.length; i++) {
+                    entries[i] = in.readString();
+                }
+                for (int i = 0; i < rows; i++) {
+                    int index = in.readVarInt();
+                    if (index >= entries.length) {
+                        throw new SampleException("Corrupted block after sample <" + row + "> in " + file);
+                    }
+                    values[i] = entries[index];
+                }
+                break;
+            case BinarySampleCodec.TEXT:
+                for (int i = 0; i < rows; i++) {
+                    values[i] = in.readString();
+                }
+                break;
+            default:
+                throw new SampleException("Unknown column encoding " + kind + " in " + file);
+            }
+        }
+        blockRows = rows;
+        blockRow = 0;
+    }
+
+    @Override
+    public Sample readSample() {
+        Sample out = lastSampleRead;
+        if (out != null) {
+            lastSampleRead = nextSample();
+        }
+        return out;
+    }
+
+    @Override
+    public Sample peek() {
+        return lastSampleRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return lastSampleRead != null;
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+        JOrphanUtils.closeQuietly(input);
+    }
+}
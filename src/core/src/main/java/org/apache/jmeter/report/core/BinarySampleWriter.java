@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes samples in the binary columnar result format read by {@link BinarySampleReader}.
+ * <p>
+ * Samples are buffered into blocks of {@value #BLOCK_ROWS} rows. Each block is stored column by column:
+ * columns whose values are all integers are stored as deltas between consecutive rows,
+ * columns with few distinct values (labels, thread names, response codes...) as indexes in a dictionary,
+ * other columns as plain text. The block is then compressed with deflate.
+ * <p>
+ * Values are stored as text, so reading the file gives back exactly the values of the CSV file it replaces.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class BinarySampleWriter extends SampleWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(BinarySampleWriter.class);
+
+    /** Extension of the result files that {@link org.apache.jmeter.reporters.ResultCollector} writes in binary */
+    public static final String FILE_EXTENSION = ".jtlb"; // $NON-NLS-1$
+
+    /** Number of rows of a block */
+    static final int BLOCK_ROWS = 4096;
+
+    private static final int BUF_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private final SampleMetadata metadata;
+    private final int columnCount;
+    private final String[][] columns;
+    private final long[] numbers = new long[BLOCK_ROWS];
+    private final int[] indexes = new int[BLOCK_ROWS];
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> entries = new ArrayList<>();
+    private final BinarySampleCodec.Output raw = new BinarySampleCodec.Output();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private byte[] compressed = new byte[BUF_SIZE];
+    private int rows;
+    private long sampleCount;
+    private boolean closed;
+
+    /**
+     * @param output   the output stream to write data to, it is closed with the writer (Must not be {@code null})
+     * @param metadata the description for data that this writer will write. (
+     *                 {@code metadata} must not be {@code null}.)
+     */
+    public BinarySampleWriter(OutputStream output, SampleMetadata metadata) {
+        this(output, metadata, true);
+    }
+
+    /**
+     * @param output   the output file to write data to, it is replaced if it exists. (Must not be {@code null})
+     * @param metadata the description for data that this writer will write. (
+     *                 {@code metadata} must not be {@code null}.)
+     */
+    public BinarySampleWriter(File output, SampleMetadata metadata) {
+        this(output, metadata, false);
+    }
+
+    /**
+     * @param output   the output file to write data to. (Must not be {@code null})
+     * @param metadata the description for data that this writer will write. (
+     *                 {@code metadata} must not be {@code null}.)
+     * @param append   whether samples are added to an existing file, that must have the same columns
+     */
+    public BinarySampleWriter(File output, SampleMetadata metadata, boolean append) {
+        this(openFile(output, metadata, append), metadata, !(append && output.length() > 0));
+    }
+
+    private BinarySampleWriter(OutputStream output, SampleMetadata metadata, boolean writeHeader) {
+        Validate.notNull(output, "output must not be null");
+        Validate.notNull(metadata, "metadata must not be null");
+        this.output = new DataOutputStream(output instanceof BufferedOutputStream
+                ? output
+                : new BufferedOutputStream(output, BUF_SIZE));
+        this.metadata = metadata;
+        this.columnCount = metadata.getColumnCount();
+        this.columns = new String[columnCount][BLOCK_ROWS];
+        if (writeHeader) {
+            try {
+                BinarySampleCodec.writeHeader(this.output, metadata);
+            } catch (IOException e) {
+                JOrphanUtils.closeQuietly(this.output);
+                throw new SampleException("Could not write header", e);
+            }
+        }
+    }
+
+    private static OutputStream openFile(File output, SampleMetadata metadata, boolean append) {
+        Validate.notNull(output, "output must not be null");
+        try {
+            boolean appending = append && output.length() > 0 && prepareAppend(output, metadata);
+            return new BufferedOutputStream(new FileOutputStream(output, appending), BUF_SIZE);
+        } catch (IOException e) {
+            throw new SampleException("Could not open " + output.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Checks that the file has the same columns and removes an incomplete last block,
+     * left by a JMeter that did not stop properly.
+     */
+    private static boolean prepareAppend(File output, SampleMetadata metadata) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(output, "rw")) { // $NON-NLS-1$
+            SampleMetadata existing = BinarySampleCodec.readHeader(file, output.getAbsolutePath());
+            if (!existing.toString().equals(metadata.toString())) {
+                throw new SampleException("Cannot append to " + output.getAbsolutePath()
+                        + ", its columns " + existing + " differ from " + metadata);
+            }
+            long length = file.length();
+            long end = file.getFilePointer();
+            while (end + BinarySampleCodec.BLOCK_HEADER_LENGTH <= length) {
+                file.seek(end);
+                int blockRows = file.readInt();
+                file.readInt(); // raw length
+                int compressedLength = file.readInt();
+                long next = end + BinarySampleCodec.BLOCK_HEADER_LENGTH + compressedLength;
+                if (blockRows <= 0 || compressedLength < 0 || next > length) {
+                    break;
+                }
+                end = next;
+            }
+            if (end < length) {
+                log.warn("Removing {} bytes of incomplete data at the end of {}", length - end, output);
+                file.setLength(end);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return the description of the written columns
+     */
+    public SampleMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public synchronized long write(Sample sample) {
+        Validate.validState(!closed, "Writer is closed");
+        int row = rows;
+        for (int i = 0; i < columnCount; i++) {
+            String value = sample.getData(i);
+            columns[i][row] = value == null ? "" : value;
+        }
+        rows = row + 1;
+        sampleCount++;
+        if (rows == BLOCK_ROWS) {
+            writeBlock();
+        }
+        return sampleCount;
+    }
+
+    private void writeBlock() {
+        if (rows == 0) {
+            return;
+        }
+        raw.reset();
+        for (String[] column : columns) {
+            writeColumn(column);
+        }
+        deflater.reset();
+        deflater.setInput(raw.buffer(), 0, raw.size());
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        try {
+            output.writeInt(rows);
+            output.writeInt(raw.size());
+            output.writeInt(length);
+            output.write(compressed, 0, length);
+        } catch (IOException e) {
+            throw new SampleException("Could not write block of " + rows + " samples", e);
+        }
+        for (String[] column : columns) {
+            Arrays.fill(column, 0, rows, null);
+        }
+        rows = 0;
+    }
+
+    private void writeColumn(String[] values) {
+        if (writeNumbers(values)) {
+            return;
+        }
+        dictionary.clear();
+        entries.clear();
+        // A dictionary only pays off if values repeat
+        int maxEntries = rows / 2 + 1;
+        for (int row = 0; row < rows; row++) {
+            String value = values[row];
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                if (entries.size() == maxEntries) {
+                    writeText(values);
+                    return;
+                }
+                index = entries.size();
+                dictionary.put(value, index);
+                entries.add(value);
+            }
+            indexes[row] = index;
+        }
+        raw.writeByte(BinarySampleCodec.DICTIONARY);
+        raw.writeVarLong(entries.size());
+        for (String entry : entries) {
+            raw.writeString(entry);
+        }
+        for (int row = 0; row < rows; row++) {
+            raw.writeVarLong(indexes[row]);
+        }
+    }
+
+    private boolean writeNumbers(String[] values) {
+        for (int row = 0; row < rows; row++) {
+            if (!BinarySampleCodec.parseCanonicalLong(values[row], numbers, row)) {
+                return false;
+            }
+        }
+        raw.writeByte(BinarySampleCodec.NUMBER);
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            raw.writeZigZag(numbers[row] - previous);
+            previous = numbers[row];
+        }
+        return true;
+    }
+
+    private void writeText(String[] values) {
+        raw.writeByte(BinarySampleCodec.TEXT);
+        for (int row = 0; row < rows; row++) {
+            raw.writeString(values[row]);
+        }
+    }
+
+    /**
+     * Writes the buffered samples as a block and flushes the output.
+     * Blocks written this way are smaller, so only flush when the data must reach the file.
+     */
+    public synchronized void flush() {
+        if (closed) {
+            return;
+        }
+        writeBlock();
+        try {
+            output.flush();
+        } catch (IOException e) {
+            throw new SampleException("Could not flush samples", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            writeBlock();
+        } finally {
+            closed = true;
+            deflater.end();
+            JOrphanUtils.closeQuietly(output);
+        }
+    }
+}
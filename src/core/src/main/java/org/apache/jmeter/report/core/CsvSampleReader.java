@@ -18,7 +18,6 @@
 package org.apache.jmeter.report.core;
 
 import java.io.BufferedReader;
-import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -36,6 +35,7 @@ import org.apache.jmeter.save.CSVSaveService;
 import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.util.JOrphanUtils;
+import org.apiguardian.api.API;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,7 +47,7 @@ import org.slf4j.LoggerFactory;
  *
  * @since 3.0
  */
-public class CsvSampleReader implements Closeable{
+public class CsvSampleReader implements SampleReader {
 
     private static final Logger log = LoggerFactory.getLogger(CsvSampleReader.class);
 
@@ -84,7 +84,7 @@ public class CsvSampleReader implements Closeable{
      *                         SampleSaveConfiguration to define metadata
      */
     public CsvSampleReader(File inputFile, char separator, boolean useSaveSampleCfg) {
-        this(inputFile, null, separator, useSaveSampleCfg);
+        this(inputFile, null, null, separator, useSaveSampleCfg);
     }
 
     /**
@@ -94,18 +94,34 @@ public class CsvSampleReader implements Closeable{
      * @param metadata  the metadata
      */
     public CsvSampleReader(File inputFile, SampleMetadata metadata) {
-        this(inputFile, metadata, DEFAULT_SEPARATOR, false);
+        this(inputFile, null, metadata, DEFAULT_SEPARATOR, false);
     }
 
-    private CsvSampleReader(File inputFile, SampleMetadata metadata,
+    /**
+     * Instantiates a new csv sample reader that reads the content of a file
+     * from a stream, for instance a file that is still being written.
+     *
+     * @param inputFile        the file read by the stream, used in messages (must not be {@code null})
+     * @param input            the stream that reads the file, closed by {@link #close()} (must not be {@code null})
+     * @param separator        the separator
+     * @param useSaveSampleCfg indicates whether the reader uses jmeter
+     *                         SampleSaveConfiguration to define metadata
+     * @since 5.5.1
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public CsvSampleReader(File inputFile, InputStream input, char separator, boolean useSaveSampleCfg) {
+        this(inputFile, input, null, separator, useSaveSampleCfg);
+    }
+
+    private CsvSampleReader(File inputFile, InputStream input, SampleMetadata metadata,
             char separator, boolean useSaveSampleCfg) {
-        if (!(inputFile.isFile() && inputFile.canRead())) {
+        if (input == null && !(inputFile.isFile() && inputFile.canRead())) {
             throw new IllegalArgumentException(inputFile.getAbsolutePath()
                     + " does not exist or is not readable");
         }
         this.file = inputFile;
         try {
-            this.fis = new FileInputStream(file);
+            this.fis = input == null ? new FileInputStream(file) : input;
             this.isr = new InputStreamReader(fis, CHARSET);
             this.reader = new BufferedReader(isr, BUF_SIZE);
         } catch (FileNotFoundException | UnsupportedEncodingException ex) {
@@ -172,6 +188,7 @@ public class CsvSampleReader implements Closeable{
         }
     }
 
+    @Override
     public SampleMetadata getMetadata() {
         return metadata;
     }
@@ -208,6 +225,7 @@ public class CsvSampleReader implements Closeable{
     /**
      * @return next sample from the file.
      */
+    @Override
     public Sample readSample() {
         Sample out = lastSampleRead;
         lastSampleRead = nextSample();
@@ -217,6 +235,7 @@ public class CsvSampleReader implements Closeable{
     /**
      * @return next sample from file but keep the reading file position.
      */
+    @Override
     public Sample peek() {
         return lastSampleRead;
     }
@@ -224,6 +243,7 @@ public class CsvSampleReader implements Closeable{
     /**
      * @return flag, that indicates whether the file contains more samples
      */
+    @Override
     public boolean hasNext() {
         return lastSampleRead != null;
     }
@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jmeter.save.SaveService;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reader of CSV result files, that tokenizes the lines in place in the memory mapped file.
+ * <p>
+ * It reads the same files as {@link CsvSampleReader} and gives the same values, but does not decode the lines
+ * into strings: the samples keep the offsets of their fields and parse numeric fields from the bytes of the file,
+ * other fields are decoded when they are requested.
+ * <p>
+ * The file is mapped by windows, so files larger than the address space a mapping can cover are supported.
+ * It only works with encodings in which the separator, quote-char and line ends are single ASCII bytes,
+ * see {@link #isSupported(char)}.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class MappedCsvSampleReader implements SampleReader {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedCsvSampleReader.class);
+
+    private static final Charset CHARSET =
+            Charset.forName(SaveService.getFileEncoding(StandardCharsets.UTF_8.displayName()));
+
+    /** Size of the mapped windows, a line must fit in a window */
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private static final byte QUOTE = (byte) CSVSaveService.QUOTING_CHAR;
+
+    /** Returned by tokenize when the line continues after the end of the window */
+    private static final int NEED_MORE = -1;
+
+    /** Returned by tokenize at the end of the file */
+    private static final int END_OF_FILE = -2;
+
+    private final File file;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final byte separator;
+    private final SampleMetadata metadata;
+    private final int columnCount;
+    private final int numberOfSampleVariablesInCsv;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+
+    /** Bounds of the fields of the line being tokenized */
+    private int[] bounds = new int[64];
+    private int fieldCount;
+
+    private long row;
+    private Sample lastSampleRead;
+
+    /**
+     * Instantiates a new mapped csv sample reader.
+     *
+     * @param inputFile        the input file (must not be {@code null})
+     * @param separator        the separator
+     * @param useSaveSampleCfg indicates whether the reader uses jmeter
+     *                         SampleSaveConfiguration to define metadata
+     */
+    public MappedCsvSampleReader(File inputFile, char separator, boolean useSaveSampleCfg) {
+        this(inputFile, separator, useSaveSampleCfg, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedCsvSampleReader(File inputFile, char separator, boolean useSaveSampleCfg, int windowSize) {
+        if (!(inputFile.isFile() && inputFile.canRead())) {
+            throw new IllegalArgumentException(inputFile.getAbsolutePath()
+                    + " does not exist or is not readable");
+        }
+        this.file = inputFile;
+        this.windowSize = windowSize;
+        FileChannel fileChannel = null;
+        try {
+            fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.fileSize = fileChannel.size();
+            this.channel = fileChannel;
+            map(0);
+        } catch (IOException e) {
+            JOrphanUtils.closeQuietly(fileChannel);
+            throw new SampleException("Could not create file reader !", e);
+        }
+        this.metadata = readMetadata(separator, useSaveSampleCfg);
+        if (!isSupported(metadata.getSeparator())) {
+            close();
+            throw new SampleException("Separator '" + metadata.getSeparator() + "' of '" + file
+                    + "' is not supported, use CsvSampleReader");
+        }
+        this.separator = (byte) metadata.getSeparator();
+        this.columnCount = metadata.getColumnCount();
+        if (position == 0) {
+            // No header, the first line is a sample
+            String vars = JMeterUtils.getProperty(SampleEvent.SAMPLE_VARIABLES);
+            String[] variableNames = vars != null ? vars.split(",") : new String[0];
+            this.numberOfSampleVariablesInCsv = variableNames.length;
+        } else {
+            this.numberOfSampleVariablesInCsv = 0;
+            this.row = 1;
+        }
+        this.lastSampleRead = nextSample();
+    }
+
+    /**
+     * @param separator the separator of the file
+     * @return true if the file encoding and the separator can be read by this reader
+     */
+    public static boolean isSupported(char separator) {
+        if (separator >= 0x80 || separator == CSVSaveService.QUOTING_CHAR) {
+            return false;
+        }
+        String special = "\"\r\n" + separator;
+        return Arrays.equals(special.getBytes(StandardCharsets.US_ASCII), special.getBytes(CHARSET));
+    }
+
+    private void map(long start) throws IOException {
+        long size = Math.min(windowSize, fileSize - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        windowStart = start;
+        position = 0;
+    }
+
+    private SampleMetadata readMetadata(char separator, boolean useSaveSampleCfg) {
+        int limit = window.limit();
+        int end = 0;
+        while (end < limit && window.get(end) != '\n' && window.get(end) != '\r') {
+            end++;
+        }
+        if (end == 0 && limit == 0) {
+            throw new SampleException("Could not read metadata !", new IllegalArgumentException("File is empty"));
+        }
+        if (end == limit && windowStart + limit < fileSize) {
+            throw new SampleException("Could not read metadata !",
+                    new IllegalArgumentException("First line is longer than " + windowSize + " bytes"));
+        }
+        byte[] bytes = new byte[end];
+        for (int i = 0; i < end; i++) {
+            bytes[i] = window.get(i);
+        }
+        String line = new String(bytes, CHARSET);
+        try {
+            if (useSaveSampleCfg
+                    && CSVSaveService.getSampleSaveConfiguration(line, file.getAbsolutePath()) == null) {
+                String warnMessage = "File '" + file.getAbsolutePath() + "' does not contain the field names header, "
+                        + "ensure the jmeter.save.saveservice.* properties are the same "
+                        + "as when the CSV file was created or the file may be read incorrectly "
+                        + "when generating report";
+                log.warn(warnMessage);
+                System.out.println(warnMessage); // NOSONAR
+                return new SampleMetadata(SampleSaveConfiguration.staticConfig());
+            }
+            SampleMetadata result = new SampleMetaDataParser(separator).parse(line);
+            position = skipLineEnd(end);
+            return result;
+        } catch (RuntimeException e) {
+            throw new SampleException("Could not read metadata !", e);
+        }
+    }
+
+    private int skipLineEnd(int index) {
+        int limit = window.limit();
+        if (index < limit && window.get(index) == '\r') {
+            index++;
+        }
+        if (index < limit && window.get(index) == '\n') {
+            index++;
+        }
+        return index;
+    }
+
+    @Override
+    public SampleMetadata getMetadata() {
+        return metadata;
+    }
+
+    private Sample nextSample() {
+        try {
+            int next = tokenize(position);
+            if (next == NEED_MORE) {
+                if (position == 0) {
+                    throw new SampleException("Line " + (row + 1) + " of '" + file + "' is longer than "
+                            + windowSize + " bytes");
+                }
+                map(windowStart + position);
+                next = tokenize(0);
+            }
+            if (next == END_OF_FILE) {
+                return null;
+            }
+            assertCorrectColumns();
+            MappedSample sample = new MappedSample(row++, metadata, window,
+                    Arrays.copyOf(bounds, 2 * fieldCount), CHARSET);
+            position = next;
+            return sample;
+        } catch (IOException e) {
+            throw new SampleException("Could not read sample <" + row + ">", e);
+        }
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        if (2 * fieldCount == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[2 * fieldCount] = escaped ? ~start : start;
+        bounds[2 * fieldCount + 1] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Finds the fields of the line starting at {@code from},
+     * following the rules of {@link CSVSaveService#csvReadFile(java.io.BufferedReader, char)}.
+     *
+     * @return the start of the next line, {@link #NEED_MORE} or {@link #END_OF_FILE}
+     */
+    private int tokenize(int from) throws IOException {
+        final MappedByteBuffer buffer = window;
+        final int limit = buffer.limit();
+        final boolean lastWindow = windowStart + limit >= fileSize;
+        fieldCount = 0;
+        int state = 0; // 0: initial, 1: plain, 2: quoted, 3: embedded quote
+        boolean escaped = false;
+        int fieldStart = from;
+        for (int i = from; ; i++) {
+            if (i == limit) {
+                if (!lastWindow) {
+                    return NEED_MORE;
+                }
+                if (i == from) {
+                    return END_OF_FILE;
+                }
+                if (state == 2) {
+                    throw new IOException("Missing trailing quote-char in quoted field at line " + (row + 1));
+                }
+                addField(fieldStart, state == 3 ? i - 1 : i, escaped);
+                return i;
+            }
+            byte b = buffer.get(i);
+            boolean endOfLine = b == '\n' || b == '\r';
+            switch (state) {
+            case 0:
+                if (b == QUOTE) {
+                    state = 2;
+                    escaped = false;
+                    fieldStart = i + 1;
+                } else if (b == separator || endOfLine) {
+                    addField(i, i, false);
+                    fieldStart = i + 1;
+                } else {
+                    state = 1;
+                    fieldStart = i;
+                }
+                break;
+            case 1:
+                if (b == QUOTE) {
+                    throw new IOException("Cannot have quote-char in plain field at line " + (row + 1));
+                } else if (b == separator || endOfLine) {
+                    addField(fieldStart, i, false);
+                    state = 0;
+                    fieldStart = i + 1;
+                }
+                break;
+            case 2:
+                if (b == QUOTE) {
+                    state = 3;
+                }
+                break;
+            case 3:
+                if (b == QUOTE) {
+                    // doubled quote => quote
+                    escaped = true;
+                    state = 2;
+                } else if (b == separator || endOfLine) {
+                    addField(fieldStart, i - 1, escaped);
+                    state = 0;
+                    fieldStart = i + 1;
+                } else {
+                    throw new IOException("Cannot have single quote-char in quoted field at line " + (row + 1));
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unexpected state " + state);
+            }
+            if (endOfLine && state == 0) {
+                if (b == '\r' && i + 1 == limit && !lastWindow) {
+                    // The \n may be in the next window
+                    return NEED_MORE;
+                }
+                return skipLineEnd(i);
+            }
+        }
+    }
+
+    private void assertCorrectColumns() {
+        if (fieldCount != columnCount + numberOfSampleVariablesInCsv) {
+            log.warn("Short CSV read around line {} of file '{}'. Could only read {} elements of {} expected.",
+                    row + 2, file, fieldCount, columnCount);
+            throw new SampleException(
+                    "Mismatch between expected number of columns:" + columnCount + " and columns in CSV file:"
+                            + fieldCount + ", check your jmeter.save.saveservice.* configuration or check if line "
+                            + (row + 2) + " in '" + file + "' is complete");
+        }
+    }
+
+    @Override
+    public Sample readSample() {
+        Sample out = lastSampleRead;
+        if (out != null) {
+            lastSampleRead = nextSample();
+        }
+        return out;
+    }
+
+    @Override
+    public Sample peek() {
+        return lastSampleRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return lastSampleRead != null;
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released when the samples referencing the window are collected
+        JOrphanUtils.closeQuietly(channel);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.apache.jmeter.save.CSVSaveService;
+
+/**
+ * Sample whose fields are still in the mapped file read by {@link MappedCsvSampleReader}.
+ * <p>
+ * Numeric fields are parsed from the bytes of the file, other fields are decoded
+ * into strings the first time they are requested.
+ */
+final class MappedSample extends Sample {
+
+    /** Returned when a field cannot be parsed from its bytes, the string conversion then reports the error */
+    private static final long NOT_PARSED = Long.MIN_VALUE;
+
+    private final long row;
+    private final SampleMetadata metadata;
+    private final ByteBuffer buffer;
+    /**
+     * Start and end offsets of the fields in the buffer,
+     * start is {@code ~start} when the field contains doubled quote-chars.
+     */
+    private final int[] bounds;
+    private final Charset charset;
+    private String[] strings;
+
+    MappedSample(long row, SampleMetadata metadata, ByteBuffer buffer, int[] bounds, Charset charset) {
+        super(row, metadata, (String[]) null);
+        this.row = row;
+        this.metadata = metadata;
+        this.buffer = buffer;
+        this.bounds = bounds;
+        this.charset = charset;
+    }
+
+    int getFieldCount() {
+        return bounds.length / 2;
+    }
+
+    @Override
+    public String getData(int index) {
+        String[] values = strings;
+        if (values == null) {
+            values = new String[getFieldCount()];
+            strings = values;
+        }
+        String value = values[index];
+        if (value == null) {
+            value = decode(index);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private String decode(int index) {
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        boolean escaped = start < 0;
+        if (escaped) {
+            start = ~start;
+        }
+        byte[] bytes = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            bytes[length++] = b;
+            if (escaped && b == CSVSaveService.QUOTING_CHAR) {
+                // doubled quote => quote
+                i++;
+            }
+        }
+        return new String(bytes, 0, length, charset);
+    }
+
+    @Override
+    public String getData(String name) {
+        return getData(metadata.ensureIndexOf(name));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getData(Class<T> clazz, int index, String fieldName) {
+        if (clazz == long.class || clazz == Long.class) {
+            long value = parseLong(index);
+            if (value != NOT_PARSED) {
+                return (T) Long.valueOf(value);
+            }
+        } else if (clazz == int.class || clazz == Integer.class) {
+            long value = parseLong(index);
+            if (value != NOT_PARSED && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (T) Integer.valueOf((int) value);
+            }
+        }
+        String value = getData(index);
+        try {
+            return Converters.convert(clazz, value);
+        } catch (ConvertException ex) {
+            throw new SampleException("Error in sample at line:" + (row + 1)
+                    + " converting field:" + fieldName + " at column:" + index
+                    + " to:" + clazz.getName() + ", fieldValue:'" + value
+                    + "'", ex);
+        }
+    }
+
+    /**
+     * Parses the field as {@link Long#valueOf(String)} does after trimming it.
+     *
+     * @return the value, or {@link #NOT_PARSED} when the string conversion must be used
+     */
+    private long parseLong(int index) {
+        int start = bounds[2 * index];
+        if (start < 0) {
+            return NOT_PARSED;
+        }
+        int end = bounds[2 * index + 1];
+        while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return NOT_PARSED;
+        }
+        byte first = buffer.get(start);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            start++;
+        }
+        // 18 digits always fit in a long
+        if (start == end || end - start > 18) {
+            return NOT_PARSED;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_PARSED;
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private long getLong(int index, String name) {
+        long value = parseLong(index);
+        return value != NOT_PARSED ? value : getData(long.class, index, name);
+    }
+
+    private long getLong(String name) {
+        return getLong(metadata.ensureIndexOf(name), name);
+    }
+
+    private long getOptionalLong(String name) {
+        int index = metadata.indexOf(name);
+        return index >= 0 ? getLong(index, name) : 0L;
+    }
+
+    @Override
+    public long getTimestamp() {
+        return getLong(CSVSaveService.TIME_STAMP);
+    }
+
+    @Override
+    public long getElapsedTime() {
+        return getLong(CSVSaveService.CSV_ELAPSED);
+    }
+
+    @Override
+    public long getLatency() {
+        return getLong(CSVSaveService.CSV_LATENCY);
+    }
+
+    @Override
+    public long getConnectTime() {
+        return getOptionalLong(CSVSaveService.CSV_CONNECT_TIME);
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        return getLong(CSVSaveService.CSV_BYTES);
+    }
+
+    @Override
+    public long getSentBytes() {
+        return getOptionalLong(CSVSaveService.CSV_SENT_BYTES);
+    }
+
+    @Override
+    public boolean getSuccess() {
+        int index = metadata.ensureIndexOf(CSVSaveService.SUCCESSFUL);
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        // Boolean.valueOf only accepts "true" ignoring case
+        if (start < 0 || end - start != 4) {
+            return false;
+        }
+        return (buffer.get(start) | 0x20) == 't'
+                && (buffer.get(start + 1) | 0x20) == 'r'
+                && (buffer.get(start + 2) | 0x20) == 'u'
+                && (buffer.get(start + 3) | 0x20) == 'e';
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < getFieldCount(); i++) {
+            if (i > 0) {
+                sb.append(metadata.getSeparator());
+            }
+            sb.append(getData(i));
+        }
+        return sb.toString();
+    }
+}
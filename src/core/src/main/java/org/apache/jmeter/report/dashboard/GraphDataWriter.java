@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.dashboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.apache.jmeter.report.processor.ListResultData;
+import org.apache.jmeter.report.processor.MapResultData;
+import org.apache.jmeter.report.processor.ResultData;
+import org.apache.jmeter.report.processor.ValueResultData;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * Writes the result of a graph to its own script, which the dashboard pages load
+ * before the graph scripts.
+ * <p>
+ * The script stores the result in the {@code graphData} object declared by
+ * {@code dashboard-commons.js}, under the graph identifier:
+ * <pre>
+ * graphData["responseTimePercentiles"] = {...};
+ * </pre>
+ * The result is streamed to the file, so that large series are never held in memory as strings.
+ * Values are written as {@link JsonizerVisitor} does.
+ *
+ * @since 5.5.1
+ */
+final class GraphDataWriter {
+
+    /** Name of the variable that holds the results of the graphs in the dashboard pages */
+    static final String GRAPH_DATA_VARIABLE = "graphData";
+
+    /** Extension of the scripts written for the graphs */
+    static final String FILE_EXTENSION = ".js";
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private GraphDataWriter() {
+        super();
+    }
+
+    /**
+     * @param graphId identifier of the graph
+     * @return name of the file that holds the result of the graph
+     */
+    static String getFileName(String graphId) {
+        return graphId + FILE_EXTENSION;
+    }
+
+    /**
+     * Writes the result of a graph to its script in the given folder
+     *
+     * @param folder folder of the scripts, which must exist
+     * @param graphId identifier of the graph
+     * @param result result of the graph
+     * @return the written file
+     * @throws IOException when the file can not be written
+     */
+    static File write(File folder, String graphId, ResultData result) throws IOException {
+        File file = new File(folder, getFileName(graphId));
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+                JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeRaw(GRAPH_DATA_VARIABLE + "[\"");
+            generator.writeRaw(new String(JsonStringEncoder.getInstance().quoteAsString(graphId)));
+            generator.writeRaw("\"] = ");
+            write(generator, result);
+            generator.writeRaw(";\n");
+        }
+        return file;
+    }
+
+    private static void write(JsonGenerator generator, ResultData data) throws IOException {
+        if (data instanceof ListResultData) {
+            ListResultData list = (ListResultData) data;
+            generator.writeStartArray();
+            for (ResultData item : list) {
+                write(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (data instanceof MapResultData) {
+            generator.writeStartObject();
+            for (Map.Entry<String, ResultData> entry : ((MapResultData) data).entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                write(generator, entry.getValue());
+            }
+            generator.writeEndObject();
+        } else if (data instanceof ValueResultData) {
+            Object value = ((ValueResultData) data).getValue();
+            if (value instanceof String) {
+                generator.writeString((String) value);
+            } else {
+                // Numbers as Java prints them, NaN and Infinity being valid in the script
+                generator.writeRawValue(String.valueOf(value));
+            }
+        } else {
+            // Other implementations only know how to visit themselves
+            generator.writeRawValue(data.accept(new JsonizerVisitor()));
+        }
+    }
+}
@@ -20,9 +20,17 @@ package org.apache.jmeter.report.dashboard;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -40,7 +48,6 @@ import org.apache.jmeter.report.core.TimeHelper;
 import org.apache.jmeter.report.processor.ListResultData;
 import org.apache.jmeter.report.processor.MapResultData;
 import org.apache.jmeter.report.processor.ResultData;
-import org.apache.jmeter.report.processor.ResultDataVisitor;
 import org.apache.jmeter.report.processor.SampleContext;
 import org.apache.jmeter.report.processor.ValueResultData;
 import org.apache.jmeter.report.processor.graph.AbstractGraphConsumer;
@@ -78,6 +85,8 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
     public static final String DATA_CTX_EXTRA_OPTIONS = "extraOptions";
     public static final String DATA_CTX_SERIES_FILTER = "seriesFilter";
     public static final String DATA_CTX_FILTERS_ONLY_SAMPLE_SERIES = "filtersOnlySampleSeries";
+    public static final String DATA_CTX_GRAPH_DATA_FILES = "graphDataFiles";
+    public static final String DATA_CTX_CUSTOM_GRAPHS_DATA = "customsGraphsData";
 
     public static final String TIMESTAMP_FORMAT_MS = "ms";
 
@@ -90,6 +99,12 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
     // Default output folder name
     static final String OUTPUT_DIR_NAME_DEFAULT = "report-output";
 
+    // Number of threads that export the results and process the templated files
+    private static final String THREADS = "threads";
+
+    // Folder of the output directory that holds the scripts written for the graphs
+    static final String GRAPH_DATA_DIR = "content/js/graphs";
+
     /**
      * Adds to context the value surrounding it with quotes
      * @param key Key
@@ -152,7 +167,7 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
 
     /** This class allows to check exported data */
     private interface ResultChecker {
-        boolean checkResult(DataContext dataContext, ResultData result);
+        boolean checkResult(ResultData result);
     }
 
     /** This class allows to detect empty graphs */
@@ -187,9 +202,9 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
             this.filterPattern = filterPattern;
         }
 
-        /** @see ResultChecker#checkResult(DataContext, ResultData) */
+        /** @see ResultChecker#checkResult(ResultData) */
         @Override
-        public boolean checkResult(DataContext dataContext, ResultData result) {
+        public boolean checkResult(ResultData result) {
             boolean supportsControllerDiscrimination = findValue(Boolean.class,
                     AbstractGraphConsumer.RESULT_SUPPORTS_CONTROLLERS_DISCRIMINATION,
                     result);
@@ -324,7 +339,10 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
             outputDir = new File(globallyDefinedOutputDir);
         }
 
-        JOrphanUtils.canSafelyWriteToFolder(outputDir, this::htmlReportFileFilter);
+        // A report that is updated replaces the files written by the previous export
+        if (!context.isReportUpdate()) {
+            JOrphanUtils.canSafelyWriteToFolder(outputDir, this::htmlReportFileFilter);
+        }
 
         if (log.isInfoEnabled()) {
             log.info("Will generate dashboard in folder: {}", outputDir.getAbsolutePath());
@@ -356,132 +374,172 @@ public class HtmlTemplateExporter extends AbstractDataExporter {
                 showControllerSeriesOnly,
                 dataContext);
 
-        JsonizerVisitor jsonizer = new JsonizerVisitor();
         Map<String, Object> storedData = context.getData();
 
-        // Add begin date consumer result to the data context
-        addResultToContext(
-                ReportGenerator.BEGIN_DATE_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Add end date summary consumer result to the data context
-        addResultToContext(
-                ReportGenerator.END_DATE_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Add Apdex summary consumer result to the data context
-        addResultToContext(
-                ReportGenerator.APDEX_SUMMARY_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Add errors summary consumer result to the data context
-        addResultToContext(
-                ReportGenerator.ERRORS_SUMMARY_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Add requests summary consumer result to the data context
-        addResultToContext(
-                ReportGenerator.REQUESTS_SUMMARY_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Add statistics summary consumer result to the data context
-        addResultToContext(
-                ReportGenerator.STATISTICS_SUMMARY_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Add Top 5 errors by sampler consumer result to the data context
-        addResultToContext(
-                ReportGenerator.TOP5_ERRORS_BY_SAMPLER_CONSUMER_NAME, storedData, dataContext, jsonizer);
-
-        // Collect graph results from sample context and transform them into
-        // Json strings to inject in the data context
-        ExtraOptionsResultCustomizer customizer = new ExtraOptionsResultCustomizer();
-        EmptyGraphChecker checker =
-                new EmptyGraphChecker(filtersOnlySampleSeries, showControllerSeriesOnly, filterPattern);
-        Map<String, GraphConfiguration> mapConfiguration = new HashMap<>();
-        DataContext customGraphs = new DataContext();
-
-        for (Map.Entry<String, GraphConfiguration> graphEntry : configuration.getGraphConfigurations().entrySet()) {
-            final String graphId = graphEntry.getKey();
-            final GraphConfiguration graphConfiguration = graphEntry.getValue();
-
-            // Initialize customizer and checker
-            customizer.setExtraOptions(exportCfg.getGraphExtraConfigurations().get(graphId));
-            checker.setExcludesControllers(graphConfiguration.excludesControllers());
-            checker.setGraphId(graphId);
-            mapConfiguration.put(graphId, graphConfiguration);
-            if (graphId.startsWith(CUSTOM_GRAPH_PREFIX)) {
-                addResultToContext(
-                        graphId, storedData, customGraphs, jsonizer, customizer, checker);
-            } else {
-                // Export graph data
-                addResultToContext(
-                        graphId, storedData, dataContext, jsonizer, customizer, checker);
-            }
-        }
-        dataContext.put("graphConfigurations", mapConfiguration);
-        dataContext.put("customsGraphsData", customGraphs);
+        // Results are exported and templated files processed concurrently,
+        // each task reading the results and writing its own string or file
+        int threads = getPropertyFromConfig(exportCfg, THREADS,
+                Runtime.getRuntime().availableProcessors(), Integer.class);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ReportExporter-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            Map<String, Future<String>> results = new LinkedHashMap<>();
 
-        // Replace the begin date with its formatted string and store the old timestamp
-        long oldTimestamp = formatTimestamp(
-                ReportGenerator.BEGIN_DATE_CONSUMER_NAME, dataContext);
+            // Add begin date consumer result to the data context
+            submitResult(ReportGenerator.BEGIN_DATE_CONSUMER_NAME, storedData, results, executor);
 
-        // Replace the end date with its formatted string
-        formatTimestamp(ReportGenerator.END_DATE_CONSUMER_NAME, dataContext);
+            // Add end date summary consumer result to the data context
+            submitResult(ReportGenerator.END_DATE_CONSUMER_NAME, storedData, results, executor);
 
-        // Add time zone offset (that matches the begin date) to the context
-        TimeZone timezone = TimeZone.getDefault();
-        addToContext(
-                DATA_CTX_TIMEZONE_OFFSET,
-                timezone.getOffset(oldTimestamp),
-                dataContext);
+            // Add Apdex summary consumer result to the data context
+            submitResult(ReportGenerator.APDEX_SUMMARY_CONSUMER_NAME, storedData, results, executor);
 
-        // Add report title to the context
-        if (StringUtils.isNotEmpty(configuration.getReportTitle())) {
-            dataContext.put(DATA_CTX_REPORT_TITLE, StringEscapeUtils.escapeHtml4(configuration.getReportTitle()));
-        }
+            // Add errors summary consumer result to the data context
+            submitResult(ReportGenerator.ERRORS_SUMMARY_CONSUMER_NAME, storedData, results, executor);
 
-        // Add the test file name to the context
-        addToContext(DATA_CTX_TESTFILE, file.getName(), dataContext);
+            // Add requests summary consumer result to the data context
+            submitResult(ReportGenerator.REQUESTS_SUMMARY_CONSUMER_NAME, storedData, results, executor);
 
-        // Add the overall filter property to the context
-        addToContext(DATA_CTX_OVERALL_FILTER, configuration.getSampleFilter(), dataContext);
+            // Add statistics summary consumer result to the data context
+            submitResult(ReportGenerator.STATISTICS_SUMMARY_CONSUMER_NAME, storedData, results, executor);
 
-        // Walk template directory to copy files and process templated ones
-        Configuration templateCfg = new Configuration(Configuration.VERSION_2_3_30);
-        try {
-            templateCfg.setDirectoryForTemplateLoading(templateDirectory);
-            templateCfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-            if (log.isInfoEnabled()) {
-                log.info("Report will be generated in: {}, creating folder structure", outputDir.getAbsolutePath());
+            // Add Top 5 errors by sampler consumer result to the data context
+            submitResult(ReportGenerator.TOP5_ERRORS_BY_SAMPLER_CONSUMER_NAME, storedData, results, executor);
+
+            // Collect graph results from sample context and stream each of them
+            // to its own script, that the pages load before the graph scripts
+            File graphDataDir = new File(outputDir, GRAPH_DATA_DIR);
+            try {
+                FileUtils.forceMkdir(graphDataDir);
+            } catch (IOException ex) {
+                throw new ExportException("Unable to create folder " + graphDataDir.getAbsolutePath(), ex);
+            }
+            Map<String, GraphConfiguration> mapConfiguration = new HashMap<>();
+            List<Future<File>> graphFiles = new ArrayList<>();
+            List<String> graphDataFiles = new ArrayList<>();
+            DataContext customGraphs = new DataContext();
+
+            for (Map.Entry<String, GraphConfiguration> graphEntry : configuration.getGraphConfigurations().entrySet()) {
+                final String graphId = graphEntry.getKey();
+                final GraphConfiguration graphConfiguration = graphEntry.getValue();
+
+                // Initialize customizer and checker, one per graph as they are used concurrently
+                ExtraOptionsResultCustomizer customizer = new ExtraOptionsResultCustomizer();
+                customizer.setExtraOptions(exportCfg.getGraphExtraConfigurations().get(graphId));
+                EmptyGraphChecker checker =
+                        new EmptyGraphChecker(filtersOnlySampleSeries, showControllerSeriesOnly, filterPattern);
+                checker.setExcludesControllers(graphConfiguration.excludesControllers());
+                checker.setGraphId(graphId);
+                mapConfiguration.put(graphId, graphConfiguration);
+                // Export graph data
+                Object data = storedData.get(graphId);
+                if (data instanceof ResultData) {
+                    graphFiles.add(executor.submit(
+                            () -> GraphDataWriter.write(graphDataDir, graphId,
+                                    exportResult((ResultData) data, customizer, checker))));
+                    String fileName = GraphDataWriter.getFileName(graphId);
+                    if (graphId.startsWith(CUSTOM_GRAPH_PREFIX)) {
+                        customGraphs.put(graphId, fileName);
+                    } else {
+                        graphDataFiles.add(fileName);
+                    }
+                }
             }
-            FileUtils.forceMkdir(outputDir);
-            TemplateVisitor visitor = new TemplateVisitor(
-                    templateDirectory.toPath(),
-                    outputDir.toPath(),
-                    templateCfg,
+            addResultsToContext(results, dataContext);
+            for (Future<File> graphFile : graphFiles) {
+                getResult(graphFile);
+            }
+            dataContext.put("graphConfigurations", mapConfiguration);
+            dataContext.put(DATA_CTX_GRAPH_DATA_FILES, graphDataFiles);
+            dataContext.put(DATA_CTX_CUSTOM_GRAPHS_DATA, customGraphs);
+
+            // Replace the begin date with its formatted string and store the old timestamp
+            long oldTimestamp = formatTimestamp(
+                    ReportGenerator.BEGIN_DATE_CONSUMER_NAME, dataContext);
+
+            // Replace the end date with its formatted string
+            formatTimestamp(ReportGenerator.END_DATE_CONSUMER_NAME, dataContext);
+
+            // Add time zone offset (that matches the begin date) to the context
+            TimeZone timezone = TimeZone.getDefault();
+            addToContext(
+                    DATA_CTX_TIMEZONE_OFFSET,
+                    timezone.getOffset(oldTimestamp),
                     dataContext);
-            Files.walkFileTree(templateDirectory.toPath(), visitor);
-        } catch (IOException ex) {
-            throw new ExportException("Unable to process template files.", ex);
+
+            // Add report title to the context
+            if (StringUtils.isNotEmpty(configuration.getReportTitle())) {
+                dataContext.put(DATA_CTX_REPORT_TITLE, StringEscapeUtils.escapeHtml4(configuration.getReportTitle()));
+            }
+
+            // Add the test file name to the context
+            addToContext(DATA_CTX_TESTFILE, file.getName(), dataContext);
+
+            // Add the overall filter property to the context
+            addToContext(DATA_CTX_OVERALL_FILTER, configuration.getSampleFilter(), dataContext);
+
+            // Walk template directory to copy files and process templated ones
+            Configuration templateCfg = new Configuration(Configuration.VERSION_2_3_30);
+            try {
+                templateCfg.setDirectoryForTemplateLoading(templateDirectory);
+                templateCfg.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+                if (log.isInfoEnabled()) {
+                    log.info("Report will be generated in: {}, creating folder structure", outputDir.getAbsolutePath());
+                }
+                FileUtils.forceMkdir(outputDir);
+                TemplateVisitor visitor = new TemplateVisitor(
+                        templateDirectory.toPath(),
+                        outputDir.toPath(),
+                        templateCfg,
+                        dataContext,
+                        executor);
+                Files.walkFileTree(templateDirectory.toPath(), visitor);
+                visitor.awaitTemplates();
+            } catch (IOException ex) {
+                throw new ExportException("Unable to process template files.", ex);
+            }
+        } finally {
+            executor.shutdownNow();
         }
 
         log.debug("End of template processing");
     }
 
-    private <T> void addResultToContext(
+    private static void submitResult(
             String resultKey, Map<String, Object> storage,
-            DataContext dataContext, ResultDataVisitor<T> visitor) {
-        addResultToContext(resultKey, storage, dataContext, visitor, null, null);
-    }
-
-    private <T> void addResultToContext(
-            String resultKey, Map<String, Object> storage, DataContext dataContext,
-            ResultDataVisitor<T> visitor, ResultCustomizer customizer, ResultChecker checker) {
+            Map<String, Future<String>> results, ExecutorService executor) {
         Object data = storage.get(resultKey);
         if (data instanceof ResultData) {
-            ResultData result = (ResultData) data;
-            if (checker != null) {
-                checker.checkResult(dataContext, result);
-            }
-            if (customizer != null) {
-                result = customizer.customizeResult(result);
-            }
-            dataContext.put(resultKey, result.accept(visitor));
+            results.put(resultKey, executor.submit(() -> ((ResultData) data).accept(new JsonizerVisitor())));
+        }
+    }
+
+    private static ResultData exportResult(
+            ResultData result, ResultCustomizer customizer, ResultChecker checker) {
+        checker.checkResult(result);
+        return customizer.customizeResult(result);
+    }
+
+    private static void addResultsToContext(Map<String, Future<String>> results, DataContext dataContext)
+            throws ExportException {
+        for (Map.Entry<String, Future<String>> result : results.entrySet()) {
+            dataContext.put(result.getKey(), getResult(result.getValue()));
+        }
+    }
+
+    private static <T> T getResult(Future<T> result) throws ExportException {
+        try {
+            return result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ExportException("Interrupted while exporting results", ex);
+        } catch (ExecutionException ex) {
+            throw new ExportException("Unable to export results.", ex.getCause());
         }
     }
 
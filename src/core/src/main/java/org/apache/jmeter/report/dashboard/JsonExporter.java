@@ -22,7 +22,7 @@ import java.io.FileFilter;
 import java.io.IOException;
 import java.io.Writer;
 import java.nio.file.Files;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -32,6 +32,7 @@ import org.apache.jmeter.report.config.ExporterConfiguration;
 import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
 import org.apache.jmeter.report.processor.ListResultData;
 import org.apache.jmeter.report.processor.MapResultData;
+import org.apache.jmeter.report.processor.ResultData;
 import org.apache.jmeter.report.processor.SampleContext;
 import org.apache.jmeter.report.processor.ValueResultData;
 import org.apache.jmeter.util.JMeterUtils;
@@ -39,6 +40,7 @@ import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 
@@ -66,35 +68,46 @@ public class JsonExporter extends AbstractDataExporter {
         if (data instanceof MapResultData) {
             LOGGER.info("Found data for consumer {} in context", ReportGenerator.STATISTICS_SUMMARY_CONSUMER_NAME);
             MapResultData result = (MapResultData) data;
-            Map<String, SamplingStatistic> statistics = new HashMap<>();
-            MapResultData overallData = (MapResultData) result.getResult("overall");
-            LOGGER.info("Creating statistics for overall");
-            createStatistic(statistics, overallData);
-
-            ListResultData itemsData = (ListResultData) result.getResult("items");
-            LOGGER.info("Creating statistics for other transactions");
-            itemsData.forEach(r -> createStatistic(statistics, (MapResultData)r));
 
             LOGGER.info("Checking output folder");
-            File outputDir = checkAndGetOutputFolder(reportGeneratorConfiguration);
+            File outputDir = checkAndGetOutputFolder(context, reportGeneratorConfiguration);
 
             File outputFile = new File(outputDir, OUTPUT_FILENAME);
             LOGGER.info("Writing statistics JSON to {}", outputFile);
-            try (Writer fileWriter = Files.newBufferedWriter(outputFile.toPath())) {
-                OBJECT_WRITER.writeValue(fileWriter, statistics);
+            // A transaction named like the overall one replaces it, as a later entry of the same name does
+            Map<String, MapResultData> transactions = new LinkedHashMap<>();
+            MapResultData overallData = (MapResultData) result.getResult("overall");
+            transactions.put(getTransaction(overallData), overallData);
+            ListResultData itemsData = (ListResultData) result.getResult("items");
+            for (ResultData item : itemsData) {
+                transactions.put(getTransaction((MapResultData) item), (MapResultData) item);
+            }
+
+            // Each statistic is written as soon as it is created, instead of building the whole map first
+            try (Writer fileWriter = Files.newBufferedWriter(outputFile.toPath());
+                    JsonGenerator generator = OBJECT_WRITER.createGenerator(fileWriter)) {
+                LOGGER.info("Creating statistics for overall and other transactions");
+                generator.writeStartObject();
+                for (Map.Entry<String, MapResultData> transaction : transactions.entrySet()) {
+                    generator.writeFieldName(transaction.getKey());
+                    generator.writeObject(createStatistic(transaction.getValue()));
+                }
+                generator.writeEndObject();
             } catch (IOException e) {
-                throw new ExportException("Error generating JSON statistics file to " + outputFile +" for "+statistics, e);
+                throw new ExportException("Error generating JSON statistics file to " + outputFile, e);
             }
         }
     }
 
     /**
      * Check folder and return output folder.
+     * @param context {@link SampleContext}
      * @param reportGeneratorConfiguration {@link ReportGeneratorConfiguration}
      * @return {@link File} output folder
      * @throws ExportException
      */
-    private File checkAndGetOutputFolder(ReportGeneratorConfiguration reportGeneratorConfiguration)
+    private File checkAndGetOutputFolder(SampleContext context,
+            ReportGeneratorConfiguration reportGeneratorConfiguration)
             throws ExportException {
         final ExporterConfiguration exportCfg = reportGeneratorConfiguration
                 .getExportConfigurations().get(getName());
@@ -106,7 +119,10 @@ public class JsonExporter extends AbstractDataExporter {
             outputDir = new File(globallyDefinedOutputDir);
         }
 
-        JOrphanUtils.canSafelyWriteToFolder(outputDir, JSON_FILE_FILTER);
+        if (!context.isReportUpdate()) {
+            // Updates of a report generated while the test runs overwrite the previous file
+            JOrphanUtils.canSafelyWriteToFolder(outputDir, JSON_FILE_FILTER);
+        }
         try {
             FileUtils.forceMkdir(outputDir);
         } catch (IOException ex) {
@@ -115,7 +131,12 @@ public class JsonExporter extends AbstractDataExporter {
         return outputDir;
     }
 
-    private void createStatistic(Map<String, SamplingStatistic> statistics, MapResultData resultData) {
+    private static String getTransaction(MapResultData resultData) {
+        ListResultData listResultData = (ListResultData) resultData.getResult("data");
+        return (String) ((ValueResultData) listResultData.get(0)).getValue();
+    }
+
+    private static SamplingStatistic createStatistic(MapResultData resultData) {
         LOGGER.debug("Creating statistics for result data:{}", resultData);
         SamplingStatistic statistic = new SamplingStatistic();
         ListResultData listResultData = (ListResultData) resultData.getResult("data");
@@ -133,6 +154,6 @@ public class JsonExporter extends AbstractDataExporter {
         statistic.setThroughput((Double) ((ValueResultData)listResultData.get(11)).getValue());
         statistic.setReceivedKBytesPerSec((Double) ((ValueResultData)listResultData.get(12)).getValue());
         statistic.setSentKBytesPerSec((Double) ((ValueResultData)listResultData.get(13)).getValue());
-        statistics.put(statistic.getTransaction(), statistic);
+        return statistic;
     }
 }
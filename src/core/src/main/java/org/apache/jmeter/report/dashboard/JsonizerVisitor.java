@@ -17,10 +17,8 @@
 
 package org.apache.jmeter.report.dashboard;
 
-import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.jmeter.report.core.JsonUtil;
 import org.apache.jmeter.report.processor.ListResultData;
 import org.apache.jmeter.report.processor.MapResultData;
 import org.apache.jmeter.report.processor.ResultData;
@@ -31,6 +29,9 @@ import com.fasterxml.jackson.core.io.JsonStringEncoder;
 /**
  * The class JsonizerVisitor provides a visitor that can get json-like string
  * from ResultData.
+ * <p>
+ * The whole tree is appended to a single buffer, rather than building a string per node
+ * and concatenating them, so large results such as graph series do not copy their data once per level.
  *
  * @since 3.0
  */
@@ -53,12 +54,9 @@ public class JsonizerVisitor implements ResultDataVisitor<String> {
     public String visitListResult(ListResultData listResult) {
         String result = "";
         if (listResult != null) {
-            int count = listResult.getSize();
-            String[] items = new String[count];
-            for (int i = 0; i < count; i++) {
-                items[i] = listResult.get(i).accept(this);
-            }
-            result = JsonUtil.toJsonArray(items);
+            StringBuilder builder = new StringBuilder();
+            appendList(builder, listResult);
+            result = builder.toString();
         }
         return result;
     }
@@ -74,11 +72,9 @@ public class JsonizerVisitor implements ResultDataVisitor<String> {
     public String visitMapResult(MapResultData mapResult) {
         String result = "";
         if (mapResult != null) {
-            HashMap<String, String> map = new HashMap<>();
-            for (Map.Entry<String, ResultData> entry : mapResult.entrySet()) {
-                map.put(entry.getKey(), entry.getValue().accept(this));
-            }
-            result = JsonUtil.toJsonObject(map);
+            StringBuilder builder = new StringBuilder();
+            appendMap(builder, mapResult);
+            result = builder.toString();
         }
         return result;
     }
@@ -94,12 +90,62 @@ public class JsonizerVisitor implements ResultDataVisitor<String> {
     public String visitValueResult(ValueResultData valueResult) {
         String result = "";
         if (valueResult != null) {
-            Object value = valueResult.getValue();
-            result = String.valueOf(value);
-            if (value instanceof String) {
-                result = '"' + new String(JsonStringEncoder.getInstance().quoteAsString(result)) + '"';
-            }
+            StringBuilder builder = new StringBuilder();
+            appendValue(builder, valueResult);
+            result = builder.toString();
         }
         return result;
     }
+
+    private static void append(StringBuilder builder, ResultData data) {
+        if (data instanceof ListResultData) {
+            appendList(builder, (ListResultData) data);
+        } else if (data instanceof MapResultData) {
+            appendMap(builder, (MapResultData) data);
+        } else if (data instanceof ValueResultData) {
+            appendValue(builder, (ValueResultData) data);
+        } else {
+            // Other implementations only know how to visit themselves
+            builder.append(data.accept(new JsonizerVisitor()));
+        }
+    }
+
+    /** Same format as {@link org.apache.jmeter.report.core.JsonUtil#toJsonArray(String...)} */
+    private static void appendList(StringBuilder builder, ListResultData listResult) {
+        builder.append('[');
+        int count = listResult.getSize();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            append(builder, listResult.get(i));
+        }
+        builder.append(']');
+    }
+
+    /** Same format as {@link org.apache.jmeter.report.core.JsonUtil#toJsonObject(Map)} */
+    private static void appendMap(StringBuilder builder, MapResultData mapResult) {
+        builder.append('{');
+        boolean first = true;
+        for (Map.Entry<String, ResultData> entry : mapResult.entrySet()) {
+            if (!first) {
+                builder.append(", ");
+            }
+            first = false;
+            builder.append('"').append(entry.getKey()).append("\": ");
+            append(builder, entry.getValue());
+        }
+        builder.append('}');
+    }
+
+    private static void appendValue(StringBuilder builder, ValueResultData valueResult) {
+        Object value = valueResult.getValue();
+        if (value instanceof String) {
+            builder.append('"');
+            JsonStringEncoder.getInstance().quoteAsString((String) value, builder);
+            builder.append('"');
+        } else {
+            builder.append(value);
+        }
+    }
 }
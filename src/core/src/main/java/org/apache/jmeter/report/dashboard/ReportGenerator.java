@@ -24,6 +24,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,6 +33,8 @@ import org.apache.jmeter.report.config.ConfigurationException;
 import org.apache.jmeter.report.config.ExporterConfiguration;
 import org.apache.jmeter.report.config.GraphConfiguration;
 import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
+import org.apache.jmeter.report.core.AggregatedSampleReader;
+import org.apache.jmeter.report.core.BinarySampleWriter;
 import org.apache.jmeter.report.core.ControllerSamplePredicate;
 import org.apache.jmeter.report.core.ConvertException;
 import org.apache.jmeter.report.core.Converters;
@@ -47,17 +50,20 @@ import org.apache.jmeter.report.processor.FilterConsumer;
 import org.apache.jmeter.report.processor.MaxAggregator;
 import org.apache.jmeter.report.processor.MinAggregator;
 import org.apache.jmeter.report.processor.NormalizerSampleConsumer;
+import org.apache.jmeter.report.processor.ParallelSampleConsumer;
 import org.apache.jmeter.report.processor.RequestsSummaryConsumer;
 import org.apache.jmeter.report.processor.SampleConsumer;
 import org.apache.jmeter.report.processor.SampleContext;
 import org.apache.jmeter.report.processor.SampleSource;
 import org.apache.jmeter.report.processor.StatisticsSummaryConsumer;
+import org.apache.jmeter.report.processor.TailingCsvSampleSource;
 import org.apache.jmeter.report.processor.Top5ErrorsBySamplerConsumer;
 import org.apache.jmeter.report.processor.graph.AbstractGraphConsumer;
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.oro.text.regex.PatternMatcher;
+import org.apiguardian.api.API;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,6 +90,18 @@ public class ReportGenerator {
                             SampleSaveConfiguration.DEFAULT_DELIMITER))
                     .charAt(0);
 
+    /** Number of threads that feed the graph and summary consumers, 1 to feed them from the reading thread */
+    private static final int CONSUMER_THREADS = JMeterUtils.getPropDefault(
+            ReportGeneratorConfiguration.REPORT_GENERATOR_KEY_PREFIX
+                    + ReportGeneratorConfiguration.KEY_DELIMITER
+                    + "consumer_threads", 1);
+
+    /** Seconds between two exports of the report while the test runs, 0 to only export it at the end of the test */
+    private static final int LIVE_INTERVAL = JMeterUtils.getPropDefault(
+            ReportGeneratorConfiguration.REPORT_GENERATOR_KEY_PREFIX
+                    + ReportGeneratorConfiguration.KEY_DELIMITER
+                    + "live_interval", 0);
+
     private static final String INVALID_CLASS_FMT = "Class name \"%s\" is not valid.";
 
     public static final String NORMALIZER_CONSUMER_NAME = "normalizer";
@@ -97,6 +115,7 @@ public class ReportGenerator {
     public static final String STATISTICS_SUMMARY_CONSUMER_NAME = "statisticsSummary";
     public static final String TOP5_ERRORS_BY_SAMPLER_CONSUMER_NAME = "top5ErrorsBySampler";
     public static final String START_INTERVAL_CONTROLLER_FILTER_CONSUMER_NAME = "startIntervalControlerFilter";
+    public static final String PARALLEL_CONSUMER_NAME = "parallelConsumers";
 
     private static final Pattern POTENTIAL_CAMEL_CASE_PATTERN = Pattern.compile("_(.)");
 
@@ -111,6 +130,15 @@ public class ReportGenerator {
      */
     private final ResultCollector resultCollector;
 
+    /*
+     * Live generation state, set up by startLiveGeneration()
+     */
+    private TailingCsvSampleSource liveSource;
+    private Thread liveThread;
+    private SampleContext liveContext;
+    private boolean liveTmpDirCreated;
+    private volatile RuntimeException liveFailure;
+
     /**
      * Instantiates a new report generator.
      *
@@ -198,6 +226,9 @@ public class ReportGenerator {
             log.info("Flushing result collector before report Generation");
             resultCollector.flushFile();
         }
+        if (liveSource != null && endLiveGeneration()) {
+            return;
+        }
         log.debug("Start report generation");
 
         File tmpDir = configuration.getTempDirectory();
@@ -206,9 +237,124 @@ public class ReportGenerator {
         // Build consumers chain
         SampleContext sampleContext = new SampleContext();
         sampleContext.setWorkingDirectory(tmpDir);
+        // Replace the report exported while the test was running, if any
+        sampleContext.setReportUpdate(liveContext != null && liveContext.isReportUpdate());
         SampleSource source = new CsvFileSampleSource(testFile, CSV_DEFAULT_SEPARATOR);
         source.setSampleContext(sampleContext);
+        addConsumers(source, CONSUMER_THREADS);
+
+        // Generate data
+        log.debug("Start samples processing");
+        try {
+            source.run(); // NOSONAR
+        } catch (SampleException ex) {
+            throw new GenerationException("Error while processing samples: " + ex.getMessage(), ex);
+        }
+        log.debug("End of samples processing");
+
+        exportData(sampleContext);
+
+        removeTempDir(tmpDir, tmpDirCreated);
+
+        log.debug("End of report generation");
+    }
+
+    /**
+     * Starts generating the report while the test runs, when the
+     * {@code jmeter.reportgenerator.live_interval} property is greater than 0:
+     * a thread reads the results file while it is written and exports the report every interval.
+     * {@link #generate()} then waits for the whole file to be read and exports the final report.
+     * <p>
+     * Consumers keep their aggregated results in memory, so the file is read only once.
+     * Does nothing when the report is not generated at the end of a test, when the results file is not a CSV file,
+     * or when it is already started.
+     *
+     * @throws GenerationException when the consumers cannot be created
+     * @since 5.5.1
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public synchronized void startLiveGeneration() throws GenerationException {
+        if (LIVE_INTERVAL <= 0 || resultCollector == null || liveSource != null) {
+            return;
+        }
+        String name = testFile.getName();
+        if (name.endsWith(BinarySampleWriter.FILE_EXTENSION) || name.endsWith(AggregatedSampleReader.FILE_EXTENSION)) {
+            log.info("The report of {} is only generated at the end of the test, it is not a CSV file", testFile);
+            return;
+        }
+        File tmpDir = configuration.getTempDirectory();
+        liveTmpDirCreated = createTempDir(tmpDir);
+        liveContext = new SampleContext();
+        liveContext.setWorkingDirectory(tmpDir);
+        liveSource = new TailingCsvSampleSource(testFile, CSV_DEFAULT_SEPARATOR,
+                TimeUnit.SECONDS.toMillis(LIVE_INTERVAL), this::exportIntermediateReport);
+        liveSource.setSampleContext(liveContext);
+        addConsumers(liveSource, CONSUMER_THREADS);
+        liveThread = new Thread(() -> {
+            try {
+                liveSource.run();
+            } catch (RuntimeException ex) {
+                log.error("Error while processing samples of {} during the test", testFile, ex);
+                liveFailure = ex;
+            }
+        }, "ReportGeneratorLive");
+        liveThread.setDaemon(true);
+        liveThread.start();
+        log.info("Will export the report every {} seconds while {} is written", LIVE_INTERVAL, testFile);
+    }
+
+    /**
+     * Called by the live source thread every interval, once the consumers
+     * have stored their intermediate results.
+     */
+    private void exportIntermediateReport() {
+        log.debug("Exporting intermediate report");
+        try {
+            exportData(liveContext);
+            liveContext.setReportUpdate(true);
+        } catch (GenerationException | RuntimeException ex) {
+            log.warn("Error while exporting intermediate report: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Waits for the live source to read the whole results file and exports the final report.
+     *
+     * @return {@code false} when the live source could not read the file,
+     * so the report has to be generated from the file
+     * @throws GenerationException when the export failed
+     */
+    private synchronized boolean endLiveGeneration() throws GenerationException {
+        liveSource.stop();
+        try {
+            liveThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new GenerationException("Interrupted while reading the end of " + testFile, ex);
+        }
+        log.debug("End of samples processing");
+        boolean complete = liveFailure == null && liveSource.hasStarted();
+        try {
+            if (!complete) {
+                log.warn("Samples of {} were not all read during the test, reading the whole file", testFile);
+                return false;
+            }
+            exportData(liveContext);
+            log.debug("End of report generation");
+            return true;
+        } finally {
+            removeTempDir(configuration.getTempDirectory(), liveTmpDirCreated);
+        }
+    }
 
+    /**
+     * Builds the consumers chain of the source
+     *
+     * @param source  source of the samples
+     * @param threads number of threads that feed the graph and summary consumers
+     * @throws GenerationException when a graph consumer cannot be created
+     */
+    private void addConsumers(SampleSource source, int threads) throws GenerationException {
         NormalizerSampleConsumer normalizer = new NormalizerSampleConsumer();
         normalizer.setName(NORMALIZER_CONSUMER_NAME);
 
@@ -218,9 +364,20 @@ public class ReportGenerator {
 
         FilterConsumer nameFilter = createNameFilter();
 
+        // Graph and summary consumers are plugged after the name filter,
+        // or after a consumer that feeds them from several threads
+        AbstractSampleConsumer consumersEntryPoint = nameFilter;
+        if (threads > 1) {
+            ParallelSampleConsumer parallelConsumer = new ParallelSampleConsumer(threads);
+            parallelConsumer.setName(PARALLEL_CONSUMER_NAME);
+            nameFilter.addSampleConsumer(parallelConsumer);
+            consumersEntryPoint = parallelConsumer;
+        }
+        addSummaryConsumers(consumersEntryPoint);
+
         FilterConsumer excludeControllerFilter = createExcludeControllerFilter();
 
-        nameFilter.addSampleConsumer(excludeControllerFilter);
+        consumersEntryPoint.addSampleConsumer(excludeControllerFilter);
 
         dateRangeConsumer.addSampleConsumer(nameFilter);
 
@@ -234,18 +391,17 @@ public class ReportGenerator {
 
         // Process configuration to build graph consumers
         for (Map.Entry<String, GraphConfiguration> entryGraphCfg : graphConfigurations.entrySet()) {
-            addGraphConsumer(nameFilter, excludeControllerFilter, entryGraphCfg);
+            addGraphConsumer(consumersEntryPoint, excludeControllerFilter, entryGraphCfg);
         }
+    }
 
-        // Generate data
-        log.debug("Start samples processing");
-        try {
-            source.run(); // NOSONAR
-        } catch (SampleException ex) {
-            throw new GenerationException("Error while processing samples: " + ex.getMessage(), ex);
-        }
-        log.debug("End of samples processing");
-
+    /**
+     * Exports the data of the context with the configured exporters
+     *
+     * @param sampleContext context that holds the results of the consumers
+     * @throws GenerationException when an exporter failed
+     */
+    private void exportData(SampleContext sampleContext) throws GenerationException {
         log.debug("Start data exporting");
 
         // Process configuration to build data exporters
@@ -261,10 +417,6 @@ public class ReportGenerator {
         }
 
         log.debug("End of data exporting");
-
-        removeTempDir(tmpDir, tmpDirCreated);
-
-        log.debug("End of report generation");
     }
 
     /**
@@ -322,7 +474,7 @@ public class ReportGenerator {
         return tmpDirCreated;
     }
 
-    private void addGraphConsumer(FilterConsumer nameFilter,
+    private void addGraphConsumer(AbstractSampleConsumer consumersEntryPoint,
             FilterConsumer excludeControllerFilter,
             Map.Entry<String, GraphConfiguration> entryGraphCfg)
             throws GenerationException {
@@ -354,10 +506,17 @@ public class ReportGenerator {
             graph.initialize();
 
             // Choose which entry point to use to plug the graph
-            AbstractSampleConsumer entryPoint = graphConfiguration
-                    .excludesControllers() ? excludeControllerFilter
-                    : nameFilter;
-            entryPoint.addSampleConsumer(graph);
+            if (!graphConfiguration.excludesControllers()) {
+                consumersEntryPoint.addSampleConsumer(graph);
+            } else if (consumersEntryPoint instanceof ParallelSampleConsumer) {
+                // Give the graph its own filter, so it can be fed by another thread
+                FilterConsumer graphFilter = createControllerFilter(
+                        START_INTERVAL_CONTROLLER_FILTER_CONSUMER_NAME + "-" + graphName);
+                graphFilter.addSampleConsumer(graph);
+                consumersEntryPoint.addSampleConsumer(graphFilter);
+            } else {
+                excludeControllerFilter.addSampleConsumer(graph);
+            }
         } catch (ClassNotFoundException ex) {
             log.warn("Unable to add class:{} as consumer for HTML report generation, "
                     + "check class name or that the plugin that contains it is on classpath", className, ex);
@@ -396,13 +555,22 @@ public class ReportGenerator {
     }
 
     private FilterConsumer createExcludeControllerFilter() {
+        FilterConsumer excludeControllerFilter = createControllerFilter(
+                START_INTERVAL_CONTROLLER_FILTER_CONSUMER_NAME);
+        excludeControllerFilter.addSampleConsumer(createErrorsSummaryConsumer());
+        return excludeControllerFilter;
+    }
+
+    /**
+     * @param name name of the filter
+     * @return a {@link FilterConsumer} that excludes the samples of controllers
+     */
+    private static FilterConsumer createControllerFilter(String name) {
         FilterConsumer excludeControllerFilter = new FilterConsumer();
-        excludeControllerFilter
-                .setName(START_INTERVAL_CONTROLLER_FILTER_CONSUMER_NAME);
+        excludeControllerFilter.setName(name);
         excludeControllerFilter
                 .setSamplePredicate(new ControllerSamplePredicate());
         excludeControllerFilter.setReverseFilter(true);
-        excludeControllerFilter.addSampleConsumer(createErrorsSummaryConsumer());
         return excludeControllerFilter;
     }
 
@@ -487,13 +655,21 @@ public class ReportGenerator {
                 return filteredSamplesPattern == null
                         || filteredSamplesPattern.matcher(sample.getName()).matches();
         });
-        nameFilter.addSampleConsumer(createApdexSummaryConsumer());
-        nameFilter.addSampleConsumer(createRequestsSummaryConsumer());
-        nameFilter.addSampleConsumer(createStatisticsSummaryConsumer());
-        nameFilter.addSampleConsumer(createTop5ErrorsConsumer(configuration));
         return nameFilter;
     }
 
+    /**
+     * Adds the consumers of the summary tables
+     *
+     * @param entryPoint consumer that feeds the summary consumers
+     */
+    private void addSummaryConsumers(AbstractSampleConsumer entryPoint) {
+        entryPoint.addSampleConsumer(createApdexSummaryConsumer());
+        entryPoint.addSampleConsumer(createRequestsSummaryConsumer());
+        entryPoint.addSampleConsumer(createStatisticsSummaryConsumer());
+        entryPoint.addSampleConsumer(createTop5ErrorsConsumer(configuration));
+    }
+
     /**
      * @return Consumer that compute the end date of the test
      */
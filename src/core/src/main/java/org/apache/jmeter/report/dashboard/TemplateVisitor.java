@@ -20,6 +20,7 @@ package org.apache.jmeter.report.dashboard;
 import java.io.BufferedWriter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
@@ -30,6 +31,11 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.jmeter.report.core.DataContext;
@@ -54,6 +60,8 @@ public class TemplateVisitor extends SimpleFileVisitor<Path> {
     private final Path target;
     private final Configuration configuration;
     private final DataContext data;
+    private final ExecutorService executor;
+    private final List<Future<?>> pendingTemplates = new ArrayList<>();
 
     /**
      * Instantiates a new template visitor.
@@ -69,10 +77,57 @@ public class TemplateVisitor extends SimpleFileVisitor<Path> {
      */
     public TemplateVisitor(Path source, Path target,
             Configuration configuration, DataContext data) {
+        this(source, target, configuration, data, null);
+    }
+
+    /**
+     * Instantiates a new template visitor that processes the templated files
+     * with an executor, see {@link #awaitTemplates()}.
+     *
+     * @param source
+     *            the source directory
+     * @param target
+     *            the target directory
+     * @param configuration
+     *            the freemarker configuration
+     * @param data
+     *            the data to inject, which must not change until the templates are processed
+     * @param executor
+     *            the executor processing the templated files, or {@code null} to process them while visiting
+     * @since 5.5.1
+     */
+    public TemplateVisitor(Path source, Path target,
+            Configuration configuration, DataContext data, ExecutorService executor) {
         this.source = source;
         this.target = target;
         this.configuration = configuration;
         this.data = data;
+        this.executor = executor;
+    }
+
+    /**
+     * Waits for the templated files submitted to the executor to be processed.
+     *
+     * @throws IOException
+     *             when a templated file could not be processed
+     * @since 5.5.1
+     */
+    public void awaitTemplates() throws IOException {
+        try {
+            for (Future<?> pendingTemplate : pendingTemplates) {
+                pendingTemplate.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing templates");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        } finally {
+            pendingTemplates.clear();
+        }
     }
 
     /*
@@ -111,17 +166,16 @@ public class TemplateVisitor extends SimpleFileVisitor<Path> {
         if (TEMPLATED_FILE_EXT.equalsIgnoreCase(extension)) {
             // Process template file
             String templatePath = source.relativize(file).toString();
-            Template template = configuration.getTemplate(templatePath);
             Path newPath = target.resolve(FilenameUtils
                     .removeExtension(templatePath));
-            try (FileOutputStream stream = new FileOutputStream(newPath.toString());
-                    Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
-                    BufferedWriter bufferedWriter = new BufferedWriter(writer)){
-                template.process(data, bufferedWriter);
-            } catch (TemplateException ex) {
-                throw new IOException(ex);
+            if (executor == null) {
+                processTemplate(templatePath, newPath);
+            } else {
+                pendingTemplates.add(executor.submit(() -> {
+                    processTemplate(templatePath, newPath);
+                    return null;
+                }));
             }
-
         } else {
             // Copy regular file
             Path newFile = target.resolve(source.relativize(file));
@@ -129,4 +183,15 @@ public class TemplateVisitor extends SimpleFileVisitor<Path> {
         }
         return FileVisitResult.CONTINUE;
     }
+
+    private void processTemplate(String templatePath, Path newPath) throws IOException {
+        Template template = configuration.getTemplate(templatePath);
+        try (FileOutputStream stream = new FileOutputStream(newPath.toString());
+                Writer writer = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+                BufferedWriter bufferedWriter = new BufferedWriter(writer)){
+            template.process(data, bufferedWriter);
+        } catch (TemplateException ex) {
+            throw new IOException(ex);
+        }
+    }
 }
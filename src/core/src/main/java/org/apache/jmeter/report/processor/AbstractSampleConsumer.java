@@ -27,6 +27,7 @@ import org.apache.commons.lang3.Validate;
 import org.apache.jmeter.report.core.Sample;
 import org.apache.jmeter.report.core.SampleException;
 import org.apache.jmeter.report.core.SampleMetadata;
+import org.apiguardian.api.API;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -234,6 +235,26 @@ public abstract class AbstractSampleConsumer extends AbstractSampleProcessor
         }
     }
 
+    /**
+     * Stores in the sample context the results computed from the samples
+     * consumed so far, without ending the consumption, then asks the consumers
+     * of this consumer to do the same.
+     * <p>
+     * It is called between two calls to {@link #consume(Sample, int)}, so that
+     * a report can be exported while samples are still produced. This
+     * implementation only asks the consumers of this consumer.
+     *
+     * @since 5.5.1
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public void storeIntermediateResults() {
+        for (SampleConsumer consumer : this.sampleConsumers) {
+            if (consumer instanceof AbstractSampleConsumer) {
+                ((AbstractSampleConsumer) consumer).storeIntermediateResults();
+            }
+        }
+    }
+
     @Override
     public void stopProducing() {
         for (SampleConsumer consumer : this.sampleConsumers) {
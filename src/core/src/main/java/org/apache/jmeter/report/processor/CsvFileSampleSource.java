@@ -24,11 +24,17 @@ import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
+import org.apache.jmeter.report.core.AggregatedSampleReader;
+import org.apache.jmeter.report.core.BinarySampleReader;
 import org.apache.jmeter.report.core.CsvSampleReader;
+import org.apache.jmeter.report.core.MappedCsvSampleReader;
 import org.apache.jmeter.report.core.Sample;
 import org.apache.jmeter.report.core.SampleException;
 import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.report.core.SampleReader;
 import org.apache.jmeter.report.core.TimeHelper;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +64,10 @@ import org.slf4j.LoggerFactory;
  * <li>If the input file is named <code>results.csv</code> then it will
  * be produced on the channel 0.</li>
  * </ul>
+ * Files written in the binary result format are read with a {@link BinarySampleReader},
+ * and files written in the aggregated result format with an {@link AggregatedSampleReader}.
+ * CSV files are read with a {@link MappedCsvSampleReader} when the
+ * <code>jmeter.reportgenerator.mapped_reader</code> property is true.
  *
  * @since 3.0
  */
@@ -68,11 +78,17 @@ public class CsvFileSampleSource extends AbstractSampleSource {
 
     private static final Logger LOG = LoggerFactory.getLogger(CsvFileSampleSource.class);
 
+    /** Whether CSV files are tokenized in place in memory mapped files */
+    private static final boolean MAPPED_READER = JMeterUtils.getPropDefault(
+            ReportGeneratorConfiguration.REPORT_GENERATOR_KEY_PREFIX
+                    + ReportGeneratorConfiguration.KEY_DELIMITER
+                    + "mapped_reader", false);
+
     /** input csv files to be produced */
     private File[] inputFiles;
 
-    /** csv readers corresponding to the input files */
-    private CsvSampleReader[] csvReaders;
+    /** readers corresponding to the input files */
+    private SampleReader[] csvReaders;
 
     /** mock producer to produce samples to its consumers */
     private PrivateProducer producer;
@@ -105,20 +121,33 @@ public class CsvFileSampleSource extends AbstractSampleSource {
             secondaryInputs = new File[0];
         }
         inputFiles = new File[secondaryInputs.length + 1];
-        csvReaders = new CsvSampleReader[secondaryInputs.length + 1];
+        csvReaders = new SampleReader[secondaryInputs.length + 1];
         int k = 0;
         // primary input file (ex. input.csv)
-        csvReaders[k] = new CsvSampleReader(inputFile, separator, true);
+        csvReaders[k] = createReader(inputFile, separator);
         inputFiles[k] = inputFile;
         // secondary input files (ex. input-1.csv, input-2.csv, input-3.csv)
         for (File input : secondaryInputs) {
             k++;
-            csvReaders[k] = new CsvSampleReader(input, separator, true);
+            csvReaders[k] = createReader(input, separator);
             inputFiles[k] = secondaryInputs[k - 1];
         }
         producer = new PrivateProducer();
     }
 
+    private static SampleReader createReader(File input, char separator) {
+        if (BinarySampleReader.isBinaryFile(input)) {
+            return new BinarySampleReader(input);
+        }
+        if (AggregatedSampleReader.isAggregatedFile(input)) {
+            return new AggregatedSampleReader(input);
+        }
+        if (MAPPED_READER && MappedCsvSampleReader.isSupported(separator)) {
+            return new MappedCsvSampleReader(input, separator, true);
+        }
+        return new CsvSampleReader(input, separator, true);
+    }
+
     private static String getFileRootName(String fName) {
         int idx = fName.lastIndexOf('.');
         if (idx < 0) {
@@ -166,7 +195,7 @@ public class CsvFileSampleSource extends AbstractSampleSource {
         for (int i = 0; i < csvReaders.length; i++) {
             long sampleCount = 0;
             long start = now();
-            CsvSampleReader csvReader = csvReaders[i];
+            SampleReader csvReader = csvReaders[i];
             producer.setSampleContext(context);
             producer.setProducedMetadata(csvReader.getMetadata(), i);
             producer.setChannelAttribute(i, SOURCE_FILE_ATTRIBUTE,
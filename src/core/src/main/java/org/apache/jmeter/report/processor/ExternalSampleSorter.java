@@ -17,11 +17,24 @@
 
 package org.apache.jmeter.report.processor;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.DecimalFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.PriorityQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -32,11 +45,11 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.Validate;
 import org.apache.jmeter.report.core.CsvFile;
 import org.apache.jmeter.report.core.CsvSampleReader;
-import org.apache.jmeter.report.core.CsvSampleWriter;
 import org.apache.jmeter.report.core.Sample;
 import org.apache.jmeter.report.core.SampleComparator;
 import org.apache.jmeter.report.core.SampleException;
 import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +71,8 @@ import org.slf4j.LoggerFactory;
  * </p>
  * <p>
  * When <b>parallel mode</b> is enabled and several CPU are available to the
- * JVM, this sorter uses multiple CPU to reduce sort time.<br>
+ * JVM, this sorter sorts several chunks at the same time, while the next
+ * samples are read.<br>
  * The <b>parallel mode</b> can be disabled if some sort of concurrency issue is
  * encountered.
  * </p>
@@ -67,9 +81,10 @@ import org.slf4j.LoggerFactory;
  * the different <code>sort()</code> methods
  * </p>
  * <p>
- * It is important to set the <b><code>chunkSize</code></b> property according
- * to the available memory as the algorithm does not take care of memory
- * allocation (samples sizes are not predictable)
+ * Unless the <b><code>chunkSize</code></b> property is set, the number of
+ * samples of a chunk is estimated from the free heap memory when sorting
+ * starts. Chunks are written in a binary format, so they do not need to be
+ * parsed again, and are all merged in a single pass with a heap.
  * </p>
  * <p>
  * Meanwhile, it is equally important to set a {@link SampleComparator} to
@@ -85,8 +100,21 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
 
     private static final int DEFAULT_CHUNK_SIZE = 50000;
 
+    /** Estimated memory used by a sample, without its columns */
+    private static final long SAMPLE_OVERHEAD = 64;
+
+    /** Estimated memory used by a column of a sample */
+    private static final long COLUMN_OVERHEAD = 64;
+
+    /** Number of chunk files merged at the same time */
+    private static final int MAX_MERGED_CHUNKS = 512;
+
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+
     private long chunkSize = DEFAULT_CHUNK_SIZE;
 
+    private boolean chunkSizeSet;
+
     private SampleComparator sampleComparator;
 
     private final BlockingQueue<Runnable> workQueue = new LinkedBlockingQueue<>();
@@ -103,6 +131,8 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
 
     private List<File> chunks;
 
+    private Deque<ChunkJob> pendingChunks;
+
     private List<Sample> samples;
 
     private SampleMetadata sampleMetadata;
@@ -133,14 +163,16 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
      *
      * @param chunkSize
      *            The number of samples sorted in memory before they are written
-     *            to disk. 5000 is the minimum and will be used if given
-     *            chunkSize is less than 5000
+     *            to disk. 50000 is the minimum and will be used if given
+     *            chunkSize is less than 50000. When it is not set, it is
+     *            computed from the free heap memory when sorting starts
      */
     public void setChunkSize(long chunkSize) {
         if (chunkSize < 50000) {
             chunkSize = 50000;
         }
         this.chunkSize = chunkSize;
+        this.chunkSizeSet = true;
     }
 
     /**
@@ -281,9 +313,37 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
         inputSampleCount.set(0);
         chunkedSampleCount.set(0);
         chunks = new ArrayList<>();
+        pendingChunks = new ArrayDeque<>();
         samples = new ArrayList<>();
         sampleMetadata = getConsumedMetadata(0);
         sampleComparator.initialize(sampleMetadata);
+        if (!chunkSizeSet) {
+            Runtime runtime = Runtime.getRuntime();
+            long freeMemory = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+            chunkSize = computeChunkSize(freeMemory, getMaxPendingChunks() + 1, sampleMetadata.getColumnCount());
+            LOG.debug("Chunks of {} samples will be sorted in memory", chunkSize);
+        }
+    }
+
+    /**
+     * Computes the number of samples of a chunk so that the chunks held in
+     * memory at the same time use half of the free memory.
+     *
+     * @param freeMemory
+     *            free heap memory in bytes
+     * @param chunksInMemory
+     *            number of chunks that can be held in memory at the same time
+     * @param columnCount
+     *            number of columns of the samples
+     * @return the number of samples of a chunk, at least {@value #DEFAULT_CHUNK_SIZE}
+     */
+    static long computeChunkSize(long freeMemory, int chunksInMemory, int columnCount) {
+        long sampleSize = SAMPLE_OVERHEAD + (long) columnCount * COLUMN_OVERHEAD;
+        return Math.max(DEFAULT_CHUNK_SIZE, freeMemory / 2 / Math.max(1, chunksInMemory) / sampleSize);
+    }
+
+    private int getMaxPendingChunks() {
+        return parallelize ? nbProcessors : 0;
     }
 
     @Override
@@ -291,30 +351,43 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
         samples.add(s);
         inputSampleCount.incrementAndGet();
         if (samples.size() >= chunkSize) {
-            chunks.add(sortAndDump(samples, sampleMetadata));
-            samples.clear();
+            dumpChunk(samples);
+            samples = new ArrayList<>();
         }
     }
 
     @Override
     public void stopConsuming() {
-        if (!samples.isEmpty()) {
-            chunks.add(sortAndDump(samples, sampleMetadata));
-        }
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("sort(): " + inputSampleCount.longValue()
-                    + " samples read from input, " + chunkedSampleCount.longValue()
-                    + " samples written to chunk files");
-            if (inputSampleCount.get() != chunkedSampleCount.get()) {
-                LOG.error("Failure! Number of samples read from input and written to chunk files differ");
-            } else {
-                LOG.info("dumping of samples chunk succeeded.");
+        super.setProducedMetadata(sampleMetadata, 0);
+        if (chunks.isEmpty() && pendingChunks.isEmpty()) {
+            // All samples fit in one chunk, no need to write them to disk
+            super.startProducing();
+            for (Sample sample : sortChunk(samples)) {
+                super.produce(sample, 0);
+            }
+            super.stopProducing();
+        } else {
+            if (!samples.isEmpty()) {
+                dumpChunk(samples);
+            }
+            while (!pendingChunks.isEmpty()) {
+                chunks.add(pendingChunks.poll().getFile());
             }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("sort(): " + inputSampleCount.longValue()
+                        + " samples read from input, " + chunkedSampleCount.longValue()
+                        + " samples written to " + chunks.size() + " chunk files");
+                if (inputSampleCount.get() != chunkedSampleCount.get()) {
+                    LOG.error("Failure! Number of samples read from input and written to chunk files differ");
+                } else {
+                    LOG.info("dumping of samples chunk succeeded.");
+                }
+            }
+            super.startProducing();
+            mergeFiles(chunks, sampleMetadata, this);
+            super.stopProducing();
         }
-        super.setProducedMetadata(sampleMetadata, 0);
-        super.startProducing();
-        sortFilesParallel(chunks, sampleMetadata, this);
-        super.stopProducing();
+        samples = null;
         if (this.pool != null) {
             this.pool.shutdown();
         }
@@ -323,33 +396,94 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
         }
     }
 
-    private File sortAndDump(final List<Sample> samples,
-            final SampleMetadata sampleMetadata) {
+    /**
+     * Sorts and writes the samples to a chunk file, in the pool when parallel
+     * mode is enabled. The number of chunks being sorted is bounded, so that
+     * the memory used by the samples is bounded too.
+     */
+    private void dumpChunk(final List<Sample> chunkSamples) {
+        ChunkJob job = new ChunkJob(chunkSamples);
+        if (getMaxPendingChunks() == 0) {
+            job.run();
+            chunks.add(job.getFile());
+            return;
+        }
+        while (pendingChunks.size() >= getMaxPendingChunks()) {
+            chunks.add(pendingChunks.poll().getFile());
+        }
+        pendingChunks.add(job);
+        pool.execute(job);
+    }
+
+    /**
+     * Sorts a chunk and writes it to a file, keeping the exception thrown if
+     * any, as {@link Job} would otherwise never have a result.
+     */
+    private final class ChunkJob extends Job<File> {
+
+        private final List<Sample> chunkSamples;
+
+        private RuntimeException failure;
+
+        private ChunkJob(List<Sample> chunkSamples) {
+            this.chunkSamples = chunkSamples;
+        }
+
+        @Override
+        protected File exec() {
+            try {
+                return sortAndDump(chunkSamples);
+            } catch (RuntimeException e) { // NOSONAR rethrown by getFile
+                failure = e;
+                return null;
+            }
+        }
+
+        private File getFile() {
+            File file;
+            try {
+                file = getResult();
+            } catch (InterruptedException ie) { // NOSONAR we throw another exception
+                throw new SampleException("Unexpected interruption !", ie);
+            }
+            if (failure != null) {
+                throw new SampleException("Could not sort chunk", failure);
+            }
+            return file;
+        }
+    }
+
+    private List<Sample> sortChunk(List<Sample> chunkSamples) {
+        Comparator<Sample> comparator = (s1, s2) -> Long.signum(sampleComparator.compare(s1, s2));
+        chunkSamples.sort(revertedSort ? comparator.reversed() : comparator);
+        return chunkSamples;
+    }
+
+    private File sortAndDump(final List<Sample> chunkSamples) {
         long start = 0;
         if (LOG.isDebugEnabled()) {
-            LOG.debug("sortAndDump(): Sorting " + samples.size()
+            LOG.debug("sortAndDump(): Sorting " + chunkSamples.size()
                     + " samples...");
             start = System.currentTimeMillis();
         }
-        final List<Sample> sortedSamples = sortSamplesParallel(samples);
-        if (sortedSamples.size() != samples.size()) {
-            throw new SampleException("sort failed ! " + sortedSamples.size()
-                    + " != " + samples.size());
-        }
+        sortChunk(chunkSamples);
         if (LOG.isDebugEnabled()) {
             LOG.debug("sortAndDump(): in " + (System.currentTimeMillis() - start) / 1000f
-                    + " s. Sorted  " + samples.size() + " samples.");
+                    + " s. Sorted  " + chunkSamples.size() + " samples.");
         }
         File out = getChunkFile();
         if (LOG.isDebugEnabled()) {
             LOG.debug("sortAndDump(): Dumping chunk " + out);
             start = System.currentTimeMillis();
         }
-        try (CsvSampleWriter csvWriter = new CsvSampleWriter(out, sampleMetadata)){
-            for (Sample sample : sortedSamples) {
-                csvWriter.write(sample);
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(out.toPath()), CHUNK_BUFFER_SIZE))) {
+            for (Sample sample : chunkSamples) {
+                writeSample(output, sample, sampleMetadata.getColumnCount());
                 chunkedSampleCount.incrementAndGet();
             }
+        } catch (IOException e) {
+            throw new SampleException("Could not write chunk " + out.getAbsolutePath(), e);
         }
         if (LOG.isDebugEnabled()) {
             LOG.debug("sortAndDump(): in " + (System.currentTimeMillis() - start) / 1000f
@@ -358,42 +492,26 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
         return out;
     }
 
-    private List<Sample> sortSamplesParallel(final List<Sample> samples) {
-        int sz = samples.size();
-        if (sz <= 1) {
-            return samples;
-        }
-        int middle = sz / 2;
-        final List<Sample> left = samples.subList(0, middle);
-        final List<Sample> right = samples.subList(middle, sz);
-
-        List<Sample> newLeft;
-        List<Sample> newRight;
-        Job<List<Sample>> jobLeft = createSortJob(left);
-        Job<List<Sample>> jobRight = createSortJob(right);
-        if (parallelize) {
-            workQueue.add(jobLeft);
-            workQueue.add(jobRight);
-            try {
-                newLeft = jobLeft.getResult();
-                newRight = jobRight.getResult();
-            } catch (InterruptedException ie) { // NOSONAR we throw another exception
-                throw new SampleException("Unexpected interruption !", ie);
+    /*
+     * A chunk file is a sequence of records:
+     * row:long (columnLength:int utf-8 bytes)*
+     * where a column length of -1 stands for a null value.
+     * The samples do not need to be parsed again to be merged,
+     * and the records do not depend on the separator of the CSV file.
+     */
+    private static void writeSample(DataOutputStream output, Sample sample, int columnCount)
+            throws IOException {
+        output.writeLong(sample.getSampleRow());
+        for (int i = 0; i < columnCount; i++) {
+            String value = sample.getData(i);
+            if (value == null) {
+                output.writeInt(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
             }
-        } else {
-            newLeft = jobLeft.exec();
-            newRight = jobRight.exec();
         }
-        return merge(newLeft, newRight);
-    }
-
-    private Job<List<Sample>> createSortJob(final List<Sample> samples) {
-        return new Job<List<Sample>>() {
-            @Override
-            protected List<Sample> exec() {
-                return sort(samples);
-            }
-        };
     }
 
     public List<Sample> sort(List<Sample> samples) {
@@ -436,154 +554,149 @@ public class ExternalSampleSorter extends AbstractSampleConsumer {
         return out;
     }
 
+    /**
+     * Merges sorted chunk files written by this sorter and produces their
+     * samples in order. The files are merged in a single pass, unless there
+     * are more than {@value #MAX_MERGED_CHUNKS} of them.
+     *
+     * @param chunks
+     *            the sorted chunk files, deleted once merged
+     * @param metadata
+     *            the metadata of the samples
+     * @param producer
+     *            the producer of the merged samples
+     */
     public void mergeFiles(List<File> chunks, SampleMetadata metadata,
             SampleProducer producer) {
-        sortFilesParallel(chunks, metadata, producer);
+        List<File> toMerge = new ArrayList<>(chunks);
+        while (toMerge.size() > MAX_MERGED_CHUNKS) {
+            List<File> merged = new ArrayList<>();
+            for (int i = 0; i < toMerge.size(); i += MAX_MERGED_CHUNKS) {
+                List<File> group = toMerge.subList(i, Math.min(toMerge.size(), i + MAX_MERGED_CHUNKS));
+                File out = getChunkFile();
+                try (DataOutputStream output = new DataOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(out.toPath()), CHUNK_BUFFER_SIZE))) {
+                    mergeChunks(group, metadata, sample -> writeSample(output, sample, metadata.getColumnCount()));
+                } catch (IOException e) {
+                    throw new SampleException("Could not write chunk " + out.getAbsolutePath(), e);
+                }
+                merged.add(out);
+            }
+            toMerge = merged;
+        }
+        try {
+            mergeChunks(toMerge, metadata, sample -> producer.produce(sample, 0));
+        } catch (IOException e) {
+            throw new SampleException("Could not merge chunks", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MergedSampleConsumer {
+        void accept(Sample sample) throws IOException;
     }
 
-    private void sortFilesParallel(List<File> chunks,
-            final SampleMetadata metadata, SampleProducer out) {
-        int sz = chunks.size();
-        if (sz > 1) {
-            int middle = sz / 2;
-            final List<File> left = chunks.subList(0, middle);
-            final List<File> right = chunks.subList(middle, sz);
-            File leftFile;
-            File rightFile;
-            Job<File> leftJob = createMergeJob(left, metadata);
-            Job<File> rightJob = createMergeJob(right, metadata);
-            if (parallelize) {
-                workQueue.add(leftJob);
-                workQueue.add(rightJob);
-                try {
-                    leftFile = leftJob.getResult();
-                    rightFile = rightJob.getResult();
-                } catch (InterruptedException ie) { // NOSONAR We throw an exception
-                    throw new SampleException("Unexpected interruption !", ie);
+    /**
+     * Merges the chunk files with a heap of their next samples. When samples
+     * are equal, the one of the first chunk comes first, so that the sort is
+     * stable.
+     */
+    private void mergeChunks(List<File> files, SampleMetadata metadata, MergedSampleConsumer out)
+            throws IOException {
+        Comparator<Sample> sampleOrder = (s1, s2) -> Long.signum(sampleComparator.compare(s1, s2));
+        if (revertedSort) {
+            sampleOrder = sampleOrder.reversed();
+        }
+        Comparator<Sample> order = sampleOrder;
+        PriorityQueue<ChunkReader> heads = new PriorityQueue<>(Math.max(1, files.size()),
+                (r1, r2) -> {
+                    int result = order.compare(r1.current, r2.current);
+                    return result != 0 ? result : Integer.compare(r1.index, r2.index);
+                });
+        List<ChunkReader> readers = new ArrayList<>(files.size());
+        try {
+            for (File file : files) {
+                ChunkReader reader = new ChunkReader(file, readers.size(), metadata);
+                readers.add(reader);
+                if (reader.next()) {
+                    heads.add(reader);
                 }
-            } else {
-                leftFile = leftJob.exec();
-                rightFile = rightJob.exec();
             }
-            mergeFiles(metadata, leftFile, rightFile, out);
-        } else {
-            File f = chunks.get(0);
-            try (CsvSampleReader reader = new CsvSampleReader(f, metadata)) {
-                Sample sample;
-                while ((sample = reader.readSample()) != null) {
-                    out.produce(sample, 0);
+            while (!heads.isEmpty()) {
+                ChunkReader reader = heads.poll();
+                out.accept(reader.current);
+                if (reader.next()) {
+                    heads.add(reader);
                 }
             }
+        } finally {
+            for (ChunkReader reader : readers) {
+                reader.close();
+            }
         }
     }
 
-    private Job<File> createMergeJob(final List<File> chunks,
-            final SampleMetadata metadata) {
-        return new Job<File>() {
-            @Override
-            protected File exec() {
-                return mergeSortFiles(chunks, metadata);
-            }
-        };
-    }
+    /**
+     * Reads the samples of a chunk file one after the other.
+     */
+    private static final class ChunkReader implements Closeable {
 
-    private File mergeSortFiles(List<File> chunks, SampleMetadata metadata) {
-        int sz = chunks.size();
-        if (sz == 1) {
-            return chunks.get(0);
-        }
-        int middle = sz / 2;
-        List<File> left = chunks.subList(0, middle);
-        List<File> right = chunks.subList(middle, sz);
-        File leftFile = mergeSortFiles(left, metadata);
-        File rightFile = mergeSortFiles(right, metadata);
-        return mergeFiles(leftFile, rightFile, metadata);
-    }
+        private final File file;
 
-    private File mergeFiles(File left, File right, SampleMetadata metadata) {
-        File out = getChunkFile();
-        mergeFiles(metadata, left, right, out, false);
-        return out;
-    }
+        private final int index;
+
+        private final SampleMetadata metadata;
+
+        private final DataInputStream input;
 
-    private void mergeFiles(SampleMetadata metadata, File left, File right,
-            File out, boolean writeHeader) {
-        if (out == null) {
-            out = getChunkFile();
+        private Sample current;
+
+        private ChunkReader(File file, int index, SampleMetadata metadata) throws IOException {
+            this.file = file;
+            this.index = index;
+            this.metadata = metadata;
+            this.input = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file.toPath()), CHUNK_BUFFER_SIZE));
         }
 
-        try (CsvSampleWriter csvWriter = new CsvSampleWriter(out, metadata);
-                CsvSampleReader l = new CsvSampleReader(left, metadata);
-                CsvSampleReader r = new CsvSampleReader(right, metadata)) {
-            if (writeHeader) {
-                csvWriter.writeHeader();
+        /**
+         * @return {@code true} if a sample was read in {@link #current},
+         *         {@code false} at the end of the file
+         */
+        private boolean next() throws IOException {
+            long row;
+            try {
+                row = input.readLong();
+            } catch (EOFException e) { // NOSONAR end of the chunk
+                current = null;
+                return false;
             }
-            while (l.hasNext() || r.hasNext()) {
-                if (l.hasNext() && r.hasNext()) {
-                    Sample firstLeft = l.peek();
-                    Sample firstRight = r.peek();
-                    if (leftBeforeRight(firstLeft, firstRight)) {
-                        csvWriter.write(firstLeft);
-                        l.readSample();
-                    } else {
-                        csvWriter.write(firstRight);
-                        r.readSample();
-                    }
-                } else if (l.hasNext()) {
-                    csvWriter.write(l.readSample());
-                } else if (r.hasNext()) {
-                    csvWriter.write(r.readSample());
+            String[] data = new String[metadata.getColumnCount()];
+            for (int i = 0; i < data.length; i++) {
+                int length = input.readInt();
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    input.readFully(bytes);
+                    data[i] = new String(bytes, StandardCharsets.UTF_8);
                 }
             }
+            current = new Sample(row, metadata, data);
+            return true;
         }
-    }
 
-    private void mergeFiles(SampleMetadata metadata, File left, File right,
-            SampleProducer out) {
-        try (CsvSampleReader l = new CsvSampleReader(left, metadata);
-                CsvSampleReader r = new CsvSampleReader(right, metadata)) {
-            while (l.hasNext() || r.hasNext()) {
-                if (l.hasNext() && r.hasNext()) {
-                    Sample firstLeft = l.peek();
-                    Sample firstRight = r.peek();
-                    if (leftBeforeRight(firstLeft, firstRight)) {
-                        out.produce(firstLeft, 0);
-                        l.readSample();
-                    } else {
-                        out.produce(firstRight, 0);
-                        r.readSample();
-                    }
-                } else if (l.hasNext()) {
-                    out.produce(l.readSample(), 0);
-                } else if (r.hasNext()) {
-                    out.produce(r.readSample(), 0);
-                }
+        @Override
+        public void close() {
+            JOrphanUtils.closeQuietly(input);
+            if (!file.delete()) {
+                LOG.debug("Was not able to delete chunk {}", file);
             }
         }
     }
 
-    /**
-     * Decides which sample should be written first given the configured
-     * {@link SampleComparator} and the sort order.
-     *
-     * @param leftSample
-     *            the <em>left</em> sample
-     * @param rightSample
-     *            the <em>right</em> sample
-     * @return {@code true} when {@code leftSample} should be written first,
-     *         {@code false} otherwise
-     */
-    private boolean leftBeforeRight(Sample leftSample, Sample rightSample) {
-        return !revertedSort
-                && sampleComparator.compare(leftSample, rightSample) < 0
-                || revertedSort
-                && sampleComparator.compare(leftSample, rightSample) >= 0;
-    }
-
     private File getChunkFile() {
         DecimalFormat df = new DecimalFormat("00000");
         File out = new File(getWorkingDirectory(), "chunk-"
-                + df.format(sequence.incrementAndGet()) + ".csv");
+                + df.format(sequence.incrementAndGet()) + ".bin");
         out.deleteOnExit();
         return out;
     }
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleException;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Consumer that reproduces its samples to its consumers from several threads.
+ * <p>
+ * The consumers are spread over the worker threads when the consumption starts,
+ * and each one is always fed by the same worker, so consumers need not be thread safe
+ * and receive the samples in the order they are consumed.
+ * Samples are handed to the workers in batches, the same batch being shared by all workers,
+ * so they must not be modified by the consumers.
+ * <p>
+ * {@link #startConsuming()} and {@link #stopConsuming()} of the consumers are called by the thread
+ * that calls the corresponding methods of this consumer, one consumer after the other,
+ * so consumers can store their results in the {@link SampleContext} as usual.
+ * {@link #storeIntermediateResults()} is called the same way, once the workers have consumed
+ * the samples handed to them.
+ * <p>
+ * Samples are not partitioned between copies of the same consumer: graph and summary consumers
+ * keep series, Apdex, error and top 5 tables that have no merge operation, and only
+ * {@link PercentileAggregator#merge(PercentileAggregator)} is exact, when histograms are used.
+ * With the default sliding windows a merged percentile would differ from a sequential run.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class ParallelSampleConsumer extends AbstractSampleConsumer {
+    private static final Logger log = LoggerFactory.getLogger(ParallelSampleConsumer.class);
+
+    /** Number of samples handed to the workers at once */
+    private static final int BATCH_SIZE = 1024;
+
+    /** Number of batches that can wait for a worker before the producer waits */
+    private static final int PENDING_BATCHES = 16;
+
+    private static final Batch END = new Batch(0);
+
+    private static final class Batch {
+        private final Sample[] samples;
+        private final int[] channels;
+        private int size;
+        /** Counted down by the workers that reach this batch, when it is used to wait for them */
+        private CountDownLatch consumed;
+
+        Batch(int capacity) {
+            this.samples = new Sample[capacity];
+            this.channels = new int[capacity];
+        }
+
+        boolean add(Sample sample, int channel) {
+            samples[size] = sample;
+            channels[size] = channel;
+            size++;
+            return size == samples.length;
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final List<SampleConsumer> consumers = new ArrayList<>();
+        private final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(PENDING_BATCHES);
+
+        Worker(int index) {
+            super(ParallelSampleConsumer.this.getName() + "-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                while ((batch = batches.take()) != END) {
+                    if (failure == null) {
+                        consume(batch);
+                    }
+                    if (batch.consumed != null) {
+                        batch.consumed.countDown();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new SampleException("Interrupted while consuming samples", e));
+            }
+        }
+
+        private void consume(Batch batch) {
+            for (SampleConsumer consumer : consumers) {
+                try {
+                    for (int i = 0; i < batch.size; i++) {
+                        consumer.consume(batch.samples[i], batch.channels[i]);
+                    }
+                } catch (Exception e) { // NOSONAR Reported to the producer
+                    fail(new SampleException("Consumer failed with message :" + e.getMessage(), e));
+                    return;
+                }
+            }
+        }
+    }
+
+    private final int threads;
+
+    private final List<SampleConsumer> consumers = new ArrayList<>();
+
+    private List<Worker> workers = new ArrayList<>();
+
+    private Batch batch;
+
+    private long consumedSampleCount;
+
+    private volatile SampleException failure;
+
+    /**
+     * @param threads number of threads that feed the consumers
+     */
+    public ParallelSampleConsumer(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    @Override
+    public void addSampleConsumer(SampleConsumer consumer) {
+        super.addSampleConsumer(consumer);
+        if (consumer != null) {
+            consumers.add(consumer);
+        }
+    }
+
+    @Override
+    public void setSampleConsumers(List<SampleConsumer> consumers) {
+        super.setSampleConsumers(consumers);
+        this.consumers.clear();
+        this.consumers.addAll(consumers);
+    }
+
+    @Override
+    public void removeSampleConsumer(SampleConsumer consumer) {
+        super.removeSampleConsumer(consumer);
+        consumers.remove(consumer);
+    }
+
+    private void fail(SampleException e) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    @Override
+    public void startConsuming() {
+        // Broadcast metadata to consumers for each channel
+        int channelCount = getConsumedChannelCount();
+        for (int i = 0; i < channelCount; i++) {
+            super.setProducedMetadata(getConsumedMetadata(i), i);
+        }
+        super.startProducing();
+
+        failure = null;
+        consumedSampleCount = 0;
+        batch = new Batch(BATCH_SIZE);
+        int workerCount = Math.min(threads, consumers.size());
+        workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new Worker(i + 1));
+        }
+        for (int i = 0; i < consumers.size(); i++) {
+            workers.get(i % workerCount).consumers.add(consumers.get(i));
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+        log.info("{} feeds {} consumers from {} threads", getName(), consumers.size(), workerCount);
+    }
+
+    @Override
+    public void consume(Sample sample, int channel) {
+        consumedSampleCount++;
+        if (batch.add(sample, channel)) {
+            handOff(batch);
+            batch = new Batch(BATCH_SIZE);
+        }
+    }
+
+    private void handOff(Batch full) {
+        if (failure != null && full != END) {
+            // Let the workers end, they skip the pending batches
+            handOff(END);
+            throw failure;
+        }
+        try {
+            for (Worker worker : workers) {
+                worker.batches.put(full);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SampleException("Interrupted while handing samples to consumers", e);
+        }
+    }
+
+    @Override
+    public void storeIntermediateResults() {
+        if (batch.size > 0) {
+            handOff(batch);
+            batch = new Batch(BATCH_SIZE);
+        }
+        // Workers wait for the next batch once they have reached this one
+        Batch sync = new Batch(0);
+        sync.consumed = new CountDownLatch(workers.size());
+        handOff(sync);
+        try {
+            sync.consumed.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SampleException("Interrupted while waiting for consumers", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        super.storeIntermediateResults();
+    }
+
+    @Override
+    public void stopConsuming() {
+        try {
+            if (batch.size > 0) {
+                handOff(batch);
+            }
+            handOff(END);
+            for (Worker worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SampleException("Interrupted while waiting for consumers", e);
+        } finally {
+            batch = null;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        super.stopProducing();
+        if (log.isInfoEnabled()) {
+            log.info("{} consumed {} samples", getName(), consumedSampleCount);
+        }
+    }
+}
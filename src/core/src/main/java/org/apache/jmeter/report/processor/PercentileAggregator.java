@@ -20,9 +20,15 @@ package org.apache.jmeter.report.processor;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.jmeter.report.config.ReportGeneratorConfiguration;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.math.LogLinearHistogram;
 
 /**
  * The class PercentileAggregator is used to get percentile from samples.
+ * <p>
+ * By default, the percentile is computed on a sliding window of the last values.
+ * When {@code jmeter.reportgenerator.percentile_histogram} is true, values are rounded
+ * to long and counted in a {@link LogLinearHistogram}, so the percentile covers all the values
+ * with a relative error lower than 0.4%, and memory does not depend on the number of values.
  *
  * @since 3.0
  */
@@ -32,7 +38,15 @@ public class PercentileAggregator implements Aggregator {
                     + ReportGeneratorConfiguration.KEY_DELIMITER
                     + "statistic_window", 20000);
 
+    private static final boolean USE_HISTOGRAM = JMeterUtils.getPropDefault(
+            ReportGeneratorConfiguration.REPORT_GENERATOR_KEY_PREFIX
+                    + ReportGeneratorConfiguration.KEY_DELIMITER
+                    + "percentile_histogram", false);
+
+    /** Values of the sliding window, null when a histogram is used */
     private final DescriptiveStatistics statistics;
+    /** Histogram of all the values, null when a sliding window is used */
+    private final LogLinearHistogram histogram;
     private final double percentileIndex;
 
     /**
@@ -42,16 +56,50 @@ public class PercentileAggregator implements Aggregator {
      *            the index of the percentile
      */
     public PercentileAggregator(double index) {
-        statistics = DescriptiveStatisticsFactory.createDescriptiveStatistics(SLIDING_WINDOW_SIZE);
-        percentileIndex = index;
+        this(index, USE_HISTOGRAM);
     }
 
     /**
      * @param lastAggregator {@link PercentileAggregator}
      */
     public PercentileAggregator(PercentileAggregator lastAggregator) {
-        statistics = DescriptiveStatisticsFactory.createDescriptiveStatistics(SLIDING_WINDOW_SIZE);
-        this.percentileIndex = lastAggregator.percentileIndex;
+        this(lastAggregator.percentileIndex, lastAggregator.histogram != null);
+    }
+
+    /**
+     * @param index the index of the percentile
+     * @param useHistogram true to count the values in a histogram, false to keep a sliding window
+     */
+    PercentileAggregator(double index, boolean useHistogram) {
+        if (useHistogram) {
+            statistics = null;
+            histogram = new LogLinearHistogram();
+        } else {
+            statistics = DescriptiveStatisticsFactory.createDescriptiveStatistics(SLIDING_WINDOW_SIZE);
+            histogram = null;
+        }
+        percentileIndex = index;
+    }
+
+    /**
+     * Adds the values of another aggregator to this one.
+     * With histograms no precision is lost, with sliding windows
+     * the values of the other window are added after the values of this one.
+     *
+     * @param other aggregator whose values are added
+     * @throws IllegalArgumentException when the other aggregator uses a histogram and this one a sliding window
+     * @since 5.5.1
+     */
+    public void merge(PercentileAggregator other) {
+        if (histogram != null && other.histogram != null) {
+            histogram.add(other.histogram);
+        } else if (other.statistics != null) {
+            for (double value : other.statistics.getValues()) {
+                addValue(value);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot merge values of a histogram into a sliding window");
+        }
     }
 
     /*
@@ -61,7 +109,7 @@ public class PercentileAggregator implements Aggregator {
      */
     @Override
     public long getCount() {
-        return statistics.getN();
+        return histogram != null ? histogram.getTotalCount() : statistics.getN();
     }
 
     /*
@@ -71,6 +119,11 @@ public class PercentileAggregator implements Aggregator {
      */
     @Override
     public double getResult() {
+        if (histogram != null) {
+            return histogram.getTotalCount() == 0
+                    ? Double.NaN
+                    : histogram.getValueAtPercentile(percentileIndex);
+        }
         return statistics.getPercentile(percentileIndex);
     }
 
@@ -81,7 +134,11 @@ public class PercentileAggregator implements Aggregator {
      */
     @Override
     public void addValue(double value) {
-        statistics.addValue(value);
+        if (histogram != null) {
+            histogram.record(Math.round(value));
+        } else {
+            statistics.addValue(value);
+        }
     }
 
     /*
@@ -91,7 +148,11 @@ public class PercentileAggregator implements Aggregator {
      */
     @Override
     public void reset() {
-        statistics.clear();
+        if (histogram != null) {
+            histogram.reset();
+        } else {
+            statistics.clear();
+        }
     }
 
 }
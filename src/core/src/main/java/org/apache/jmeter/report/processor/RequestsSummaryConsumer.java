@@ -70,12 +70,22 @@ public class RequestsSummaryConsumer extends AbstractSampleConsumer {
      */
     @Override
     public void stopConsuming() {
+        setDataToContext(getName(), createResult());
+        super.stopProducing();
+    }
+
+    @Override
+    public void storeIntermediateResults() {
+        setDataToContext(getName(), createResult());
+        super.storeIntermediateResults();
+    }
+
+    private MapResultData createResult() {
         MapResultData result = new MapResultData();
         result.setResult("KoPercent", new ValueResultData((double) errorCount
                 * 100 / count));
         result.setResult("OkPercent", new ValueResultData(
                 (double) (count - errorCount) * 100 / count));
-        setDataToContext(getName(), result);
-        super.stopProducing();
+        return result;
     }
 }
@@ -21,6 +21,8 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apiguardian.api.API;
+
 /**
  * Defines the context in which {@link SampleConsumer}, {@link SampleProducer}
  * will operate
@@ -31,6 +33,7 @@ public class SampleContext {
 
     private File workingDirectory;
     private Map<String, Object> data = new HashMap<>();
+    private boolean reportUpdate;
 
     /**
      * Return the root directory that consumers are authorized to use for
@@ -63,4 +66,25 @@ public class SampleContext {
         return data;
     }
 
+    /**
+     * Tells whether the data of this context were already exported, so that
+     * exporters may replace the files they have written before.
+     *
+     * @return {@code true} when the report built from this context is updated
+     * @since 5.5.1
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public final boolean isReportUpdate() {
+        return reportUpdate;
+    }
+
+    /**
+     * @param reportUpdate
+     *            whether the data of this context were already exported
+     * @since 5.5.1
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public final void setReportUpdate(boolean reportUpdate) {
+        this.reportUpdate = reportUpdate;
+    }
 }
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.jmeter.report.core.CsvSampleReader;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleException;
+import org.apache.jmeter.report.core.SampleReader;
+import org.apache.jmeter.report.core.TimeHelper;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sample source that reads a CSV result file while it is being written,
+ * for instance by a {@link org.apache.jmeter.reporters.ResultCollector} during a test.
+ * <p>
+ * When it reaches the end of the file, the source waits for more lines until {@link #stop()} is called,
+ * then ends the consumption once the whole file is read.
+ * Only the given file is read, not the secondary files read by {@link CsvFileSampleSource}.
+ * <p>
+ * Every interval, between two samples or while it waits for more lines, the source asks
+ * its consumers to store their intermediate results in the {@link SampleContext} and then runs a handler.
+ * Both run on the thread that produces the samples, so the handler can read the context safely.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class TailingCsvSampleSource extends AbstractSampleSource {
+
+    private static final Logger log = LoggerFactory.getLogger(TailingCsvSampleSource.class);
+
+    /** Time to wait before looking again for the file or for more lines, in milliseconds */
+    private static final long POLL_INTERVAL = 200;
+
+    /** Number of samples produced between two checks of the time */
+    private static final int CHECK_SAMPLES = 1024;
+
+    private final File inputFile;
+
+    private final char separator;
+
+    private final long interval;
+
+    private final Runnable intermediateResultsHandler;
+
+    private final Producer producer = new Producer();
+
+    private volatile boolean stopped;
+
+    private volatile boolean started;
+
+    private boolean producing;
+
+    private long nextIntermediateResults;
+
+    /**
+     * @param inputFile                  the CSV file, which may not exist yet
+     * @param separator                  the separator of the CSV file
+     * @param interval                   time between two intermediate results, in milliseconds
+     * @param intermediateResultsHandler called once the consumers have stored their intermediate results
+     */
+    public TailingCsvSampleSource(File inputFile, char separator, long interval,
+            Runnable intermediateResultsHandler) {
+        Validate.notNull(inputFile, "inputFile must not be null");
+        Validate.notNull(intermediateResultsHandler, "intermediateResultsHandler must not be null");
+        this.inputFile = inputFile;
+        this.separator = separator;
+        this.interval = interval;
+        this.intermediateResultsHandler = intermediateResultsHandler;
+    }
+
+    /**
+     * Tells the source that the file will not grow anymore, so it ends once the whole file is read.
+     * May be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return {@code true} once the source has started producing samples from the file
+     */
+    public boolean hasStarted() {
+        return started;
+    }
+
+    @Override
+    public void run() {
+        SampleContext context = getSampleContext();
+        Validate.validState(context != null, "Set a sample context before producing samples.");
+
+        if (!waitForFile()) {
+            log.info("produce(): {} was not created, no sample produced", inputFile);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long sampleCount = 0;
+        SampleReader reader;
+        try {
+            // Reads the header and the first sample, so it waits for them to be written
+            reader = new CsvSampleReader(inputFile, new TailInputStream(), separator, true);
+        } catch (IOException e) {
+            throw new SampleException("Could not read " + inputFile, e);
+        }
+        try {
+            producer.setSampleContext(context);
+            producer.setProducedMetadata(reader.getMetadata(), 0);
+            producer.setChannelAttribute(0, CsvFileSampleSource.SOURCE_FILE_ATTRIBUTE, inputFile);
+            producer.startProducing();
+            started = true;
+            producing = true;
+            nextIntermediateResults = System.currentTimeMillis() + interval;
+            try {
+                Sample s;
+                while ((s = reader.readSample()) != null) {
+                    producer.produce(s, 0);
+                    sampleCount++;
+                    if (sampleCount % CHECK_SAMPLES == 0) {
+                        storeIntermediateResultsIfDue();
+                    }
+                }
+            } finally {
+                producing = false;
+                producer.stopProducing();
+            }
+        } finally {
+            reader.close();
+        }
+        if (log.isInfoEnabled()) {
+            log.info("produce(): {} samples produced in {} while {} was written",
+                    sampleCount, TimeHelper.time(System.currentTimeMillis() - start), inputFile);
+        }
+    }
+
+    /**
+     * @return {@code true} when the file exists, {@code false} when the source was stopped before
+     */
+    private boolean waitForFile() {
+        while (!inputFile.isFile()) {
+            if (stopped) {
+                return inputFile.isFile();
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SampleException("Interrupted while waiting for " + inputFile, e);
+            }
+        }
+        return true;
+    }
+
+    private void storeIntermediateResultsIfDue() {
+        if (producing && System.currentTimeMillis() >= nextIntermediateResults) {
+            producer.storeIntermediateResults();
+            intermediateResultsHandler.run();
+            nextIntermediateResults = System.currentTimeMillis() + interval;
+        }
+    }
+
+    @Override
+    public void setSampleConsumers(List<SampleConsumer> consumers) {
+        producer.setSampleConsumers(consumers);
+    }
+
+    @Override
+    public void addSampleConsumer(SampleConsumer consumer) {
+        producer.addSampleConsumer(consumer);
+    }
+
+    @Override
+    public void removeSampleConsumer(SampleConsumer consumer) {
+        producer.removeSampleConsumer(consumer);
+    }
+
+    /**
+     * Stream on the file that waits for the file to grow when it reaches its end,
+     * until the source is stopped.
+     */
+    private final class TailInputStream extends InputStream {
+
+        private final InputStream input;
+
+        private TailInputStream() throws IOException {
+            this.input = Files.newInputStream(inputFile.toPath());
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                // Read the flag first, so bytes written before stop() are read
+                boolean ending = stopped;
+                int count = input.read(b, off, len);
+                if (count > 0) {
+                    return count;
+                }
+                if (ending) {
+                    return -1;
+                }
+                storeIntermediateResultsIfDue();
+                try {
+                    Thread.sleep(POLL_INTERVAL);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for " + inputFile);
+                }
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return input.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * Forwards the samples and the calls of the source to the consumers.
+     */
+    private static final class Producer extends AbstractSampleConsumer {
+
+        @Override
+        public void startConsuming() {
+            // Not used, the source calls startProducing()
+        }
+
+        @Override
+        public void consume(Sample s, int channel) {
+            // Not used, the source calls produce()
+        }
+
+        @Override
+        public void stopConsuming() {
+            // Not used, the source calls stopProducing()
+        }
+    }
+}
@@ -528,6 +528,24 @@ public abstract class AbstractGraphConsumer extends AbstractSampleConsumer {
     public void stopConsuming() {
         super.stopProducing();
 
+        // Store the result
+        setDataToContext(getName(), createGraphResult());
+
+        for (GroupInfo groupInfo : groupInfos.values()) {
+            groupInfo.getGroupData().clear();
+        }
+    }
+
+    @Override
+    public void storeIntermediateResults() {
+        setDataToContext(getName(), createGraphResult());
+        super.storeIntermediateResults();
+    }
+
+    /**
+     * @return the result built from the series data of the groups
+     */
+    private MapResultData createGraphResult() {
         MapResultData result = createResult();
 
         // Get the aggregate results from the map
@@ -562,13 +580,7 @@ public abstract class AbstractGraphConsumer extends AbstractSampleConsumer {
                 }
             }
         }
-
-        // Store the result
-        setDataToContext(getName(), result);
-
-        for (GroupInfo groupInfo : groupInfos.values()) {
-            groupInfo.getGroupData().clear();
-        }
+        return result;
     }
 
     public void initialize() {
@@ -154,6 +154,15 @@ public abstract class AbstractVersusRequestsGraphConsumer extends
         super.stopConsuming();
     }
 
+    /**
+     * Does nothing, as samples are only counted per time interval
+     * when the consumption ends.
+     */
+    @Override
+    public void storeIntermediateResults() {
+        // Results are only available at the end of the consumption
+    }
+
     /*
      * (non-Javadoc)
      *
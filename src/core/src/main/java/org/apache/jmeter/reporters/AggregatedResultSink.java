@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.reporters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.report.core.AggregatedSampleReader;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.save.CSVSaveService;
+import org.apache.jorphan.math.LogLinearHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Aggregates the results of a result file per time bucket and per label in memory,
+ * and writes one line per aggregate instead of one line per sample, in the format read by
+ * {@link AggregatedSampleReader}.
+ * <p>
+ * Sampling threads only update the aggregate of their key, locking that aggregate,
+ * and lock the bucket only to add a key.
+ * A writer thread writes and forgets the buckets one bucket length after they end, so results that
+ * arrive late, such as long samples stamped with their start time, are still in their bucket.
+ * Results that arrive even later are written in another line of the same bucket.
+ */
+final class AggregatedResultSink {
+    private static final Logger log = LoggerFactory.getLogger(AggregatedResultSink.class);
+
+    /** Response messages of transaction controllers, see {@code Sample#isController()} */
+    private static final String CONTROLLER_MESSAGE = "Number of samples in transaction"; // $NON-NLS-1$
+    private static final String EMPTY_CONTROLLER_MESSAGE = "Number of samples in transaction : 0"; // $NON-NLS-1$
+
+    private static final char[] SPECIALS = { AggregatedSampleReader.SEPARATOR, CSVSaveService.QUOTING_CHAR, '\r', '\n' };
+
+    /**
+     * What the samples of an aggregate share.
+     */
+    private static final class Key {
+        private final String label;
+        private final String threadGroup;
+        private final boolean success;
+        private final String responseCode;
+        /** Message of transaction controllers, empty for other samples */
+        private final String controllerMessage;
+        /** Name of the first failed assertion of failed samples, empty for other samples */
+        private final String failedAssertion;
+        private final int hash;
+
+        Key(SampleResult result) {
+            this.label = result.getSampleLabel();
+            this.threadGroup = threadGroupOf(result.getThreadName());
+            this.success = result.isSuccessful();
+            this.responseCode = result.getResponseCode();
+            // Response messages often hold request specific details, they would make a key per sample.
+            // Keep only what tells a controller and an empty one, to avoid a key per number of children
+            String message = result.getResponseMessage();
+            if (message != null && message.startsWith(CONTROLLER_MESSAGE)) {
+                message = message.startsWith(EMPTY_CONTROLLER_MESSAGE) ? EMPTY_CONTROLLER_MESSAGE : CONTROLLER_MESSAGE;
+            } else {
+                message = "";
+            }
+            this.controllerMessage = message;
+            // Assertion messages often embed response content too, so failures are told by the assertion
+            this.failedAssertion = success ? "" : failedAssertionOf(result);
+            this.hash = Objects.hash(label, threadGroup, success, responseCode, controllerMessage, failedAssertion);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                    && success == other.success
+                    && Objects.equals(label, other.label)
+                    && Objects.equals(threadGroup, other.threadGroup)
+                    && Objects.equals(responseCode, other.responseCode)
+                    && Objects.equals(controllerMessage, other.controllerMessage)
+                    && Objects.equals(failedAssertion, other.failedAssertion);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Values of the samples of a key in a bucket. Guarded by its own lock.
+     */
+    private static final class Aggregate {
+        private long count;
+        private long bytes;
+        private long sentBytes;
+        private int groupThreads;
+        private int allThreads;
+        private final LogLinearHistogram elapsed = new LogLinearHistogram();
+        private final LogLinearHistogram latency = new LogLinearHistogram();
+        private final LogLinearHistogram connect = new LogLinearHistogram();
+        /** Response message of the first failed sample, written for all the samples of the aggregate */
+        private String failedResponseMessage;
+        /** Assertion failure message of the first failed sample, written for all the samples of the aggregate */
+        private String failureMessage;
+        /** Set once written, later results of the bucket go to a new aggregate */
+        private boolean written;
+
+        /**
+         * @return false when the aggregate was already written
+         */
+        synchronized boolean add(SampleResult result) {
+            if (written) {
+                return false;
+            }
+            count++;
+            if (failedResponseMessage == null && !result.isSuccessful()) {
+                failedResponseMessage = result.getResponseMessage();
+                failureMessage = result.getFirstAssertionFailureMessage();
+            }
+            bytes += result.getBytesAsLong();
+            sentBytes += result.getSentBytes();
+            groupThreads = Math.max(groupThreads, result.getGroupThreads());
+            allThreads = Math.max(allThreads, result.getAllThreads());
+            elapsed.record(result.getTime());
+            latency.record(result.getLatency());
+            connect.record(result.getConnectTime());
+            return true;
+        }
+
+        synchronized void write(long bucketStart, Key key, StringBuilder line) {
+            written = true;
+            line.append(bucketStart);
+            appendText(line, key.label);
+            appendText(line, key.threadGroup);
+            append(line, key.success);
+            appendText(line, key.responseCode);
+            appendText(line, key.controllerMessage.isEmpty() ? failedResponseMessage : key.controllerMessage);
+            appendText(line, failureMessage);
+            append(line, count);
+            append(line, bytes);
+            append(line, sentBytes);
+            append(line, groupThreads);
+            append(line, allThreads);
+            appendHistogram(line, elapsed);
+            appendHistogram(line, latency);
+            appendHistogram(line, connect);
+        }
+    }
+
+    /**
+     * Aggregates of a bucket. New keys are added under the bucket lock, so none is added once it is closed.
+     */
+    private static final class Bucket {
+        private final Map<Key, Aggregate> aggregates = new ConcurrentHashMap<>();
+        private boolean closed;
+
+        /**
+         * @return the aggregate of the key, or null when the bucket was closed
+         */
+        Aggregate get(Key key) {
+            Aggregate aggregate = aggregates.get(key);
+            if (aggregate != null) {
+                return aggregate;
+            }
+            synchronized (this) {
+                return closed ? null : aggregates.computeIfAbsent(key, k -> new Aggregate());
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+    }
+
+    private final PrintWriter target;
+    private final String name;
+    private final long interval;
+    private final ConcurrentNavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param file     file to write, appended to if it already exists
+     * @param interval length of the buckets in milliseconds
+     * @throws IOException when the file cannot be opened
+     */
+    AggregatedResultSink(File file, long interval) throws IOException {
+        boolean append = file.length() > 0;
+        if (append && !AggregatedSampleReader.isAggregatedFile(file)) {
+            throw new IOException(file + " exists and is not an aggregated result file");
+        }
+        this.target = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        if (!append) {
+            target.println(AggregatedSampleReader.HEADER);
+            target.flush();
+        }
+        this.name = file.getName();
+        this.interval = Math.max(1, interval);
+        this.writerThread = new Thread(this::run, "ResultAggregator-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private static String threadGroupOf(String threadName) {
+        if (threadName == null) {
+            return "";
+        }
+        // Same as the dashboard active threads graph, "Thread Group 1-5" belongs to "Thread Group"
+        int index = threadName.lastIndexOf(' ');
+        return index >= 0 ? threadName.substring(0, index) : threadName;
+    }
+
+    /**
+     * @return name of the assertion whose message {@link SampleResult#getFirstAssertionFailureMessage()} returns,
+     *         or an empty string
+     */
+    private static String failedAssertionOf(SampleResult result) {
+        for (AssertionResult assertion : result.getAssertionResults()) {
+            if (assertion.getFailureMessage() != null) {
+                return assertion.getName() == null ? "" : assertion.getName();
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Adds a result to the aggregate of its bucket and key.
+     *
+     * @param result the result
+     */
+    void add(SampleResult result) {
+        long timeStamp = result.getTimeStamp();
+        Long bucketStart = timeStamp - Math.floorMod(timeStamp, interval);
+        Key key = new Key(result);
+        while (true) {
+            Bucket bucket = buckets.computeIfAbsent(bucketStart, b -> new Bucket());
+            Aggregate aggregate = bucket.get(key);
+            if (aggregate != null && aggregate.add(result)) {
+                return;
+            }
+            // The bucket was written meanwhile, the next loop creates a new one
+            buckets.remove(bucketStart, bucket);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(interval);
+            } catch (InterruptedException e) {
+                // close() interrupts the thread to make it stop waiting
+                break;
+            }
+            // Keep the current bucket and the previous one, for late results
+            writeBuckets(System.currentTimeMillis() - 2 * interval);
+        }
+    }
+
+    /**
+     * Writes and forgets the buckets that start before a time, then flushes the file.
+     */
+    private synchronized void writeBuckets(long before) {
+        StringBuilder line = new StringBuilder(256);
+        for (Map.Entry<Long, Bucket> bucket : buckets.headMap(before).entrySet()) {
+            buckets.remove(bucket.getKey(), bucket.getValue());
+            bucket.getValue().close();
+            for (Map.Entry<Key, Aggregate> aggregate : bucket.getValue().aggregates.entrySet()) {
+                line.setLength(0);
+                aggregate.getValue().write(bucket.getKey(), aggregate.getKey(), line);
+                target.println(line);
+            }
+        }
+        target.flush();
+    }
+
+    private static void appendText(StringBuilder line, String text) {
+        line.append(AggregatedSampleReader.SEPARATOR)
+                .append(CSVSaveService.quoteDelimiters(text == null ? "" : text, SPECIALS));
+    }
+
+    private static void append(StringBuilder line, Object value) {
+        line.append(AggregatedSampleReader.SEPARATOR).append(value);
+    }
+
+    private static void appendHistogram(StringBuilder line, LogLinearHistogram histogram) {
+        line.append(AggregatedSampleReader.SEPARATOR);
+        int length = line.length();
+        histogram.forEachBucket((value, count) -> {
+            if (line.length() > length) {
+                line.append(' ');
+            }
+            line.append(value);
+            if (count > 1) {
+                line.append('*').append(count);
+            }
+        });
+    }
+
+    /**
+     * Writes all the buckets, including the current one, and flushes the file.
+     * Results added later to those buckets are written in other lines.
+     */
+    void flush() {
+        writeBuckets(Long.MAX_VALUE);
+    }
+
+    /**
+     * Stops the writer thread, writes all the buckets and closes the file.
+     */
+    void close() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the writer of {} to stop", name);
+        }
+        flush();
+        target.close();
+        if (target.checkError()) {
+            log.warn("Problem detected during use of {}", name);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.reporters;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the records of a result file in per-thread buffers, and writes them to the file from a single thread.
+ * <p>
+ * Sampling threads format their records into their own buffer, so they do not wait for each other
+ * nor for the disk. A full buffer is handed to the writer thread, that also writes the content of all buffers
+ * and flushes the file every flush interval, so at most that interval of results is lost if JMeter crashes.
+ * <p>
+ * The records of a thread are written in order, records of different threads are interleaved
+ * as with a shared writer. To keep that order, only the writer thread writes to the file while it runs:
+ * {@link #flush()} asks it to drain the buffers and waits for it. A buffer also counts its chunks that are
+ * not written yet, and its content is only taken once they are.
+ */
+final class BufferedResultSink {
+    private static final Logger log = LoggerFactory.getLogger(BufferedResultSink.class);
+
+    /** Number of full buffers that can wait for the writer thread before sampling threads wait */
+    private static final int PENDING_CHUNKS = 64;
+
+    /** Initial capacity of a thread buffer, that grows up to the buffer size */
+    private static final int INITIAL_BUFFER_CAPACITY = 256;
+
+    /**
+     * Writes one record to the writer.
+     */
+    @FunctionalInterface
+    interface RecordWriter {
+        void write(PrintWriter writer) throws IOException;
+    }
+
+    /**
+     * Buffer of a sampling thread.
+     * The owner thread and the writer thread synchronize on the buffer, so the lock is uncontended
+     * except while the writer thread takes the content.
+     */
+    private static final class ThreadBuffer extends Writer {
+        private final Thread owner;
+        private final StringBuilder content;
+        private final PrintWriter printWriter;
+        /** Number of chunks taken from this buffer that are not written yet, guarded by the lock */
+        private int pendingChunks;
+
+        ThreadBuffer(Thread owner) {
+            this.owner = owner;
+            this.content = new StringBuilder(INITIAL_BUFFER_CAPACITY);
+            // PrintWriter uses this as its lock
+            this.printWriter = new PrintWriter(this);
+        }
+
+        /**
+         * Formats a whole record under the lock, so the writer thread never takes part of a record.
+         */
+        void append(RecordWriter record) throws IOException {
+            synchronized (lock) {
+                record.write(printWriter);
+            }
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            synchronized (lock) {
+                content.append(cbuf, off, len);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            synchronized (lock) {
+                content.append(str, off, off + len);
+            }
+        }
+
+        /**
+         * Takes the buffered text to hand it to the writer thread, which calls {@link #chunkWritten()}
+         * once it is written.
+         *
+         * @return the buffered text, or null if empty
+         */
+        String handOff() {
+            synchronized (lock) {
+                String text = take();
+                if (text != null) {
+                    pendingChunks++;
+                }
+                return text;
+            }
+        }
+
+        void chunkWritten() {
+            synchronized (lock) {
+                pendingChunks--;
+            }
+        }
+
+        /**
+         * @return the buffered text, or null if empty or if chunks handed off before it are not written yet
+         */
+        String takeAfterChunks() {
+            synchronized (lock) {
+                return pendingChunks == 0 ? take() : null;
+            }
+        }
+
+        boolean hasPendingChunks() {
+            synchronized (lock) {
+                return pendingChunks > 0;
+            }
+        }
+
+        /**
+         * @return the buffered text, or null if empty
+         */
+        private String take() {
+            synchronized (lock) {
+                if (content.length() == 0) {
+                    return null;
+                }
+                String text = content.toString();
+                content.setLength(0);
+                return text;
+            }
+        }
+
+        int length() {
+            synchronized (lock) {
+                return content.length();
+            }
+        }
+
+        @Override
+        public void flush() {
+            // The writer thread decides when to write
+        }
+
+        @Override
+        public void close() {
+            // NOOP
+        }
+    }
+
+    /**
+     * Text taken from a thread buffer, or a request to drain all buffers and flush the file.
+     */
+    private static final class Chunk {
+        private final ThreadBuffer source;
+        private final String text;
+        private final CountDownLatch flushed;
+
+        private Chunk(ThreadBuffer source, String text, CountDownLatch flushed) {
+            this.source = source;
+            this.text = text;
+            this.flushed = flushed;
+        }
+
+        static Chunk text(ThreadBuffer source, String text) {
+            return new Chunk(source, text, null);
+        }
+
+        static Chunk flushRequest() {
+            return new Chunk(null, null, new CountDownLatch(1));
+        }
+    }
+
+    private final PrintWriter target;
+    private final String name;
+    private final int bufferSize;
+    private final long flushIntervalMillis;
+
+    private final ThreadLocal<ThreadBuffer> threadBuffer = new ThreadLocal<>();
+    private final Set<ThreadBuffer> buffers = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(PENDING_CHUNKS);
+    private final Thread writerThread;
+    /** Serializes the writes to the file, only contended once the writer thread is stopped */
+    private final Object writeLock = new Object();
+
+    private volatile boolean running = true;
+
+    /**
+     * @param target file writer, only used by the writer thread until {@link #close()} returns
+     * @param name name of the file, used to name the writer thread
+     * @param bufferSize number of characters a thread buffers before handing them to the writer thread
+     * @param flushIntervalMillis maximum time records wait before being written and flushed
+     */
+    BufferedResultSink(PrintWriter target, String name, int bufferSize, long flushIntervalMillis) {
+        this.target = target;
+        this.name = name;
+        this.bufferSize = Math.max(1024, bufferSize);
+        this.flushIntervalMillis = Math.max(10, flushIntervalMillis);
+        this.writerThread = new Thread(this::run, "ResultWriter-" + name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Formats a record into the buffer of the calling thread.
+     *
+     * @param record writes the record
+     * @throws IOException when the record cannot be formatted
+     */
+    void append(RecordWriter record) throws IOException {
+        ThreadBuffer buffer = threadBuffer.get();
+        if (buffer == null) {
+            buffer = new ThreadBuffer(Thread.currentThread());
+            threadBuffer.set(buffer);
+            buffers.add(buffer);
+        }
+        buffer.append(record);
+        if (!running) {
+            writeDirectly(buffer);
+        } else if (buffer.length() >= bufferSize) {
+            handOff(buffer);
+        }
+    }
+
+    private void handOff(ThreadBuffer buffer) {
+        String text = buffer.handOff();
+        if (text == null) {
+            return;
+        }
+        Chunk chunk = Chunk.text(buffer, text);
+        boolean interrupted = false;
+        // Writing the chunk from this thread could reorder it with the chunks already handed off
+        while (true) {
+            try {
+                chunks.put(chunk);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeDirectly(ThreadBuffer buffer) {
+        synchronized (writeLock) {
+            List<Chunk> requests = new ArrayList<>();
+            drainChunks(requests);
+            drainBuffer(buffer, requests);
+            for (Chunk request : requests) {
+                request.flushed.countDown();
+            }
+        }
+    }
+
+    private void run() {
+        long nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+        while (running) {
+            try {
+                Chunk chunk = chunks.poll(Math.max(1, nextFlush - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                if (chunk != null && chunk.flushed == null) {
+                    synchronized (writeLock) {
+                        write(chunk);
+                    }
+                } else if (chunk != null) {
+                    List<Chunk> requests = new ArrayList<>();
+                    requests.add(chunk);
+                    synchronized (writeLock) {
+                        drainAll(requests);
+                    }
+                    nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+                }
+            } catch (InterruptedException e) {
+                // close() interrupts the thread to make it stop waiting
+                break;
+            }
+            if (System.currentTimeMillis() >= nextFlush) {
+                synchronized (writeLock) {
+                    drainAll(new ArrayList<>());
+                }
+                nextFlush = System.currentTimeMillis() + flushIntervalMillis;
+            }
+        }
+    }
+
+    /**
+     * Writes the pending chunks, and collects the flush requests found in the queue.
+     */
+    private void drainChunks(List<Chunk> requests) {
+        Chunk chunk;
+        while ((chunk = chunks.poll()) != null) {
+            if (chunk.flushed == null) {
+                write(chunk);
+            } else {
+                requests.add(chunk);
+            }
+        }
+    }
+
+    /**
+     * Writes the pending chunks and the content of all thread buffers, flushes the file,
+     * then releases the flush requests.
+     */
+    private void drainAll(List<Chunk> requests) {
+        drainChunks(requests);
+        for (ThreadBuffer buffer : buffers) {
+            boolean alive = buffer.owner.isAlive();
+            drainBuffer(buffer, requests);
+            if (!alive) {
+                // The thread will not write again, stop tracking its buffer
+                buffers.remove(buffer);
+            }
+        }
+        target.flush();
+        for (Chunk request : requests) {
+            request.flushed.countDown();
+        }
+    }
+
+    /**
+     * Writes the content of a thread buffer, after the chunks that its thread handed off before.
+     * A thread can take a chunk and append records before the chunk reaches the queue,
+     * so this waits for the chunk rather than writing the records first.
+     */
+    private void drainBuffer(ThreadBuffer buffer, List<Chunk> requests) {
+        while (true) {
+            String text = buffer.takeAfterChunks();
+            if (text != null || !buffer.hasPendingChunks()) {
+                write(text);
+                return;
+            }
+            Chunk chunk = chunks.poll();
+            if (chunk == null) {
+                Thread.yield();
+            } else if (chunk.flushed == null) {
+                write(chunk);
+            } else {
+                requests.add(chunk);
+            }
+        }
+    }
+
+    private void write(Chunk chunk) {
+        write(chunk.text);
+        chunk.source.chunkWritten();
+    }
+
+    private void write(String text) {
+        if (text == null) {
+            return;
+        }
+        target.write(text);
+    }
+
+    /**
+     * Writes everything buffered so far and flushes the file.
+     */
+    void flush() {
+        if (running) {
+            Chunk request = Chunk.flushRequest();
+            try {
+                chunks.put(request);
+                // close() may stop the writer thread before it sees the request
+                while (!request.flushed.await(flushIntervalMillis, TimeUnit.MILLISECONDS)) {
+                    if (!running) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (running) {
+                return;
+            }
+        }
+        synchronized (writeLock) {
+            drainAll(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Stops the writer thread and writes everything buffered.
+     * The target writer can then be used and closed by the caller.
+     */
+    void close() {
+        running = false;
+        writerThread.interrupt();
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting for the writer of {} to stop", name);
+        }
+        synchronized (writeLock) {
+            drainAll(new ArrayList<>());
+            buffers.clear();
+        }
+    }
+}
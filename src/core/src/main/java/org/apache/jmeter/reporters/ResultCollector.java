@@ -36,12 +36,16 @@ import java.util.Map;
 
 import org.apache.jmeter.engine.util.NoThreadClone;
 import org.apache.jmeter.gui.GuiPackage;
+import org.apache.jmeter.report.core.AggregatedSampleReader;
+import org.apache.jmeter.report.core.BinarySampleWriter;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetaDataParser;
 import org.apache.jmeter.samplers.Clearable;
 import org.apache.jmeter.samplers.Remoteable;
 import org.apache.jmeter.samplers.SampleEvent;
-import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.samplers.SampleSaveConfiguration;
+import org.apache.jmeter.samplers.ThreadSafeSampleListener;
 import org.apache.jmeter.save.CSVSaveService;
 import org.apache.jmeter.save.SaveService;
 import org.apache.jmeter.services.FileServer;
@@ -58,7 +62,7 @@ import org.slf4j.LoggerFactory;
  * This class handles all saving of samples.
  * The class must be thread-safe because it is shared between threads (NoThreadClone).
  */
-public class ResultCollector extends AbstractListenerElement implements SampleListener, Clearable, Serializable,
+public class ResultCollector extends AbstractListenerElement implements ThreadSafeSampleListener, Clearable, Serializable,
         TestStateListener, Remoteable, NoThreadClone {
     /**
      * Keep track of the file writer and the configuration,
@@ -68,9 +72,22 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     private static class FileEntry{
         final PrintWriter pw;
         final SampleSaveConfiguration config;
-        FileEntry(PrintWriter printWriter, SampleSaveConfiguration sampleSaveConfiguration){
+        /** null unless jmeter.save.saveservice.buffered_writer is enabled */
+        final BufferedResultSink sink;
+        /** Writer of files in the binary result format, pw is null when it is set */
+        final BinarySampleWriter binary;
+        /** Writer of files in the aggregated result format, pw is null when it is set */
+        final AggregatedResultSink aggregated;
+        FileEntry(PrintWriter printWriter, SampleSaveConfiguration sampleSaveConfiguration, BufferedResultSink sink){
+            this(printWriter, sampleSaveConfiguration, sink, null, null);
+        }
+        FileEntry(PrintWriter printWriter, SampleSaveConfiguration sampleSaveConfiguration, BufferedResultSink sink,
+                BinarySampleWriter binary, AggregatedResultSink aggregated){
             this.pw = printWriter;
             this.config = sampleSaveConfiguration;
+            this.sink = sink;
+            this.binary = binary;
+            this.aggregated = aggregated;
         }
     }
 
@@ -117,6 +134,22 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     /** AutoFlush on each line */
     private static final boolean SAVING_AUTOFLUSH = JMeterUtils.getPropDefault("jmeter.save.saveservice.autoflush", false); //$NON-NLS-1$
 
+    /** Buffer the records of each thread and write them to the file from a single thread */
+    private static final boolean BUFFERED_WRITER =
+            JMeterUtils.getPropDefault("jmeter.save.saveservice.buffered_writer", false); //$NON-NLS-1$
+
+    /** Number of characters a thread buffers before handing them to the writer thread */
+    private static final int BUFFERED_WRITER_THREAD_BUFFER =
+            JMeterUtils.getPropDefault("jmeter.save.saveservice.buffered_writer.thread_buffer", 16384); //$NON-NLS-1$
+
+    /** Maximum time in milliseconds buffered records wait before being written to the file */
+    private static final long BUFFERED_WRITER_FLUSH_INTERVAL =
+            JMeterUtils.getPropDefault("jmeter.save.saveservice.buffered_writer.flush_interval", 1000L); //$NON-NLS-1$
+
+    /** Length in milliseconds of the time buckets of aggregated result files */
+    private static final long AGGREGATE_INTERVAL =
+            JMeterUtils.getPropDefault("jmeter.save.saveservice.aggregate_interval", 1000L); //$NON-NLS-1$
+
     // Static variables
 
     // Lock used to guard static mutable variables
@@ -140,6 +173,14 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
     // Instance variables (guarded by volatile)
     private transient volatile PrintWriter out;
 
+    private transient volatile BufferedResultSink sink;
+
+    /** Set when the file is written in the binary result format */
+    private transient volatile BinarySampleWriter binary;
+
+    /** Set when the file is written in the aggregated result format */
+    private transient volatile AggregatedResultSink aggregated;
+
     /**
      * Is a test running ?
      */
@@ -300,6 +341,9 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
                 }
                 finalizeFileOutput();
                 out = null;
+                sink = null;
+                binary = null;
+                aggregated = null;
                 inTest = false;
             }
         }
@@ -318,10 +362,16 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             }
             instanceCount++;
             try {
-                if (out == null) {
+                if (out == null && binary == null && aggregated == null) {
                     try {
-                        // Note: getFileWriter ignores a null filename
-                        out = getFileWriter(getFilename(), getSaveConfig());
+                        // Note: getFileEntry ignores a null filename
+                        FileEntry fileEntry = getFileEntry(getFilename(), getSaveConfig());
+                        if (fileEntry != null) {
+                            sink = fileEntry.sink;
+                            binary = fileEntry.binary;
+                            aggregated = fileEntry.aggregated;
+                            out = fileEntry.pw;
+                        }
                     } catch (FileNotFoundException e) {
                         out = null;
                     }
@@ -356,6 +406,8 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
      * <ul>
      *   <li>XStream format</li>
      *   <li>CSV format</li>
+     *   <li>binary result format</li>
+     *   <li>aggregated result format</li>
      * </ul>
      *
      */
@@ -436,7 +488,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
     }
 
-    private static PrintWriter getFileWriter(final String pFilename, SampleSaveConfiguration saveConfig)
+    private static FileEntry getFileEntry(final String pFilename, SampleSaveConfiguration saveConfig)
             throws IOException {
         if (pFilename == null || pFilename.length() == 0) {
             return null;
@@ -447,7 +499,7 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         String filename = FileServer.resolveBaseRelativeName(pFilename);
         filename = new File(filename).getCanonicalPath(); // try to ensure uniqueness (Bug 60822)
         FileEntry fe = files.get(filename);
-        PrintWriter writer = null;
+        PrintWriter writer;
         boolean trimmed = true;
 
         if (fe == null) {
@@ -470,12 +522,25 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
                     log.warn("Error creating directories for {}", pdir);
                 }
             }
+            if (isBinaryFile(filename, saveConfig)) {
+                fe = new FileEntry(null, saveConfig, null, new BinarySampleWriter(new File(filename),
+                        new SampleMetaDataParser(saveConfig.getDelimiter().charAt(0))
+                                .parse(CSVSaveService.printableFieldNamesToString(saveConfig)),
+                        true), null);
+                files.put(filename, fe);
+                return fe;
+            }
+            if (isAggregatedFile(filename, saveConfig)) {
+                fe = new FileEntry(null, saveConfig, null, null,
+                        new AggregatedResultSink(new File(filename), AGGREGATE_INTERVAL));
+                files.put(filename, fe);
+                return fe;
+            }
             writer = new PrintWriter(new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(filename,
                     trimmed)), SaveService.getFileEncoding(StandardCharsets.UTF_8.name())), SAVING_AUTOFLUSH);
             if(log.isDebugEnabled()) {
                 log.debug("Opened file: {} in thread {}", filename, Thread.currentThread().getName());
             }
-            files.put(filename, new FileEntry(writer, saveConfig));
         } else {
             writer = fe.pw;
         }
@@ -483,7 +548,23 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             log.debug("Writing header to file: {}", filename);
             writeFileStart(writer, saveConfig);
         }
-        return writer;
+        if (fe == null) {
+            BufferedResultSink sink = BUFFERED_WRITER
+                    ? new BufferedResultSink(writer, new File(filename).getName(),
+                            BUFFERED_WRITER_THREAD_BUFFER, BUFFERED_WRITER_FLUSH_INTERVAL)
+                    : null;
+            fe = new FileEntry(writer, saveConfig, sink);
+            files.put(filename, fe);
+        }
+        return fe;
+    }
+
+    private static boolean isBinaryFile(String filename, SampleSaveConfiguration saveConfig) {
+        return !saveConfig.saveAsXml() && filename.endsWith(BinarySampleWriter.FILE_EXTENSION);
+    }
+
+    private static boolean isAggregatedFile(String filename, SampleSaveConfiguration saveConfig) {
+        return !saveConfig.saveAsXml() && filename.endsWith(AggregatedSampleReader.FILE_EXTENSION);
     }
 
     // returns false if the file did not contain the terminator
@@ -544,14 +625,21 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
 
         if (isSampleWanted(result.isSuccessful())) {
             sendToVisualizer(result);
-            if (out != null && !isResultMarked(result) && !this.isStats) {
+            if ((out != null || binary != null || aggregated != null) && !isResultMarked(result) && !this.isStats) {
                 SampleSaveConfiguration config = getSaveConfig();
                 result.setSaveConfig(config);
                 try {
-                    if (config.saveAsXml()) {
-                        SaveService.saveSampleResult(event, out);
-                    } else { // !saveAsXml
-                        CSVSaveService.saveSampleResult(event, out);
+                    BufferedResultSink bufferedSink = sink;
+                    BinarySampleWriter binaryWriter = binary;
+                    AggregatedResultSink aggregatedSink = aggregated;
+                    if (aggregatedSink != null) {
+                        saveAggregatedSampleResult(result, config, aggregatedSink, 0);
+                    } else if (binaryWriter != null) {
+                        saveBinarySampleResult(event, result, config, binaryWriter, 0);
+                    } else if (bufferedSink != null) {
+                        bufferedSink.append(writer -> saveSampleResult(event, config, writer));
+                    } else {
+                        saveSampleResult(event, config, out);
                     }
                 } catch (Exception err) {
                     log.error("Error trying to record a sample", err); // should throw exception back to caller
@@ -564,6 +652,41 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
         }
     }
 
+    private static void saveSampleResult(SampleEvent event, SampleSaveConfiguration config, PrintWriter writer)
+            throws IOException {
+        if (config.saveAsXml()) {
+            SaveService.saveSampleResult(event, writer);
+        } else { // !saveAsXml
+            CSVSaveService.saveSampleResult(event, writer);
+        }
+    }
+
+    private static void saveBinarySampleResult(SampleEvent event, SampleResult result,
+            SampleSaveConfiguration config, BinarySampleWriter writer, int recursionLevel) {
+        if (recursionLevel > 10) {
+            return;
+        }
+        writer.write(new Sample(0, writer.getMetadata(), CSVSaveService.resultToValues(event, result, config)));
+        if (config.saveSubresults()) {
+            for (SampleResult subResult : result.getSubResults()) {
+                saveBinarySampleResult(event, subResult, config, writer, recursionLevel + 1);
+            }
+        }
+    }
+
+    private static void saveAggregatedSampleResult(SampleResult result, SampleSaveConfiguration config,
+            AggregatedResultSink aggregatedSink, int recursionLevel) {
+        if (recursionLevel > 10) {
+            return;
+        }
+        aggregatedSink.add(result);
+        if (config.saveSubresults()) {
+            for (SampleResult subResult : result.getSubResults()) {
+                saveAggregatedSampleResult(subResult, config, aggregatedSink, recursionLevel + 1);
+            }
+        }
+    }
+
     protected final void sendToVisualizer(SampleResult r) {
         if (getVisualizer() != null) {
             getVisualizer().add(r);
@@ -584,8 +707,20 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
      * Flush PrintWriter to synchronize file contents
      */
     public void flushFile() {
-        if (out != null) {
+        BinarySampleWriter binaryWriter = binary;
+        AggregatedResultSink aggregatedSink = aggregated;
+        if (aggregatedSink != null) {
+            log.info("forced flush through ResultCollector#flushFile");
+            aggregatedSink.flush();
+        } else if (binaryWriter != null) {
+            log.info("forced flush through ResultCollector#flushFile");
+            binaryWriter.flush();
+        } else if (out != null) {
             log.info("forced flush through ResultCollector#flushFile");
+            BufferedResultSink bufferedSink = sink;
+            if (bufferedSink != null) {
+                bufferedSink.flush();
+            }
             out.flush();
         }
     }
@@ -596,6 +731,17 @@ public class ResultCollector extends AbstractListenerElement implements SampleLi
             ResultCollector.FileEntry value = me.getValue();
             try {
                 log.debug("Closing: {}", key);
+                if (value.binary != null) {
+                    value.binary.close();
+                    continue;
+                }
+                if (value.aggregated != null) {
+                    value.aggregated.close();
+                    continue;
+                }
+                if (value.sink != null) {
+                    value.sink.close();
+                }
                 writeFileEnd(value.pw, value.config);
                 value.pw.close();
                 if (value.pw.checkError()){
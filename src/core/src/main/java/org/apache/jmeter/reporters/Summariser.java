@@ -22,18 +22,21 @@ import java.text.DecimalFormat;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.jmeter.control.TransactionController;
 import org.apache.jmeter.engine.util.NoThreadClone;
 import org.apache.jmeter.samplers.Remoteable;
 import org.apache.jmeter.samplers.SampleEvent;
-import org.apache.jmeter.samplers.SampleListener;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.ThreadSafeSampleListener;
 import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterContextService.ThreadCounts;
+import org.apache.jmeter.threads.SamplePhaseMetrics;
 import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.documentation.VisibleForTesting;
 import org.apache.jorphan.util.JOrphanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,7 +61,7 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class Summariser extends AbstractTestElement
-    implements Serializable, SampleListener, TestStateListener, NoThreadClone, Remoteable {
+    implements Serializable, ThreadSafeSampleListener, TestStateListener, NoThreadClone, Remoteable {
 
     /*
      * N.B. NoThreadClone is used to ensure that the testStarted() methods will share the same
@@ -91,6 +94,12 @@ public class Summariser extends AbstractTestElement
      */
     private static final int INTERVAL_WINDOW = 5; // in seconds
 
+    /*
+     * Number of cells in which samples are accumulated between two reports.
+     * A power of two, so that a thread can pick its cell with a mask.
+     */
+    private static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
     /**
      * Lock used to protect ACCUMULATORS update + instanceCount update
      */
@@ -103,6 +112,12 @@ public class Summariser extends AbstractTestElement
 
     private static int instanceCount; // number of active tests
 
+    /*
+     * Time of the last report of the sample phases in seconds, shared so that
+     * several summarisers do not report them in the same interval.
+     */
+    private static final AtomicLong LAST_PHASE_REPORT = new AtomicLong();
+
     /*
      * Cached copy of Totals for this instance.
      * The variables do not need to be synchronised,
@@ -140,19 +155,57 @@ public class Summariser extends AbstractTestElement
         setName(name);
     }
 
+    private static int stripeCount(int processors) {
+        return processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+    }
+
     /*
      * Contains the items needed to collect stats for a summariser
      *
+     * Sampling threads only lock the cell they are assigned to, so that they
+     * do not all contend on the same monitor. The cells are moved to delta,
+     * with the Totals instance locked, when a summary is reported.
      */
     private static class Totals {
 
         /** Time of last summary (to prevent double reporting) */
-        private long last = 0;
+        private volatile long last = 0;
 
         private final SummariserRunningSample delta = new SummariserRunningSample("DELTA");
 
         private final SummariserRunningSample total = new SummariserRunningSample("TOTAL");
 
+        private final SummariserRunningSample[] cells = new SummariserRunningSample[STRIPES];
+
+        private Totals() {
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = new SummariserRunningSample("CELL");
+            }
+        }
+
+        /**
+         * Add the sample to the cell of the current thread
+         */
+        private void addSample(SampleResult s) {
+            SummariserRunningSample cell = cells[(int) Thread.currentThread().getId() & (cells.length - 1)];
+            synchronized (cell) {
+                cell.addSample(s);
+            }
+        }
+
+        /**
+         * Add the cell values to the delta values and clear the cells.
+         * Must be called with this instance locked.
+         */
+        private void collectCells() {
+            for (SummariserRunningSample cell : cells) {
+                synchronized (cell) {
+                    delta.addSample(cell);
+                    cell.clear();
+                }
+            }
+        }
+
         /**
          * Add the delta values to the total values and clear the delta
          */
@@ -169,15 +222,22 @@ public class Summariser extends AbstractTestElement
      * @see org.apache.jmeter.samplers.SampleListener#sampleOccurred(org.apache.jmeter.samplers.SampleEvent)
      */
     @Override
-    @SuppressWarnings("SynchronizeOnNonFinalField")
     public void sampleOccurred(SampleEvent e) {
+        sampleOccurred(e, System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * @param e the sample event
+     * @param now current time in seconds
+     */
+    @VisibleForTesting
+    @SuppressWarnings("SynchronizeOnNonFinalField")
+    void sampleOccurred(SampleEvent e, long now) {
         SampleResult s = e.getResult();
         if(IGNORE_TC_GENERATED_SAMPLERESULT && TransactionController.isFromTransactionController(s)) {
             return;
         }
 
-        long now = System.currentTimeMillis() / 1000;// in seconds
-
         SummariserRunningSample myDelta = null;
         SummariserRunningSample myTotal = null;
         boolean reportNow = false;
@@ -188,20 +248,24 @@ public class Summariser extends AbstractTestElement
          * Also need to check we've not hit the window already
          */
 
-        synchronized (myTotals) {
-            if (s != null) {
-                myTotals.delta.addSample(s);
-            }
+        if (s != null) {
+            myTotals.addSample(s);
+        }
 
-            if ((now > myTotals.last + INTERVAL_WINDOW) && (now % INTERVAL <= INTERVAL_WINDOW)) {
-                reportNow = true;
+        if ((now > myTotals.last + INTERVAL_WINDOW) && (now % INTERVAL <= INTERVAL_WINDOW)) {
+            synchronized (myTotals) {
+                // check again, another thread may have reported in the meantime
+                if (now > myTotals.last + INTERVAL_WINDOW) {
+                    reportNow = true;
 
-                // copy the data to minimise the synch time
-                myDelta = new SummariserRunningSample(myTotals.delta);
-                myTotals.moveDelta();
-                myTotal = new SummariserRunningSample(myTotals.total);
+                    // copy the data to minimise the synch time
+                    myTotals.collectCells();
+                    myDelta = new SummariserRunningSample(myTotals.delta);
+                    myTotals.moveDelta();
+                    myTotal = new SummariserRunningSample(myTotals.total);
 
-                myTotals.last = now; // stop double-reporting
+                    myTotals.last = now; // stop double-reporting
+                }
             }
         }
         if (reportNow) {
@@ -211,6 +275,11 @@ public class Summariser extends AbstractTestElement
             if (myTotal != null && myDelta != null &&myTotal.getNumSamples() != myDelta.getNumSamples()) { // NOSONAR
                 formatAndWriteToLog(myName, myTotal, "=");
             }
+            long lastPhaseReport = LAST_PHASE_REPORT.get();
+            if (SamplePhaseMetrics.ENABLED && now > lastPhaseReport + INTERVAL_WINDOW
+                    && LAST_PHASE_REPORT.compareAndSet(lastPhaseReport, now)) {
+                writePhaseMetricsToLog();
+            }
         }
     }
 
@@ -308,6 +377,9 @@ public class Summariser extends AbstractTestElement
         for(Map.Entry<String, Totals> entry : totals){
             String name = entry.getKey();
             Totals total = entry.getValue();
+            synchronized (total) {
+                total.collectCells();
+            }
             total.delta.setEndTime(); // ensure delta has correct end time
             // Only print final delta if there were some samples in the delta
             // and there has been at least one sample reported previously
@@ -317,6 +389,36 @@ public class Summariser extends AbstractTestElement
             total.moveDelta(); // This will update the total endTime
             formatAndWriteToLog(name, total.total, "=");
         }
+        if (SamplePhaseMetrics.ENABLED) {
+            writePhaseMetricsToLog();
+        }
+        LAST_PHASE_REPORT.set(0);
+    }
+
+    /**
+     * Writes a line per thread group with the mean time spent by its threads in each phase of the samples
+     * since the start of the test, see {@link SamplePhaseMetrics}.
+     */
+    private static void writePhaseMetricsToLog() {
+        if (!(TOOUT || (TOLOG && log.isInfoEnabled()))) {
+            return;
+        }
+        DecimalFormat dfDouble = new DecimalFormat("#0.000"); // $NON-NLS-1$
+        for (SamplePhaseMetrics metrics : SamplePhaseMetrics.getAll()) {
+            StringBuilder sb = new StringBuilder(160);
+            sb.append("overhead ").append(metrics.getThreadGroup()).append(" mean ms:");
+            for (SamplePhaseMetrics.PhaseStatistics statistics : metrics.getPhases()) {
+                sb.append(' ').append(statistics.getPhase()).append(": ")
+                        .append(dfDouble.format(statistics.getMeanMicros() / 1000));
+            }
+            String formattedMessage = sb.toString();
+            if (TOLOG) {
+                log.info(formattedMessage);
+            }
+            if (TOOUT) {
+                System.out.println(formattedMessage); // NOSONAR Intentional
+            }
+        }
     }
 
     private void formatAndWriteToLog(String name, SummariserRunningSample summariserRunningSample, String type) {
@@ -338,7 +440,8 @@ public class Summariser extends AbstractTestElement
      * @param type Type of summariser (difference or total)
      * @return the summary information
      */
-    private static String format(String name, SummariserRunningSample summariserRunningSample, String type) {
+    @VisibleForTesting
+    static String format(String name, SummariserRunningSample summariserRunningSample, String type) {
         DecimalFormat dfDouble = new DecimalFormat("#0.0"); // $NON-NLS-1$
         StringBuilder tmp = new StringBuilder(20); // for intermediate use
         StringBuilder sb = new StringBuilder(140); // output line buffer
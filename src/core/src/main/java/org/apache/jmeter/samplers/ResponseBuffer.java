@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.samplers;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apiguardian.api.API;
+
+/**
+ * Releasable reference to a buffer holding response data, whose array goes back to its pool
+ * once the last reference is released.
+ * <p>
+ * The sampler writes the data then passes the buffer to {@link SampleResult#setResponseData(ResponseBuffer)},
+ * which holds the initial reference. Code that keeps the array after the result is released
+ * calls {@link #retain()} then {@link #release()} once done.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class ResponseBuffer {
+
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final Consumer<byte[]> recycler;
+    private byte[] array;
+    private int length;
+
+    /**
+     * @param array    array to write the data into, replaced by a larger one when needed
+     * @param recycler gets the array back once the buffer is released, may be {@code null}
+     */
+    public ResponseBuffer(byte[] array, Consumer<byte[]> recycler) {
+        this.array = array;
+        this.recycler = recycler;
+    }
+
+    /**
+     * Appends bytes to the data. Must only be called before the buffer is shared.
+     *
+     * @param bytes  array holding the bytes
+     * @param offset offset of the first byte
+     * @param count  number of bytes
+     */
+    public void write(byte[] bytes, int offset, int count) {
+        checkReferenced();
+        if (length + count > array.length) {
+            array = Arrays.copyOf(array, Math.max(length + count, 2 * array.length));
+        }
+        System.arraycopy(bytes, offset, array, length, count);
+        length += count;
+    }
+
+    /**
+     * @return the array holding the data from its start, may be larger than the data
+     */
+    public byte[] getArray() {
+        checkReferenced();
+        return array;
+    }
+
+    /**
+     * @return the length of the data
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return a copy of the data
+     */
+    public byte[] toByteArray() {
+        checkReferenced();
+        return Arrays.copyOf(array, length);
+    }
+
+    /**
+     * Adds a reference to the buffer.
+     *
+     * @return this buffer
+     * @throws IllegalStateException when the buffer was already released
+     */
+    public ResponseBuffer retain() {
+        if (!tryRetain()) {
+            throw new IllegalStateException("Buffer was already released");
+        }
+        return this;
+    }
+
+    /**
+     * Adds a reference to the buffer, unless another thread released its last one.
+     *
+     * @return whether the reference was added
+     */
+    public boolean tryRetain() {
+        return references.getAndUpdate(r -> r > 0 ? r + 1 : r) > 0;
+    }
+
+    /**
+     * Removes a reference to the buffer, the array goes back to the pool when it was the last one.
+     *
+     * @throws IllegalStateException when the buffer was already released
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining < 0) {
+            throw new IllegalStateException("Buffer was already released");
+        }
+        if (remaining == 0) {
+            byte[] released = array;
+            array = null;
+            length = 0;
+            if (recycler != null) {
+                recycler.accept(released);
+            }
+        }
+    }
+
+    private void checkReferenced() {
+        if (array == null) {
+            throw new IllegalStateException("Buffer was released");
+        }
+    }
+}
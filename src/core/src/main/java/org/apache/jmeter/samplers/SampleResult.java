@@ -17,6 +17,8 @@
 
 package org.apache.jmeter.samplers;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
@@ -28,6 +30,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.apache.jmeter.assertions.AssertionResult;
 import org.apache.jmeter.gui.Searchable;
@@ -123,6 +126,10 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
 
     private static final AssertionResult[] EMPTY_AR = new AssertionResult[0];
 
+    /** Takes the pooled buffer of a result, so that only one thread releases it */
+    private static final AtomicReferenceFieldUpdater<SampleResult, ResponseBuffer> RESPONSE_BUFFER =
+            AtomicReferenceFieldUpdater.newUpdater(SampleResult.class, ResponseBuffer.class, "responseBuffer");
+
     private static final boolean START_TIMESTAMP =
             JMeterUtils.getPropDefault("sampleresult.timestamp.start", false);  // $NON-NLS-1$
 
@@ -235,6 +242,9 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     /** time to end connecting */
     private long connectTime = 0;
 
+    /** time spent waiting for a connection of a shared pool */
+    private long poolWaitTime = 0;
+
     /** Way to signal what to do on Test */
     private TestLogicalAction testLogicalAction = TestLogicalAction.CONTINUE;
 
@@ -281,6 +291,12 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     private transient volatile String responseDataAsString;
 
+    /**
+     * Pooled buffer holding the response data until it is copied to responseData or released.
+     * The thread that takes it from the result releases the reference of the result.
+     */
+    private transient volatile ResponseBuffer responseBuffer;
+
     public SampleResult() {
         this(USE_NANO_TIME, NANOTHREAD_SLEEP);
     }
@@ -320,12 +336,15 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         label = res.label;//OK
         latency = res.latency;
         connectTime = res.connectTime;
+        poolWaitTime = res.poolWaitTime;
         location = res.location;//OK
         parent = res.parent;
         pauseTime = res.pauseTime;
         requestHeaders = res.requestHeaders;//OK
         responseCode = res.responseCode;//OK
         responseData = res.responseData;//OK
+        ResponseBuffer buffer = res.responseBuffer;
+        responseBuffer = buffer != null && buffer.tryRetain() ? buffer : null;
         responseDataAsString = null;
         responseHeaders = res.responseHeaders;//OK
         responseMessage = res.responseMessage;//OK
@@ -740,6 +759,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      *            the new responseData value
      */
     public void setResponseData(byte[] response) {
+        dropResponseBuffer();
         responseDataAsString = null;
         responseData = response == null ? EMPTY_BA : response;
     }
@@ -755,6 +775,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      */
     @Deprecated
     public void setResponseData(String response) {
+        dropResponseBuffer();
         responseDataAsString = null;
         try {
             responseData = response.getBytes(getDataEncodingWithDefault());
@@ -772,6 +793,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      *
      */
     public void setResponseData(final String response, final String encoding) {
+        dropResponseBuffer();
         responseDataAsString = null;
         String encodeUsing = encoding != null? encoding : DEFAULT_CHARSET;
         try {
@@ -796,9 +818,107 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @return the responseData value (cannot be null)
      */
     public byte[] getResponseData() {
+        if (responseBuffer != null) {
+            retainResponseData();
+        }
         return responseData;
     }
 
+    /**
+     * Sets the response data to the data of a pooled buffer, which the result holds
+     * until {@link #releaseResponseData()} is called.
+     * <p>
+     * The data is only copied when {@link #getResponseData()} is called.
+     *
+     * @param buffer buffer holding the response data, its reference is passed to the result
+     * @since 5.5.1
+     */
+    public void setResponseData(ResponseBuffer buffer) {
+        dropResponseBuffer();
+        responseDataAsString = null;
+        responseData = EMPTY_BA;
+        responseBuffer = buffer;
+    }
+
+    /**
+     * @return the pooled buffer holding the response data, or null when the data is not pooled.
+     * It is valid until the result is released, unless {@link ResponseBuffer#retain()} is called.
+     * @since 5.5.1
+     */
+    public ResponseBuffer getResponseBuffer() {
+        return responseBuffer;
+    }
+
+    /**
+     * Copies the response data held in a pooled buffer, if any, for this result and its sub-results,
+     * and releases the buffers.
+     * <p>
+     * Listeners that keep results once {@link SampleListener#sampleOccurred(SampleEvent)} returns
+     * call it so that the data is still available after the results are released.
+     * <p>
+     * It may be called while another thread releases the data, the data is then either copied or empty.
+     *
+     * @since 5.5.1
+     */
+    public void retainResponseData() {
+        ResponseBuffer buffer = responseBuffer;
+        if (buffer != null && buffer.tryRetain()) {
+            try {
+                responseData = buffer.toByteArray();
+                if (RESPONSE_BUFFER.compareAndSet(this, buffer, null)) {
+                    buffer.release();
+                }
+            } finally {
+                buffer.release();
+            }
+        }
+        retainOrReleaseSubResults(true);
+    }
+
+    /**
+     * Releases the pooled buffer holding the response data, if any, for this result and its sub-results.
+     * The response data of these results is then empty unless it was retained.
+     * <p>
+     * Internally called by JMeter once the result is no longer used by the thread that sampled it.
+     *
+     * @since 5.5.1
+     */
+    public void releaseResponseData() {
+        dropResponseBuffer();
+        retainOrReleaseSubResults(false);
+    }
+
+    private void retainOrReleaseSubResults(boolean retain) {
+        if (subResults == null) {
+            return;
+        }
+        for (SampleResult subResult : subResults) {
+            if (retain) {
+                subResult.retainResponseData();
+            } else {
+                subResult.releaseResponseData();
+            }
+        }
+    }
+
+    private void dropResponseBuffer() {
+        ResponseBuffer buffer = RESPONSE_BUFFER.getAndSet(this, null);
+        if (buffer != null) {
+            responseDataAsString = null;
+            buffer.release();
+        }
+    }
+
+    private int getResponseDataLength() {
+        ResponseBuffer buffer = responseBuffer;
+        return buffer != null ? buffer.getLength() : responseData.length;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        retainResponseData();
+        out.defaultWriteObject();
+    }
+
     /**
      * Gets the responseData of the SampleResult object as a String
      *
@@ -807,12 +927,23 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
     public String getResponseDataAsString() {
         try {
             if(responseDataAsString == null) {
-                responseDataAsString= new String(responseData,getDataEncodingWithDefault());
+                ResponseBuffer buffer = responseBuffer;
+                if (buffer != null && buffer.tryRetain()) {
+                    // Keeps the array from going back to the pool while it is decoded
+                    try {
+                        responseDataAsString =
+                                new String(buffer.getArray(), 0, buffer.getLength(), getDataEncodingWithDefault());
+                    } finally {
+                        buffer.release();
+                    }
+                } else {
+                    responseDataAsString = new String(responseData,getDataEncodingWithDefault());
+                }
             }
             return responseDataAsString;
         } catch (UnsupportedEncodingException e) {
             log.warn("Using platform default as {} caused {}", getDataEncodingWithDefault(), e.getLocalizedMessage());
-            return new String(responseData,Charset.defaultCharset()); // N.B. default charset is used deliberately here
+            return new String(getResponseData(),Charset.defaultCharset()); // N.B. default charset is used deliberately here
         }
     }
 
@@ -1357,6 +1488,23 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
         this.connectTime = time;
     }
 
+    /**
+     * @return the time in milliseconds spent waiting for a connection of a shared pool,
+     * included in the connect time and the elapsed time
+     * @since 5.5.1
+     */
+    public long getPoolWaitTime() {
+        return poolWaitTime;
+    }
+
+    /**
+     * @param time the time in milliseconds spent waiting for a connection of a shared pool
+     * @since 5.5.1
+     */
+    public void setPoolWaitTime(long time) {
+        this.poolWaitTime = time;
+    }
+
     /**
      * This is only intended for use by SampleResultConverter!
      *
@@ -1471,7 +1619,7 @@ public class SampleResult implements Serializable, Cloneable, Searchable {
      * @return the body size in bytes
      */
     public long getBodySizeAsLong() {
-        return bodySize == 0 ? responseData.length : bodySize;
+        return bodySize == 0 ? getResponseDataLength() : bodySize;
     }
 
     /**
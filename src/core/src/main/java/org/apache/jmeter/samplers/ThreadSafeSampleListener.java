@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.samplers;
+
+import org.apiguardian.api.API;
+
+/**
+ * Marker for {@link SampleListener} implementations whose {@link #sampleOccurred(SampleEvent)}
+ * can be called concurrently from any thread, not only from the thread that produced the sample.
+ * <p>
+ * Such listeners must not rely on the {@link org.apache.jmeter.threads.JMeterContext} of the calling thread,
+ * and must only read the {@link SampleEvent} they receive.
+ * When asynchronous listener notification is enabled, they are notified by dedicated threads.
+ *
+ * @see org.apache.jmeter.threads.SampleEventDispatcher
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public interface ThreadSafeSampleListener extends SampleListener {
+}
@@ -19,6 +19,7 @@ package org.apache.jmeter.save;
 
 import java.io.BufferedReader;
 import java.io.CharArrayWriter;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -42,6 +43,11 @@ import javax.swing.table.DefaultTableModel;
 import org.apache.commons.collections4.map.LinkedMap;
 import org.apache.commons.lang3.CharUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.report.core.AggregatedSampleReader;
+import org.apache.jmeter.report.core.BinarySampleReader;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.apache.jmeter.report.core.SampleReader;
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleResult;
@@ -151,6 +157,19 @@ public final class CSVSaveService {
             ResultCollector resultCollector) throws IOException {
         final boolean errorsOnly = resultCollector.isErrorLogging();
         final boolean successOnly = resultCollector.isSuccessOnlyLogging();
+        File file = new File(filename);
+        if (BinarySampleReader.isBinaryFile(file)) {
+            try (SampleReader reader = new BinarySampleReader(file)) {
+                processSamples(reader, filename, visualizer, errorsOnly, successOnly);
+            }
+            return;
+        }
+        if (AggregatedSampleReader.isAggregatedFile(file)) {
+            try (SampleReader reader = new AggregatedSampleReader(file)) {
+                processSamples(reader, filename, visualizer, errorsOnly, successOnly);
+            }
+            return;
+        }
         try (InputStream inStream = new FileInputStream(filename);
                 Reader inReader = new InputStreamReader(inStream,
                         SaveService.getFileEncoding(StandardCharsets.UTF_8.name()));
@@ -180,13 +199,43 @@ public final class CSVSaveService {
             while ((parts = csvReadFile(dataReader, delim)).length != 0) {
                 lineNumber++;
                 SampleEvent event = CSVSaveService.makeResultFromDelimitedString(parts, saveConfig, lineNumber);
-                if (event != null) {
-                    final SampleResult result = event.getResult();
-                    if (ResultCollector.isSampleWanted(result.isSuccessful(),
-                            errorsOnly, successOnly)) {
-                        visualizer.add(result);
-                    }
-                }
+                addWantedResult(event, visualizer, errorsOnly, successOnly);
+            }
+        }
+    }
+
+    /**
+     * Read Samples from a file written in the binary or aggregated result format.
+     */
+    private static void processSamples(SampleReader reader, String filename, Visualizer visualizer,
+            boolean errorsOnly, boolean successOnly) throws IOException {
+        SampleMetadata metadata = reader.getMetadata();
+        SampleSaveConfiguration saveConfig = CSVSaveService
+                .getSampleSaveConfiguration(metadata.toString(), filename);
+        if (saveConfig == null) {
+            throw new IOException(filename + ": unable to use columns " + metadata);
+        }
+        int columnCount = metadata.getColumnCount();
+        long lineNumber = 1;
+        Sample sample;
+        while ((sample = reader.readSample()) != null) {
+            lineNumber++;
+            String[] parts = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                parts[i] = sample.getData(i);
+            }
+            SampleEvent event = CSVSaveService.makeResultFromDelimitedString(parts, saveConfig, lineNumber);
+            addWantedResult(event, visualizer, errorsOnly, successOnly);
+        }
+    }
+
+    private static void addWantedResult(SampleEvent event, Visualizer visualizer,
+            boolean errorsOnly, boolean successOnly) {
+        if (event != null) {
+            final SampleResult result = event.getResult();
+            if (ResultCollector.isSampleWanted(result.isSuccessful(),
+                    errorsOnly, successOnly)) {
+                visualizer.add(result);
             }
         }
     }
@@ -758,11 +807,50 @@ public final class CSVSaveService {
                 .getDelimiter());
     }
 
+    /*
+     * Receives the fields of a result, in the order of the columns.
+     */
+    abstract static class FieldAppender {
+        abstract void append(String s);
+
+        void append(Object obj) {
+            append(String.valueOf(obj));
+        }
+
+        void append(int i) {
+            append(Integer.toString(i));
+        }
+
+        void append(long l) {
+            append(Long.toString(l));
+        }
+
+        void append(boolean b) {
+            append(Boolean.toString(b));
+        }
+    }
+
+    /*
+     * Collects the fields of a result as strings.
+     */
+    private static final class FieldCollector extends FieldAppender {
+        private final List<String> fields = new ArrayList<>();
+
+        @Override
+        void append(String s) {
+            fields.add(String.valueOf(s));
+        }
+
+        String[] toArray() {
+            return fields.toArray(new String[fields.size()]);
+        }
+    }
+
     /*
      * Class to handle generating the delimited string. - adds the delimiter
      * if not the first call - quotes any strings that require it
      */
-    static final class StringQuoter {
+    static final class StringQuoter extends FieldAppender {
         private final StringBuilder sb;
         private final char[] specials;
         private boolean addDelim;
@@ -784,27 +872,32 @@ public final class CSVSaveService {
 
         // These methods handle parameters that could contain delimiters or
         // quotes:
+        @Override
         public void append(String s) {
             addDelim();
             sb.append(quoteDelimiters(s, specials));
         }
 
+        @Override
         public void append(Object obj) {
             append(String.valueOf(obj));
         }
 
         // These methods handle parameters that cannot contain delimiters or
         // quotes
+        @Override
         public void append(int i) {
             addDelim();
             sb.append(i);
         }
 
+        @Override
         public void append(long l) {
             addDelim();
             sb.append(l);
         }
 
+        @Override
         public void append(boolean b) {
             addDelim();
             sb.append(b);
@@ -843,12 +936,38 @@ public final class CSVSaveService {
      *            the separation string
      * @return the separated value representation of the result
      */
-    @SuppressWarnings("JavaUtilDate")
     public static String resultToDelimitedString(SampleEvent event,
             SampleResult sample,
             SampleSaveConfiguration saveConfig,
             final String delimiter) {
         StringQuoter text = new StringQuoter(delimiter.charAt(0));
+        appendResult(text, event, sample, saveConfig);
+        return text.toString();
+    }
+
+    /**
+     * Convert a result into the values of the columns that
+     * {@link #printableFieldNamesToString(SampleSaveConfiguration)} describes,
+     * as they are read back from a CSV file.
+     *
+     * @param event
+     *            the sample event to be converted
+     * @param sample {@link SampleResult} to convert
+     * @param saveConfig {@link SampleSaveConfiguration} to use
+     * @return the values of the columns
+     */
+    public static String[] resultToValues(SampleEvent event,
+            SampleResult sample,
+            SampleSaveConfiguration saveConfig) {
+        FieldCollector values = new FieldCollector();
+        appendResult(values, event, sample, saveConfig);
+        return values.toArray();
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    private static void appendResult(FieldAppender text, SampleEvent event,
+            SampleResult sample,
+            SampleSaveConfiguration saveConfig) {
         if (saveConfig.saveTimestamp()) {
             if (saveConfig.printMilliseconds()) {
                 text.append(sample.getTimeStamp());
@@ -946,8 +1065,6 @@ public final class CSVSaveService {
         for (int i = 0; i < SampleEvent.getVarCount(); i++) {
             text.append(event.getVarValue(i));
         }
-
-        return text.toString();
     }
 
     // =================================== CSV quote/unquote handling
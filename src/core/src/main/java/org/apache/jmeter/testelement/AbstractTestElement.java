@@ -42,6 +42,7 @@ import org.apache.jmeter.testelement.property.StringProperty;
 import org.apache.jmeter.testelement.property.TestElementProperty;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,8 +53,16 @@ public abstract class AbstractTestElement implements TestElement, Serializable,
 
     private static final Logger log = LoggerFactory.getLogger(AbstractTestElement.class);
 
-    private final Map<String, JMeterProperty> propMap =
-        Collections.synchronizedMap(new LinkedHashMap<String, JMeterProperty>());
+    /**
+     * Whether properties are stored in a {@link CopyOnWritePropertyMap}, that does not lock on reads,
+     * instead of a synchronized {@link LinkedHashMap}.
+     */
+    private static final boolean LOCK_FREE_PROPERTIES =
+            JMeterUtils.getPropDefault("testelement.lock_free_properties", false); // $NON-NLS-1$
+
+    private final Map<String, JMeterProperty> propMap = LOCK_FREE_PROPERTIES
+            ? new CopyOnWritePropertyMap()
+            : Collections.synchronizedMap(new LinkedHashMap<String, JMeterProperty>());
 
     /**
      * Holds properties added when isRunningVersion is true
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.testelement;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.jmeter.testelement.property.JMeterProperty;
+
+/**
+ * Insertion-ordered map of the properties of a test element, that does not lock on reads.
+ * <p>
+ * The entries are kept in arrays that are scanned linearly, which is faster than hashing
+ * for the few dozens of properties an element has.
+ * Readers use the last published {@link Snapshot}, writers synchronize on the map.
+ * Adding an entry or replacing a value writes into the current arrays beyond the size
+ * or at an existing index and publishes a new snapshot, removing an entry copies the arrays,
+ * so a reader never sees a partially updated snapshot.
+ * Iterators work on the snapshot taken when they were created.
+ */
+final class CopyOnWritePropertyMap extends AbstractMap<String, JMeterProperty> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new int[0], new JMeterProperty[0], 0);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    private static final class Snapshot implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] keys;
+        private final int[] hashes;
+        private final JMeterProperty[] values;
+        private final int size;
+
+        Snapshot(String[] keys, int[] hashes, JMeterProperty[] values, int size) {
+            this.keys = keys;
+            this.hashes = hashes;
+            this.values = values;
+            this.size = size;
+        }
+
+        int indexOf(Object key) {
+            if (key == null) {
+                return -1;
+            }
+            int hash = key.hashCode();
+            for (int i = 0; i < size; i++) {
+                String k = keys[i];
+                if (k == key || hashes[i] == hash && k.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return snapshot.size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return snapshot.indexOf(key) >= 0;
+    }
+
+    @Override
+    public JMeterProperty get(Object key) {
+        Snapshot s = snapshot;
+        int index = s.indexOf(key);
+        return index < 0 ? null : s.values[index];
+    }
+
+    @Override
+    public synchronized JMeterProperty put(String key, JMeterProperty value) {
+        Snapshot s = snapshot;
+        int index = s.indexOf(key);
+        if (index >= 0) {
+            JMeterProperty previous = s.values[index];
+            // Readers and iterators of the current snapshot must keep seeing the previous value
+            JMeterProperty[] values = s.values.clone();
+            values[index] = value;
+            snapshot = new Snapshot(s.keys, s.hashes, values, s.size);
+            return previous;
+        }
+        String[] keys = s.keys;
+        int[] hashes = s.hashes;
+        JMeterProperty[] values = s.values;
+        if (s.size == keys.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, keys.length * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        // Readers of the current snapshot do not look beyond its size
+        keys[s.size] = key;
+        hashes[s.size] = key.hashCode();
+        values[s.size] = value;
+        snapshot = new Snapshot(keys, hashes, values, s.size + 1);
+        return null;
+    }
+
+    @Override
+    public synchronized JMeterProperty remove(Object key) {
+        Snapshot s = snapshot;
+        int index = s.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        JMeterProperty previous = s.values[index];
+        int capacity = Math.max(INITIAL_CAPACITY, s.size);
+        String[] keys = new String[capacity];
+        int[] hashes = new int[capacity];
+        JMeterProperty[] values = new JMeterProperty[capacity];
+        System.arraycopy(s.keys, 0, keys, 0, index);
+        System.arraycopy(s.hashes, 0, hashes, 0, index);
+        System.arraycopy(s.values, 0, values, 0, index);
+        int tail = s.size - index - 1;
+        System.arraycopy(s.keys, index + 1, keys, index, tail);
+        System.arraycopy(s.hashes, index + 1, hashes, index, tail);
+        System.arraycopy(s.values, index + 1, values, index, tail);
+        snapshot = new Snapshot(keys, hashes, values, s.size - 1);
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        snapshot = EMPTY;
+    }
+
+    @Override
+    public Set<Map.Entry<String, JMeterProperty>> entrySet() {
+        return new AbstractSet<Map.Entry<String, JMeterProperty>>() {
+            @Override
+            public Iterator<Map.Entry<String, JMeterProperty>> iterator() {
+                return new SnapshotIterator(snapshot);
+            }
+
+            @Override
+            public int size() {
+                return CopyOnWritePropertyMap.this.size();
+            }
+        };
+    }
+
+    private final class SnapshotIterator implements Iterator<Map.Entry<String, JMeterProperty>> {
+        private final Snapshot iterated;
+        private int next;
+        private String lastKey;
+
+        SnapshotIterator(Snapshot iterated) {
+            this.iterated = iterated;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < iterated.size;
+        }
+
+        @Override
+        public Map.Entry<String, JMeterProperty> next() {
+            if (next >= iterated.size) {
+                throw new NoSuchElementException();
+            }
+            lastKey = iterated.keys[next];
+            // Values replaced after the snapshot are seen, as with the other maps
+            Map.Entry<String, JMeterProperty> entry =
+                    new SimpleImmutableEntry<>(lastKey, iterated.values[next]);
+            next++;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            CopyOnWritePropertyMap.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+}
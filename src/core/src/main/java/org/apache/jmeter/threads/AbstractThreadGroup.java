@@ -84,6 +84,9 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
     /** The same user or different users */
     public static final String IS_SAME_USER_ON_NEXT_ITERATION = "ThreadGroup.same_user_on_next_iteration";
 
+    /** Whether JMeter threads run on virtual threads (Java 21+) */
+    public static final String VIRTUAL_THREADS = "ThreadGroup.virtual_threads";
+
 
     private final AtomicInteger numberOfThreads = new AtomicInteger(0); // Number of active threads in this group
 
@@ -335,6 +338,27 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
         return getPropertyAsBoolean(ThreadGroup.IS_SAME_USER_ON_NEXT_ITERATION, true);
     }
 
+    /**
+     * Set whether the threads of the group should run on virtual threads.
+     *
+     * @param virtualThreads true if virtual threads should be used when the JVM supports them
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public void setVirtualThreads(boolean virtualThreads) {
+        setProperty(new BooleanProperty(VIRTUAL_THREADS, virtualThreads));
+    }
+
+    /**
+     * Get whether the threads of the group should run on virtual threads.
+     * Defaults to {@code jmeterthread.virtual_threads} property when the group does not configure it.
+     *
+     * @return true if virtual threads should be used when the JVM supports them
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public boolean isVirtualThreads() {
+        return getPropertyAsBoolean(VIRTUAL_THREADS, VirtualThreads.DEFAULT_ENABLED);
+    }
+
     /**
      * Create {@link JMeterThread}. Note: the input tree is not cloned.
      * @param engine {@link StandardJMeterEngine}
@@ -353,12 +377,42 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
             int groupNumber, int threadNumber,
             ListedHashTree threadGroupTree,
             JMeterVariables variables) {
+        final JMeterThread jmeterThread = new JMeterThread(threadGroupTree, monitor, notifier, isSameUserOnNextIteration());
+        configureThread(jmeterThread, engine, groupNumber, threadNumber, variables);
+        return jmeterThread;
+    }
+
+    /**
+     * Create {@link JMeterThread} with a new copy of a tree that is compiled once for the thread group.
+     * @param engine {@link StandardJMeterEngine}
+     * @param monitor {@link JMeterThreadMonitor}
+     * @param notifier {@link ListenerNotifier}
+     * @param groupNumber  thread group number
+     * @param threadNumber int thread number
+     * @param compiledTree {@link CompiledTestTree} of the thread group
+     * @param variables initial variables
+     * @return {@link JMeterThread}
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    protected JMeterThread makeThread(
+            StandardJMeterEngine engine,
+            JMeterThreadMonitor monitor, ListenerNotifier notifier,
+            int groupNumber, int threadNumber,
+            CompiledTestTree compiledTree,
+            JMeterVariables variables) {
+        final JMeterThread jmeterThread =
+                new JMeterThread(compiledTree.newThreadTree(), monitor, notifier, isSameUserOnNextIteration());
+        configureThread(jmeterThread, engine, groupNumber, threadNumber, variables);
+        return jmeterThread;
+    }
+
+    private void configureThread(JMeterThread jmeterThread, StandardJMeterEngine engine,
+            int groupNumber, int threadNumber, JMeterVariables variables) {
         boolean onErrorStopTest = getOnErrorStopTest();
         boolean onErrorStopTestNow = getOnErrorStopTestNow();
         boolean onErrorStopThread = getOnErrorStopThread();
         boolean onErrorStartNextLoop = getOnErrorStartNextLoop();
         String groupName = getName();
-        final JMeterThread jmeterThread = new JMeterThread(threadGroupTree, monitor, notifier, isSameUserOnNextIteration());
         jmeterThread.setThreadNum(threadNumber);
         jmeterThread.setThreadGroup(this);
         jmeterThread.putVariables(variables);
@@ -371,7 +425,6 @@ public abstract class AbstractThreadGroup extends AbstractTestElement
         jmeterThread.setOnErrorStopTestNow(onErrorStopTestNow);
         jmeterThread.setOnErrorStopThread(onErrorStopThread);
         jmeterThread.setOnErrorStartNextLoop(onErrorStartNextLoop);
-        return jmeterThread;
     }
 
     /**
@@ -0,0 +1,444 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.jmeter.assertions.Assertion;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.control.Controller;
+import org.apache.jmeter.control.TransactionController;
+import org.apache.jmeter.control.TransactionSampler;
+import org.apache.jmeter.engine.event.LoopIterationListener;
+import org.apache.jmeter.engine.util.NoThreadClone;
+import org.apache.jmeter.processor.PostProcessor;
+import org.apache.jmeter.processor.PreProcessor;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleMonitor;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.TestIterationListener;
+import org.apache.jmeter.timers.Timer;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.apiguardian.api.API;
+
+/**
+ * Sample package analysis of a thread group test tree, compiled once and shared by all the threads of the group.
+ * <p>
+ * {@link TestCompiler} walks the tree of every thread to find the elements that apply to each sampler,
+ * and {@link JMeterThread} searches it for iteration listeners and sample monitors.
+ * The result only depends on the shape of the tree, so this class computes it once, as positions in the
+ * pre-order traversal of the tree. Every thread still gets its own copy of the elements (elements
+ * hold per-thread state), however the copy is a plain walk over the tree and the
+ * {@link SamplePackage}s are built from the precomputed positions.
+ * This saves CPU during ramp-up, not memory: the footprint of each thread is the same as without it.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class CompiledTestTree {
+
+    /**
+     * Whether thread groups compile the sample package analysis once instead of analyzing the copy of each thread,
+     * default false. Elements are still copied per thread.
+     */
+    public static final boolean COMPILE_ONCE_PACKAGE_ANALYSIS =
+            JMeterUtils.getPropDefault("jmeterthread.compile_once_package_analysis", false); // $NON-NLS-1$
+
+    private static final int[] EMPTY = new int[0];
+
+    /** {@link TestCompiler} actions, in the order they would be performed by the traversal */
+    private static final int OP_ITERATION_LISTENER = 0;
+    private static final int OP_ADD_CHILD = 1;
+
+    private final ListedHashTree template;
+
+    /** Number of nodes in the tree */
+    private final int size;
+
+    /** Triples of (operation, target, argument) node positions */
+    private final int[] operations;
+
+    private final List<PackagePlan> samplerPlans;
+
+    private final List<PackagePlan> transactionPlans;
+
+    private final int[] testIterationListeners;
+
+    private final int[] sampleMonitors;
+
+    /**
+     * Positions of the elements of a {@link SamplePackage}.
+     */
+    private static final class PackagePlan {
+        private final int owner;
+        private final int[] configs;
+        private final int[] listeners;
+        private final int[] timers;
+        private final int[] assertions;
+        private final int[] posts;
+        private final int[] pres;
+        private final int[] controllers;
+
+        PackagePlan(int owner, int[] configs, int[] listeners, int[] timers, int[] assertions,
+                int[] posts, int[] pres, int[] controllers) {
+            this.owner = owner;
+            this.configs = configs;
+            this.listeners = listeners;
+            this.timers = timers;
+            this.assertions = assertions;
+            this.posts = posts;
+            this.pres = pres;
+            this.controllers = controllers;
+        }
+    }
+
+    /**
+     * Tree node with its pre-order position.
+     */
+    private static final class Node {
+        private final int index;
+        private final Object element;
+        private final List<Node> children = new ArrayList<>();
+
+        Node(int index, Object element) {
+            this.index = index;
+            this.element = element;
+        }
+    }
+
+    private CompiledTestTree(ListedHashTree template) {
+        this.template = template;
+        List<Node> nodes = new ArrayList<>();
+        List<Node> roots = index(template, nodes);
+        this.size = nodes.size();
+        Compiler compiler = new Compiler();
+        compiler.compile(roots);
+        this.operations = compiler.operations.toArray();
+        this.samplerPlans = Collections.unmodifiableList(compiler.samplerPlans);
+        this.transactionPlans = Collections.unmodifiableList(compiler.transactionPlans);
+        this.testIterationListeners = positionsOf(nodes, TestIterationListener.class);
+        this.sampleMonitors = positionsOf(nodes, SampleMonitor.class);
+    }
+
+    /**
+     * Analyze the tree of a thread group.
+     * The tree must not be modified while the returned object is in use.
+     *
+     * @param threadGroupTree tree of the thread group, the root is the thread group itself
+     * @return compiled tree
+     */
+    public static CompiledTestTree compile(ListedHashTree threadGroupTree) {
+        return new CompiledTestTree(threadGroupTree);
+    }
+
+    /**
+     * @return the original tree
+     */
+    public ListedHashTree getTemplate() {
+        return template;
+    }
+
+    /**
+     * Creates the tree for a new thread.
+     * Elements are cloned except the ones that implement {@link NoThreadClone},
+     * the same way {@link org.apache.jmeter.engine.TreeCloner} does.
+     *
+     * @return tree for a new thread
+     */
+    public ThreadTree newThreadTree() {
+        ListedHashTree tree = new ListedHashTree();
+        Object[] nodes = new Object[size];
+        cloneInto(template, tree, nodes, 0);
+        return new ThreadTree(tree, nodes);
+    }
+
+    private static int cloneInto(HashTree source, HashTree target, Object[] nodes, int next) {
+        int index = next;
+        for (Object item : source.list()) {
+            Object copy = item;
+            if (item instanceof TestElement && !(item instanceof NoThreadClone)) {
+                copy = ((TestElement) item).clone();
+            }
+            nodes[index++] = copy;
+            index = cloneInto(source.getTree(item), target.add(copy), nodes, index);
+        }
+        return index;
+    }
+
+    private static List<Node> index(HashTree tree, List<Node> nodes) {
+        List<Node> result = new ArrayList<>();
+        for (Object item : tree.list()) {
+            Node node = new Node(nodes.size(), item);
+            nodes.add(node);
+            result.add(node);
+            node.children.addAll(index(tree.getTree(item), nodes));
+        }
+        return result;
+    }
+
+    private static int[] positionsOf(List<Node> nodes, Class<?> type) {
+        IntList result = new IntList();
+        for (Node node : nodes) {
+            if (type.isInstance(node.element)) {
+                result.add(node.index);
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Copy of the thread group tree that belongs to a single thread.
+     */
+    public final class ThreadTree {
+        private final ListedHashTree tree;
+        private final Object[] nodes;
+
+        private ThreadTree(ListedHashTree tree, Object[] nodes) {
+            this.tree = tree;
+            this.nodes = nodes;
+        }
+
+        /**
+         * @return the tree of the thread
+         */
+        public ListedHashTree getTree() {
+            return tree;
+        }
+
+        List<TestIterationListener> getTestIterationListeners() {
+            return select(testIterationListeners);
+        }
+
+        List<SampleMonitor> getSampleMonitors() {
+            return select(sampleMonitors);
+        }
+
+        /**
+         * Performs the same actions on the thread elements as traversing the tree with
+         * {@link TestCompiler} would.
+         *
+         * @param compiler compiler that receives the sample packages
+         */
+        void compile(TestCompiler compiler) {
+            for (int i = 0; i < operations.length; i += 3) {
+                TestElement target = (TestElement) nodes[operations[i + 1]];
+                TestElement argument = (TestElement) nodes[operations[i + 2]];
+                if (operations[i] == OP_ITERATION_LISTENER) {
+                    TestCompiler.addIterationListener((Controller) target, (LoopIterationListener) argument);
+                } else {
+                    compiler.addChild(target, argument);
+                }
+            }
+            for (PackagePlan plan : samplerPlans) {
+                Sampler sampler = (Sampler) nodes[plan.owner];
+                compiler.saveSamplerPackage(sampler, newPackage(plan, sampler));
+            }
+            for (PackagePlan plan : transactionPlans) {
+                TransactionController tc = (TransactionController) nodes[plan.owner];
+                compiler.saveTransactionControllerPackage(tc,
+                        newPackage(plan, new TransactionSampler(tc, tc.getName())));
+            }
+        }
+
+        private SamplePackage newPackage(PackagePlan plan, Sampler sampler) {
+            SamplePackage pack = new SamplePackage(
+                    select(plan.configs), select(plan.listeners), select(plan.timers),
+                    select(plan.assertions), select(plan.posts), select(plan.pres),
+                    select(plan.controllers));
+            pack.setSampler(sampler);
+            pack.setRunningVersion(true);
+            return pack;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> List<T> select(int[] positions) {
+            List<T> result = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                result.add((T) nodes[position]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Mirrors the traversal of {@link TestCompiler}, recording positions instead of elements.
+     */
+    private static final class Compiler {
+        private final List<Node> stack = new ArrayList<>();
+        private final IntList operations = new IntList();
+        private final List<PackagePlan> samplerPlans = new ArrayList<>();
+        private final List<PackagePlan> transactionPlans = new ArrayList<>();
+
+        void compile(List<Node> nodes) {
+            for (Node node : nodes) {
+                stack.add(node);
+                compile(node.children);
+                subtractNode();
+            }
+        }
+
+        private void subtractNode() {
+            Node child = stack.get(stack.size() - 1);
+            trackIterationListeners(child);
+            if (child.element instanceof Sampler) {
+                samplerPlans.add(samplerPlan(child));
+            } else if (child.element instanceof TransactionController) {
+                transactionPlans.add(transactionPlan(child));
+            }
+            stack.remove(stack.size() - 1);
+            if (!stack.isEmpty()) {
+                Node parent = stack.get(stack.size() - 1);
+                if (parent.element instanceof Controller
+                        && (child.element instanceof Sampler || child.element instanceof Controller)) {
+                    operations.add(OP_ADD_CHILD);
+                    operations.add(parent.index);
+                    operations.add(child.index);
+                }
+            }
+        }
+
+        private void trackIterationListeners(Node child) {
+            if (!(child.element instanceof LoopIterationListener)) {
+                return;
+            }
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                Node item = stack.get(i);
+                if (item.element == child.element) {
+                    continue;
+                }
+                if (item.element instanceof Controller) {
+                    operations.add(OP_ITERATION_LISTENER);
+                    operations.add(item.index);
+                    operations.add(child.index);
+                    break;
+                }
+            }
+        }
+
+        private PackagePlan samplerPlan(Node sampler) {
+            IntList configs = new IntList();
+            IntList controllers = new IntList();
+            IntList listeners = new IntList();
+            IntList timers = new IntList();
+            IntList assertions = new IntList();
+            IntList posts = new IntList();
+            IntList pres = new IntList();
+            for (int i = stack.size(); i > 0; i--) {
+                Node level = stack.get(i - 1);
+                addController(controllers, level);
+                IntList tempPre = new IntList();
+                IntList tempPost = new IntList();
+                IntList tempAssertions = new IntList();
+                for (Node item : level.children) {
+                    Object element = item.element;
+                    if (element instanceof ConfigTestElement) {
+                        configs.add(item.index);
+                    }
+                    if (element instanceof SampleListener) {
+                        listeners.add(item.index);
+                    }
+                    if (element instanceof Timer) {
+                        timers.add(item.index);
+                    }
+                    if (element instanceof Assertion) {
+                        tempAssertions.add(item.index);
+                    }
+                    if (element instanceof PostProcessor) {
+                        tempPost.add(item.index);
+                    }
+                    if (element instanceof PreProcessor) {
+                        tempPre.add(item.index);
+                    }
+                }
+                assertions.prepend(tempAssertions);
+                pres.prepend(tempPre);
+                posts.prepend(tempPost);
+            }
+            return new PackagePlan(sampler.index, configs.toArray(), listeners.toArray(), timers.toArray(),
+                    assertions.toArray(), posts.toArray(), pres.toArray(), controllers.toArray());
+        }
+
+        private PackagePlan transactionPlan(Node tc) {
+            IntList controllers = new IntList();
+            IntList listeners = new IntList();
+            IntList assertions = new IntList();
+            for (int i = stack.size(); i > 0; i--) {
+                Node level = stack.get(i - 1);
+                addController(controllers, level);
+                for (Node item : level.children) {
+                    if (item.element instanceof SampleListener) {
+                        listeners.add(item.index);
+                    }
+                    if (item.element instanceof Assertion) {
+                        assertions.add(item.index);
+                    }
+                }
+            }
+            return new PackagePlan(tc.index, EMPTY, listeners.toArray(), EMPTY,
+                    assertions.toArray(), EMPTY, EMPTY, controllers.toArray());
+        }
+
+        private static void addController(IntList controllers, Node maybeController) {
+            if (maybeController.element instanceof Controller) {
+                controllers.add(maybeController.index);
+            }
+        }
+    }
+
+    /**
+     * Growable list of ints, so positions are not boxed.
+     */
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void prepend(IntList other) {
+            if (other.size == 0) {
+                return;
+            }
+            int[] merged = new int[Math.max(values.length, size + other.size)];
+            System.arraycopy(other.values, 0, merged, 0, other.size);
+            System.arraycopy(values, 0, merged, other.size, size);
+            values = merged;
+            size += other.size;
+        }
+
+        int[] toArray() {
+            return size == 0 ? EMPTY : Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledTestTree{nodes=" + size + ", samplers=" + samplerPlans.size()
+                + ", transactions=" + transactionPlans.size() + "}";
+    }
+}
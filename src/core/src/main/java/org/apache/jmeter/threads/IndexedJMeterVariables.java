@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apiguardian.api.API;
+
+/**
+ * {@link JMeterVariables} that stores the variables that have a {@link VariableSlot} in an array
+ * indexed by the slot, and the other variables in a map.
+ * <p>
+ * Access through a {@link VariableSlot} is an array read, so elements that resolve their variable names
+ * once do not pay for hashing on every sample.
+ * Access by name looks up the slot first, so both kinds of access see the same values.
+ * <p>
+ * As {@link JMeterVariables}, this class is not thread-safe: instances are confined to a single thread.
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class IndexedJMeterVariables extends JMeterVariables {
+
+    /**
+     * Whether {@link JMeterThread} uses {@link IndexedJMeterVariables}, default false.
+     */
+    public static final boolean ENABLED =
+            JMeterUtils.getPropDefault("jmeterthread.indexed_variables", false); // $NON-NLS-1$
+
+    /** Marks a variable that was set to {@code null}, so it is listed as the map would do */
+    private static final Object NULL_VALUE = new Object();
+
+    private Object[] values;
+
+    /** Slots of the values, so the variables can be listed by name */
+    private VariableSlot[] slots;
+
+    public IndexedJMeterVariables() {
+        super();
+        int size = Math.max(16, VariableSlot.count());
+        values = new Object[size];
+        slots = new VariableSlot[size];
+    }
+
+    @Override
+    public Object getObject(VariableSlot slot) {
+        int index = slot.getIndex();
+        if (index == VariableSlot.UNINDEXED) {
+            return super.getObject(slot.getName());
+        }
+        Object value = index < values.length ? values[index] : null;
+        if (value == null) {
+            value = moveToSlot(slot);
+        }
+        return value == NULL_VALUE ? null : value;
+    }
+
+    @Override
+    public void putObject(VariableSlot slot, Object value) {
+        int index = slot.getIndex();
+        if (index == VariableSlot.UNINDEXED) {
+            super.putObject(slot.getName(), value);
+            return;
+        }
+        if (index >= values.length) {
+            int size = Math.max(index + 1, values.length * 2);
+            values = Arrays.copyOf(values, size);
+            slots = Arrays.copyOf(slots, size);
+        }
+        values[index] = value == null ? NULL_VALUE : value;
+        slots[index] = slot;
+        Map<String, Object> map = variablesMap();
+        if (!map.isEmpty()) {
+            // The variable might have been stored by name before the slot was created
+            map.remove(slot.getName());
+        }
+    }
+
+    /**
+     * Moves the value that was stored by name before the slot was created.
+     */
+    private Object moveToSlot(VariableSlot slot) {
+        Map<String, Object> map = variablesMap();
+        if (map.isEmpty() || !map.containsKey(slot.getName())) {
+            return null;
+        }
+        Object value = map.get(slot.getName());
+        putObject(slot, value);
+        return value == null ? NULL_VALUE : value;
+    }
+
+    private Object removeSlot(VariableSlot slot) {
+        Object value = getObject(slot);
+        int index = slot.getIndex();
+        if (index < values.length) {
+            values[index] = null;
+        }
+        return value;
+    }
+
+    @Override
+    public Object remove(String key) {
+        VariableSlot slot = VariableSlot.find(key);
+        if (slot == null) {
+            return super.remove(key);
+        }
+        return removeSlot(slot);
+    }
+
+    @Override
+    public void put(String key, String value) {
+        putObject(key, value);
+    }
+
+    @Override
+    public void putObject(String key, Object value) {
+        VariableSlot slot = VariableSlot.find(key);
+        if (slot == null) {
+            super.putObject(key, value);
+        } else {
+            putObject(slot, value);
+        }
+    }
+
+    @Override
+    public void putAll(Map<String, ?> vars) {
+        for (Map.Entry<String, ?> entry : vars.entrySet()) {
+            putObject(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        return asString(getObject(key));
+    }
+
+    @Override
+    public Object getObject(String key) {
+        VariableSlot slot = VariableSlot.find(key);
+        if (slot == null) {
+            return super.getObject(key);
+        }
+        return getObject(slot);
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, Object>> getIterator() {
+        return entrySet().iterator();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        Map<String, Object> all = new HashMap<>(variablesMap());
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value != null) {
+                all.put(slots[i].getName(), value == NULL_VALUE ? null : value);
+            }
+        }
+        return Collections.unmodifiableMap(all).entrySet();
+    }
+
+    @Override
+    public boolean isSameUserOnNextIteration() {
+        return Boolean.TRUE.equals(getObject(VAR_IS_SAME_USER_KEY));
+    }
+}
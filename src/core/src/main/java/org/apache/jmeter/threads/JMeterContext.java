@@ -111,11 +111,17 @@ public class JMeterContext {
 
     /**
      * Internally called by JMeter, never call it directly
+     * <p>
+     * Releases the pooled response data of the replaced result, unless it belongs to a parent result.
      *
      * @param result SampleResult
      */
     public void setPreviousResult(SampleResult result) {
+        SampleResult replaced = previousResult;
         this.previousResult = result;
+        if (replaced != null && replaced != result && replaced.getParent() == null) {
+            replaced.releaseResponseData();
+        }
     }
 
     public Sampler getCurrentSampler() {
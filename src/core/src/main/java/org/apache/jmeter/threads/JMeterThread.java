@@ -133,6 +133,9 @@ public class JMeterThread implements Runnable, Interruptible {
 
     private StandardJMeterEngine engine = null; // For access to stop methods.
 
+    // Time spent in each phase of the samples, null unless jmeterthread.phase_metrics is true
+    private SamplePhaseMetrics phaseMetrics;
+
     /*
      * The following variables may be set/read from multiple threads.
      */
@@ -156,7 +159,7 @@ public class JMeterThread implements Runnable, Interruptible {
 
     public JMeterThread(HashTree test, JMeterThreadMonitor monitor, ListenerNotifier note,Boolean isSameUserOnNextIteration) {
         this.monitor = monitor;
-        threadVars = new JMeterVariables();
+        threadVars = IndexedJMeterVariables.ENABLED ? new IndexedJMeterVariables() : new JMeterVariables();
         testTree = test;
         compiler = new TestCompiler(testTree);
         threadGroupLoopController = (Controller) testTree.getArray()[0];
@@ -171,6 +174,30 @@ public class JMeterThread implements Runnable, Interruptible {
         this.isSameUserOnNextIteration = isSameUserOnNextIteration;
     }
 
+    /**
+     * Creates a thread from a tree produced by {@link CompiledTestTree#newThreadTree()},
+     * so the thread reuses the analysis of the tree that is shared by the thread group.
+     *
+     * @param test tree of the thread
+     * @param monitor {@link JMeterThreadMonitor}
+     * @param note {@link ListenerNotifier}
+     * @param isSameUserOnNextIteration true if the same user is used on each iteration
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public JMeterThread(CompiledTestTree.ThreadTree test, JMeterThreadMonitor monitor, ListenerNotifier note,
+            Boolean isSameUserOnNextIteration) {
+        this.monitor = monitor;
+        threadVars = IndexedJMeterVariables.ENABLED ? new IndexedJMeterVariables() : new JMeterVariables();
+        testTree = test.getTree();
+        compiler = new TestCompiler(test);
+        threadGroupLoopController = (Controller) testTree.getArray()[0];
+        testIterationStartListeners = test.getTestIterationListeners();
+        sampleMonitors = test.getSampleMonitors();
+        notifier = note;
+        running = true;
+        this.isSameUserOnNextIteration = isSameUserOnNextIteration;
+    }
+
     @Deprecated
     @API(status = API.Status.DEPRECATED, since = "5.5")
     public void setInitialContext(JMeterContext context) {
@@ -558,16 +585,20 @@ public class JMeterThread implements Runnable, Interruptible {
         threadContext.setCurrentSampler(current);
         // Get the sampler ready to sample
         SamplePackage pack = compiler.configureSampler(current);
+        long phaseStart = phaseStart();
         runPreProcessors(pack.getPreProcessors());
+        phaseStart = recordPhase(SamplePhaseMetrics.Phase.PRE_PROCESSORS, phaseStart);
 
         // Hack: save the package for any transaction controllers
         threadVars.putObject(PACKAGE_OBJECT, pack);
 
         delay(pack.getTimers());
+        phaseStart = recordPhase(SamplePhaseMetrics.Phase.TIMERS, phaseStart);
         SampleResult result = null;
         if (running) {
             Sampler sampler = pack.getSampler();
             result = doSampling(threadContext, sampler);
+            recordPhase(SamplePhaseMetrics.Phase.SAMPLER, phaseStart);
         }
         // If we got any results, then perform processing on the result
         if (result != null) {
@@ -582,19 +613,24 @@ public class JMeterThread implements Runnable, Interruptible {
                     }
                 }
                 threadContext.setPreviousResult(result);
+                phaseStart = phaseStart();
                 runPostProcessors(pack.getPostProcessors());
+                phaseStart = recordPhase(SamplePhaseMetrics.Phase.POST_PROCESSORS, phaseStart);
                 checkAssertions(pack.getAssertions(), result, threadContext);
+                phaseStart = recordPhase(SamplePhaseMetrics.Phase.ASSERTIONS, phaseStart);
                 // PostProcessors can call setIgnore, so reevaluate here
                 if (!result.isIgnore()) {
+                    // Add the result as subsample of transaction if we are in a transaction,
+                    // before asynchronous listeners can read it from their threads
+                    if (transactionSampler != null) {
+                        transactionSampler.addSubSamplerResult(result);
+                    }
                     // Do not send subsamples to listeners which receive the transaction sample
                     List<SampleListener> sampleListeners = getSampleListeners(pack, transactionPack, transactionSampler);
                     notifyListeners(sampleListeners, result);
+                    recordPhase(SamplePhaseMetrics.Phase.LISTENERS, phaseStart);
                 }
                 compiler.done(pack);
-                // Add the result as subsample of transaction if we are in a transaction
-                if (transactionSampler != null && !result.isIgnore()) {
-                    transactionSampler.addSubSamplerResult(result);
-                }
             } else {
                 // This call is done by checkAssertions() , as we don't call it
                 // for isIgnore, we explictely call it here
@@ -729,7 +765,10 @@ public class JMeterThread implements Runnable, Interruptible {
         threadContext.setThread(this);
         threadContext.setThreadGroup(threadGroup);
         threadContext.setEngine(engine);
-        testTree.traverse(compiler);
+        compiler.compile();
+        if (SamplePhaseMetrics.ENABLED) {
+            phaseMetrics = SamplePhaseMetrics.of(threadGroup.getName());
+        }
         if (scheduler) {
             // set the scheduler to start
             startScheduler();
@@ -1002,6 +1041,9 @@ public class JMeterThread implements Runnable, Interruptible {
             }
             totalDelay += delay;
         }
+        if (phaseMetrics != null) {
+            phaseMetrics.record(SamplePhaseMetrics.Phase.TIMERS_INTENDED, TimeUnit.MILLISECONDS.toNanos(totalDelay));
+        }
         if (totalDelay > 0) {
             try {
                 if (scheduler) {
@@ -1022,6 +1064,29 @@ public class JMeterThread implements Runnable, Interruptible {
         }
     }
 
+    /**
+     * @return the current time in nanoseconds if the phases of the samples are recorded
+     */
+    private long phaseStart() {
+        return phaseMetrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Records the duration of a phase of the current sample, if the phases are recorded.
+     *
+     * @param phase the phase that ends
+     * @param start time the phase started at, as returned by {@link #phaseStart()} or by this method
+     * @return the time the phase ended at, which is the start of the next phase
+     */
+    private long recordPhase(SamplePhaseMetrics.Phase phase, long start) {
+        if (phaseMetrics == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        phaseMetrics.record(phase, now - start);
+        return now;
+    }
+
     void notifyTestListeners() {
         threadVars.incIteration();
         for (TestIterationListener listener : testIterationStartListeners) {
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.jmeter.util.JMeterUtils;
+import org.apiguardian.api.API;
 
 /**
  * Class which defines JMeter variables.
@@ -125,7 +126,65 @@ public class JMeterVariables {
      * @param vars {@link JMeterVariables} with the entries to be updated
      */
     public void putAll(JMeterVariables vars) {
-        putAll(vars.variables);
+        if (vars instanceof IndexedJMeterVariables) {
+            // Indexed variables are not stored in the map
+            for (Map.Entry<String, Object> entry : vars.entrySet()) {
+                putObject(entry.getKey(), entry.getValue());
+            }
+        } else {
+            putAll(vars.variables);
+        }
+    }
+
+    /**
+     * Creates or updates a variable with a value that does not have to be a String.
+     *
+     * @param slot the variable
+     * @param value the variable value
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public void putObject(VariableSlot slot, Object value) {
+        putObject(slot.getName(), value);
+    }
+
+    /**
+     * Creates or updates a variable with a String value.
+     *
+     * @param slot the variable
+     * @param value the variable value
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public void put(VariableSlot slot, String value) {
+        putObject(slot, value);
+    }
+
+    /**
+     * Gets the value of a variable (not converted to String).
+     *
+     * @param slot the variable
+     * @return the value of the variable, or {@code null} if it does not exist
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public Object getObject(VariableSlot slot) {
+        return getObject(slot.getName());
+    }
+
+    /**
+     * Gets the value of a variable, converted to a String.
+     *
+     * @param slot the variable
+     * @return the value of the variable or a toString called on it if it's non String, or {@code null} if it does not exist
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public String get(VariableSlot slot) {
+        return asString(getObject(slot));
+    }
+
+    /**
+     * @return the map that stores the variables of this instance
+     */
+    Map<String, Object> variablesMap() {
+        return variables;
     }
 
     /**
@@ -135,7 +194,10 @@ public class JMeterVariables {
      * @return the value of the variable or a toString called on it if it's non String, or {@code null} if it does not exist
      */
     public String get(String key) {
-        Object o = variables.get(key);
+        return asString(variables.get(key));
+    }
+
+    static String asString(Object o) {
         if(o instanceof String) {
             return (String) o;
         } else if (o != null) {
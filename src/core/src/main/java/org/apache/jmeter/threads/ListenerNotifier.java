@@ -18,10 +18,12 @@
 package org.apache.jmeter.threads;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.jmeter.samplers.SampleEvent;
 import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.ThreadSafeSampleListener;
 import org.apache.jmeter.testbeans.TestBeanHelper;
 import org.apache.jmeter.testelement.TestElement;
 import org.slf4j.Logger;
@@ -30,7 +32,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Processes sample events. <br>
  * The current implementation processes events in the calling thread
- * using {@link #notifyListeners(SampleEvent, List)} <br>
+ * using {@link #notifyListeners(SampleEvent, List)}, except for
+ * {@link ThreadSafeSampleListener}s when a {@link SampleEventDispatcher} is running <br>
  * Thread safe class
  */
 public class ListenerNotifier implements Serializable {
@@ -52,15 +55,27 @@ public class ListenerNotifier implements Serializable {
      *            elements.
      */
     public void notifyListeners(SampleEvent res, List<SampleListener> listeners) {
+        SampleEventDispatcher dispatcher = SampleEventDispatcher.current();
+        List<SampleListener> asyncListeners = null;
         for (SampleListener sampleListener : listeners) {
             try {
                 TestBeanHelper.prepare((TestElement) sampleListener);
-                sampleListener.sampleOccurred(res);
+                if (dispatcher != null && sampleListener instanceof ThreadSafeSampleListener) {
+                    if (asyncListeners == null) {
+                        asyncListeners = new ArrayList<>(listeners.size());
+                    }
+                    asyncListeners.add(sampleListener);
+                } else {
+                    sampleListener.sampleOccurred(res);
+                }
             } catch (RuntimeException e) {
                 log.error("Detected problem in Listener.", e);
                 log.info("Continuing to process further listeners");
             }
         }
+        if (asyncListeners != null) {
+            dispatcher.dispatch(res, asyncListeners);
+        }
     }
 
 }
@@ -0,0 +1,351 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.ThreadSafeSampleListener;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers sample events to {@link ThreadSafeSampleListener}s from dedicated threads,
+ * so slow listeners do not delay the threads that sample.
+ * <p>
+ * JMeter threads put the events in a bounded {@link RingBuffer}, that dispatcher threads drain in batches.
+ * When the buffer is full, the {@link Overflow} policy decides whether the JMeter thread waits or the event is dropped.
+ * Idle dispatcher threads, and JMeter threads waiting for room, block on a condition until they are signalled,
+ * so the queue is only contended when a side actually waits.
+ * <p>
+ * The engine starts the dispatcher before the thread groups and stops it before notifying test listeners
+ * of the end of the test, so the listeners receive all queued events before they close their outputs.
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class SampleEventDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(SampleEventDispatcher.class);
+
+    /**
+     * Whether the engine notifies {@link ThreadSafeSampleListener}s asynchronously, default false.
+     */
+    public static final boolean ENABLED =
+            JMeterUtils.getPropDefault("listener.async", false); // $NON-NLS-1$
+
+    private static final int QUEUE_SIZE =
+            JMeterUtils.getPropDefault("listener.async.queue_size", 65536); // $NON-NLS-1$
+
+    private static final int THREADS =
+            JMeterUtils.getPropDefault("listener.async.threads", 1); // $NON-NLS-1$
+
+    private static final int BATCH_SIZE =
+            JMeterUtils.getPropDefault("listener.async.batch_size", 256); // $NON-NLS-1$
+
+    private static final String OVERFLOW =
+            JMeterUtils.getPropDefault("listener.async.overflow", "block"); // $NON-NLS-1$ // $NON-NLS-2$
+
+    private static final int SAMPLE_RATE =
+            JMeterUtils.getPropDefault("listener.async.sample_rate", 10); // $NON-NLS-1$
+
+    /** Upper bound of a wait, so a missed signal only delays the waiter */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * What to do with an event when the queue is full.
+     */
+    public enum Overflow {
+        /** The JMeter thread waits until there is room in the queue */
+        BLOCK,
+        /** The event is dropped and counted */
+        DROP,
+        /**
+         * Once the queue is three quarters full, only one event out of {@code listener.async.sample_rate} is queued,
+         * the others are dropped and counted
+         */
+        SAMPLE;
+
+        static Overflow of(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warn("Unknown value '{}' for listener.async.overflow, using block", name);
+                return BLOCK;
+            }
+        }
+    }
+
+    private static volatile SampleEventDispatcher current;
+
+    private final RingBuffer<Task> queue;
+    private final Overflow overflow;
+    private final int batchSize;
+    private final int sampleRate;
+    private final int sampleThreshold;
+    private final Thread[] workers;
+
+    private volatile boolean running = true;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong eventsUnderPressure = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+
+    private static final class Task {
+        private final SampleEvent event;
+        private final List<SampleListener> listeners;
+
+        Task(SampleEvent event, List<SampleListener> listeners) {
+            this.event = event;
+            this.listeners = listeners;
+        }
+    }
+
+    SampleEventDispatcher(int queueSize, int threads, int batchSize, Overflow overflow, int sampleRate) {
+        this.queue = new RingBuffer<>(queueSize);
+        this.overflow = overflow;
+        this.batchSize = Math.max(1, batchSize);
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleThreshold = queue.capacity() / 4 * 3;
+        this.workers = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < workers.length; i++) {
+            Thread worker = new Thread(this::drain, "SampleEventDispatcher-" + (i + 1));
+            worker.setDaemon(true);
+            workers[i] = worker;
+        }
+    }
+
+    /**
+     * Starts a dispatcher configured with the {@code listener.async.*} properties,
+     * and makes it the one used by {@link ListenerNotifier}.
+     *
+     * @return the started dispatcher
+     */
+    public static SampleEventDispatcher start() {
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(QUEUE_SIZE, THREADS, BATCH_SIZE,
+                Overflow.of(OVERFLOW), SAMPLE_RATE);
+        log.info("Starting asynchronous listener notification: queue size {}, {} thread(s), overflow policy {}",
+                dispatcher.queue.capacity(), dispatcher.workers.length, dispatcher.overflow);
+        dispatcher.startWorkers();
+        current = dispatcher;
+        return dispatcher;
+    }
+
+    void startWorkers() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * @return the dispatcher of the running test, or null if listeners are notified synchronously
+     */
+    static SampleEventDispatcher current() {
+        return current;
+    }
+
+    /**
+     * Queues the event for the listeners.
+     * Once the dispatcher is stopped, the listeners are notified by the calling thread.
+     * <p>
+     * The pooled response data of the result is copied before the event is queued,
+     * as the calling thread releases it once it samples again.
+     *
+     * @param event the sample event
+     * @param listeners listeners to notify, must not be modified afterwards
+     */
+    void dispatch(SampleEvent event, List<SampleListener> listeners) {
+        Task task = new Task(event, listeners);
+        if (!running) {
+            deliver(task);
+            return;
+        }
+        if (overflow == Overflow.SAMPLE
+                && queue.size() >= sampleThreshold
+                && eventsUnderPressure.incrementAndGet() % sampleRate != 0) {
+            dropped.increment();
+            return;
+        }
+        event.getResult().retainResponseData();
+        while (!queue.offer(task)) {
+            if (overflow != Overflow.BLOCK) {
+                dropped.increment();
+                return;
+            }
+            if (!running) {
+                deliver(task);
+                return;
+            }
+            awaitNotFull();
+        }
+        if (idleWorkers.get() > 0) {
+            signal(notEmpty);
+        }
+        recordDepth();
+    }
+
+    private void awaitNotFull() {
+        lock.lock();
+        waitingProducers.incrementAndGet();
+        try {
+            // Checked after registering as waiting: a worker that drains from now on signals us
+            if (running && queue.size() >= queue.capacity()) {
+                notFull.awaitNanos(MAX_WAIT_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitingProducers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    private void awaitNotEmpty() {
+        lock.lock();
+        idleWorkers.incrementAndGet();
+        try {
+            // Checked after registering as idle: a producer that offers from now on signals us
+            if (running && queue.isEmpty()) {
+                notEmpty.awaitNanos(MAX_WAIT_NANOS);
+            }
+        } catch (InterruptedException e) {
+            // Keep delivering until the dispatcher is stopped
+            log.debug("Interrupted while waiting for sample events", e);
+        } finally {
+            idleWorkers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    private void signal(Condition condition) {
+        lock.lock();
+        try {
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordDepth() {
+        long depth = queue.size();
+        long max = maxQueueDepth.get();
+        while (depth > max && !maxQueueDepth.compareAndSet(max, depth)) {
+            max = maxQueueDepth.get();
+        }
+    }
+
+    private void drain() {
+        List<Task> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, batchSize) == 0) {
+                awaitNotEmpty();
+                continue;
+            }
+            if (waitingProducers.get() > 0) {
+                signal(notFull);
+            }
+            for (Task task : batch) {
+                deliver(task);
+            }
+            batch.clear();
+        }
+    }
+
+    private void deliver(Task task) {
+        for (SampleListener listener : task.listeners) {
+            try {
+                listener.sampleOccurred(task.event);
+            } catch (RuntimeException e) {
+                log.error("Detected problem in Listener.", e);
+                log.info("Continuing to process further listeners");
+            }
+        }
+        dispatched.increment();
+    }
+
+    /**
+     * Delivers the queued events, then stops the dispatcher threads.
+     * Events dispatched afterwards are delivered by the calling thread.
+     */
+    public void stop() {
+        running = false;
+        signal(notEmpty);
+        signal(notFull);
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while waiting for {} to deliver queued sample events", worker.getName());
+                break;
+            }
+        }
+        Task task;
+        while ((task = queue.poll()) != null) {
+            deliver(task);
+        }
+        if (current == this) {
+            current = null;
+        }
+        log.info("Asynchronous listener notification stopped: {} events delivered, {} dropped, max queue depth {}",
+                getDispatchedEvents(), getDroppedEvents(), getMaxQueueDepth());
+    }
+
+    /**
+     * @return number of events waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return highest number of events that waited in the queue
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * @return number of events dropped by the overflow policy
+     */
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return number of events delivered to their listeners
+     */
+    public long getDispatchedEvents() {
+        return dispatched.sum();
+    }
+}
@@ -226,4 +226,13 @@ public class SamplePackage {
         return configs;
     }
 
+    /**
+     * Returns the controllers, from the parent of the sampler up to the top of the tree.
+     *
+     * @return List of {@link Controller}
+     */
+    List<Controller> getControllers() {
+        return controllers;
+    }
+
 }
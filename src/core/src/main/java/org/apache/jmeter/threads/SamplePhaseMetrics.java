@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.math.LogLinearHistogram;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time spent by the {@link JMeterThread}s of a thread group in each phase of a sample:
+ * pre-processors, timers, sampler, post-processors, assertions and listeners.
+ * It tells the overhead of JMeter from the time of the system under test, for instance
+ * to show that an injector is saturated when the timers sleep longer than intended.
+ * <p>
+ * The metrics are recorded when the {@code jmeterthread.phase_metrics} property is true.
+ * They are exposed as {@code org.apache.jmeter:type=SamplePhaseMetrics,threadGroup=<name>} MXBeans
+ * and logged by the {@link org.apache.jmeter.reporters.Summariser}.
+ * <p>
+ * Durations are recorded in microseconds into histograms. Sampling threads only lock the stripe
+ * they are assigned to, so that they do not all contend on the same monitor.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class SamplePhaseMetrics implements SamplePhaseMetricsMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SamplePhaseMetrics.class);
+
+    /**
+     * Whether {@link JMeterThread} records the phases of the samples, default false.
+     */
+    public static final boolean ENABLED =
+            JMeterUtils.getPropDefault("jmeterthread.phase_metrics", false); // $NON-NLS-1$
+
+    private static final String OBJECT_NAME_PREFIX = "org.apache.jmeter:type=SamplePhaseMetrics,threadGroup="; // $NON-NLS-1$
+
+    /* A power of two, so that a thread can pick its stripe with a mask */
+    private static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
+    private static final ConcurrentMap<String, SamplePhaseMetrics> BY_THREAD_GROUP = new ConcurrentHashMap<>();
+
+    /**
+     * Phases of a sample.
+     */
+    public enum Phase {
+        PRE_PROCESSORS("pre-processors"), // $NON-NLS-1$
+        /** Delay computed by the timers, the time the thread intends to sleep */
+        TIMERS_INTENDED("timers intended"), // $NON-NLS-1$
+        /** Time spent computing the delays and sleeping */
+        TIMERS("timers"), // $NON-NLS-1$
+        SAMPLER("sampler"), // $NON-NLS-1$
+        POST_PROCESSORS("post-processors"), // $NON-NLS-1$
+        ASSERTIONS("assertions"), // $NON-NLS-1$
+        LISTENERS("listeners"); // $NON-NLS-1$
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return the name of the phase in reports
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * Statistics of a phase, in microseconds.
+     */
+    public static final class PhaseStatistics {
+        private final String phase;
+        private final long count;
+        private final double mean;
+        private final long median;
+        private final long percentile90;
+        private final long percentile99;
+        private final long max;
+
+        PhaseStatistics(Phase phase, LogLinearHistogram histogram, long totalNanos) {
+            this.phase = phase.getLabel();
+            this.count = histogram.getTotalCount();
+            this.mean = count == 0 ? 0 : totalNanos / 1000.0 / count;
+            this.median = histogram.getValueAtPercentile(50);
+            this.percentile90 = histogram.getValueAtPercentile(90);
+            this.percentile99 = histogram.getValueAtPercentile(99);
+            this.max = count == 0 ? 0 : histogram.getMax();
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return mean;
+        }
+
+        public long getMedianMicros() {
+            return median;
+        }
+
+        public long getPercentile90Micros() {
+            return percentile90;
+        }
+
+        public long getPercentile99Micros() {
+            return percentile99;
+        }
+
+        public long getMaxMicros() {
+            return max;
+        }
+    }
+
+    /**
+     * Values recorded by the threads assigned to a stripe. Guarded by its own lock.
+     */
+    private static final class Stripe {
+        private final LogLinearHistogram[] histograms = new LogLinearHistogram[Phase.values().length];
+        private final long[] totalNanos = new long[histograms.length];
+
+        Stripe() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LogLinearHistogram();
+            }
+        }
+    }
+
+    private final String threadGroup;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private ObjectName objectName;
+
+    private SamplePhaseMetrics(String threadGroup) {
+        this.threadGroup = threadGroup;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private static int stripeCount(int processors) {
+        return processors <= 1 ? 1 : Integer.highestOneBit(processors - 1) << 1;
+    }
+
+    /**
+     * Returns the metrics of a thread group, and registers them in JMX when they are created.
+     *
+     * @param threadGroup name of the thread group
+     * @return the metrics of the thread group
+     */
+    public static SamplePhaseMetrics of(String threadGroup) {
+        SamplePhaseMetrics metrics = BY_THREAD_GROUP.get(threadGroup);
+        if (metrics != null) {
+            return metrics;
+        }
+        return BY_THREAD_GROUP.computeIfAbsent(threadGroup, name -> {
+            SamplePhaseMetrics created = new SamplePhaseMetrics(name);
+            created.register();
+            return created;
+        });
+    }
+
+    /**
+     * @return the metrics of all the thread groups of the test
+     */
+    public static Collection<SamplePhaseMetrics> getAll() {
+        return Collections.unmodifiableCollection(BY_THREAD_GROUP.values());
+    }
+
+    /**
+     * Forgets the metrics of the previous test and unregisters them from JMX.
+     */
+    public static void clear() {
+        for (SamplePhaseMetrics metrics : BY_THREAD_GROUP.values()) {
+            metrics.unregister();
+        }
+        BY_THREAD_GROUP.clear();
+    }
+
+    private void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(threadGroup));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (JMException e) {
+            log.warn("Could not register sample phase metrics of thread group {} in JMX", threadGroup, e);
+        }
+    }
+
+    private void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            log.debug("Could not unregister {}", objectName, e);
+        }
+    }
+
+    /**
+     * Records the duration of a phase of a sample.
+     *
+     * @param phase the phase
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(Phase phase, long nanos) {
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        int index = phase.ordinal();
+        synchronized (stripe) {
+            stripe.histograms[index].record(TimeUnit.NANOSECONDS.toMicros(nanos));
+            stripe.totalNanos[index] += nanos;
+        }
+    }
+
+    /**
+     * @param phase the phase
+     * @return the statistics of the phase since the start of the test
+     */
+    public PhaseStatistics getStatistics(Phase phase) {
+        int index = phase.ordinal();
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        long totalNanos = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                histogram.add(stripe.histograms[index]);
+                totalNanos += stripe.totalNanos[index];
+            }
+        }
+        return new PhaseStatistics(phase, histogram, totalNanos);
+    }
+
+    @Override
+    public String getThreadGroup() {
+        return threadGroup;
+    }
+
+    @Override
+    public List<PhaseStatistics> getPhases() {
+        List<PhaseStatistics> phases = new ArrayList<>(Phase.values().length);
+        for (Phase phase : Phase.values()) {
+            phases.add(getStatistics(phase));
+        }
+        return phases;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.List;
+
+import org.apiguardian.api.API;
+
+/**
+ * JMX view of the {@link SamplePhaseMetrics} of a thread group.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public interface SamplePhaseMetricsMXBean {
+
+    /**
+     * @return the name of the thread group
+     */
+    String getThreadGroup();
+
+    /**
+     * @return the statistics of each phase since the start of the test, in microseconds
+     */
+    List<SamplePhaseMetrics.PhaseStatistics> getPhases();
+}
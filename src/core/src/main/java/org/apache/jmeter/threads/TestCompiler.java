@@ -43,6 +43,7 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.timers.Timer;
 import org.apache.jorphan.collections.HashTree;
 import org.apache.jorphan.collections.HashTreeTraverser;
+import org.apiguardian.api.API;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,8 +77,35 @@ public class TestCompiler implements HashTreeTraverser {
 
     private final HashTree testTree;
 
+    private final CompiledTestTree.ThreadTree compiledTree;
+
     public TestCompiler(HashTree testTree) {
         this.testTree = testTree;
+        this.compiledTree = null;
+    }
+
+    /**
+     * Creates a compiler that reuses the analysis shared by all the threads of a thread group.
+     * @param compiledTree tree of the thread
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public TestCompiler(CompiledTestTree.ThreadTree compiledTree) {
+        this.testTree = compiledTree.getTree();
+        this.compiledTree = compiledTree;
+    }
+
+    /**
+     * Builds the {@link SamplePackage}s of the tree and links the elements to their parent controllers.
+     * This is the same as traversing the tree with this compiler, however it skips the traversal when the
+     * compiler was created from a {@link CompiledTestTree}.
+     */
+    @API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+    public void compile() {
+        if (compiledTree == null) {
+            testTree.traverse(this);
+        } else {
+            compiledTree.compile(this);
+        }
     }
 
     /**
@@ -146,30 +174,39 @@ public class TestCompiler implements HashTreeTraverser {
         stack.removeLast();
         if (!stack.isEmpty()) {
             TestElement parent = stack.getLast();
-            boolean duplicate = false;
             // Bug 53750: this condition used to be in ObjectPair#addTestElements()
             if (parent instanceof Controller && (child instanceof Sampler || child instanceof Controller)) {
-                if (parent instanceof TestCompilerHelper) {
-                    TestCompilerHelper te = (TestCompilerHelper) parent;
-                    duplicate = !te.addTestElementOnce(child);
-                } else { // this is only possible for 3rd party controllers by default
-                    ObjectPair pair = new ObjectPair(child, parent);
-                    synchronized (PAIRING) {// Called from multiple threads
-                        if (!PAIRING.contains(pair)) {
-                            parent.addTestElement(child);
-                            PAIRING.add(pair);
-                        } else {
-                            duplicate = true;
-                        }
-                    }
-                }
+                addChild(parent, child);
             }
-            if (duplicate) {
-                if (log.isWarnEnabled()) {
-                    log.warn("Unexpected duplicate for {} and {}", parent.getClass(), child.getClass());
+        }
+    }
+
+    /**
+     * Adds a sampler or a controller to its parent controller.
+     * @param parent the parent controller
+     * @param child the child sampler or controller
+     */
+    void addChild(TestElement parent, TestElement child) {
+        boolean duplicate = false;
+        if (parent instanceof TestCompilerHelper) {
+            TestCompilerHelper te = (TestCompilerHelper) parent;
+            duplicate = !te.addTestElementOnce(child);
+        } else { // this is only possible for 3rd party controllers by default
+            ObjectPair pair = new ObjectPair(child, parent);
+            synchronized (PAIRING) {// Called from multiple threads
+                if (!PAIRING.contains(pair)) {
+                    parent.addTestElement(child);
+                    PAIRING.add(pair);
+                } else {
+                    duplicate = true;
                 }
             }
         }
+        if (duplicate) {
+            if (log.isWarnEnabled()) {
+                log.warn("Unexpected duplicate for {} and {}", parent.getClass(), child.getClass());
+            }
+        }
     }
 
     private void trackIterationListeners(LinkedList<TestElement> pStack) {
@@ -182,14 +219,18 @@ public class TestCompiler implements HashTreeTraverser {
                     continue;
                 }
                 if (item instanceof Controller) {
-                    TestBeanHelper.prepare(child);
-                    ((Controller) item).addIterationListener((LoopIterationListener) child);
+                    addIterationListener((Controller) item, (LoopIterationListener) child);
                     break;
                 }
             }
         }
     }
 
+    static void addIterationListener(Controller controller, LoopIterationListener listener) {
+        TestBeanHelper.prepare((TestElement) listener);
+        controller.addIterationListener(listener);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void processPath() {
@@ -237,7 +278,15 @@ public class TestCompiler implements HashTreeTraverser {
                 posts, pres, controllers);
         pack.setSampler(sam);
         pack.setRunningVersion(true);
-        samplerConfigMap.put(sam, pack);
+        saveSamplerPackage(sam, pack);
+    }
+
+    void saveSamplerPackage(Sampler sampler, SamplePackage pack) {
+        samplerConfigMap.put(sampler, pack);
+    }
+
+    void saveTransactionControllerPackage(TransactionController tc, SamplePackage pack) {
+        transactionControllerConfigMap.put(tc, pack);
     }
 
     private void saveTransactionControllerConfigs(TransactionController tc) {
@@ -264,7 +313,7 @@ public class TestCompiler implements HashTreeTraverser {
                 posts, pres, controllers);
         pack.setSampler(new TransactionSampler(tc, tc.getName()));
         pack.setRunningVersion(true);
-        transactionControllerConfigMap.put(tc, pack);
+        saveTransactionControllerPackage(tc, pack);
     }
 
     /**
@@ -86,12 +86,18 @@ public class ThreadGroup extends AbstractThreadGroup {
     /** Are we using delayed startup? */
     private boolean delayedStartup;
 
+    /** Do JMeter threads run on virtual threads? */
+    private boolean virtualThreads;
+
     /** Thread safe class */
     private ListenerNotifier notifier;
 
     /** This property will be cloned */
     private ListedHashTree threadGroupTree;
 
+    /** Analysis of threadGroupTree shared by the threads, null unless jmeterthread.compile_once_package_analysis is enabled */
+    private transient CompiledTestTree compiledTree;
+
     /**
      * No-arg constructor.
      */
@@ -212,11 +218,13 @@ public class ThreadGroup extends AbstractThreadGroup {
         this.groupNumber = groupNum;
         this.notifier = notifier;
         this.threadGroupTree = threadGroupTree;
+        this.compiledTree = CompiledTestTree.COMPILE_ONCE_PACKAGE_ANALYSIS ? CompiledTestTree.compile(threadGroupTree) : null;
         int numThreads = getNumThreads();
         int rampUpPeriodInSeconds = getRampUp();
         delayedStartup = isDelayedStartup(); // Fetch once; needs to stay constant
-        log.info("Starting thread group... number={} threads={} ramp-up={} delayedStart={}", groupNumber,
-                numThreads, rampUpPeriodInSeconds, delayedStartup);
+        virtualThreads = isVirtualThreads();
+        log.info("Starting thread group... number={} threads={} ramp-up={} delayedStart={} virtualThreads={}", groupNumber,
+                numThreads, rampUpPeriodInSeconds, delayedStartup, virtualThreads);
         if (delayedStartup) {
             threadStarter = new Thread(new ThreadStarter(notifier, threadGroupTree, engine), getName()+"-ThreadStarter");
             threadStarter.setDaemon(true);
@@ -258,15 +266,32 @@ public class ThreadGroup extends AbstractThreadGroup {
      */
     private JMeterThread startNewThread(ListenerNotifier notifier, ListedHashTree threadGroupTree, StandardJMeterEngine engine,
             int threadNum, JMeterVariables variables, long now, int delay) {
-        JMeterThread jmThread = makeThread(engine, this, notifier, groupNumber, threadNum, cloneTree(threadGroupTree), variables);
+        JMeterThread jmThread = makeThread(engine, notifier, threadGroupTree, threadNum, variables);
         scheduleThread(jmThread, now); // set start and end time
         jmThread.setInitialDelay(delay);
-        Thread newThread = new Thread(jmThread, jmThread.getThreadName());
+        Thread newThread = VirtualThreads.newThread(virtualThreads, jmThread, jmThread.getThreadName());
         registerStartedThread(jmThread, newThread);
         newThread.start();
         return jmThread;
     }
 
+    /**
+     * Create a {@link JMeterThread} with its own copy of the thread group tree
+     * @param engine {@link StandardJMeterEngine}
+     * @param notifier {@link ListenerNotifier}
+     * @param threadGroupTree {@link ListedHashTree}
+     * @param threadNum Thread number
+     * @param variables initial values for the variables in the thread
+     * @return {@link JMeterThread} newly created
+     */
+    private JMeterThread makeThread(StandardJMeterEngine engine, ListenerNotifier notifier,
+            ListedHashTree threadGroupTree, int threadNum, JMeterVariables variables) {
+        if (compiledTree != null) {
+            return makeThread(engine, this, notifier, groupNumber, threadNum, compiledTree, variables);
+        }
+        return makeThread(engine, this, notifier, groupNumber, threadNum, cloneTree(threadGroupTree), variables);
+    }
+
     /*
      * Fix NPE for addThreadLock transient object in remote mode (BZ60829)
      */
@@ -569,14 +594,17 @@ public class ThreadGroup extends AbstractThreadGroup {
                     if (usingScheduler && System.currentTimeMillis() > endtime) {
                         break; // no point continuing beyond the end time
                     }
-                    JMeterThread jmThread = makeThread(engine, ThreadGroup.this, notifier, groupNumber, threadNumber, cloneTree(threadGroupTree), variables);
+                    JMeterThread jmThread = makeThread(engine, notifier, threadGroupTree, threadNumber, variables);
                     jmThread.setInitialDelay(0);   // Already waited
                     if (usingScheduler) {
                         jmThread.setScheduled(true);
                         jmThread.setEndTime(endtime);
                     }
-                    Thread newThread = new Thread(jmThread, jmThread.getThreadName());
-                    newThread.setDaemon(false); // ThreadStarter is daemon, but we don't want sampler threads to be so too
+                    Thread newThread = VirtualThreads.newThread(virtualThreads, jmThread, jmThread.getThreadName());
+                    if (!VirtualThreads.isVirtual(newThread)) {
+                        // Virtual threads are always daemon, so only platform threads can be changed
+                        newThread.setDaemon(false); // ThreadStarter is daemon, but we don't want sampler threads to be so too
+                    }
                     registerStartedThread(jmThread, newThread);
                     newThread.start();
                 }
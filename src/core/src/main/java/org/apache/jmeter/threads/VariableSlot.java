@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apiguardian.api.API;
+
+/**
+ * Interned variable name with a JVM-wide index.
+ * <p>
+ * Elements that know the names of their variables before the test runs (CSV Data Set,
+ * {@code ${name}} references) resolve the names once with {@link #of(String)},
+ * and then use {@link JMeterVariables#getObject(VariableSlot)} and
+ * {@link JMeterVariables#putObject(VariableSlot, Object)}.
+ * {@link IndexedJMeterVariables} stores such variables in an array, so the access does not need a map lookup.
+ * <p>
+ * Slots are only indexed when {@code jmeterthread.indexed_variables} is true, and at most
+ * {@code jmeterthread.indexed_variables.max_slots} of them. Other slots only hold the name,
+ * so they do not grow the registry or the arrays of the variables.
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class VariableSlot {
+    private static final ConcurrentMap<String, VariableSlot> SLOTS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    /** Index of the slots that are not registered, the variables are then accessed by name */
+    static final int UNINDEXED = -1;
+
+    private static final int MAX_SLOTS =
+            JMeterUtils.getPropDefault("jmeterthread.indexed_variables.max_slots", 4096); // $NON-NLS-1$
+
+    private final String name;
+
+    private final int index;
+
+    private VariableSlot(String name, int index) {
+        this.name = name;
+        this.index = index;
+    }
+
+    /**
+     * Returns the slot for a variable name, creating it if needed.
+     * Names should be known before the test runs: indexed slots are never released.
+     *
+     * @param name variable name
+     * @return slot of the variable, indexed only when {@link IndexedJMeterVariables#ENABLED} is true
+     */
+    public static VariableSlot of(String name) {
+        if (!IndexedJMeterVariables.ENABLED) {
+            return new VariableSlot(name, UNINDEXED);
+        }
+        return register(name);
+    }
+
+    /**
+     * Returns the indexed slot for a variable name, creating it if needed and if there are less
+     * than {@code jmeterthread.indexed_variables.max_slots} slots.
+     *
+     * @param name variable name
+     * @return slot of the variable, not indexed when there are too many slots
+     */
+    static VariableSlot register(String name) {
+        VariableSlot slot = SLOTS.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        if (SLOTS.size() >= MAX_SLOTS) {
+            return new VariableSlot(name, UNINDEXED);
+        }
+        return SLOTS.computeIfAbsent(name, n -> new VariableSlot(n, NEXT_INDEX.getAndIncrement()));
+    }
+
+    /**
+     * @param name variable name
+     * @return the slot of the variable or {@code null} if no slot was created for the name
+     */
+    static VariableSlot find(String name) {
+        return SLOTS.get(name);
+    }
+
+    /**
+     * @return the number of slots created so far
+     */
+    static int count() {
+        return NEXT_INDEX.get();
+    }
+
+    /**
+     * @return variable name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return index of the slot, unique for the JVM, or a negative value when the slot is not indexed
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name + "#" + index;
+    }
+}
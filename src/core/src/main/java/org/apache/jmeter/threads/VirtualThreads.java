@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.jmeter.util.JMeterUtils;
+import org.apiguardian.api.API;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the JVM threads that run {@link JMeterThread} instances.
+ * <p>
+ * JMeter is compiled for Java 8, so virtual threads (Java 21+) are looked up reflectively.
+ * When they are requested but the running JVM does not provide them, a warning is logged once
+ * and platform threads are used instead.
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class VirtualThreads {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    /**
+     * Whether thread groups use virtual threads unless configured otherwise, default false.
+     */
+    public static final boolean DEFAULT_ENABLED =
+            JMeterUtils.getPropDefault("jmeterthread.virtual_threads", false); // $NON-NLS-1$
+
+    /** {@code Thread.ofVirtual()}, or null if virtual threads are not available */
+    private static final MethodHandle OF_VIRTUAL;
+    /** {@code Thread.Builder#name(String)} */
+    private static final MethodHandle BUILDER_NAME;
+    /** {@code Thread.Builder#unstarted(Runnable)} */
+    private static final MethodHandle BUILDER_UNSTARTED;
+    /** {@code Thread.Builder#factory()} */
+    private static final MethodHandle BUILDER_FACTORY;
+    /** {@code Executors.newThreadPerTaskExecutor(ThreadFactory)} */
+    private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+    private static final AtomicBoolean UNSUPPORTED_REPORTED = new AtomicBoolean();
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle builderName = null;
+        MethodHandle builderUnstarted = null;
+        MethodHandle builderFactory = null;
+        MethodHandle newThreadPerTaskExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+            builderName = lookup.findVirtual(builderClass, "name", MethodType.methodType(builderClass, String.class));
+            builderUnstarted = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+            builderFactory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+            newThreadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+            // Java 19 and 20 have the API, however it throws unless --enable-preview is used
+            ofVirtual.invoke();
+        } catch (Throwable e) { // NOSONAR we only need to know whether the API is usable
+            log.debug("Virtual threads are not available in this JVM", e);
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_UNSTARTED = builderUnstarted;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM can create virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create an unstarted thread.
+     * Note: virtual threads are always daemon threads, so the caller must not call
+     * {@link Thread#setDaemon(boolean)} on them.
+     *
+     * @param useVirtualThreads true if a virtual thread should be created when supported
+     * @param task              the task to run
+     * @param name              the thread name
+     * @return unstarted thread
+     */
+    public static Thread newThread(boolean useVirtualThreads, Runnable task, String name) {
+        if (useVirtualThreads && checkSupported()) {
+            try {
+                Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(), name);
+                return (Thread) BUILDER_UNSTARTED.invoke(builder, task);
+            } catch (Throwable e) { // NOSONAR
+                throw new IllegalStateException("Unable to create virtual thread " + name, e);
+            }
+        }
+        return new Thread(task, name);
+    }
+
+    /**
+     * Create an executor that starts a new thread for each task.
+     * With platform threads, the threads are cached as {@link Executors#newCachedThreadPool()} does,
+     * while virtual threads are never pooled.
+     *
+     * @param useVirtualThreads true if virtual threads should be used when supported
+     * @return executor service
+     */
+    public static ExecutorService newExecutor(boolean useVirtualThreads) {
+        if (useVirtualThreads && checkSupported()) {
+            try {
+                ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(OF_VIRTUAL.invoke());
+                return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(factory);
+            } catch (Throwable e) { // NOSONAR
+                throw new IllegalStateException("Unable to create virtual thread executor", e);
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * @param thread the thread to check
+     * @return true if the thread is a virtual thread
+     */
+    public static boolean isVirtual(Thread thread) {
+        // Thread#isVirtual is not available in Java 8 API
+        return isSupported() && thread.getClass().getName().equals("java.lang.VirtualThread");
+    }
+
+    private static boolean checkSupported() {
+        if (isSupported()) {
+            return true;
+        }
+        if (UNSUPPORTED_REPORTED.compareAndSet(false, true)) {
+            log.warn("Virtual threads were requested, however they require Java 21 or later (current: {})."
+                    + " Platform threads will be used", System.getProperty("java.version"));
+        }
+        return false;
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.BooleanProperty;
 import org.apache.jmeter.threads.AbstractThreadGroup;
 import org.apache.jmeter.threads.ThreadGroup;
+import org.apache.jmeter.threads.VirtualThreads;
 import org.apache.jmeter.util.JMeterUtils;
 
 import net.miginfocom.swing.MigLayout;
@@ -69,6 +70,9 @@ public class ThreadGroupGui extends AbstractThreadGroupGui implements ItemListen
     private final JCheckBox sameUserBox =
             new JCheckBox(JMeterUtils.getResString("threadgroup_same_user"));
 
+    private final JCheckBox virtualThreadsBox =
+            new JCheckBox(JMeterUtils.getResString("threadgroup_virtual_threads"));
+
     public ThreadGroupGui() {
         this(true);
     }
@@ -108,6 +112,7 @@ public class ThreadGroupGui extends AbstractThreadGroupGui implements ItemListen
         tg.setProperty(ThreadGroup.DURATION, duration.getText());
         tg.setProperty(ThreadGroup.DELAY, delay.getText());
         tg.setProperty(AbstractThreadGroup.IS_SAME_USER_ON_NEXT_ITERATION,sameUserBox.isSelected());
+        tg.setProperty(AbstractThreadGroup.VIRTUAL_THREADS, virtualThreadsBox.isSelected());
     }
 
     @Override
@@ -127,6 +132,8 @@ public class ThreadGroupGui extends AbstractThreadGroupGui implements ItemListen
         delay.setText(tg.getPropertyAsString(ThreadGroup.DELAY));
         final boolean isSameUser = tg.getPropertyAsBoolean(AbstractThreadGroup.IS_SAME_USER_ON_NEXT_ITERATION, true);
         sameUserBox.setSelected(isSameUser);
+        virtualThreadsBox.setSelected(
+                tg.getPropertyAsBoolean(AbstractThreadGroup.VIRTUAL_THREADS, VirtualThreads.DEFAULT_ENABLED));
     }
 
     @Override
@@ -178,6 +185,7 @@ public class ThreadGroupGui extends AbstractThreadGroupGui implements ItemListen
         delay.setText(""); // $NON-NLS-1$
         duration.setText(""); // $NON-NLS-1$
         sameUserBox.setSelected(true);
+        virtualThreadsBox.setSelected(VirtualThreads.DEFAULT_ENABLED);
     }
 
     private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
@@ -202,6 +210,7 @@ public class ThreadGroupGui extends AbstractThreadGroupGui implements ItemListen
         threadPropsPanel.add(loopController.getInfinite(), "gapleft push");
         threadPropsPanel.add(loopController.getLoops());
         threadPropsPanel.add(sameUserBox, "span 2");
+        threadPropsPanel.add(virtualThreadsBox, "span 2");
         if (showDelayedStart) {
             delayedStart = new JCheckBox(JMeterUtils.getResString("delayed_start")); // $NON-NLS-1$
             threadPropsPanel.add(delayedStart, "span 2");
@@ -20,6 +20,7 @@ package org.apache.jmeter.visualizers;
 import java.util.Map;
 
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jorphan.math.StatCalculatorLong;
 
 /**
@@ -28,7 +29,11 @@ import org.apache.jorphan.math.StatCalculatorLong;
  * the stats out with whatever methods you prefer.
  */
 public class SamplingStatCalculator {
-    private final StatCalculatorLong calculator = new StatCalculatorLong();
+    /** Whether elapsed times are counted in a histogram rather than kept for each distinct value */
+    private static final boolean USE_HISTOGRAM =
+            JMeterUtils.getPropDefault("aggregate_rpt_histogram", false); // $NON-NLS-1$
+
+    private final StatCalculatorLong calculator = new StatCalculatorLong(USE_HISTOGRAM);
 
     private double maxThroughput;
 
@@ -21,11 +21,13 @@ import org.apache.jmeter.control.Controller
 import org.apache.jmeter.engine.StandardJMeterEngine
 import org.apache.jmeter.gui.GUIMenuSortOrder
 import org.apache.jmeter.threads.AbstractThreadGroup
+import org.apache.jmeter.threads.CompiledTestTree
 import org.apache.jmeter.threads.JMeterContextService
 import org.apache.jmeter.threads.JMeterThread
 import org.apache.jmeter.threads.JMeterThreadMonitor
 import org.apache.jmeter.threads.ListenerNotifier
 import org.apache.jmeter.threads.TestCompilerHelper
+import org.apache.jmeter.threads.VirtualThreads
 import org.apache.jorphan.collections.ListedHashTree
 import org.apiguardian.api.API
 import org.slf4j.LoggerFactory
@@ -68,6 +70,12 @@ public class OpenModelThreadGroup :
          */
         private val houseKeepingThreadPool = Executors.newCachedThreadPool()
 
+        /**
+         * A thread pool for "thread starter thread" when the thread group runs on virtual threads.
+         * It is created on demand and it is not re-created across JMeter test restart
+         */
+        private val virtualHouseKeepingThreadPool by lazy { VirtualThreads.newExecutor(true) }
+
         private const val serialVersionUID: Long = 1L
     }
 
@@ -181,14 +189,22 @@ public class OpenModelThreadGroup :
             val rnd = if (seed == 0L) Random() else Random(seed)
             val gen = ThreadScheduleProcessGenerator(rnd, parsedSchedule)
             val testStartTime = JMeterContextService.getTestStartTime()
-            val executorService = Executors.newCachedThreadPool()
+            val useVirtualThreads = isVirtualThreads
+            val executorService = VirtualThreads.newExecutor(useVirtualThreads)
             this.executorService = executorService
+            val compiledTree = if (CompiledTestTree.COMPILE_ONCE_PACKAGE_ANALYSIS) CompiledTestTree.compile(threadGroupTree) else null
             val starter = ThreadsStarter(testStartTime, executorService, activeThreads, gen) { threadNumber ->
-                val clonedTree = cloneTree(threadGroupTree)
-                makeThread(engine, this, notifier, threadGroupIndex, threadNumber, clonedTree, variables)
+                if (compiledTree != null) {
+                    makeThread(engine, this, notifier, threadGroupIndex, threadNumber, compiledTree, variables)
+                } else {
+                    val clonedTree = cloneTree(threadGroupTree)
+                    makeThread(engine, this, notifier, threadGroupIndex, threadNumber, clonedTree, variables)
+                }
             }
+            val starterPool =
+                if (useVirtualThreads && VirtualThreads.isSupported()) virtualHouseKeepingThreadPool else houseKeepingThreadPool
             threadStarterFuture.set(
-                houseKeepingThreadPool.submit {
+                starterPool.submit {
                     Thread.currentThread().name = "open-model-thread-starter-$name-$threadGroupIndex"
                     starter.run()
                 }
@@ -23,6 +23,7 @@ import org.apache.jmeter.gui.TestElementMetadata
 import org.apache.jmeter.testelement.TestElement
 import org.apache.jmeter.testelement.property.TestElementProperty
 import org.apache.jmeter.threads.AbstractThreadGroup
+import org.apache.jmeter.threads.VirtualThreads
 import org.apache.jmeter.threads.gui.AbstractThreadGroupGui
 import org.apache.jmeter.threads.openmodel.DefaultThreadSchedule
 import org.apache.jmeter.threads.openmodel.OpenModelThreadGroup
@@ -38,6 +39,7 @@ import org.apiguardian.api.API
 import java.text.MessageFormat
 import java.time.Duration
 import javax.swing.JButton
+import javax.swing.JCheckBox
 import javax.swing.JLabel
 import javax.swing.JPanel
 import javax.swing.JTextArea
@@ -53,6 +55,7 @@ public class OpenModelThreadGroupGui : AbstractThreadGroupGui() {
 
     private val randomSeedEditor = JTextField()
     private val scheduleStringEditor = JFactory.tabMovesFocus(JTextArea())
+    private val virtualThreadsBox = JCheckBox(JMeterUtils.getResString("threadgroup_virtual_threads"))
     private val explanation = JLabel()
     private val targetRateChart = TargetRateChart()
     private val scheduleSummaryFormat = MessageFormat(JMeterUtils.getResString("openmodelthreadgroup_schedule_summary"))
@@ -88,6 +91,8 @@ public class OpenModelThreadGroupGui : AbstractThreadGroupGui() {
             add(randomSeedEditor, "width 100pt, grow 0")
             add(JPanel())
 
+            add(virtualThreadsBox)
+
             add(explanation)
             add(targetRateChart, "height 200")
         }
@@ -145,6 +150,7 @@ public class OpenModelThreadGroupGui : AbstractThreadGroupGui() {
         tg as OpenModelThreadGroup
         tg.scheduleString = scheduleStringEditor.text
         tg.randomSeedString = randomSeedEditor.text
+        tg.setProperty(AbstractThreadGroup.VIRTUAL_THREADS, virtualThreadsBox.isSelected)
     }
 
     override fun configure(tg: TestElement) {
@@ -152,12 +158,15 @@ public class OpenModelThreadGroupGui : AbstractThreadGroupGui() {
         tg as OpenModelThreadGroup
         scheduleStringEditor.text = tg.scheduleString
         randomSeedEditor.text = tg.randomSeedString
+        virtualThreadsBox.isSelected =
+            tg.getPropertyAsBoolean(AbstractThreadGroup.VIRTUAL_THREADS, VirtualThreads.DEFAULT_ENABLED)
     }
 
     override fun clearGui() {
         super.clearGui()
         scheduleStringEditor.text = ""
         randomSeedEditor.text = ""
+        virtualThreadsBox.isSelected = VirtualThreads.DEFAULT_ENABLED
         targetRateChart.updateSchedule(
             DefaultThreadSchedule(
                 listOf(
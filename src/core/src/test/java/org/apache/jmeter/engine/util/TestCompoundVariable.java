@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.engine.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestCompoundVariable extends JMeterTestCase {
+    private JMeterVariables vars;
+
+    @BeforeEach
+    public void setUp() {
+        vars = new JMeterVariables();
+        JMeterContextService.getContext().setVariables(vars);
+    }
+
+    @Test
+    public void testConstant() {
+        CompoundVariable cv = new CompoundVariable("plain text");
+        assertFalse(cv.hasFunction());
+        assertEquals("plain text", cv.execute());
+    }
+
+    @Test
+    public void testEscapes() {
+        assertEquals("a,b$c\\d\\e", new CompoundVariable("a\\,b\\$c\\\\d\\e").execute());
+    }
+
+    @Test
+    public void testSharedTemplateUsesVariablesOfEachExecution() {
+        String template = "http://${shared.host}/path?id=${shared.id}";
+        CompoundVariable first = new CompoundVariable(template);
+        CompoundVariable second = new CompoundVariable(template);
+        assertTrue(first.hasFunction());
+
+        vars.put("shared.host", "example.com");
+        vars.put("shared.id", "1");
+        assertEquals("http://example.com/path?id=1", first.execute());
+
+        JMeterVariables otherVars = new JMeterVariables();
+        otherVars.put("shared.host", "example.org");
+        otherVars.put("shared.id", "2");
+        JMeterContextService.getContext().setVariables(otherVars);
+        assertEquals("http://example.org/path?id=2", second.execute());
+        assertEquals("http://example.org/path?id=2", first.getFunction().execute());
+    }
+
+    @Test
+    public void testSingleVariable() {
+        CompoundVariable cv = new CompoundVariable("${single}");
+        assertEquals("${single}", cv.execute());
+        vars.put("single", "value");
+        assertEquals("value", cv.execute());
+    }
+
+    @Test
+    public void testParseCacheIsBoundedAndCleared() throws Exception {
+        CompoundVariable.clearParseCache();
+        int size = JMeterUtils.getPropDefault("compoundvariable.parse_cache_size", 5000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            String prefix = "t" + t + "-";
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < size; i++) {
+                    new CompoundVariable(prefix + i + "${bounded.var}");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(size, CompoundVariable.getParseCacheSize());
+
+        CompoundVariable cached = new CompoundVariable("t0-0${bounded.var}");
+        CompoundVariable.clearParseCache();
+        assertEquals(0, CompoundVariable.getParseCacheSize());
+        vars.put("bounded.var", "!");
+        assertEquals("t0-0!", cached.execute());
+        assertEquals("t0-1!", new CompoundVariable("t0-1${bounded.var}").execute());
+        assertEquals(1, CompoundVariable.getParseCacheSize());
+    }
+
+    @Test
+    public void testClearDoesNotAffectOtherInstances() {
+        CompoundVariable first = new CompoundVariable("a${clear.var}b");
+        CompoundVariable second = new CompoundVariable("a${clear.var}b");
+        vars.put("clear.var", "-");
+        first.clear();
+        assertEquals("", first.execute());
+        assertEquals("a-b", second.execute());
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestBinarySampleFormat {
+
+    private static final SampleMetadata METADATA = new SampleMetadata(',',
+            "timeStamp", "elapsed", "label", "responseMessage", "success", "\"var\"");
+
+    @TempDir
+    File tempDir;
+
+    private static String[] row(int i) {
+        return new String[] {
+                Long.toString(1_600_000_000_000L + i * 7L),
+                Integer.toString(i % 3 == 0 ? -i : i * 31),
+                "label-" + (i % 5),
+                i % 4 == 0 ? "" : "message \"" + i + "\", \u00e9t\u00e9",
+                i % 7 == 0 ? "false" : "true",
+                i % 11 == 0 ? "007" : Long.toString(Long.MIN_VALUE + i),
+        };
+    }
+
+    private static void write(File file, boolean append, int from, int to) {
+        try (BinarySampleWriter writer = new BinarySampleWriter(file, METADATA, append)) {
+            for (int i = from; i < to; i++) {
+                writer.write(new Sample(i, METADATA, row(i)));
+            }
+        }
+    }
+
+    private static List<String[]> read(File file) {
+        List<String[]> rows = new ArrayList<>();
+        try (BinarySampleReader reader = new BinarySampleReader(file)) {
+            assertEquals(METADATA.toString(), reader.getMetadata().toString());
+            while (reader.hasNext()) {
+                Sample peeked = reader.peek();
+                Sample sample = reader.readSample();
+                assertEquals(peeked, sample);
+                String[] data = new String[METADATA.getColumnCount()];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = sample.getData(i);
+                }
+                rows.add(data);
+            }
+            assertNull(reader.readSample());
+        }
+        return rows;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        File file = new File(tempDir, "results.jtlb");
+        int count = BinarySampleWriter.BLOCK_ROWS * 2 + 123;
+        write(file, false, 0, count);
+        assertTrue(BinarySampleReader.isBinaryFile(file));
+        List<String[]> rows = read(file);
+        assertEquals(count, rows.size());
+        for (int i = 0; i < count; i++) {
+            assertArrayEquals(row(i), rows.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    public void testEmptyFile() {
+        File file = new File(tempDir, "empty.jtlb");
+        write(file, false, 0, 0);
+        assertEquals(0, read(file).size());
+    }
+
+    @Test
+    public void testAppend() {
+        File file = new File(tempDir, "append.jtlb");
+        write(file, true, 0, 10);
+        write(file, true, 10, 15);
+        List<String[]> rows = read(file);
+        assertEquals(15, rows.size());
+        assertArrayEquals(row(14), rows.get(14));
+    }
+
+    @Test
+    public void testAppendWithOtherColumns() {
+        File file = new File(tempDir, "other.jtlb");
+        write(file, false, 0, 10);
+        SampleMetadata other = new SampleMetadata(',', "timeStamp", "elapsed");
+        assertThrows(SampleException.class, () -> new BinarySampleWriter(file, other, true));
+    }
+
+    @Test
+    public void testIncompleteLastBlock() throws Exception {
+        File file = new File(tempDir, "crash.jtlb");
+        write(file, false, 0, BinarySampleWriter.BLOCK_ROWS + 10);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertEquals(BinarySampleWriter.BLOCK_ROWS, read(file).size());
+        // Appending removes the incomplete block
+        write(file, true, 0, 3);
+        assertEquals(BinarySampleWriter.BLOCK_ROWS + 3, read(file).size());
+    }
+
+    @Test
+    public void testIsBinaryFile() throws Exception {
+        File csv = new File(tempDir, "results.csv");
+        Files.write(csv.toPath(), "timeStamp,elapsed\n1,2\n".getBytes(StandardCharsets.UTF_8));
+        assertFalse(BinarySampleReader.isBinaryFile(csv));
+        assertFalse(BinarySampleReader.isBinaryFile(new File(tempDir, "missing.jtlb")));
+    }
+
+    @Test
+    public void testParseCanonicalLong() {
+        long[] into = new long[1];
+        assertTrue(BinarySampleCodec.parseCanonicalLong("0", into, 0));
+        assertEquals(0, into[0]);
+        assertTrue(BinarySampleCodec.parseCanonicalLong("-42", into, 0));
+        assertEquals(-42, into[0]);
+        assertFalse(BinarySampleCodec.parseCanonicalLong("", into, 0));
+        assertFalse(BinarySampleCodec.parseCanonicalLong("-", into, 0));
+        assertFalse(BinarySampleCodec.parseCanonicalLong("-0", into, 0));
+        assertFalse(BinarySampleCodec.parseCanonicalLong("01", into, 0));
+        assertFalse(BinarySampleCodec.parseCanonicalLong("+1", into, 0));
+        assertFalse(BinarySampleCodec.parseCanonicalLong("1.5", into, 0));
+        assertFalse(BinarySampleCodec.parseCanonicalLong("1234567890123456789", into, 0));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestMappedCsvSampleReader extends JMeterTestCase {
+
+    private static final String HEADER = "timeStamp,elapsed,label,success,Latency,bytes,responseMessage";
+
+    @TempDir
+    File tempDir;
+
+    private File write(String content) throws Exception {
+        File file = new File(tempDir, "results.csv");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String row(int i) {
+        String message;
+        switch (i % 4) {
+        case 0:
+            message = "OK";
+            break;
+        case 1:
+            message = "\"quoted, with \"\"quotes\"\"\"";
+            break;
+        case 2:
+            message = "\"multi\r\nline\"";
+            break;
+        default:
+            message = "\u00e9t\u00e9";
+            break;
+        }
+        return (1_600_000_000_000L + i) + "," + (i * 3) + ",label " + (i % 3) + ","
+                + (i % 5 == 0 ? "FALSE" : "true") + "," + (-i) + ", " + (i * 1000) + " ," + message;
+    }
+
+    private static String expectedMessage(int i) {
+        switch (i % 4) {
+        case 0:
+            return "OK";
+        case 1:
+            return "quoted, with \"quotes\"";
+        case 2:
+            return "multi\r\nline";
+        default:
+            return "\u00e9t\u00e9";
+        }
+    }
+
+    private static void checkSamples(MappedCsvSampleReader reader, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(reader.hasNext(), "sample " + i);
+            Sample peeked = reader.peek();
+            Sample sample = reader.readSample();
+            assertEquals(peeked, sample);
+            assertEquals(1_600_000_000_000L + i, sample.getTimestamp());
+            assertEquals(Long.toString(1_600_000_000_000L + i), sample.getData(0));
+            assertEquals(i * 3L, sample.getElapsedTime());
+            assertEquals("label " + (i % 3), sample.getName());
+            assertEquals(i % 5 != 0, sample.getSuccess());
+            assertEquals(-i, sample.getLatency());
+            assertEquals(i * 1000L, sample.getReceivedBytes());
+            assertEquals(" " + (i * 1000) + " ", sample.getData("bytes"));
+            assertEquals(Long.valueOf(i * 1000L), sample.getData(Long.class, "bytes"));
+            assertEquals(0L, sample.getSentBytes());
+            assertEquals(expectedMessage(i), sample.getResponseMessage());
+        }
+        assertFalse(reader.hasNext());
+        assertNull(reader.readSample());
+    }
+
+    @Test
+    public void testReadSamples() throws Exception {
+        StringBuilder content = new StringBuilder(HEADER).append("\r\n");
+        for (int i = 0; i < 100; i++) {
+            content.append(row(i)).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        try (MappedCsvSampleReader reader = new MappedCsvSampleReader(write(content.toString()), ',', false)) {
+            assertEquals(HEADER, reader.getMetadata().toString());
+            checkSamples(reader, 100);
+        }
+    }
+
+    @Test
+    public void testLinesAcrossWindows() throws Exception {
+        StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 100; i++) {
+            content.append(row(i)).append("\r\n");
+        }
+        // Last line without line end
+        content.setLength(content.length() - 2);
+        for (int windowSize = 100; windowSize < 140; windowSize++) {
+            try (MappedCsvSampleReader reader =
+                    new MappedCsvSampleReader(write(content.toString()), ',', false, windowSize)) {
+                checkSamples(reader, 100);
+            }
+        }
+    }
+
+    @Test
+    public void testLineLongerThanWindow() throws Exception {
+        StringBuilder longLine = new StringBuilder("a,b\n1,2\n1,");
+        for (int i = 0; i < 200; i++) {
+            longLine.append('x');
+        }
+        File file = write(longLine.append('\n').toString());
+        assertThrows(SampleException.class, () -> {
+            try (MappedCsvSampleReader reader = new MappedCsvSampleReader(file, ',', false, 64)) {
+                while (reader.readSample() != null) {
+                    // read all
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testEmptyFields() throws Exception {
+        File file = write("a,b,c\n,,\n\"\",x,\n");
+        try (MappedCsvSampleReader reader = new MappedCsvSampleReader(file, ',', false)) {
+            Sample first = reader.readSample();
+            assertEquals("", first.getData(0));
+            assertEquals("", first.getData(2));
+            Sample second = reader.readSample();
+            assertEquals("", second.getData(0));
+            assertEquals("x", second.getData(1));
+            assertEquals("", second.getData(2));
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void testMismatchingColumns() throws Exception {
+        File file = write("a,b\n1,2\n1,2,3\n");
+        assertThrows(SampleException.class, () -> {
+            try (MappedCsvSampleReader reader = new MappedCsvSampleReader(file, ',', false)) {
+                reader.readSample();
+            }
+        });
+    }
+
+    @Test
+    public void testInvalidNumber() throws Exception {
+        File file = write("timeStamp,elapsed\n12a,99999999999999999999\n");
+        try (MappedCsvSampleReader reader = new MappedCsvSampleReader(file, ',', false)) {
+            Sample sample = reader.readSample();
+            assertThrows(SampleException.class, sample::getTimestamp);
+            assertThrows(SampleException.class, sample::getElapsedTime);
+        }
+    }
+}
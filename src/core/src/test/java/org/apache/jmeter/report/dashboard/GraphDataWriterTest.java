@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.dashboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.jmeter.report.processor.ListResultData;
+import org.apache.jmeter.report.processor.MapResultData;
+import org.apache.jmeter.report.processor.ValueResultData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class GraphDataWriterTest {
+
+    private static final String PREFIX = "graphData[\"hitsPerSecond\"] = ";
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testWritesSameResultAsJsonizer() throws Exception {
+        ListResultData data = new ListResultData();
+        ListResultData point = new ListResultData();
+        point.addResult(new ValueResultData(1_600_000_000_000L));
+        point.addResult(new ValueResultData(2.5d));
+        data.addResult(point);
+        MapResultData series = new MapResultData();
+        series.setResult("label", new ValueResultData("a \"quoted\" label"));
+        series.setResult("isController", new ValueResultData(false));
+        series.setResult("data", data);
+        ListResultData allSeries = new ListResultData();
+        allSeries.addResult(series);
+        MapResultData result = new MapResultData();
+        result.setResult("series", allSeries);
+        result.setResult("granularity", new ValueResultData(1000L));
+        result.setResult("title", new ValueResultData(null));
+
+        File file = GraphDataWriter.write(tempDir, "hitsPerSecond", result);
+
+        assertEquals(new File(tempDir, "hitsPerSecond.js"), file);
+        String script = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(script.startsWith(PREFIX), script);
+        assertTrue(script.endsWith(";\n"), script);
+        String json = script.substring(PREFIX.length(), script.length() - 2);
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.readTree(result.accept(new JsonizerVisitor())), mapper.readTree(json));
+    }
+
+    @Test
+    public void testWritesNumbersAsJava() throws Exception {
+        ListResultData data = new ListResultData();
+        data.addResult(new ValueResultData(Double.NaN));
+        data.addResult(new ValueResultData(12L));
+        File file = GraphDataWriter.write(tempDir, "hitsPerSecond", data);
+        String script = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertEquals(PREFIX + "[NaN,12];\n", script);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.dashboard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.jmeter.report.processor.ListResultData;
+import org.apache.jmeter.report.processor.MapResultData;
+import org.apache.jmeter.report.processor.ValueResultData;
+import org.junit.jupiter.api.Test;
+
+public class JsonizerVisitorTest {
+
+    private final JsonizerVisitor jsonizer = new JsonizerVisitor();
+
+    @Test
+    public void testValues() {
+        assertEquals("\"a \\\"quoted\\\" label\"",
+                new ValueResultData("a \"quoted\" label").accept(jsonizer));
+        assertEquals("12", new ValueResultData(12L).accept(jsonizer));
+        assertEquals("NaN", new ValueResultData(Double.NaN).accept(jsonizer));
+        assertEquals("null", new ValueResultData(null).accept(jsonizer));
+        assertEquals("", jsonizer.visitValueResult(null));
+    }
+
+    @Test
+    public void testNestedResults() {
+        ListResultData data = new ListResultData();
+        data.addResult(new ValueResultData(1L));
+        ListResultData empty = new ListResultData();
+        data.addResult(empty);
+        data.addResult(new ValueResultData(true));
+        MapResultData series = new MapResultData();
+        series.setResult("data", data);
+        ListResultData allSeries = new ListResultData();
+        allSeries.addResult(series);
+        allSeries.addResult(new MapResultData());
+
+        assertEquals("[{\"data\": [1, [], true]}, {}]", allSeries.accept(jsonizer));
+        assertEquals("", jsonizer.visitListResult(null));
+        assertEquals("", jsonizer.visitMapResult(null));
+    }
+}
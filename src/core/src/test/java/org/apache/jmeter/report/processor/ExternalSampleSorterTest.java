@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class ExternalSampleSorterTest {
+
+    private static final SampleMetadata METADATA = new SampleMetadata(',', "timeStamp", "label");
+
+    @TempDir
+    File workingDirectory;
+
+    /**
+     * Records the samples it consumes.
+     */
+    private static class RecordingConsumer extends AbstractSampleConsumer {
+        private final List<Sample> samples = new ArrayList<>();
+
+        @Override
+        public void startConsuming() {
+            // nothing to do
+        }
+
+        @Override
+        public void consume(Sample sample, int channel) {
+            samples.add(sample);
+        }
+
+        @Override
+        public void stopConsuming() {
+            // nothing to do
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "120000, false, false",
+            "120000, true, false",
+            "120000, true, true",
+            "1000, true, false",
+    })
+    public void testSamplesAreSortedInOrder(int count, boolean parallelize, boolean reverted) {
+        ExternalSampleSorter sorter = new ExternalSampleSorter(new FieldSampleComparator("timeStamp"));
+        sorter.setName("sorter");
+        sorter.setChunkSize(50000);
+        sorter.setParallelize(parallelize);
+        sorter.setRevertedSort(reverted);
+        RecordingConsumer consumer = new RecordingConsumer();
+        sorter.addSampleConsumer(consumer);
+        SampleContext context = new SampleContext();
+        context.setWorkingDirectory(workingDirectory);
+        sorter.setSampleContext(context);
+        sorter.setConsumedMetadata(METADATA, 0);
+
+        Random random = new Random(42);
+        sorter.startConsuming();
+        for (int row = 0; row < count; row++) {
+            // Few distinct time stamps, so that the stability of the sort is checked
+            long timeStamp = random.nextInt(count / 10);
+            sorter.consume(new Sample(row, METADATA, Long.toString(timeStamp), row % 7 == 0 ? "\u00e9" : "label"), 0);
+        }
+        sorter.stopConsuming();
+
+        List<Sample> sorted = consumer.samples;
+        assertEquals(count, sorted.size());
+        for (int i = 1; i < sorted.size(); i++) {
+            Sample previous = sorted.get(i - 1);
+            Sample current = sorted.get(i);
+            long order = Long.compare(
+                    Long.parseLong(previous.getData(0)), Long.parseLong(current.getData(0)));
+            if (reverted) {
+                order = -order;
+            }
+            assertTrue(order <= 0, "sample " + i + " is not sorted");
+            if (order == 0) {
+                assertTrue(previous.getSampleRow() < current.getSampleRow(), "sort of sample " + i + " is not stable");
+            }
+            assertEquals(current.getSampleRow() % 7 == 0 ? "\u00e9" : "label", current.getData(1));
+        }
+        assertEquals(0, workingDirectory.listFiles().length);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "1000000000, 1, 17, 434027",
+            "10000000000, 9, 17, 482253",
+            "1000000000, 9, 17, 50000",
+    })
+    public void testChunkSizeFollowsFreeMemory(long freeMemory, int chunksInMemory, int columnCount, long chunkSize) {
+        assertEquals(chunkSize, ExternalSampleSorter.computeChunkSize(freeMemory, chunksInMemory, columnCount));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.report.core.SampleException;
+import org.apache.jmeter.report.core.SampleMetadata;
+import org.junit.jupiter.api.Test;
+
+public class ParallelSampleConsumerTest {
+
+    private static final SampleMetadata METADATA = new SampleMetadata(',', "label");
+
+    /**
+     * Records the samples it consumes and the threads that call it.
+     */
+    private static class RecordingConsumer extends AbstractSampleConsumer {
+        private final List<Long> rows = new ArrayList<>();
+        private final Set<Thread> consumingThreads = new HashSet<>();
+        private Thread startingThread;
+
+        @Override
+        public void startConsuming() {
+            startingThread = Thread.currentThread();
+        }
+
+        @Override
+        public void consume(Sample sample, int channel) {
+            consumingThreads.add(Thread.currentThread());
+            rows.add(sample.getSampleRow());
+        }
+
+        @Override
+        public void stopConsuming() {
+            setDataToContext(getName(), rows.size());
+        }
+
+        @Override
+        public void storeIntermediateResults() {
+            setDataToContext(getName(), rows.size());
+        }
+    }
+
+    private static ParallelSampleConsumer createParallelConsumer(int threads, List<? extends SampleConsumer> consumers) {
+        ParallelSampleConsumer parallel = new ParallelSampleConsumer(threads);
+        parallel.setName("parallel");
+        for (SampleConsumer consumer : consumers) {
+            parallel.addSampleConsumer(consumer);
+        }
+        SampleContext context = new SampleContext();
+        parallel.setSampleContext(context);
+        parallel.setConsumedMetadata(METADATA, 0);
+        return parallel;
+    }
+
+    @Test
+    public void testConsumersReceiveAllSamplesInOrder() {
+        List<RecordingConsumer> consumers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            RecordingConsumer consumer = new RecordingConsumer();
+            consumer.setName("consumer" + i);
+            consumers.add(consumer);
+        }
+        ParallelSampleConsumer parallel = createParallelConsumer(3, consumers);
+        int samples = 10_000;
+
+        parallel.startConsuming();
+        for (int row = 0; row < samples; row++) {
+            parallel.consume(new Sample(row, METADATA, "label" + row), 0);
+        }
+        parallel.stopConsuming();
+
+        Set<Thread> workers = new HashSet<>();
+        for (RecordingConsumer consumer : consumers) {
+            assertSame(Thread.currentThread(), consumer.startingThread);
+            assertEquals(1, consumer.consumingThreads.size(), "a consumer should be fed by one thread");
+            workers.addAll(consumer.consumingThreads);
+            assertEquals(samples, consumer.rows.size());
+            for (int row = 0; row < samples; row++) {
+                assertEquals(row, consumer.rows.get(row).longValue());
+            }
+            assertEquals(samples, consumer.getSampleContext().getData().get(consumer.getName()));
+        }
+        assertEquals(3, workers.size());
+    }
+
+    @Test
+    public void testIntermediateResultsCoverConsumedSamples() {
+        List<RecordingConsumer> consumers = Arrays.asList(new RecordingConsumer(), new RecordingConsumer());
+        consumers.get(0).setName("first");
+        consumers.get(1).setName("second");
+        ParallelSampleConsumer parallel = createParallelConsumer(2, consumers);
+
+        parallel.startConsuming();
+        for (int row = 0; row < 1500; row++) {
+            parallel.consume(new Sample(row, METADATA, "label" + row), 0);
+        }
+        parallel.storeIntermediateResults();
+        for (RecordingConsumer consumer : consumers) {
+            assertEquals(1500, consumer.getSampleContext().getData().get(consumer.getName()));
+        }
+
+        parallel.consume(new Sample(1500, METADATA, "label"), 0);
+        parallel.stopConsuming();
+        for (RecordingConsumer consumer : consumers) {
+            assertEquals(1501, consumer.getSampleContext().getData().get(consumer.getName()));
+        }
+    }
+
+    @Test
+    public void testConsumerFailureIsReported() {
+        RecordingConsumer failing = new RecordingConsumer() {
+            @Override
+            public void consume(Sample sample, int channel) {
+                throw new IllegalStateException("broken consumer");
+            }
+        };
+        ParallelSampleConsumer parallel = createParallelConsumer(2, Arrays.asList(failing, new RecordingConsumer()));
+
+        parallel.startConsuming();
+        parallel.consume(new Sample(0, METADATA, "label"), 0);
+        SampleException e = assertThrows(SampleException.class, parallel::stopConsuming);
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PercentileAggregatorTest {
+
+    @Test
+    public void testHistogramCoversAllValues() {
+        PercentileAggregator aggregator = new PercentileAggregator(90, true);
+        assertTrue(Double.isNaN(aggregator.getResult()));
+        for (int i = 1; i <= 100_000; i++) {
+            aggregator.addValue(i);
+        }
+        assertEquals(100_000, aggregator.getCount());
+        assertEquals(90_000, aggregator.getResult(), 90_000 * 0.004);
+
+        aggregator.reset();
+        assertEquals(0, aggregator.getCount());
+        aggregator.addValue(12.4);
+        assertEquals(12, aggregator.getResult(), 0);
+    }
+
+    @Test
+    public void testMergeHistograms() {
+        PercentileAggregator first = new PercentileAggregator(50, true);
+        PercentileAggregator second = new PercentileAggregator(first);
+        for (int i = 1; i <= 100; i++) {
+            first.addValue(i);
+            second.addValue(i + 100);
+        }
+        first.merge(second);
+        assertEquals(200, first.getCount());
+        assertEquals(100, first.getResult(), 0);
+    }
+
+    @Test
+    public void testMergeWindowIntoHistogram() {
+        PercentileAggregator histogram = new PercentileAggregator(100, true);
+        PercentileAggregator window = new PercentileAggregator(100, false);
+        window.addValue(42);
+        histogram.merge(window);
+        assertEquals(1, histogram.getCount());
+        assertEquals(42, histogram.getResult(), 0);
+        assertThrows(IllegalArgumentException.class, () -> window.merge(histogram));
+    }
+}
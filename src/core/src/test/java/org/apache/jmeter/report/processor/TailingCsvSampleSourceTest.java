@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.report.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.report.core.Sample;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TailingCsvSampleSourceTest extends JMeterTestCase {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,success\n";
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * Counts the samples it consumes.
+     */
+    private static class CountingConsumer extends AbstractSampleConsumer {
+        private long count;
+
+        @Override
+        public void startConsuming() {
+            count = 0;
+        }
+
+        @Override
+        public void consume(Sample sample, int channel) {
+            count++;
+        }
+
+        @Override
+        public void stopConsuming() {
+            setDataToContext(getName(), count);
+        }
+
+        @Override
+        public void storeIntermediateResults() {
+            setDataToContext(getName(), count);
+        }
+    }
+
+    private static void append(File file, String lines) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(lines);
+        }
+    }
+
+    private static String lines(int first, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            builder.append(1_600_000_000_000L + i).append(',').append(i).append(",label,200,true\n");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testReadsFileWhileWritten() throws Exception {
+        File file = new File(tempDir, "results.csv");
+        SampleContext context = new SampleContext();
+        context.setWorkingDirectory(tempDir);
+        BlockingQueue<Object> intermediateCounts = new LinkedBlockingQueue<>();
+        TailingCsvSampleSource source = new TailingCsvSampleSource(file, ',', 0,
+                () -> intermediateCounts.add(context.getData().get("counter")));
+        source.setSampleContext(context);
+        CountingConsumer consumer = new CountingConsumer();
+        consumer.setName("counter");
+        source.addSampleConsumer(consumer);
+
+        Thread thread = new Thread(source);
+        thread.start();
+        try {
+            // The source waits for the file to be created
+            append(file, HEADER + lines(0, 3));
+
+            // The reader reads one sample ahead, so the last written one is not produced yet
+            Object count;
+            do {
+                count = intermediateCounts.poll(10, TimeUnit.SECONDS);
+                assertNotNull(count, "intermediate results should be stored while waiting for lines");
+            } while ((Long) count < 2);
+            assertEquals(2L, count);
+            assertTrue(source.hasStarted());
+
+            append(file, lines(3, 2));
+        } finally {
+            source.stop();
+            thread.join(10_000);
+        }
+        assertFalse(thread.isAlive());
+        assertEquals(5L, context.getData().get("counter"));
+    }
+
+    @Test
+    public void testStopsWhenFileIsNotCreated() throws Exception {
+        TailingCsvSampleSource source = new TailingCsvSampleSource(new File(tempDir, "missing.csv"), ',', 0,
+                () -> {
+                });
+        source.setSampleContext(new SampleContext());
+        source.stop();
+        source.run();
+        assertFalse(source.hasStarted());
+    }
+}
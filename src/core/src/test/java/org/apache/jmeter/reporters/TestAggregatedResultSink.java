@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.reporters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.report.core.AggregatedSampleReader;
+import org.apache.jmeter.report.core.Sample;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestAggregatedResultSink extends JMeterTestCase {
+
+    private static final long BUCKET_START = 1_600_000_000_000L;
+
+    @TempDir
+    File tempDir;
+
+    private static SampleResult createResult(long start, long elapsed, boolean success, String code) {
+        SampleResult result = new SampleResult();
+        result.setSampleLabel("login");
+        result.setThreadName("Users 1-" + elapsed);
+        result.setSuccessful(success);
+        result.setResponseCode(code);
+        result.setResponseMessage(success ? "OK" : "Internal error " + elapsed);
+        result.setStampAndTime(start, elapsed);
+        result.setLatency(elapsed / 2);
+        result.setBytes(100L);
+        result.setSentBytes(10);
+        return result;
+    }
+
+    @Test
+    public void testAggregatesAreExpandedToSamples() throws Exception {
+        File file = new File(tempDir, "results" + AggregatedSampleReader.FILE_EXTENSION);
+        AggregatedResultSink sink = new AggregatedResultSink(file, 1000);
+        for (int elapsed = 20; elapsed > 10; elapsed--) {
+            sink.add(createResult(BUCKET_START + 100, elapsed, true, "200"));
+        }
+        sink.add(createResult(BUCKET_START + 100, 5, false, "500"));
+        sink.add(createResult(BUCKET_START + 1100, 7, true, "200"));
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(AggregatedSampleReader.HEADER, lines.get(0));
+        assertEquals(4, lines.size(), "one line per bucket and key: " + lines);
+        assertTrue(AggregatedSampleReader.isAggregatedFile(file));
+
+        List<Sample> samples = new ArrayList<>();
+        try (AggregatedSampleReader reader = new AggregatedSampleReader(file)) {
+            while (reader.hasNext()) {
+                samples.add(reader.readSample());
+            }
+        }
+        assertEquals(12, samples.size());
+        long elapsedSum = 0;
+        long bytes = 0;
+        for (Sample sample : samples) {
+            assertEquals("login", sample.getName());
+            assertEquals("Users *", sample.getThreadName());
+            elapsedSum += sample.getElapsedTime();
+            bytes += sample.getReceivedBytes();
+            if (sample.getSuccess()) {
+                assertEquals("200", sample.getResponseCode());
+                assertEquals(sample.getElapsedTime() / 2, sample.getLatency());
+            } else {
+                assertEquals("500", sample.getResponseCode());
+                assertEquals("Internal error 5", sample.getResponseMessage());
+                assertEquals(BUCKET_START, sample.getTimestamp());
+            }
+        }
+        assertEquals(155 + 5 + 7, elapsedSum);
+        assertEquals(1200, bytes);
+        assertEquals(BUCKET_START + 1000, samples.get(samples.size() - 1).getTimestamp());
+    }
+
+    @Test
+    public void testFailureMessagesDoNotSplitAggregates() throws Exception {
+        File file = new File(tempDir, "results" + AggregatedSampleReader.FILE_EXTENSION);
+        AggregatedResultSink sink = new AggregatedResultSink(file, 1000);
+        // Each failure has its own response message
+        for (int elapsed = 1; elapsed <= 50; elapsed++) {
+            sink.add(createResult(BUCKET_START, elapsed, false, "500"));
+        }
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size(), "one line for the failures of the bucket: " + lines);
+        try (AggregatedSampleReader reader = new AggregatedSampleReader(file)) {
+            int count = 0;
+            while (reader.hasNext()) {
+                assertEquals("Internal error 1", reader.readSample().getResponseMessage());
+                count++;
+            }
+            assertEquals(50, count);
+        }
+    }
+
+    private static SampleResult createFailedAssertion(long elapsed, String assertionName) {
+        SampleResult result = createResult(BUCKET_START, elapsed, false, "200");
+        AssertionResult assertion = new AssertionResult(assertionName);
+        assertion.setFailure(true);
+        // Messages that embed response content
+        assertion.setFailureMessage("Expected order id but got " + elapsed);
+        result.addAssertionResult(assertion);
+        return result;
+    }
+
+    @Test
+    public void testAssertionMessagesDoNotSplitAggregates() throws Exception {
+        File file = new File(tempDir, "results" + AggregatedSampleReader.FILE_EXTENSION);
+        AggregatedResultSink sink = new AggregatedResultSink(file, 1000);
+        for (int elapsed = 1; elapsed <= 50; elapsed++) {
+            sink.add(createFailedAssertion(elapsed, "Order id"));
+        }
+        sink.add(createFailedAssertion(60, "Duration"));
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size(), "one line per failed assertion: " + lines);
+        int orderIds = 0;
+        try (AggregatedSampleReader reader = new AggregatedSampleReader(file)) {
+            while (reader.hasNext()) {
+                String message = reader.readSample().getFailureMessage();
+                if ("Expected order id but got 1".equals(message)) {
+                    orderIds++;
+                } else {
+                    assertEquals("Expected order id but got 60", message);
+                }
+            }
+        }
+        assertEquals(50, orderIds);
+    }
+
+    @Test
+    public void testAppendsToExistingFile() throws Exception {
+        File file = new File(tempDir, "results" + AggregatedSampleReader.FILE_EXTENSION);
+        for (int run = 0; run < 2; run++) {
+            AggregatedResultSink sink = new AggregatedResultSink(file, 1000);
+            sink.add(createResult(BUCKET_START, 3, true, "200"));
+            sink.flush();
+            // Written again in another line of the same bucket
+            sink.add(createResult(BUCKET_START, 3, true, "200"));
+            sink.close();
+        }
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size(), "header and one line per flush: " + lines);
+        assertFalse(lines.subList(1, lines.size()).contains(AggregatedSampleReader.HEADER));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.reporters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class TestBufferedResultSink {
+
+    private static final int THREADS = 8;
+    private static final int RECORDS = 2000;
+
+    @Test
+    public void testAllRecordsWrittenOnClose() throws Exception {
+        StringWriter file = new StringWriter();
+        BufferedResultSink sink = new BufferedResultSink(new PrintWriter(file), "test.jtl", 1024, 60000);
+        writeRecords(sink, null);
+        sink.close();
+        assertRecordsInOrder(file.toString());
+    }
+
+    @Test
+    public void testConcurrentFlushKeepsThreadOrder() throws Exception {
+        StringWriter file = new StringWriter();
+        BufferedResultSink sink = new BufferedResultSink(new PrintWriter(file), "flushes.jtl", 1024, 60000);
+        writeRecords(sink, sink::flush);
+        sink.close();
+        assertRecordsInOrder(file.toString());
+    }
+
+    @Test
+    public void testPeriodicFlushesKeepThreadOrder() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            StringWriter file = new StringWriter();
+            // Shortest flush interval, so the writer thread takes the buffers while threads hand off full ones
+            BufferedResultSink sink = new BufferedResultSink(new PrintWriter(file), "periodic.jtl", 1024, 10);
+            writeRecords(sink, sink::flush);
+            sink.close();
+            assertRecordsInOrder(file.toString());
+        }
+    }
+
+    /**
+     * Appends records from several threads, while another thread runs {@code whileWriting} in a loop.
+     */
+    private static void writeRecords(BufferedResultSink sink, Runnable whileWriting) throws InterruptedException {
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < RECORDS; i++) {
+                    int record = i;
+                    try {
+                        sink.append(w -> {
+                            w.print("thread" + thread);
+                            w.print(',');
+                            w.print(record);
+                            w.print('\n');
+                        });
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread other = new Thread(() -> {
+            while (whileWriting != null && writing.get()) {
+                whileWriting.run();
+            }
+        });
+        other.start();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        other.join();
+    }
+
+    private static void assertRecordsInOrder(String content) {
+        List<String> lines = Arrays.asList(content.split("\n"));
+        assertEquals(THREADS * RECORDS, lines.size());
+        assertEquals(THREADS * RECORDS, new HashSet<>(lines).size());
+        // Records of a thread keep their order
+        int[] last = new int[THREADS];
+        Arrays.fill(last, -1);
+        for (String line : lines) {
+            String[] parts = line.split(",");
+            int thread = Integer.parseInt(parts[0].substring("thread".length()));
+            int record = Integer.parseInt(parts[1]);
+            assertEquals(last[thread] + 1, record, line);
+            last[thread] = record;
+        }
+    }
+
+    @Test
+    public void testFlushIntervalWritesPartialBuffers() throws Exception {
+        StringWriter file = new StringWriter();
+        BufferedResultSink sink = new BufferedResultSink(new PrintWriter(file), "interval.jtl", 1 << 20, 20);
+        sink.append(w -> w.print("first\n"));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (file.toString().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("first\n", file.toString(), "record should be written after the flush interval");
+        sink.close();
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        StringWriter file = new StringWriter();
+        BufferedResultSink sink = new BufferedResultSink(new PrintWriter(file), "flush.jtl", 1 << 20, 60000);
+        sink.append(w -> w.print("a\n"));
+        sink.append(w -> w.print("b\n"));
+        sink.flush();
+        assertEquals("a\nb\n", file.toString());
+        sink.close();
+        assertEquals("a\nb\n", file.toString());
+        // Records appended after close are written directly
+        sink.append(w -> w.print("c\n"));
+        sink.flush();
+        assertTrue(file.toString().endsWith("c\n"));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.reporters;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
+import org.junit.jupiter.api.Test;
+
+public class TestSummariser extends JMeterTestCase {
+
+    private static final String NAME = "striped";
+    private static final int THREADS = 8;
+    private static final int SAMPLES_PER_THREAD = 5000;
+    /** Time in seconds before the first reporting boundary, so samples are only accumulated */
+    private static final long QUIET_TIME = 1;
+
+    private static SampleResult createResult(int thread, int index) {
+        SampleResult result = SampleResult.createTestSample((thread * 31L + index * 7L) % 2000);
+        result.setSuccessful(index % 17 != 0);
+        result.setErrorCount(result.isSuccessful() ? 0 : 1);
+        return result;
+    }
+
+    /**
+     * Adds the samples from several threads to the summariser, and sequentially to the reference
+     */
+    private static void feed(Summariser summariser, SummariserRunningSample reference, int round)
+            throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t + round * THREADS;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < SAMPLES_PER_THREAD; i++) {
+                    summariser.sampleOccurred(new SampleEvent(createResult(thread, i), "tg"), QUIET_TIME);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < SAMPLES_PER_THREAD; i++) {
+                reference.addSample(createResult(t + round * THREADS, i));
+            }
+        }
+    }
+
+    /**
+     * Removes the elapsed time and the rate, that depend on the clock
+     */
+    private static String withoutTimes(String line) {
+        return line.replaceAll(" in \\S+ = +\\S+/s", "");
+    }
+
+    @Test
+    public void testStripedLinesMatchSequentialAccumulator() throws Exception {
+        long interval = JMeterUtils.getPropDefault("summariser.interval", 30);
+        // Within the window that follows a reporting boundary
+        long reportTime = interval * 1000;
+        PrintStream out = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        List<String> expected = new ArrayList<>();
+        try {
+            System.setOut(new PrintStream(captured, true, StandardCharsets.UTF_8.name()));
+            Summariser summariser = new Summariser(NAME);
+            summariser.testStarted();
+
+            SummariserRunningSample delta = new SummariserRunningSample("DELTA");
+            SummariserRunningSample total = new SummariserRunningSample("TOTAL");
+            feed(summariser, delta, 0);
+            // This sample reaches the reporting boundary, and prints the "+" line
+            SampleResult last = createResult(0, 1);
+            summariser.sampleOccurred(new SampleEvent(last, "tg"), reportTime);
+            delta.addSample(last);
+            expected.add(Summariser.format(NAME, delta, "+"));
+            total.addSample(delta);
+            delta.clear();
+
+            feed(summariser, delta, 1);
+            summariser.testEnded();
+            expected.add(Summariser.format(NAME, delta, "+"));
+            total.addSample(delta);
+            expected.add(Summariser.format(NAME, total, "="));
+        } finally {
+            System.setOut(out);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (String line : captured.toString(StandardCharsets.UTF_8.name()).split("\\R")) {
+            if (line.startsWith(NAME + " ")) {
+                lines.add(withoutTimes(line));
+            }
+        }
+        List<String> expectedLines = new ArrayList<>();
+        for (String line : expected) {
+            expectedLines.add(withoutTimes(line));
+        }
+        assertEquals(expectedLines, lines);
+    }
+}
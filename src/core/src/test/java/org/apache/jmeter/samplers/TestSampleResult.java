@@ -17,6 +17,13 @@
 
 package org.apache.jmeter.samplers;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.testelement.TestPlan;
 import org.apache.jmeter.util.Calculator;
@@ -381,4 +388,95 @@ class TestSampleResult implements JMeterSerialTest {
         Assertions.assertFalse(secondResult.markFile(null), "Expected false on first call of markFile with null");
         Assertions.assertTrue(secondResult.markFile(null), "Expected true on second call of markFile with null");
     }
+
+    private static ResponseBuffer buffer(String data, List<byte[]> recycled) {
+        ResponseBuffer buffer = new ResponseBuffer(new byte[4], recycled::add);
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+        buffer.write(bytes, 0, bytes.length);
+        return buffer;
+    }
+
+    @Test
+    void testPooledResponseDataIsCopiedOnlyWhenRead() {
+        List<byte[]> recycled = new ArrayList<>();
+        SampleResult result = new SampleResult();
+        result.setResponseData(buffer("pooled data", recycled));
+
+        Assertions.assertEquals("pooled data", result.getResponseDataAsString());
+        Assertions.assertEquals(11, result.getBodySizeAsLong());
+        Assertions.assertEquals(0, recycled.size(), "reading as string should not release the buffer");
+
+        Assertions.assertEquals("pooled data", new String(result.getResponseData(), StandardCharsets.UTF_8));
+        Assertions.assertNull(result.getResponseBuffer());
+        Assertions.assertEquals(1, recycled.size(), "the buffer should be released once copied");
+
+        result.releaseResponseData();
+        Assertions.assertEquals("pooled data", result.getResponseDataAsString(), "copied data is kept");
+    }
+
+    @Test
+    void testReleasedResponseDataIsEmpty() {
+        List<byte[]> recycled = new ArrayList<>();
+        SampleResult result = new SampleResult();
+        result.setResponseData(buffer("parent", recycled));
+        SampleResult subResult = new SampleResult();
+        subResult.setResponseData(buffer("child", recycled));
+        result.addRawSubResult(subResult);
+        SampleResult copy = new SampleResult(result);
+
+        result.releaseResponseData();
+        Assertions.assertEquals(0, result.getResponseData().length);
+        Assertions.assertEquals(0, subResult.getResponseData().length);
+        Assertions.assertEquals(1, recycled.size(), "the copy still references the parent buffer");
+
+        copy.releaseResponseData();
+        Assertions.assertEquals(2, recycled.size());
+
+        ResponseBuffer released = new ResponseBuffer(new byte[0], null);
+        released.release();
+        Assertions.assertThrows(IllegalStateException.class, released::retain);
+        Assertions.assertThrows(IllegalStateException.class, released::release);
+    }
+
+    @Test
+    void testRetainedResponseDataSurvivesRelease() {
+        List<byte[]> recycled = new ArrayList<>();
+        SampleResult result = new SampleResult();
+        result.setResponseData(buffer("kept", recycled));
+        result.retainResponseData();
+        result.releaseResponseData();
+        Assertions.assertEquals("kept", result.getResponseDataAsString());
+
+        result.setResponseData(buffer("replaced", recycled));
+        result.setResponseData("text", null);
+        Assertions.assertEquals(2, recycled.size(), "setting other data should release the buffer");
+    }
+
+    @Test
+    void testResponseDataRetainedWhileReleasedByAnotherThread() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            List<byte[]> recycled = Collections.synchronizedList(new ArrayList<>());
+            SampleResult result = new SampleResult();
+            result.setResponseData(buffer("shared", recycled));
+            CyclicBarrier start = new CyclicBarrier(2);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread releasing = new Thread(() -> {
+                try {
+                    start.await();
+                    result.releaseResponseData();
+                } catch (Throwable e) { // NOSONAR Reported by the test thread
+                    failure.set(e);
+                }
+            });
+            releasing.start();
+            start.await();
+            result.retainResponseData();
+            String data = result.getResponseDataAsString();
+            releasing.join();
+
+            Assertions.assertNull(failure.get(), () -> "release failed: " + failure.get());
+            Assertions.assertTrue(data.equals("shared") || data.isEmpty(), () -> "unexpected data: " + data);
+            Assertions.assertEquals(1, recycled.size(), "the buffer should go back to the pool once");
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.testelement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.testelement.property.StringProperty;
+import org.junit.jupiter.api.Test;
+
+public class TestCopyOnWritePropertyMap {
+
+    private static JMeterProperty prop(String name, String value) {
+        return new StringProperty(name, value);
+    }
+
+    private static List<String> keys(Map<String, JMeterProperty> map) {
+        return new ArrayList<>(map.keySet());
+    }
+
+    @Test
+    public void testPutGetRemoveKeepsInsertionOrder() {
+        CopyOnWritePropertyMap map = new CopyOnWritePropertyMap();
+        for (int i = 0; i < 20; i++) {
+            assertNull(map.put("p" + i, prop("p" + i, "v" + i)));
+        }
+        assertEquals(20, map.size());
+        assertEquals("v7", map.get("p7").getStringValue());
+        assertEquals("v7", map.get(new String("p7")).getStringValue());
+
+        JMeterProperty replaced = map.put("p3", prop("p3", "new"));
+        assertEquals("v3", replaced.getStringValue());
+        assertEquals("new", map.get("p3").getStringValue());
+        assertEquals("p3", keys(map).get(3));
+
+        assertEquals("v0", map.remove("p0").getStringValue());
+        assertNull(map.remove("missing"));
+        assertFalse(map.containsKey("p0"));
+        assertEquals(19, map.size());
+        assertEquals("p1", keys(map).get(0));
+        assertEquals("p19", keys(map).get(18));
+    }
+
+    @Test
+    public void testEqualsLinkedHashMap() {
+        CopyOnWritePropertyMap map = new CopyOnWritePropertyMap();
+        Map<String, JMeterProperty> expected = new LinkedHashMap<>();
+        for (String name : new String[]{"a", "b", "c"}) {
+            JMeterProperty p = prop(name, name);
+            map.put(name, p);
+            expected.put(name, p);
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+    }
+
+    @Test
+    public void testIteratorUsesSnapshot() {
+        CopyOnWritePropertyMap map = new CopyOnWritePropertyMap();
+        map.put("a", prop("a", "1"));
+        map.put("b", prop("b", "2"));
+        Iterator<JMeterProperty> it = map.values().iterator();
+        map.put("c", prop("c", "3"));
+        map.remove("a");
+        assertEquals("1", it.next().getStringValue());
+        assertEquals("2", it.next().getStringValue());
+        assertFalse(it.hasNext());
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testReplaceDoesNotChangeOldSnapshot() {
+        CopyOnWritePropertyMap map = new CopyOnWritePropertyMap();
+        map.put("a", prop("a", "1"));
+        map.put("b", prop("b", "2"));
+        Iterator<JMeterProperty> before = map.values().iterator();
+        map.put("a", prop("a", "new"));
+        assertEquals("1", before.next().getStringValue());
+        assertEquals("2", before.next().getStringValue());
+        assertEquals("new", map.get("a").getStringValue());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        CopyOnWritePropertyMap map = new CopyOnWritePropertyMap();
+        map.put("a", prop("a", "1"));
+        map.put("b", prop("b", "2"));
+        map.put("c", prop("c", "3"));
+        Iterator<Map.Entry<String, JMeterProperty>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            if (!"b".equals(it.next().getKey())) {
+                it.remove();
+            }
+        }
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey("b"));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testAppendAfterRemoveDoesNotChangeOldSnapshot() {
+        CopyOnWritePropertyMap map = new CopyOnWritePropertyMap();
+        JMeterProperty a = prop("a", "1");
+        map.put("a", a);
+        map.put("b", prop("b", "2"));
+        Iterator<JMeterProperty> before = map.values().iterator();
+        map.remove("b");
+        map.put("c", prop("c", "3"));
+        assertSame(a, before.next());
+        assertEquals("2", before.next().getStringValue());
+        assertEquals("3", map.get("c").getStringValue());
+    }
+}
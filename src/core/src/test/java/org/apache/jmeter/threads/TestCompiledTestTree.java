@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.jmeter.assertions.Assertion;
+import org.apache.jmeter.assertions.AssertionResult;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.control.GenericController;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.control.TransactionController;
+import org.apache.jmeter.control.TransactionSampler;
+import org.apache.jmeter.processor.PostProcessor;
+import org.apache.jmeter.processor.PreProcessor;
+import org.apache.jmeter.samplers.AbstractSampler;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.AbstractTestElement;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.timers.Timer;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestCompiledTestTree {
+
+    private ListedHashTree template;
+
+    @BeforeEach
+    public void setUp() {
+        TestCompiler.initialize();
+        template = new ListedHashTree();
+        LoopController loop = new LoopController();
+        loop.setLoops(1);
+        ConfigTestElement topConfig = new ConfigTestElement();
+        topConfig.setProperty("top.property", "top");
+        GenericController inner = new GenericController();
+        ConfigTestElement innerConfig = new ConfigTestElement();
+        innerConfig.setProperty("inner.property", "inner");
+        HashTree loopTree = template.add(loop);
+        loopTree.add(topConfig);
+        HashTree innerTree = loopTree.add(inner);
+        innerTree.add(innerConfig);
+        innerTree.add(new TestSampler("inner sampler"));
+        loopTree.add(new TestSampler("top sampler"));
+    }
+
+    @Test
+    public void testThreadTreeIsACopy() {
+        CompiledTestTree compiled = CompiledTestTree.compile(template);
+        ListedHashTree first = compiled.newThreadTree().getTree();
+        ListedHashTree second = compiled.newThreadTree().getTree();
+        assertEquals(template.size(), first.size());
+        Object originalLoop = template.getArray()[0];
+        Object firstLoop = first.getArray()[0];
+        assertNotSame(originalLoop, firstLoop);
+        assertNotSame(firstLoop, second.getArray()[0]);
+        assertEquals(template.getTree(originalLoop).list().size(), first.getTree(firstLoop).list().size());
+    }
+
+    @Test
+    public void testConfigsAreApplied() {
+        CompiledTestTree.ThreadTree threadTree = CompiledTestTree.compile(template).newThreadTree();
+        ListedHashTree tree = threadTree.getTree();
+        TestCompiler compiler = new TestCompiler(threadTree);
+        compiler.compile();
+
+        Object loop = tree.getArray()[0];
+        Object[] loopChildren = tree.getTree(loop).getArray();
+        GenericController inner = (GenericController) loopChildren[1];
+        TestSampler innerSampler = (TestSampler) tree.getTree(loop).getTree(inner).getArray()[1];
+        TestSampler topSampler = (TestSampler) loopChildren[2];
+
+        SamplePackage innerPack = compiler.configureSampler(innerSampler);
+        assertSame(innerSampler, innerPack.getSampler());
+        assertEquals("inner", innerSampler.getPropertyAsString("inner.property"));
+        assertEquals("top", innerSampler.getPropertyAsString("top.property"));
+        assertEquals(2, innerPack.getConfigs().size());
+
+        SamplePackage topPack = compiler.configureSampler(topSampler);
+        assertEquals("top", topSampler.getPropertyAsString("top.property"));
+        assertEquals("", topSampler.getPropertyAsString("inner.property"));
+        assertEquals(1, topPack.getConfigs().size());
+    }
+
+    @Test
+    public void testSamePackagesAsTraversal() {
+        ListedHashTree full = new ListedHashTree();
+        LoopController loop = named(new LoopController(), "loop");
+        loop.setLoops(1);
+        HashTree loopTree = full.add(loop);
+        loopTree.add(named(new ConfigTestElement(), "top config"));
+        loopTree.add(named(new TestTimer(), "top timer"));
+        loopTree.add(named(new TestPreProcessor(), "top pre"));
+        loopTree.add(named(new TestPostProcessor(), "top post"));
+        loopTree.add(named(new TestAssertion(), "top assertion"));
+        loopTree.add(named(new TestListener(), "top listener"));
+        HashTree transactionTree = loopTree.add(named(new TransactionController(), "transaction"));
+        transactionTree.add(named(new TestAssertion(), "transaction assertion"));
+        transactionTree.add(named(new TestListener(), "transaction listener"));
+        HashTree innerTree = transactionTree.add(named(new GenericController(), "inner"));
+        innerTree.add(named(new TestTimer(), "inner timer"));
+        innerTree.add(named(new TestPostProcessor(), "inner post"));
+        HashTree samplerTree = innerTree.add(new TestSampler("inner sampler"));
+        samplerTree.add(named(new ConfigTestElement(), "sampler config"));
+        samplerTree.add(named(new TestPreProcessor(), "sampler pre"));
+        samplerTree.add(named(new TestPostProcessor(), "sampler post"));
+        samplerTree.add(named(new TestAssertion(), "sampler assertion"));
+        samplerTree.add(named(new TestTimer(), "sampler timer"));
+        innerTree.add(named(new TestPreProcessor(), "inner pre"));
+        innerTree.add(named(new TestAssertion(), "inner assertion"));
+        innerTree.add(new TestSampler("second inner sampler"));
+        loopTree.add(new TestSampler("top sampler"));
+        loopTree.add(named(new TestListener(), "last listener"));
+
+        CompiledTestTree compiledTree = CompiledTestTree.compile(full);
+        CompiledTestTree.ThreadTree threadTree = compiledTree.newThreadTree();
+        TestCompiler compiled = new TestCompiler(threadTree);
+        compiled.compile();
+        ListedHashTree traversedTree = compiledTree.newThreadTree().getTree();
+        TestCompiler traversed = new TestCompiler(traversedTree);
+        traversedTree.traverse(traversed);
+
+        List<TestElement> compiledOwners = packageOwners(threadTree.getTree());
+        List<TestElement> traversedOwners = packageOwners(traversedTree);
+        assertEquals(4, compiledOwners.size());
+        assertEquals(names(traversedOwners), names(compiledOwners));
+        for (int i = 0; i < compiledOwners.size(); i++) {
+            SamplePackage expected = packageOf(traversed, traversedOwners.get(i));
+            SamplePackage actual = packageOf(compiled, compiledOwners.get(i));
+            String owner = compiledOwners.get(i).getName();
+            assertEquals(expected.getSampler().getName(), actual.getSampler().getName(), owner);
+            assertEquals(names(expected.getConfigs()), names(actual.getConfigs()), owner + " configs");
+            assertEquals(names(expected.getTimers()), names(actual.getTimers()), owner + " timers");
+            assertEquals(names(expected.getPreProcessors()), names(actual.getPreProcessors()),
+                    owner + " pre-processors");
+            assertEquals(names(expected.getPostProcessors()), names(actual.getPostProcessors()),
+                    owner + " post-processors");
+            assertEquals(names(expected.getAssertions()), names(actual.getAssertions()), owner + " assertions");
+            assertEquals(names(expected.getSampleListeners()), names(actual.getSampleListeners()),
+                    owner + " listeners");
+            assertEquals(names(expected.getControllers()), names(actual.getControllers()), owner + " controllers");
+        }
+        // Not empty, so that the comparison is meaningful
+        SamplePackage innerPack = packageOf(compiled, compiledOwners.get(1));
+        assertEquals("inner sampler", innerPack.getSampler().getName());
+        assertEquals(Arrays.asList("top pre", "inner pre", "sampler pre"), names(innerPack.getPreProcessors()));
+        assertEquals(Arrays.asList("sampler timer", "inner timer", "top timer"), names(innerPack.getTimers()));
+        assertEquals(Arrays.asList("inner", "transaction", "loop"), names(innerPack.getControllers()));
+    }
+
+    private static <T extends TestElement> T named(T element, String name) {
+        element.setName(name);
+        return element;
+    }
+
+    /**
+     * @return samplers and transaction controllers of the tree, in traversal order
+     */
+    private static List<TestElement> packageOwners(HashTree tree) {
+        List<TestElement> owners = new ArrayList<>();
+        for (Object item : tree.list()) {
+            if (item instanceof TransactionController || item instanceof Sampler) {
+                owners.add((TestElement) item);
+            }
+            owners.addAll(packageOwners(tree.getTree(item)));
+        }
+        return owners;
+    }
+
+    private static SamplePackage packageOf(TestCompiler compiler, TestElement owner) {
+        if (owner instanceof TransactionController) {
+            TransactionController tc = (TransactionController) owner;
+            return compiler.configureTransactionSampler(new TransactionSampler(tc, tc.getName()));
+        }
+        return compiler.configureSampler((Sampler) owner);
+    }
+
+    private static List<String> names(List<?> elements) {
+        List<String> names = new ArrayList<>();
+        for (Object element : elements) {
+            names.add(((TestElement) element).getName());
+        }
+        return names;
+    }
+
+    public static class TestTimer extends AbstractTestElement implements Timer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public long delay() {
+            return 0;
+        }
+    }
+
+    public static class TestPreProcessor extends AbstractTestElement implements PreProcessor {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void process() {
+        }
+    }
+
+    public static class TestPostProcessor extends AbstractTestElement implements PostProcessor {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void process() {
+        }
+    }
+
+    public static class TestAssertion extends AbstractTestElement implements Assertion {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public AssertionResult getResult(SampleResult response) {
+            return new AssertionResult(getName());
+        }
+    }
+
+    public static class TestListener extends AbstractTestElement implements SampleListener {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+        }
+    }
+
+    private static class TestSampler extends AbstractSampler {
+        private static final long serialVersionUID = 1L;
+
+        TestSampler(String name) {
+            setName(name);
+        }
+
+        @Override
+        public SampleResult sample(Entry e) {
+            return null;
+        }
+
+        @Override
+        public Object clone() {
+            return new TestSampler(getName());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class TestIndexedJMeterVariables {
+
+    @Test
+    public void testSlotIsInterned() {
+        VariableSlot slot = VariableSlot.register("indexed.interned");
+        assertSame(slot, VariableSlot.register("indexed.interned"));
+        assertSame(slot, VariableSlot.find("indexed.interned"));
+        assertEquals("indexed.interned", slot.getName());
+    }
+
+    @Test
+    public void testSlotIsNotRegisteredWhenDisabled() {
+        // jmeterthread.indexed_variables is false in tests
+        int count = VariableSlot.count();
+        VariableSlot slot = VariableSlot.of("indexed.disabled");
+        assertTrue(slot.getIndex() < 0);
+        assertNull(VariableSlot.find("indexed.disabled"));
+        assertEquals(count, VariableSlot.count());
+
+        JMeterVariables vars = new IndexedJMeterVariables();
+        vars.put(slot, "value");
+        assertEquals("value", vars.get("indexed.disabled"));
+        assertEquals("value", vars.get(slot));
+    }
+
+    @Test
+    public void testSlotAndNameSeeSameValue() {
+        JMeterVariables vars = new IndexedJMeterVariables();
+        VariableSlot slot = VariableSlot.register("indexed.same");
+        vars.put(slot, "a");
+        assertEquals("a", vars.get("indexed.same"));
+        vars.put("indexed.same", "b");
+        assertEquals("b", vars.get(slot));
+        assertEquals("b", vars.remove("indexed.same"));
+        assertNull(vars.get(slot));
+        assertNull(vars.get("indexed.same"));
+    }
+
+    @Test
+    public void testValueStoredBeforeSlotIsCreated() {
+        JMeterVariables vars = new IndexedJMeterVariables();
+        vars.put("indexed.late", "value");
+        VariableSlot slot = VariableSlot.register("indexed.late");
+        assertEquals("value", vars.get(slot));
+        assertEquals("value", vars.get("indexed.late"));
+        assertEquals(1, countEntries(vars, "indexed.late"));
+    }
+
+    @Test
+    public void testEntrySetListsAllVariables() {
+        JMeterVariables vars = new IndexedJMeterVariables();
+        vars.put(VariableSlot.register("indexed.slot"), "1");
+        vars.put("indexed.dynamic", "2");
+        Map<String, Object> all = new HashMap<>();
+        for (Map.Entry<String, Object> entry : vars.entrySet()) {
+            all.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals("1", all.get("indexed.slot"));
+        assertEquals("2", all.get("indexed.dynamic"));
+
+        JMeterVariables copy = new JMeterVariables();
+        copy.putAll(vars);
+        assertEquals("1", copy.get("indexed.slot"));
+        assertEquals("2", copy.get("indexed.dynamic"));
+    }
+
+    @Test
+    public void testSlotCreatedAfterVariablesGrow() {
+        JMeterVariables vars = new IndexedJMeterVariables();
+        VariableSlot slot = null;
+        for (int i = 0; i < 100; i++) {
+            slot = VariableSlot.register("indexed.grow." + i);
+            vars.put(slot, Integer.toString(i));
+        }
+        assertEquals("99", vars.get(slot));
+        assertEquals("0", vars.get("indexed.grow.0"));
+    }
+
+    @Test
+    public void testSameUserOnNextIteration() {
+        JMeterVariables vars = new IndexedJMeterVariables();
+        VariableSlot.register(JMeterVariables.VAR_IS_SAME_USER_KEY);
+        vars.putObject(JMeterVariables.VAR_IS_SAME_USER_KEY, Boolean.TRUE);
+        assertTrue(vars.isSameUserOnNextIteration());
+        vars.putObject(JMeterVariables.VAR_IS_SAME_USER_KEY, Boolean.FALSE);
+        assertFalse(vars.isSameUserOnNextIteration());
+    }
+
+    private static int countEntries(JMeterVariables vars, String name) {
+        int count = 0;
+        Iterator<Map.Entry<String, Object>> it = vars.getIterator();
+        while (it.hasNext()) {
+            if (name.equals(it.next().getKey())) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
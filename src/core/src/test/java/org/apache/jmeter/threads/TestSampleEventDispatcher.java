@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jmeter.samplers.ResponseBuffer;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.ThreadSafeSampleListener;
+import org.junit.jupiter.api.Test;
+
+public class TestSampleEventDispatcher {
+
+    private static class CountingListener implements ThreadSafeSampleListener {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch release;
+
+        CountingListener(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void sampleOccurred(SampleEvent e) {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void sampleStarted(SampleEvent e) {
+        }
+
+        @Override
+        public void sampleStopped(SampleEvent e) {
+        }
+    }
+
+    private static SampleEvent newEvent() {
+        return new SampleEvent(new SampleResult(), "tg");
+    }
+
+    @Test
+    public void testRingBuffer() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4), "buffer should be full");
+        assertEquals(4, buffer.size());
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        List<Integer> batch = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(batch, 3));
+        assertEquals(Arrays.asList(1, 2, 3), batch);
+        assertEquals(4, buffer.poll());
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testRingBufferConcurrentProducers() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 10000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        long sum = 0;
+        int received = 0;
+        while (received < producers * perProducer) {
+            Integer value = buffer.poll();
+            if (value != null) {
+                sum += value;
+                received++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals((long) producers * perProducer * (perProducer - 1) / 2, sum);
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void testStopDeliversQueuedEvents() {
+        CountDownLatch release = new CountDownLatch(0);
+        CountingListener listener = new CountingListener(release);
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(16, 2, 4,
+                SampleEventDispatcher.Overflow.BLOCK, 1);
+        dispatcher.startWorkers();
+        List<SampleListener> listeners = Collections.singletonList(listener);
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(newEvent(), listeners);
+        }
+        dispatcher.stop();
+        assertEquals(100, listener.count.get());
+        assertEquals(100, dispatcher.getDispatchedEvents());
+        assertEquals(0, dispatcher.getDroppedEvents());
+
+        // After stop, events are delivered by the caller
+        dispatcher.dispatch(newEvent(), listeners);
+        assertEquals(101, listener.count.get());
+    }
+
+    @Test
+    public void testDropWhenFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingListener listener = new CountingListener(release);
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(4, 1, 1,
+                SampleEventDispatcher.Overflow.DROP, 1);
+        dispatcher.startWorkers();
+        List<SampleListener> listeners = Collections.singletonList(listener);
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(newEvent(), listeners);
+        }
+        // The worker holds at most one event, the queue at most 4
+        assertTrue(dispatcher.getDroppedEvents() >= 15, "dropped " + dispatcher.getDroppedEvents());
+        assertTrue(dispatcher.getMaxQueueDepth() <= 4);
+        release.countDown();
+        dispatcher.stop();
+        assertEquals(20, listener.count.get() + dispatcher.getDroppedEvents());
+    }
+
+    @Test
+    public void testBlockedProducerResumesWhenWorkerDrains() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountingListener listener = new CountingListener(release);
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(4, 1, 1,
+                SampleEventDispatcher.Overflow.BLOCK, 1);
+        dispatcher.startWorkers();
+        List<SampleListener> listeners = Collections.singletonList(listener);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 50; i++) {
+                dispatcher.dispatch(newEvent(), listeners);
+            }
+        });
+        producer.start();
+        producer.join(200);
+        assertTrue(producer.isAlive(), "producer should wait for room in the queue");
+        release.countDown();
+        producer.join(10000);
+        assertFalse(producer.isAlive(), "producer should resume once the worker drains the queue");
+        dispatcher.stop();
+        assertEquals(50, listener.count.get());
+        assertEquals(0, dispatcher.getDroppedEvents());
+    }
+
+    @Test
+    public void testIdleWorkerWakesUpForNewEvents() throws InterruptedException {
+        CountingListener listener = new CountingListener(new CountDownLatch(0));
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(16, 2, 4,
+                SampleEventDispatcher.Overflow.BLOCK, 1);
+        dispatcher.startWorkers();
+        List<SampleListener> listeners = Collections.singletonList(listener);
+        for (int round = 1; round <= 3; round++) {
+            // Let the workers go idle between rounds
+            Thread.sleep(50);
+            dispatcher.dispatch(newEvent(), listeners);
+            long deadline = System.currentTimeMillis() + 10000;
+            while (listener.count.get() < round && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(round, listener.count.get());
+        }
+        dispatcher.stop();
+        assertEquals(3, dispatcher.getDispatchedEvents());
+    }
+
+    @Test
+    public void testPooledResponseDataIsCopiedBeforeQueueing() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountingListener listener = new CountingListener(release) {
+            @Override
+            public void sampleOccurred(SampleEvent e) {
+                super.sampleOccurred(e);
+                received.add(e.getResult().getResponseDataAsString());
+            }
+        };
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(16, 1, 1,
+                SampleEventDispatcher.Overflow.BLOCK, 1);
+        dispatcher.startWorkers();
+        List<byte[]> recycled = Collections.synchronizedList(new ArrayList<>());
+        ResponseBuffer buffer = new ResponseBuffer(new byte[16], recycled::add);
+        byte[] data = "pooled data".getBytes(StandardCharsets.UTF_8);
+        buffer.write(data, 0, data.length);
+        SampleResult result = new SampleResult();
+        result.setResponseData(buffer);
+
+        dispatcher.dispatch(new SampleEvent(result, "tg"), Collections.singletonList(listener));
+        // The thread samples again before the listener gets the event
+        result.releaseResponseData();
+        assertEquals(1, recycled.size(), "the buffer should go back to the pool once");
+        release.countDown();
+        dispatcher.stop();
+        assertEquals(Collections.singletonList("pooled data"), received);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TestSamplePhaseMetrics extends JMeterTestCase {
+
+    @AfterEach
+    public void clear() {
+        SamplePhaseMetrics.clear();
+    }
+
+    @Test
+    public void testRecordsFromSeveralThreads() throws Exception {
+        SamplePhaseMetrics metrics = SamplePhaseMetrics.of("Users");
+        assertSame(metrics, SamplePhaseMetrics.of("Users"));
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(() -> {
+                for (int j = 1; j <= 100; j++) {
+                    metrics.record(SamplePhaseMetrics.Phase.SAMPLER, TimeUnit.MILLISECONDS.toNanos(j));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        SamplePhaseMetrics.PhaseStatistics sampler = metrics.getStatistics(SamplePhaseMetrics.Phase.SAMPLER);
+        assertEquals("sampler", sampler.getPhase());
+        assertEquals(400, sampler.getCount());
+        assertEquals(50_500.0, sampler.getMeanMicros(), 0.001);
+        assertEquals(100_000.0, sampler.getMaxMicros(), 1_000.0);
+        assertEquals(90_000.0, sampler.getPercentile90Micros(), 2_000.0);
+
+        SamplePhaseMetrics.PhaseStatistics listeners = metrics.getStatistics(SamplePhaseMetrics.Phase.LISTENERS);
+        assertEquals(0, listeners.getCount());
+        assertEquals(0.0, listeners.getMeanMicros());
+        assertEquals(SamplePhaseMetrics.Phase.values().length, metrics.getPhases().size());
+    }
+
+    @Test
+    public void testRegisteredInJmx() throws Exception {
+        SamplePhaseMetrics metrics = SamplePhaseMetrics.of("Thread \"Group\", 1");
+        metrics.record(SamplePhaseMetrics.Phase.TIMERS, TimeUnit.MILLISECONDS.toNanos(3));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.apache.jmeter:type=SamplePhaseMetrics,threadGroup="
+                + ObjectName.quote("Thread \"Group\", 1"));
+        assertTrue(server.isRegistered(name));
+        assertEquals("Thread \"Group\", 1", server.getAttribute(name, "ThreadGroup"));
+        CompositeData[] phases = (CompositeData[]) server.getAttribute(name, "Phases");
+        CompositeData timers = phases[SamplePhaseMetrics.Phase.TIMERS.ordinal()];
+        assertEquals("timers", timers.get("phase"));
+        assertEquals(1L, timers.get("count"));
+
+        SamplePhaseMetrics.clear();
+        assertFalse(server.isRegistered(name));
+        assertTrue(SamplePhaseMetrics.getAll().isEmpty());
+    }
+}
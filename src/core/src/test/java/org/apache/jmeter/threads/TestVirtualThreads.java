@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.threads;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class TestVirtualThreads {
+
+    @Test
+    public void testPlatformThread() throws InterruptedException {
+        AtomicReference<String> name = new AtomicReference<>();
+        Thread thread = VirtualThreads.newThread(false, () -> name.set(Thread.currentThread().getName()), "platform-1");
+        assertFalse(VirtualThreads.isVirtual(thread), "virtual thread was not requested");
+        thread.start();
+        thread.join();
+        assertEquals("platform-1", name.get());
+    }
+
+    @Test
+    public void testVirtualThreadFallsBackWhenUnsupported() throws InterruptedException {
+        AtomicReference<String> name = new AtomicReference<>();
+        Thread thread = VirtualThreads.newThread(true, () -> name.set(Thread.currentThread().getName()), "virtual-1");
+        assertEquals(VirtualThreads.isSupported(), VirtualThreads.isVirtual(thread));
+        thread.start();
+        thread.join();
+        assertEquals("virtual-1", name.get());
+    }
+
+    @Test
+    public void testExecutor() throws Exception {
+        ExecutorService executor = VirtualThreads.newExecutor(true);
+        try {
+            Future<Boolean> isVirtual = executor.submit(() -> VirtualThreads.isVirtual(Thread.currentThread()));
+            assertEquals(VirtualThreads.isSupported(), isVirtual.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS), "executor should terminate");
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.math;
+
+import java.util.Arrays;
+
+import org.apiguardian.api.API;
+
+/**
+ * Histogram of non-negative long values, with buckets whose width grows with the values,
+ * as in HdrHistogram.
+ * <p>
+ * Values lower than {@code 2^significantBits} have their own bucket, so they are counted exactly.
+ * Above, each power of two is split in {@code 2^(significantBits-1)} buckets, so a value
+ * is known with a relative error lower than {@code 2^-(significantBits-1)}
+ * and the midpoint of its bucket is returned with half that error.
+ * <p>
+ * Recording a value costs a few arithmetic operations whatever the number of values,
+ * memory only depends on the range of the values,
+ * and histograms with the same precision can be merged without losing accuracy.
+ * Counts are only allocated between the lowest and the highest recorded buckets.
+ * Values lower than 0 are counted as 0.
+ * <p>
+ * It is not thread safe.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class LogLinearHistogram {
+
+    /** Default precision: values up to 255 are exact, higher ones are known within 0.8% */
+    public static final int DEFAULT_SIGNIFICANT_BITS = 8;
+
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Receives the buckets of a histogram.
+     */
+    @FunctionalInterface
+    public interface BucketConsumer {
+        /**
+         * @param value value representing the bucket, clamped to the recorded minimum and maximum
+         * @param count number of values in the bucket, greater than 0
+         */
+        void accept(long value, long count);
+    }
+
+    private final int significantBits;
+    private final int exactBuckets;
+    private final int halfBuckets;
+    private final int maxIndex;
+
+    /** Counts of the buckets from {@link #offset} */
+    private long[] counts;
+    private int offset;
+
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * Creates a histogram with {@link #DEFAULT_SIGNIFICANT_BITS}.
+     */
+    public LogLinearHistogram() {
+        this(DEFAULT_SIGNIFICANT_BITS);
+    }
+
+    /**
+     * @param significantBits number of bits of the values kept by the buckets, between 2 and 20
+     */
+    public LogLinearHistogram(int significantBits) {
+        if (significantBits < 2 || significantBits > 20) {
+            throw new IllegalArgumentException("significantBits must be between 2 and 20, got " + significantBits);
+        }
+        this.significantBits = significantBits;
+        this.exactBuckets = 1 << significantBits;
+        this.halfBuckets = exactBuckets >> 1;
+        this.maxIndex = indexOf(Long.MAX_VALUE);
+    }
+
+    /**
+     * @return number of bits of the values kept by the buckets
+     */
+    public int getSignificantBits() {
+        return significantBits;
+    }
+
+    private int indexOf(long value) {
+        if (value < exactBuckets) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (significantBits - 1);
+        return shift * halfBuckets + (int) (value >>> shift);
+    }
+
+    private long lowestValueAt(int index) {
+        if (index < exactBuckets) {
+            return index;
+        }
+        int shift = index / halfBuckets - 1;
+        return (long) (index - shift * halfBuckets) << shift;
+    }
+
+    private long highestValueAt(int index) {
+        if (index < exactBuckets) {
+            return index;
+        }
+        int shift = index / halfBuckets - 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+
+    /**
+     * @param index index of a bucket
+     * @return the middle of the bucket, clamped to the recorded minimum and maximum
+     */
+    private long valueAt(int index) {
+        long lowest = lowestValueAt(index);
+        long value = lowest + (highestValueAt(index) - lowest) / 2;
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private void ensureCapacity(int index) {
+        if (counts == null) {
+            offset = Math.max(0, index - INITIAL_CAPACITY / 2);
+            counts = new long[Math.min(INITIAL_CAPACITY, maxIndex + 1 - offset)];
+        } else if (index < offset) {
+            int newOffset = Math.max(0, Math.min(index, offset - counts.length / 2));
+            long[] newCounts = new long[counts.length + offset - newOffset];
+            System.arraycopy(counts, 0, newCounts, offset - newOffset, counts.length);
+            counts = newCounts;
+            offset = newOffset;
+        } else if (index >= offset + counts.length) {
+            int newLength = Math.max(index - offset + 1, counts.length + counts.length / 2);
+            counts = Arrays.copyOf(counts, Math.min(newLength, maxIndex + 1 - offset));
+        }
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records the same value several times.
+     *
+     * @param value the value
+     * @param count number of times the value is recorded, ignored if not greater than 0
+     */
+    public void record(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long actual = Math.max(0, value);
+        int index = indexOf(actual);
+        ensureCapacity(index);
+        counts[index - offset] += count;
+        totalCount += count;
+        if (actual < min) {
+            min = actual;
+        }
+        if (actual > max) {
+            max = actual;
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     *
+     * @param other histogram with the same number of significant bits
+     * @throws IllegalArgumentException when the histograms do not have the same precision
+     */
+    public void add(LogLinearHistogram other) {
+        if (other.significantBits != significantBits) {
+            throw new IllegalArgumentException("Cannot add a histogram with " + other.significantBits
+                    + " significant bits to a histogram with " + significantBits);
+        }
+        if (other.totalCount == 0) {
+            return;
+        }
+        ensureCapacity(other.offset);
+        ensureCapacity(other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset + i - offset] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets all recorded values, but keeps the allocated buckets.
+     */
+    public void reset() {
+        if (counts != null) {
+            Arrays.fill(counts, 0);
+        }
+        totalCount = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * @return number of recorded values
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return the lowest recorded value, or {@link Long#MAX_VALUE} if none
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return the highest recorded value, or {@link Long#MIN_VALUE} if none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Returns the value at a given rank in the recorded values sorted in ascending order.
+     *
+     * @param rank rank of the value, from 1 to {@link #getTotalCount()}, clamped to this range
+     * @return the value at that rank, within the precision of the histogram, or 0 if no value was recorded
+     */
+    public long getValueAtRank(long rank) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        if (rank >= totalCount) {
+            return max;
+        }
+        long remaining = Math.max(1, rank);
+        for (int i = 0; i < counts.length; i++) {
+            remaining -= counts[i];
+            if (remaining <= 0) {
+                return valueAt(offset + i);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the lowest value such that the given percentage of the recorded values are lower or equal to it.
+     *
+     * @param percent percentage between 0 and 100
+     * @return the value at that percentage, within the precision of the histogram,
+     * or 0 if no value was recorded
+     */
+    public long getValueAtPercentile(double percent) {
+        if (percent <= 0) {
+            return totalCount == 0 ? 0 : min;
+        }
+        // Tolerance for products such as 99.9 * 1000 that are slightly above the exact rank
+        return getValueAtRank((long) Math.ceil(percent * totalCount / 100 - 1e-9));
+    }
+
+    /**
+     * Calls the consumer for every bucket that has values, in ascending order of values.
+     *
+     * @param consumer receives the buckets
+     */
+    public void forEachBucket(BucketConsumer consumer) {
+        if (totalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                consumer.accept(valueAt(offset + i), counts[i]);
+            }
+        }
+    }
+}
@@ -21,12 +21,18 @@ import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.LongFunction;
 
 import org.apache.commons.lang3.mutable.MutableLong;
 
 /**
  * This class serves as a way to calculate the median, max, min etc. of a list of values.
  * It is not threadsafe.
+ * <p>
+ * By default each distinct value is kept with its count, so percentiles are exact.
+ * Subclasses can count the values in a {@link LogLinearHistogram} instead, so memory does not
+ * grow with the number of distinct values; percentiles and distribution are then known
+ * within the precision of the histogram, the other statistics stay exact.
  *
  * @param <T> type parameter for the calculator
  *
@@ -34,9 +40,16 @@ import org.apache.commons.lang3.mutable.MutableLong;
 public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
 
     // key is the type to collect (usually long), value = count of entries
-    private final Map<T, MutableLong> valuesMap = new TreeMap<>();
+    // null when the values are counted in histogram
+    private final Map<T, MutableLong> valuesMap;
     // We use a TreeMap because we need the entries to be sorted
 
+    // null when the values are kept in valuesMap
+    private final LogLinearHistogram histogram;
+
+    // converts the values counted in histogram back to T, null when the values are kept in valuesMap
+    private final LongFunction<T> fromLong;
+
     // Running values, updated for each sample
     private double sum = 0;
 
@@ -70,6 +83,28 @@ public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
      * @param max - value to return for maximum if there are no values
      */
     protected StatCalculator(final T zero, final T min, final T max) {
+        this(zero, min, max, null);
+    }
+
+    /**
+     * This constructor is used to set up particular values for the generic class instance.
+     *
+     * @param zero - value to return for Median and PercentPoint if there are no values
+     * @param min - value to return for minimum if there are no values
+     * @param max - value to return for maximum if there are no values
+     * @param fromLong - converts the values counted in a {@link LogLinearHistogram} back to the type
+     *                 of the calculator, or null to keep each distinct value instead of using a histogram
+     * @since 5.5.1
+     */
+    protected StatCalculator(final T zero, final T min, final T max, LongFunction<T> fromLong) {
+        if (fromLong != null) {
+            this.valuesMap = null;
+            this.histogram = new LogLinearHistogram();
+        } else {
+            this.valuesMap = new TreeMap<>();
+            this.histogram = null;
+        }
+        this.fromLong = fromLong;
         this.zero = zero;
         this.maxValue = max;
         this.minValue = min;
@@ -78,7 +113,11 @@ public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
     }
 
     public void clear() {
-        valuesMap.clear();
+        if (histogram != null) {
+            histogram.reset();
+        } else {
+            valuesMap.clear();
+        }
         sum = 0;
         sumOfSquares = 0;
         mean = 0;
@@ -107,8 +146,21 @@ public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
     }
 
     public void addAll(StatCalculator<T> calc) {
-        for(Map.Entry<T, MutableLong> ent : calc.valuesMap.entrySet()) {
-            addEachValue(ent.getKey(), ent.getValue().longValue());
+        if (histogram != null && calc.histogram != null) {
+            if (calc.count > 0) {
+                histogram.add(calc.histogram);
+                count += calc.count;
+                sum += calc.sum;
+                sumOfSquares += calc.sumOfSquares;
+                calculateDerivedValues(calc.min);
+                calculateDerivedValues(calc.max);
+            }
+        } else if (calc.histogram != null) {
+            calc.histogram.forEachBucket((value, valueCount) -> addEachValue(calc.fromLong.apply(value), valueCount));
+        } else {
+            for(Map.Entry<T, MutableLong> ent : calc.valuesMap.entrySet()) {
+                addEachValue(ent.getKey(), ent.getValue().longValue());
+            }
         }
     }
 
@@ -160,6 +212,9 @@ public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
 
         // use Math.round () instead of simple (long) to provide correct value rounding
         long target = Math.round(count * percent);
+        if (histogram != null) {
+            return fromLong.apply(histogram.getValueAtRank(target));
+        }
         try {
             for (Map.Entry<T, MutableLong> val : valuesMap.entrySet()) {
                 target -= val.getValue().longValue();
@@ -182,6 +237,13 @@ public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
     public Map<Number, Number[]> getDistribution() {
         Map<Number, Number[]> items = new HashMap<>();
 
+        if (histogram != null) {
+            histogram.forEachBucket((value, valueCount) -> {
+                T key = fromLong.apply(value);
+                items.put(key, new Number[] { key, new MutableLong(valueCount) });
+            });
+            return items;
+        }
         for (Map.Entry<T, MutableLong> entry : valuesMap.entrySet()) {
             Number[] dis = new Number[2];
             dis[0] = entry.getKey();
@@ -280,6 +342,10 @@ public abstract class StatCalculator<T extends Number & Comparable<? super T>> {
     }
 
     private void updateValueCount(T actualValue, long sampleCount) {
+        if (histogram != null) {
+            histogram.record(actualValue.longValue(), sampleCount);
+            return;
+        }
         MutableLong count = valuesMap.get(actualValue);
         if (count != null) {
             count.add(sampleCount);
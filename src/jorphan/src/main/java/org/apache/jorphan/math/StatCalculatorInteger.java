@@ -23,7 +23,16 @@ package org.apache.jorphan.math;
 public class StatCalculatorInteger extends StatCalculator<Integer> {
 
     public StatCalculatorInteger() {
-        super(0, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        this(false);
+    }
+
+    /**
+     * @param useHistogram true to count the values in a {@link LogLinearHistogram}
+     *                     instead of keeping each distinct value
+     * @since 5.5.1
+     */
+    public StatCalculatorInteger(boolean useHistogram) {
+        super(0, Integer.MIN_VALUE, Integer.MAX_VALUE, useHistogram ? value -> (int) value : null);
     }
 
     public void addValue(int val){
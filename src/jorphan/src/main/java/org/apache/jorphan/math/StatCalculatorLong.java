@@ -23,7 +23,16 @@ package org.apache.jorphan.math;
 public class StatCalculatorLong extends StatCalculator<Long> {
 
     public StatCalculatorLong() {
-        super(0L, Long.MIN_VALUE, Long.MAX_VALUE);
+        this(false);
+    }
+
+    /**
+     * @param useHistogram true to count the values in a {@link LogLinearHistogram}
+     *                     instead of keeping each distinct value
+     * @since 5.5.1
+     */
+    public StatCalculatorLong(boolean useHistogram) {
+        super(0L, Long.MIN_VALUE, Long.MAX_VALUE, useHistogram ? Long::valueOf : null);
     }
 
     /**
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jorphan.math;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TestLogLinearHistogram {
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (long value = 10; value >= 1; value--) {
+            histogram.record(value);
+        }
+        assertEquals(10, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(10, histogram.getMax());
+        assertEquals(5, histogram.getValueAtPercentile(50));
+        assertEquals(9, histogram.getValueAtPercentile(90));
+        assertEquals(10, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(3, histogram.getValueAtRank(3));
+    }
+
+    @Test
+    public void testRelativeError() {
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal like response times, from a few ms to minutes
+            values[i] = (long) Math.exp(3 + random.nextGaussian() * 2);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percent : new double[] { 1, 10, 50, 90, 95, 99, 99.9 }) {
+            long expected = values[(int) Math.ceil(percent * values.length / 100) - 1];
+            long actual = histogram.getValueAtPercentile(percent);
+            assertTrue(Math.abs(actual - expected) <= expected / 256.0 + 1,
+                    "percentile " + percent + ": expected " + expected + ", got " + actual);
+        }
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testAddMergesCounts() {
+        LogLinearHistogram low = new LogLinearHistogram();
+        LogLinearHistogram high = new LogLinearHistogram();
+        LogLinearHistogram all = new LogLinearHistogram();
+        for (long value = 0; value < 10_000; value++) {
+            LogLinearHistogram part = value % 2 == 0 ? low : high;
+            part.record(value * 37);
+            all.record(value * 37);
+        }
+        low.add(high);
+        assertEquals(all.getTotalCount(), low.getTotalCount());
+        assertEquals(all.getMin(), low.getMin());
+        assertEquals(all.getMax(), low.getMax());
+        for (double percent = 0; percent <= 100; percent += 2.5) {
+            assertEquals(all.getValueAtPercentile(percent), low.getValueAtPercentile(percent), "percentile " + percent);
+        }
+        assertThrows(IllegalArgumentException.class, () -> low.add(new LogLinearHistogram(4)));
+    }
+
+    @Test
+    public void testBucketsGrowDownwardsAndReset() {
+        LogLinearHistogram histogram = new LogLinearHistogram(4);
+        histogram.record(1_000_000_000L, 3);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(5, histogram.getTotalCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        long[] buckets = new long[1];
+        histogram.forEachBucket((value, count) -> buckets[0] += count);
+        assertEquals(5, buckets[0]);
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        histogram.record(7);
+        assertEquals(7, histogram.getValueAtPercentile(50));
+    }
+}
@@ -181,4 +181,75 @@ public class TestStatCalculator {
         assertEquals(12.0, calc.getSum(), 0.000000000001);
         assertEquals(0.5773502691896255, calc.getStandardDeviation(), 0.000000000000001);
     }
+
+    @Test
+    public void testHistogramCalculation() {
+        StatCalculatorLong histogramCalc = new StatCalculatorLong(true);
+        for (long value : new long[] { 18, 10, 9, 11, 28, 3, 30, 15, 15, 21 }) {
+            calc.addValue(value);
+            histogramCalc.addValue(value);
+        }
+        assertEquals(calc.getMean(), histogramCalc.getMean(), 0);
+        assertEquals(calc.getStandardDeviation(), histogramCalc.getStandardDeviation(), 0);
+        assertEquals(calc.getMax(), histogramCalc.getMax());
+        assertEquals(calc.getMin(), histogramCalc.getMin());
+        // Values lower than 256 are counted exactly
+        for (double percent = 0; percent <= 1; percent += 0.05) {
+            assertEquals(calc.getPercentPoint(percent), histogramCalc.getPercentPoint(percent), "percent " + percent);
+        }
+        assertEquals(calc.getDistribution().keySet(), histogramCalc.getDistribution().keySet());
+        assertEquals(2, histogramCalc.getDistribution().get(15L)[1].intValue());
+    }
+
+    @Test
+    public void testHistogramPercentPointOfLargeValues() {
+        StatCalculatorLong histogramCalc = new StatCalculatorLong(true);
+        for (long value = 1; value <= 100_000; value++) {
+            histogramCalc.addValue(value);
+        }
+        assertEquals(100_000, histogramCalc.getCount());
+        assertEquals(90_000, histogramCalc.getPercentPoint(0.9), 90_000 / 256.0);
+        assertEquals(50_000, histogramCalc.getMedian(), 50_000 / 256.0);
+        assertEquals(100_000, histogramCalc.getPercentPoint(1.0).longValue());
+        histogramCalc.clear();
+        assertEquals(0, histogramCalc.getCount());
+        assertEquals(0, histogramCalc.getMedian().longValue());
+    }
+
+    @Test
+    public void testHistogramAddAll() {
+        StatCalculatorLong histogramCalc = new StatCalculatorLong(true);
+        histogramCalc.addValue(1L);
+        histogramCalc.addValue(2L);
+        histogramCalc.addValue(3L);
+        StatCalculatorLong calc2 = new StatCalculatorLong(true);
+        calc2.addValue(2L);
+        calc2.addValue(2L);
+        calc2.addValue(2L);
+        histogramCalc.addAll(calc2);
+        assertEquals(6, histogramCalc.getCount());
+        assertEquals(12.0, histogramCalc.getSum(), 0.000000000001);
+        assertEquals(0.5773502691896255, histogramCalc.getStandardDeviation(), 0.000000000000001);
+        assertEquals(2L, histogramCalc.getMedian().longValue());
+
+        calc.addAll(histogramCalc);
+        assertEquals(6, calc.getCount());
+        assertEquals(12.0, calc.getSum(), 0.000000000001);
+        assertEquals(3L, calc.getMax().longValue());
+    }
+
+    @Test
+    public void testIntegerHistogramKeepsIntegerValues() {
+        StatCalculatorInteger histogramCalc = new StatCalculatorInteger(true);
+        histogramCalc.addValue(5);
+        histogramCalc.addValue(7);
+        histogramCalc.addValue(7);
+        assertEquals(Integer.valueOf(7), histogramCalc.getMedian());
+        assertEquals(2, histogramCalc.getDistribution().get(7)[1].intValue());
+
+        StatCalculatorInteger mapCalc = new StatCalculatorInteger();
+        mapCalc.addAll(histogramCalc);
+        assertEquals(3, mapCalc.getCount());
+        assertEquals(Integer.valueOf(5), mapCalc.getMin());
+    }
 }
@@ -83,6 +83,9 @@ project("http") {
         implementation("dnsjava:dnsjava")
         implementation("org.apache.httpcomponents:httpmime")
         implementation("org.apache.httpcomponents:httpcore")
+        implementation("org.apache.httpcomponents.client5:httpclient5")
+        implementation("org.apache.httpcomponents.core5:httpcore5")
+        implementation("org.apache.httpcomponents.core5:httpcore5-h2")
         implementation("org.brotli:dec")
         implementation("com.miglayout:miglayout-swing")
         implementation("com.fasterxml.jackson.core:jackson-core")
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.config;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.gui.TestElementMetadata;
+import org.apache.jmeter.protocol.http.sampler.stream.DigestStreamConsumer;
+import org.apache.jmeter.protocol.http.sampler.stream.JsonStreamConsumer;
+import org.apache.jmeter.protocol.http.sampler.stream.RegexStreamConsumer;
+import org.apache.jmeter.protocol.http.sampler.stream.ResponseStreamPipeline;
+import org.apache.jmeter.protocol.http.sampler.stream.XPathStreamExtractor;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testbeans.TestBean;
+import org.apiguardian.api.API;
+
+/**
+ * Makes the HTTP samplers in its scope read the responses through a {@link ResponseStreamPipeline}:
+ * only the first bytes of the body are kept in the result, and the digest, regular expression,
+ * JSON path and XPath configured are computed while the body is read, their values stored in variables.
+ * <p>
+ * The values are read from the properties, as the element is not prepared like samplers are.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+@TestElementMetadata(labelResource = "displayName")
+public class ResponseStreamingConfig extends ConfigTestElement implements TestBean {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int DEFAULT_PREFIX_SIZE = 64 * 1024;
+
+    static final int DEFAULT_REGEX_MAX_LENGTH = 4 * 1024;
+
+    private static final String PREFIX_SIZE = "prefixSize"; // $NON-NLS-1$
+    private static final String DIGEST_ALGORITHM = "digestAlgorithm"; // $NON-NLS-1$
+    private static final String DIGEST_VARIABLE = "digestVariable"; // $NON-NLS-1$
+    private static final String REGEX = "regex"; // $NON-NLS-1$
+    private static final String REGEX_VARIABLE = "regexVariable"; // $NON-NLS-1$
+    private static final String REGEX_MAX_LENGTH = "regexMaxLength"; // $NON-NLS-1$
+    private static final String JSON_PATH = "jsonPath"; // $NON-NLS-1$
+    private static final String JSON_VARIABLE = "jsonVariable"; // $NON-NLS-1$
+    private static final String XPATH = "xpath"; // $NON-NLS-1$
+    private static final String XPATH_VARIABLE = "xpathVariable"; // $NON-NLS-1$
+
+    /** Last compiled expression, elements are cloned per thread */
+    private transient Pattern pattern;
+
+    /**
+     * Creates the pipeline reading a response.
+     *
+     * @param result result of the sample, its encoding is used to decode the body for the regular expression
+     * @return the pipeline
+     * @throws IOException when the configuration is not valid
+     */
+    public ResponseStreamPipeline createPipeline(SampleResult result) throws IOException {
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(getPrefixSize());
+        try {
+            if (isConfigured(getDigestAlgorithm(), getDigestVariable())) {
+                pipeline.addConsumer(new DigestStreamConsumer(getDigestAlgorithm().trim(), getDigestVariable()));
+            }
+            if (isConfigured(getRegex(), getRegexVariable())) {
+                pipeline.addConsumer(new RegexStreamConsumer(getPattern(), getRegexVariable(), getRegexMaxLength(),
+                        Charset.forName(result.getDataEncodingWithDefault())));
+            }
+            if (isConfigured(getJsonPath(), getJsonVariable())) {
+                pipeline.addConsumer(new JsonStreamConsumer(getJsonPath(), getJsonVariable()));
+            }
+            if (isConfigured(getXpath(), getXpathVariable())) {
+                pipeline.setXPathExtractor(new XPathStreamExtractor(getXpath(), getXpathVariable()));
+            }
+        } catch (NoSuchAlgorithmException | IllegalArgumentException e) {
+            throw new IOException("Invalid configuration of " + getName() + ": " + e.getMessage(), e);
+        }
+        return pipeline;
+    }
+
+    private static boolean isConfigured(String expression, String variableName) {
+        return StringUtils.isNotBlank(expression) && StringUtils.isNotBlank(variableName);
+    }
+
+    private Pattern getPattern() {
+        String regex = getRegex();
+        if (pattern == null || !pattern.pattern().equals(regex)) {
+            pattern = Pattern.compile(regex);
+        }
+        return pattern;
+    }
+
+    public int getPrefixSize() {
+        return getPropertyAsInt(PREFIX_SIZE, DEFAULT_PREFIX_SIZE);
+    }
+
+    public void setPrefixSize(int prefixSize) {
+        setProperty(PREFIX_SIZE, prefixSize);
+    }
+
+    public String getDigestAlgorithm() {
+        return getPropertyAsString(DIGEST_ALGORITHM);
+    }
+
+    public void setDigestAlgorithm(String digestAlgorithm) {
+        setProperty(DIGEST_ALGORITHM, digestAlgorithm);
+    }
+
+    public String getDigestVariable() {
+        return getPropertyAsString(DIGEST_VARIABLE);
+    }
+
+    public void setDigestVariable(String digestVariable) {
+        setProperty(DIGEST_VARIABLE, digestVariable);
+    }
+
+    public String getRegex() {
+        return getPropertyAsString(REGEX);
+    }
+
+    public void setRegex(String regex) {
+        setProperty(REGEX, regex);
+    }
+
+    public String getRegexVariable() {
+        return getPropertyAsString(REGEX_VARIABLE);
+    }
+
+    public void setRegexVariable(String regexVariable) {
+        setProperty(REGEX_VARIABLE, regexVariable);
+    }
+
+    public int getRegexMaxLength() {
+        return getPropertyAsInt(REGEX_MAX_LENGTH, DEFAULT_REGEX_MAX_LENGTH);
+    }
+
+    public void setRegexMaxLength(int regexMaxLength) {
+        setProperty(REGEX_MAX_LENGTH, regexMaxLength);
+    }
+
+    public String getJsonPath() {
+        return getPropertyAsString(JSON_PATH);
+    }
+
+    public void setJsonPath(String jsonPath) {
+        setProperty(JSON_PATH, jsonPath);
+    }
+
+    public String getJsonVariable() {
+        return getPropertyAsString(JSON_VARIABLE);
+    }
+
+    public void setJsonVariable(String jsonVariable) {
+        setProperty(JSON_VARIABLE, jsonVariable);
+    }
+
+    public String getXpath() {
+        return getPropertyAsString(XPATH);
+    }
+
+    public void setXpath(String xpath) {
+        setProperty(XPATH, xpath);
+    }
+
+    public String getXpathVariable() {
+        return getPropertyAsString(XPATH_VARIABLE);
+    }
+
+    public void setXpathVariable(String xpathVariable) {
+        setProperty(XPATH_VARIABLE, xpathVariable);
+    }
+}
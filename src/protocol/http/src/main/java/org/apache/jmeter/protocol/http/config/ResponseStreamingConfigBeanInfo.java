@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.config;
+
+import java.beans.PropertyDescriptor;
+
+import org.apache.jmeter.testbeans.BeanInfoSupport;
+
+/**
+ * HTTP Response Streaming BeanInfo
+ */
+public class ResponseStreamingConfigBeanInfo extends BeanInfoSupport {
+
+    public ResponseStreamingConfigBeanInfo() {
+        super(ResponseStreamingConfig.class);
+
+        createPropertyGroup("response", new String[] { "prefixSize" }); // $NON-NLS-1$ $NON-NLS-2$
+        createPropertyGroup("digest", new String[] { "digestAlgorithm", "digestVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+        createPropertyGroup("regex", new String[] { "regex", "regexVariable", "regexMaxLength" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$ $NON-NLS-4$
+        createPropertyGroup("json", new String[] { "jsonPath", "jsonVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+        createPropertyGroup("xpath", new String[] { "xpath", "xpathVariable" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+
+        PropertyDescriptor p = property("prefixSize"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ResponseStreamingConfig.DEFAULT_PREFIX_SIZE);
+
+        p = property("digestAlgorithm"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ""); // $NON-NLS-1$
+        p.setValue(TAGS, new String[] { "MD5", "SHA-1", "SHA-256", "SHA-512" }); // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$ $NON-NLS-4$
+
+        for (String name : new String[] { "digestVariable", "regex", "regexVariable", // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$
+                "jsonPath", "jsonVariable", "xpath", "xpathVariable" }) { // $NON-NLS-1$ $NON-NLS-2$ $NON-NLS-3$ $NON-NLS-4$
+            p = property(name);
+            p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+            p.setValue(DEFAULT, ""); // $NON-NLS-1$
+        }
+
+        p = property("regexMaxLength"); // $NON-NLS-1$
+        p.setValue(NOT_UNDEFINED, Boolean.TRUE);
+        p.setValue(DEFAULT, ResponseStreamingConfig.DEFAULT_REGEX_MAX_LENGTH);
+    }
+}
@@ -31,6 +31,7 @@ import java.net.UnknownHostException;
 import java.util.function.Predicate;
 
 import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.protocol.http.config.ResponseStreamingConfig;
 import org.apache.jmeter.protocol.http.control.AuthManager;
 import org.apache.jmeter.protocol.http.control.CacheManager;
 import org.apache.jmeter.protocol.http.control.CookieManager;
@@ -311,6 +312,15 @@ public abstract class HTTPAbstractImpl implements Interruptible, HTTPConstantsIn
         return testElement.getProxyUser();
     }
 
+    /**
+     * Invokes {@link HTTPSamplerBase#getResponseStreamingConfig()}
+     *
+     * @return the {@link ResponseStreamingConfig} of the associated test element
+     */
+    protected ResponseStreamingConfig getResponseStreamingConfig() {
+        return testElement.getResponseStreamingConfig();
+    }
+
     /**
      * Invokes {@link HTTPSamplerBase#getResponseTimeout()}
      *
@@ -476,6 +486,24 @@ public abstract class HTTPAbstractImpl implements Interruptible, HTTPConstantsIn
         return testElement.readResponse(res, instream, responseContentLength);
     }
 
+    /**
+     * Invokes {@link HTTPSamplerBase#readResponseData(SampleResult, InputStream, long)}
+     *
+     * @param res
+     *            sample to store the response into
+     * @param instream
+     *            input stream from which to read the response
+     * @param responseContentLength
+     *            expected input length or zero
+     * @throws IOException
+     *             if reading the result fails
+     * @since 5.5.1
+     */
+    protected void readResponseData(SampleResult res, InputStream instream,
+            long responseContentLength) throws IOException {
+        testElement.readResponseData(res, instream, responseContentLength);
+    }
+
     /**
      * Read response from the input stream, converting to MD5 digest if the
      * useMD5 property is set.
@@ -20,6 +20,7 @@ package org.apache.jmeter.protocol.http.sampler;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
@@ -39,6 +40,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
@@ -155,6 +158,7 @@ import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.protocol.http.util.SlowHCPlainConnectionSocketFactory;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.Sampler;
 import org.apache.jmeter.services.FileServer;
 import org.apache.jmeter.testelement.property.CollectionProperty;
 import org.apache.jmeter.testelement.property.JMeterProperty;
@@ -164,6 +168,7 @@ import org.apache.jmeter.threads.JMeterVariables;
 import org.apache.jmeter.util.JMeterUtils;
 import org.apache.jmeter.util.JsseSSLManager;
 import org.apache.jmeter.util.SSLManager;
+import org.apache.jorphan.documentation.VisibleForTesting;
 import org.apache.jorphan.util.JOrphanUtils;
 import org.brotli.dec.BrotliInputStream;
 import org.slf4j.Logger;
@@ -192,6 +197,8 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private static final String CONTEXT_ATTRIBUTE_METRICS = "__jmeter.M__";
 
+    private static final String CONTEXT_ATTRIBUTE_SHARED_POOL_LEASES = "__jmeter.S_P_L__";
+
     private static final boolean DISABLE_DEFAULT_UA = JMeterUtils.getPropDefault("httpclient4.default_user_agent_disabled", false);
 
     private static final boolean GZIP_RELAX_MODE = JMeterUtils.getPropDefault("httpclient4.gzip_relax_mode", false);
@@ -430,6 +437,26 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private static final int TIME_TO_LIVE = JMeterUtils.getPropDefault("httpclient4.time_to_live", 60000);
 
+    /** Share the clients and their connection pools between all threads, one per {@link HttpClientKey} */
+    private static final boolean SHARED_POOL_ENABLED = JMeterUtils.getPropDefault("httpclient4.shared_pool", false);
+
+    private static final int SHARED_POOL_MAX_PER_ROUTE = JMeterUtils.getPropDefault("httpclient4.shared_pool.max_per_route", 100);
+
+    private static final int SHARED_POOL_MAX_TOTAL = JMeterUtils.getPropDefault("httpclient4.shared_pool.max_total", 1000);
+
+    /** Lease the connections of a shared pool in the order threads ask for them */
+    private static final boolean SHARED_POOL_FAIR = JMeterUtils.getPropDefault("httpclient4.shared_pool.fair", true);
+
+    /**
+     * Resolves with the DNS Cache Manager of the current sampler, as the connections of a shared pool
+     * are opened by whichever thread needs one
+     */
+    private static final DnsResolver CURRENT_SAMPLER_DNS_RESOLVER = host -> {
+        Sampler sampler = JMeterContextService.getContext().getCurrentSampler();
+        DnsResolver resolver = sampler instanceof HTTPSamplerBase ? ((HTTPSamplerBase) sampler).getDNSResolver() : null;
+        return (resolver == null ? SystemDefaultDnsResolver.INSTANCE : resolver).resolve(host);
+    };
+
     /** Preemptive Basic Auth */
     private static final boolean BASIC_AUTH_PREEMPTIVE = JMeterUtils.getPropDefault("httpclient4.auth.preemptive", true);
 
@@ -532,6 +559,93 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         }
     };
 
+    /**
+     * Client and connection pool shared by all threads for a {@link HttpClientKey}, with the leases that
+     * bound the connections used at once to its route and queue the threads waiting for one
+     */
+    private static final class SharedClient {
+        private final MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager> triple;
+        private final Semaphore routeLeases;
+        /** Leases of all the clients of the pool */
+        private final Semaphore totalLeases;
+
+        SharedClient(MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager> triple,
+                int maxRouteLeases, Semaphore totalLeases, boolean fair) {
+            this.triple = triple;
+            this.routeLeases = new Semaphore(maxRouteLeases, fair);
+            this.totalLeases = totalLeases;
+        }
+
+        /**
+         * Waits for a connection to the route then for one of the pool, in the order threads ask for them
+         * when leasing is fair, and notes the time waited in the result.
+         * Leases are always taken in this order, so threads never wait for each other in a cycle.
+         *
+         * @param res result of the sample
+         * @throws InterruptedIOException when the thread is interrupted while waiting
+         */
+        void lease(HTTPSampleResult res) throws InterruptedIOException {
+            long start = System.nanoTime();
+            try {
+                routeLeases.acquire();
+                try {
+                    totalLeases.acquire();
+                } catch (InterruptedException e) {
+                    routeLeases.release();
+                    throw e;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a connection of the shared pool");
+            }
+            res.setPoolWaitTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        void release() {
+            totalLeases.release();
+            routeLeases.release();
+        }
+    }
+
+    /**
+     * 1 HttpClient instance per HttpClientKey shared by all threads, with the limits of their connection pools.
+     * The clients are closed when the last thread that uses them finishes.
+     */
+    static final class SharedPool {
+        private final int maxPerRoute;
+        private final int maxTotal;
+        private final boolean fair;
+        /** Bounds the connections used at once by all the clients, whatever their target host and proxy */
+        private final Semaphore totalLeases;
+        private final Map<HttpClientKey, SharedClient> clients = new ConcurrentHashMap<>();
+        private final SharedClientUsers users = new SharedClientUsers(this::close);
+
+        /**
+         * @param maxPerRoute maximum number of connections to a route
+         * @param maxTotal    maximum number of connections of all the clients
+         * @param fair        whether the connections are leased in the order threads ask for them
+         */
+        SharedPool(int maxPerRoute, int maxTotal, boolean fair) {
+            this.maxPerRoute = maxPerRoute;
+            this.maxTotal = maxTotal;
+            this.fair = fair;
+            this.totalLeases = new Semaphore(maxTotal, fair);
+        }
+
+        private void close() {
+            for (SharedClient sharedClient : clients.values()) {
+                JOrphanUtils.closeQuietly(sharedClient.triple.getLeft());
+                JOrphanUtils.closeQuietly(sharedClient.triple.getRight());
+            }
+            clients.clear();
+        }
+    }
+
+    /** Pool shared by all threads when {@link #SHARED_POOL_ENABLED} is true, null otherwise */
+    private static final SharedPool SHARED_POOL = SHARED_POOL_ENABLED
+            ? new SharedPool(SHARED_POOL_MAX_PER_ROUTE, SHARED_POOL_MAX_TOTAL, SHARED_POOL_FAIR)
+            : null;
+
     /**
      * CONNECTION_SOCKET_FACTORY changes if we want to simulate Slow connection
      */
@@ -553,8 +667,21 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private volatile HttpUriRequest currentRequest; // Accessed from multiple threads
 
+    /** Pool shared by all threads, null when each thread has its own clients */
+    private final SharedPool sharedPool;
+
     protected HTTPHC4Impl(HTTPSamplerBase testElement) {
+        this(testElement, SHARED_POOL);
+    }
+
+    /**
+     * @param testElement the sampler
+     * @param sharedPool  pool shared by all threads, null when each thread has its own clients
+     */
+    @VisibleForTesting
+    HTTPHC4Impl(HTTPSamplerBase testElement, SharedPool sharedPool) {
         super(testElement);
+        this.sharedPool = sharedPool;
     }
 
     /**
@@ -631,7 +758,9 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             return res;
         }
 
-        setupClientContextBeforeSample(jMeterVariables, localContext);
+        if (sharedPool == null) {
+            setupClientContextBeforeSample(jMeterVariables, localContext);
+        }
 
         res.sampleStart();
 
@@ -640,11 +769,17 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             return updateSampleResultForResourceInCache(res);
         }
         CloseableHttpResponse httpResponse = null;
+        SharedClient sharedClient = (SharedClient) localContext.getAttribute(CONTEXT_ATTRIBUTE_SHARED_POOL_LEASES);
+        boolean leased = false;
         try {
             currentRequest = httpRequest;
             handleMethod(method, res, httpRequest, localContext);
             // store the SampleResult in LocalContext to compute connect time
             localContext.setAttribute(CONTEXT_ATTRIBUTE_SAMPLER_RESULT, res);
+            if (sharedClient != null) {
+                sharedClient.lease(res);
+                leased = true;
+            }
             // perform the sample
             httpResponse =
                     executeRequest(httpClient, httpRequest, localContext, url);
@@ -659,7 +794,9 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
                         Arrays.asList(httpRequest.getAllHeaders()),
                         Arrays.asList(request.getAllHeaders()));
             }
-            extractClientContextAfterSample(jMeterVariables, localContext);
+            if (sharedPool == null) {
+                extractClientContextAfterSample(jMeterVariables, localContext);
+            }
             // We've finished with the request, so we can add the LocalAddress to it for display
             if (localAddress != null) {
                 request.addHeader(HEADER_LOCAL_ADDRESS, localAddress.toString());
@@ -674,11 +811,17 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             }
             HttpEntity entity = httpResponse.getEntity();
             if (entity != null) {
-                res.setResponseData(readResponse(res, entity.getContent(), entity.getContentLength()));
+                readResponseData(res, entity.getContent(), entity.getContentLength());
             }
 
             res.sampleEnd(); // Done with the sampling proper.
             currentRequest = null;
+            if (leased) {
+                // The response is read, so the connection is back in the pool.
+                // Release it before downloading embedded resources, which may need it
+                leased = false;
+                sharedClient.release();
+            }
 
             // Now collect the results into the HTTPSampleResult:
             StatusLine statusLine = httpResponse.getStatusLine();
@@ -760,6 +903,9 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             return res;
         } finally {
             JOrphanUtils.closeQuietly(httpResponse);
+            if (leased) {
+                sharedClient.release();
+            }
             currentRequest = null;
             JMeterContextService.getContext().getSamplerContext().remove(CONTEXT_ATTRIBUTE_PARENT_SAMPLE_CLIENT_STATE);
         }
@@ -796,7 +942,7 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
      * @param areFollowingRedirect Are we following redirects
      * @return {@link HttpRequestBase}
      */
-    private HttpRequestBase createHttpRequest(URI uri, String method, boolean areFollowingRedirect) {
+    HttpRequestBase createHttpRequest(URI uri, String method, boolean areFollowingRedirect) {
         HttpRequestBase result;
         if (method.equals(HTTPConstants.POST)) {
             result = new HttpPost(uri);
@@ -1054,9 +1200,12 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
 
     private MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager> setupClient(HttpClientKey key, JMeterVariables jMeterVariables,
             HttpClientContext clientContext) throws GeneralSecurityException {
+        clientContext.setAttribute(CONTEXT_ATTRIBUTE_CLIENT_KEY, key);
+        if (sharedPool != null) {
+            return setupSharedClient(key, clientContext);
+        }
         Map<HttpClientKey, MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager>> mapHttpClientPerHttpClientKey =
                 HTTPCLIENTS_CACHE_PER_THREAD_AND_HTTPCLIENTKEY.get();
-        clientContext.setAttribute(CONTEXT_ATTRIBUTE_CLIENT_KEY, key);
         CloseableHttpClient httpClient = null;
         MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager> triple = null;
         boolean concurrentDwn = this.testElement.isConcurrentDwn();
@@ -1080,93 +1229,11 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
             if (resolver == null) {
                 resolver = SystemDefaultDnsResolver.INSTANCE;
             }
-            Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create().
-                    register("https", new LazyLayeredConnectionSocketFactory()).
-                    register("http", CONNECTION_SOCKET_FACTORY).
-                    build();
-
-            // Modern browsers use more connections per host than the current httpclient default (2)
-            // when using parallel download the httpclient and connection manager are shared by the downloads threads
-            // to be realistic JMeter must set an higher value to DefaultMaxPerRoute
-            PoolingHttpClientConnectionManager pHCCM =
-                    new PoolingHttpClientConnectionManager(
-                            new JMeterDefaultHttpClientConnectionOperator(registry, null, resolver),
-                            null, TIME_TO_LIVE, TimeUnit.MILLISECONDS);
-            pHCCM.setValidateAfterInactivity(VALIDITY_AFTER_INACTIVITY_TIMEOUT);
-
-            if(concurrentDwn) {
-                try {
-                    int maxConcurrentDownloads = Integer.parseInt(this.testElement.getConcurrentPool());
-                    pHCCM.setDefaultMaxPerRoute(Math.max(maxConcurrentDownloads, pHCCM.getDefaultMaxPerRoute()));
-                } catch (NumberFormatException nfe) {
-                   // no need to log -> will be done by the sampler
-                }
-            }
-
-            CookieSpecProvider cookieSpecProvider = new IgnoreSpecProvider();
-            Lookup<CookieSpecProvider> cookieSpecRegistry = RegistryBuilder.<CookieSpecProvider>create()
-                    .register(CookieSpecs.IGNORE_COOKIES, cookieSpecProvider)
-                    .build();
-
-            HttpClientBuilder builder = HttpClients.custom().setConnectionManager(pHCCM).
-                    setSchemePortResolver(new DefaultSchemePortResolver()).
-                    setDnsResolver(resolver).
-                    setRequestExecutor(REQUEST_EXECUTOR).
-                    setSSLSocketFactory(new LazyLayeredConnectionSocketFactory()).
-                    setDefaultCookieSpecRegistry(cookieSpecRegistry).
-                    setDefaultSocketConfig(SocketConfig.DEFAULT).
-                    setRedirectStrategy(new LaxRedirectStrategy()).
-                    setConnectionTimeToLive(TIME_TO_LIVE, TimeUnit.MILLISECONDS).
-                    setRetryHandler(new StandardHttpRequestRetryHandler(RETRY_COUNT, REQUEST_SENT_RETRY_ENABLED)).
-                    setConnectionReuseStrategy(DefaultClientConnectionReuseStrategy.INSTANCE).
-                    setProxyAuthenticationStrategy(getProxyAuthStrategy());
-            if(DISABLE_DEFAULT_UA) {
-                builder.disableDefaultUserAgent();
-            }
-            Lookup<AuthSchemeProvider> authSchemeRegistry =
-                    RegistryBuilder.<AuthSchemeProvider>create()
-                        .register(AuthSchemes.BASIC, new BasicSchemeFactory())
-                        .register(AuthSchemes.DIGEST, new DigestSchemeFactory())
-                        .register(AuthSchemes.NTLM, new NTLMSchemeFactory())
-                        .register(AuthSchemes.SPNEGO, new DynamicSPNegoSchemeFactory(
-                                AuthManager.STRIP_PORT, AuthManager.USE_CANONICAL_HOST_NAME))
-                        .register(AuthSchemes.KERBEROS, new DynamicKerberosSchemeFactory(
-                                AuthManager.STRIP_PORT, AuthManager.USE_CANONICAL_HOST_NAME))
-                        .build();
-            builder.setDefaultAuthSchemeRegistry(authSchemeRegistry);
-
-            if (IDLE_TIMEOUT > 0) {
-                builder.setKeepAliveStrategy(IDLE_STRATEGY);
-            }
-
-            // Set up proxy details
-            AuthScope proxyAuthScope = null;
-            NTCredentials proxyCredentials = null;
-            if (key.hasProxy) {
-                HttpHost proxy = new HttpHost(key.proxyHost, key.proxyPort, key.proxyScheme);
-                builder.setProxy(proxy);
-
-                CredentialsProvider credsProvider = new BasicCredentialsProvider();
-                if (!key.proxyUser.isEmpty()) {
-                    proxyAuthScope = new AuthScope(key.proxyHost, key.proxyPort);
-                    proxyCredentials = new NTCredentials(key.proxyUser, key.proxyPass, LOCALHOST, PROXY_DOMAIN);
-                    credsProvider.setCredentials(
-                            proxyAuthScope,
-                            proxyCredentials);
-                }
-                builder.setDefaultCredentialsProvider(credsProvider);
-            }
-            builder.disableContentCompression().addInterceptorLast(RESPONSE_CONTENT_ENCODING);
-            if(BASIC_AUTH_PREEMPTIVE) {
-                builder.addInterceptorFirst(PREEMPTIVE_AUTH_INTERCEPTOR);
-            } else {
-                builder.setDefaultCredentialsProvider(new ManagedCredentialsProvider(getAuthManager(), proxyAuthScope, proxyCredentials));
-            }
-            httpClient = builder.build();
+            triple = createHttpClient(key, resolver, false);
+            httpClient = triple.getLeft();
             if (log.isDebugEnabled()) {
                 log.debug("Created new HttpClient: @{} {}", System.identityHashCode(httpClient), key);
             }
-            triple = MutableTriple.of(httpClient, null, pHCCM);
             mapHttpClientPerHttpClientKey.put(key, triple); // save the agent for next time round
         } else {
             if (log.isDebugEnabled()) {
@@ -1180,6 +1247,140 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
         return triple;
     }
 
+    /**
+     * Creates a client and its connection pool.
+     *
+     * @param key      key of the client
+     * @param resolver DNS resolver of the connections
+     * @param shared   whether the client is shared by all threads
+     * @return the client, no proxy auth state and the connection pool
+     */
+    private MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager> createHttpClient(
+            HttpClientKey key, DnsResolver resolver, boolean shared) {
+        Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory> create().
+                register("https", new LazyLayeredConnectionSocketFactory()).
+                register("http", CONNECTION_SOCKET_FACTORY).
+                build();
+
+        // Modern browsers use more connections per host than the current httpclient default (2)
+        // when using parallel download the httpclient and connection manager are shared by the downloads threads
+        // to be realistic JMeter must set an higher value to DefaultMaxPerRoute
+        PoolingHttpClientConnectionManager pHCCM =
+                new PoolingHttpClientConnectionManager(
+                        new JMeterDefaultHttpClientConnectionOperator(registry, null, resolver),
+                        null, TIME_TO_LIVE, TimeUnit.MILLISECONDS);
+        pHCCM.setValidateAfterInactivity(VALIDITY_AFTER_INACTIVITY_TIMEOUT);
+
+        if (shared) {
+            pHCCM.setMaxTotal(sharedPool.maxTotal);
+            pHCCM.setDefaultMaxPerRoute(sharedPool.maxPerRoute);
+        } else if (this.testElement.isConcurrentDwn()) {
+            try {
+                int maxConcurrentDownloads = Integer.parseInt(this.testElement.getConcurrentPool());
+                pHCCM.setDefaultMaxPerRoute(Math.max(maxConcurrentDownloads, pHCCM.getDefaultMaxPerRoute()));
+            } catch (NumberFormatException nfe) {
+               // no need to log -> will be done by the sampler
+            }
+        }
+
+        CookieSpecProvider cookieSpecProvider = new IgnoreSpecProvider();
+        Lookup<CookieSpecProvider> cookieSpecRegistry = RegistryBuilder.<CookieSpecProvider>create()
+                .register(CookieSpecs.IGNORE_COOKIES, cookieSpecProvider)
+                .build();
+
+        HttpClientBuilder builder = HttpClients.custom().setConnectionManager(pHCCM).
+                setSchemePortResolver(new DefaultSchemePortResolver()).
+                setDnsResolver(resolver).
+                setRequestExecutor(REQUEST_EXECUTOR).
+                setSSLSocketFactory(new LazyLayeredConnectionSocketFactory()).
+                setDefaultCookieSpecRegistry(cookieSpecRegistry).
+                setDefaultSocketConfig(SocketConfig.DEFAULT).
+                setRedirectStrategy(new LaxRedirectStrategy()).
+                setConnectionTimeToLive(TIME_TO_LIVE, TimeUnit.MILLISECONDS).
+                setRetryHandler(new StandardHttpRequestRetryHandler(RETRY_COUNT, REQUEST_SENT_RETRY_ENABLED)).
+                setConnectionReuseStrategy(DefaultClientConnectionReuseStrategy.INSTANCE).
+                setProxyAuthenticationStrategy(getProxyAuthStrategy());
+        if(DISABLE_DEFAULT_UA) {
+            builder.disableDefaultUserAgent();
+        }
+        Lookup<AuthSchemeProvider> authSchemeRegistry =
+                RegistryBuilder.<AuthSchemeProvider>create()
+                    .register(AuthSchemes.BASIC, new BasicSchemeFactory())
+                    .register(AuthSchemes.DIGEST, new DigestSchemeFactory())
+                    .register(AuthSchemes.NTLM, new NTLMSchemeFactory())
+                    .register(AuthSchemes.SPNEGO, new DynamicSPNegoSchemeFactory(
+                            AuthManager.STRIP_PORT, AuthManager.USE_CANONICAL_HOST_NAME))
+                    .register(AuthSchemes.KERBEROS, new DynamicKerberosSchemeFactory(
+                            AuthManager.STRIP_PORT, AuthManager.USE_CANONICAL_HOST_NAME))
+                    .build();
+        builder.setDefaultAuthSchemeRegistry(authSchemeRegistry);
+
+        if (IDLE_TIMEOUT > 0) {
+            builder.setKeepAliveStrategy(IDLE_STRATEGY);
+        }
+
+        // Set up proxy details
+        if (key.hasProxy) {
+            HttpHost proxy = new HttpHost(key.proxyHost, key.proxyPort, key.proxyScheme);
+            builder.setProxy(proxy);
+
+            CredentialsProvider credsProvider = new BasicCredentialsProvider();
+            if (!key.proxyUser.isEmpty()) {
+                credsProvider.setCredentials(
+                        getProxyAuthScope(key),
+                        getProxyCredentials(key));
+            }
+            builder.setDefaultCredentialsProvider(credsProvider);
+        }
+        builder.disableContentCompression().addInterceptorLast(RESPONSE_CONTENT_ENCODING);
+        if(BASIC_AUTH_PREEMPTIVE) {
+            builder.addInterceptorFirst(PREEMPTIVE_AUTH_INTERCEPTOR);
+        } else if (!shared) {
+            // Shared clients get the credentials of the thread in the context of each request
+            builder.setDefaultCredentialsProvider(createManagedCredentialsProvider(key));
+        }
+        if (shared) {
+            // Let any thread reuse the connections opened by another one
+            builder.disableConnectionState();
+        }
+        return MutableTriple.of(builder.build(), null, pHCCM);
+    }
+
+    /**
+     * Returns the client shared by all threads for a key, and sets in the context what is specific to
+     * the thread: its credentials and the leases of the shared pool.
+     */
+    private MutableTriple<CloseableHttpClient, AuthState, PoolingHttpClientConnectionManager> setupSharedClient(
+            HttpClientKey key, HttpClientContext clientContext) {
+        sharedPool.users.register();
+        SharedClient sharedClient = sharedPool.clients.computeIfAbsent(key, k -> {
+            SharedClient created = new SharedClient(createHttpClient(k, CURRENT_SAMPLER_DNS_RESOLVER, true),
+                    sharedPool.maxPerRoute, sharedPool.totalLeases, sharedPool.fair);
+            log.debug("Created new shared HttpClient: @{} {}", System.identityHashCode(created.triple.getLeft()), k);
+            return created;
+        });
+        if (!BASIC_AUTH_PREEMPTIVE) {
+            clientContext.setCredentialsProvider(createManagedCredentialsProvider(key));
+        }
+        setupProxyAuthState(sharedClient.triple, clientContext);
+        clientContext.setAttribute(CONTEXT_ATTRIBUTE_SHARED_POOL_LEASES, sharedClient);
+        return sharedClient.triple;
+    }
+
+    private CredentialsProvider createManagedCredentialsProvider(HttpClientKey key) {
+        return new ManagedCredentialsProvider(getAuthManager(), getProxyAuthScope(key), getProxyCredentials(key));
+    }
+
+    private static AuthScope getProxyAuthScope(HttpClientKey key) {
+        return key.hasProxy && !key.proxyUser.isEmpty() ? new AuthScope(key.proxyHost, key.proxyPort) : null;
+    }
+
+    private static NTCredentials getProxyCredentials(HttpClientKey key) {
+        return key.hasProxy && !key.proxyUser.isEmpty()
+                ? new NTCredentials(key.proxyUser, key.proxyPass, LOCALHOST, PROXY_DOMAIN)
+                : null;
+    }
+
     protected AuthenticationStrategy getProxyAuthStrategy() {
         return ProxyAuthenticationStrategy.INSTANCE;
     }
@@ -1875,7 +2076,11 @@ public class HTTPHC4Impl extends HTTPHCAbstractImpl {
     @Override
     protected void threadFinished() {
         log.debug("Thread Finished");
-        closeThreadLocalConnections();
+        if (sharedPool != null) {
+            sharedPool.users.release();
+        } else {
+            closeThreadLocalConnections();
+        }
     }
 
     private void closeThreadLocalConnections() {
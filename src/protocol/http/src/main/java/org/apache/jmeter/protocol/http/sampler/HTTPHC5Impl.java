@@ -0,0 +1,997 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.protocol.RedirectLocations;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.RequestChannel;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.nio.support.classic.ContentInputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIAuthority;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.jmeter.protocol.http.config.ResponseStreamingConfig;
+import org.apache.jmeter.protocol.http.control.AuthManager;
+import org.apache.jmeter.protocol.http.control.Authorization;
+import org.apache.jmeter.protocol.http.control.CacheManager;
+import org.apache.jmeter.protocol.http.control.CookieManager;
+import org.apache.jmeter.protocol.http.control.DNSCacheManager;
+import org.apache.jmeter.protocol.http.sampler.hc.LaxDeflateInputStream;
+import org.apache.jmeter.protocol.http.sampler.hc.LaxGZIPInputStream;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jmeter.util.JsseSSLManager;
+import org.apache.jmeter.util.SSLManager;
+import org.apache.jorphan.documentation.VisibleForTesting;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.brotli.dec.BrotliInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * HTTP/2 implementation of the HTTP sampler, using the Apache HttpClient 5 asynchronous client.
+ * <p>
+ * Like {@link HTTPHC4Impl}, each JMeter thread has its own client, so it opens its own connections
+ * like a browser would. The client keeps a single connection per target and sends the concurrent
+ * requests of its thread, such as parallel downloads of embedded resources, as streams multiplexed
+ * over that connection. A client runs its own I/O reactor, a main thread and {@code httpclient5.io_threads}
+ * I/O threads, so a thread has one client for its HTTP targets and one for its HTTPS targets, whose TLS
+ * context is only set up when needed. Tests with thousands of threads should share one client instead.
+ * <p>
+ * HTTPS targets must negotiate HTTP/2 with ALPN, and HTTP targets are sent HTTP/2 without upgrade (h2c
+ * with prior knowledge). Proxies and source addresses are not supported.
+ * <p>
+ * When {@code httpclient5.shared_engine} is true, all JMeter threads share instead one client, whose few
+ * I/O threads run the exchanges of all the threads, over HTTP/1.1 or HTTP/2 as negotiated with the servers.
+ * A JMeter thread then only waits for the completion of its exchange, which does not block a carrier
+ * thread when it is a virtual thread, so the number of requests in flight is not bound by the number
+ * of platform threads. Connections and TLS sessions are shared by all threads, and the DNS Cache Manager is
+ * not used. With {@code httpclient5.shared_engine.force_http2}, the shared client speaks HTTP/2 only,
+ * like the clients of each thread.
+ * <p>
+ * In both modes, the connect time, the latency and the end of the sample are noted by the I/O callbacks
+ * of the exchange, when the request starts, when the response head arrives and when the response ends.
+ * <p>
+ * Responses are received whole before they are read, unless a {@link ResponseStreamingConfig} applies:
+ * the JMeter thread then reads the body through its pipeline as the I/O threads receive it.
+ * <p>
+ * Requests are built by {@link HTTPHC4Impl}, so headers, cookies, authorization and bodies are the same
+ * as with the HttpClient4 implementation.
+ *
+ * @since 5.5.1
+ */
+public class HTTPHC5Impl extends HTTPHCAbstractImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(HTTPHC5Impl.class);
+
+    private static final String CONTEXT_ATTRIBUTE_PARENT_SAMPLE_CLIENT = "__jmeter.H5_C__"; //$NON-NLS-1$
+
+    private static final boolean GZIP_RELAX_MODE = JMeterUtils.getPropDefault("httpclient4.gzip_relax_mode", false);
+
+    private static final boolean DEFLATE_RELAX_MODE = JMeterUtils.getPropDefault("httpclient4.deflate_relax_mode", false);
+
+    /** Whether all JMeter threads share one client */
+    private static final boolean SHARED_ENGINE =
+            JMeterUtils.getPropDefault("httpclient5.shared_engine", false); //$NON-NLS-1$
+
+    /** Number of I/O threads of the shared client, or of each client of a JMeter thread */
+    private static final int IO_THREADS = JMeterUtils.getPropDefault("httpclient5.io_threads", //$NON-NLS-1$
+            SHARED_ENGINE ? Runtime.getRuntime().availableProcessors() : 1);
+
+    /** Whether the shared client speaks HTTP/2 only, sending it without upgrade to HTTP targets */
+    private static final boolean SHARED_FORCE_HTTP2 =
+            JMeterUtils.getPropDefault("httpclient5.shared_engine.force_http2", false); //$NON-NLS-1$
+
+    /** Maximum number of connections of the shared client per target, 0 for no limit */
+    private static final int SHARED_MAX_CONNECTIONS_PER_ROUTE =
+            JMeterUtils.getPropDefault("httpclient5.shared_engine.max_connections_per_route", 0); //$NON-NLS-1$
+
+    /** Bytes of a streamed body that the server can send ahead of the reads of the JMeter thread */
+    private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
+
+    /** Headers that are specific to HTTP/1.1 connections and illegal in HTTP/2 */
+    private static final String[] CONNECTION_HEADERS = {
+            HTTPConstants.HEADER_CONNECTION,
+            "Keep-Alive", //$NON-NLS-1$
+            "Proxy-Connection", //$NON-NLS-1$
+            "Transfer-Encoding", //$NON-NLS-1$
+            "Upgrade", //$NON-NLS-1$
+            HTTPConstants.HEADER_CONTENT_LENGTH,
+    };
+
+    /**
+     * 1 client per JMeter thread and scheme, for all the targets of the scheme
+     */
+    private static final ThreadLocal<Map<String, CloseableHttpAsyncClient>> CLIENTS_PER_THREAD =
+            ThreadLocal.withInitial(HashMap::new);
+
+    /** Client shared by all JMeter threads when {@link #SHARED_ENGINE} is true */
+    private static final SharedClient SHARED_CLIENT =
+            new SharedClient(SHARED_FORCE_HTTP2 ? HttpVersionPolicy.FORCE_HTTP_2 : HttpVersionPolicy.NEGOTIATE);
+
+    /** Builds the requests like HttpClient4 does */
+    private final HTTPHC4Impl requestFactory;
+
+    /** Client shared with the other JMeter threads, null when each thread has its own clients */
+    private final SharedClient sharedClient;
+
+    private volatile Future<SimpleHttpResponse> currentRequest; // Accessed from multiple threads
+
+    protected HTTPHC5Impl(HTTPSamplerBase testElement) {
+        this(testElement, SHARED_ENGINE ? SHARED_CLIENT : null);
+    }
+
+    @VisibleForTesting
+    HTTPHC5Impl(HTTPSamplerBase testElement, SharedClient sharedClient) {
+        super(testElement);
+        this.requestFactory = new HTTPHC4Impl(testElement);
+        this.sharedClient = sharedClient;
+    }
+
+    /**
+     * Client shared by JMeter threads, created for the first thread that uses it and closed
+     * when the last one finishes.
+     * <p>
+     * Samples read the client without locking once it is created, the lock is only taken
+     * to create or close it.
+     */
+    static final class SharedClient {
+        private final HttpVersionPolicy versionPolicy;
+        private final SharedClientUsers users = new SharedClientUsers(this::close);
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile CloseableHttpAsyncClient client;
+
+        /**
+         * @param versionPolicy HTTP versions the client speaks
+         */
+        SharedClient(HttpVersionPolicy versionPolicy) {
+            this.versionPolicy = versionPolicy;
+        }
+
+        /**
+         * Registers the JMeter thread of the current context as a user of the client, and returns the client.
+         */
+        CloseableHttpAsyncClient get() throws GeneralSecurityException {
+            users.register();
+            CloseableHttpAsyncClient current = client;
+            if (current != null) {
+                return current;
+            }
+            lock.lock();
+            try {
+                if (client == null) {
+                    client = createSharedClient(versionPolicy);
+                }
+                return client;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Unregisters the JMeter thread of the current context, closing the client after its last user.
+         */
+        void release() {
+            users.release();
+        }
+
+        private void close() {
+            lock.lock();
+            try {
+                if (client != null) {
+                    client.close(CloseMode.GRACEFUL);
+                    client = null;
+                    log.info("Closed shared HttpClient5");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Notes the end of the connection in the sample result when the request starts to be sent,
+     * which happens once a connection is open and a stream is available.
+     */
+    private static final class TimedRequestProducer implements AsyncRequestProducer {
+        private final AsyncRequestProducer delegate;
+        private final HTTPSampleResult result;
+        private boolean started;
+
+        TimedRequestProducer(AsyncRequestProducer delegate, HTTPSampleResult result) {
+            this.delegate = delegate;
+            this.result = result;
+        }
+
+        @Override
+        public void sendRequest(RequestChannel channel, HttpContext context) throws HttpException, IOException {
+            if (!started) {
+                started = true;
+                result.connectEnd();
+            }
+            delegate.sendRequest(channel, context);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return delegate.isRepeatable();
+        }
+
+        @Override
+        public int available() {
+            return delegate.available();
+        }
+
+        @Override
+        public void produce(DataStreamChannel channel) throws IOException {
+            delegate.produce(channel);
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            delegate.failed(cause);
+        }
+
+        @Override
+        public void releaseResources() {
+            delegate.releaseResources();
+        }
+    }
+
+    /**
+     * Notes the latency in the sample result when the response head arrives and the end of the sample
+     * when the response ends, and counts the bytes of the body as received, before decoding.
+     */
+    private static final class TimedResponseConsumer implements AsyncResponseConsumer<SimpleHttpResponse> {
+        private final AsyncResponseConsumer<SimpleHttpResponse> delegate;
+        private final HTTPSampleResult result;
+        private boolean received;
+        private long bodyBytes;
+
+        TimedResponseConsumer(AsyncResponseConsumer<SimpleHttpResponse> delegate, HTTPSampleResult result) {
+            this.delegate = delegate;
+            this.result = result;
+        }
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                FutureCallback<SimpleHttpResponse> resultCallback) throws HttpException, IOException {
+            if (!received) {
+                received = true;
+                result.latencyEnd();
+                if (entityDetails == null) {
+                    // No body, the response is complete
+                    result.sampleEnd();
+                }
+            }
+            delegate.consumeResponse(response, entityDetails, context, resultCallback);
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) throws HttpException, IOException {
+            delegate.informationResponse(response, context);
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            delegate.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) throws IOException {
+            bodyBytes += src.remaining();
+            delegate.consume(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+            // Before the delegate completes the exchange and wakes up the JMeter thread
+            result.sampleEnd();
+            delegate.streamEnd(trailers);
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            delegate.failed(cause);
+        }
+
+        @Override
+        public void releaseResources() {
+            delegate.releaseResources();
+        }
+
+        long getBodyBytes() {
+            return bodyBytes;
+        }
+    }
+
+    /**
+     * Hands the body of the response to the JMeter thread as a stream that the I/O threads fill as the body
+     * arrives, so that the pipeline of a {@link ResponseStreamingConfig} reads it without the whole body
+     * being held in memory. The server can only send {@link #STREAMING_BUFFER_SIZE} bytes ahead of the reads.
+     */
+    private static final class StreamingResponseConsumer implements AsyncResponseConsumer<SimpleHttpResponse> {
+        private final SharedInputBuffer buffer = new SharedInputBuffer(STREAMING_BUFFER_SIZE);
+        private final CompletableFuture<SimpleHttpResponse> head = new CompletableFuture<>();
+        private volatile SimpleHttpResponse response;
+        private volatile long contentLength;
+        private volatile FutureCallback<SimpleHttpResponse> resultCallback;
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                FutureCallback<SimpleHttpResponse> resultCallback) throws HttpException, IOException {
+            SimpleHttpResponse copy = SimpleHttpResponse.copy(response);
+            if (entityDetails == null) {
+                buffer.markEndStream();
+                head.complete(copy);
+                if (resultCallback != null) {
+                    resultCallback.completed(copy);
+                }
+                return;
+            }
+            this.response = copy;
+            this.contentLength = entityDetails.getContentLength();
+            this.resultCallback = resultCallback;
+            head.complete(copy);
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+            // Not part of the sample
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            buffer.updateCapacity(capacityChannel);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) {
+            buffer.fill(src);
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            buffer.markEndStream();
+            FutureCallback<SimpleHttpResponse> callback = resultCallback;
+            if (callback != null) {
+                callback.completed(response);
+            }
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            buffer.abort();
+        }
+
+        @Override
+        public void releaseResources() {
+            // Called once the body is received, the JMeter thread may still be reading it from the buffer
+        }
+
+        /**
+         * Waits for the head of the response, or for the end of the exchange when it fails first.
+         * A failure of the exchange ends the body early, the JMeter thread then gets the failure
+         * from the completion.
+         *
+         * @param completion completion of the exchange
+         * @return the response, without body
+         */
+        SimpleHttpResponse awaitResponse(CompletionCallback<SimpleHttpResponse> completion)
+                throws InterruptedException, ExecutionException {
+            CompletableFuture<SimpleHttpResponse> outcome = completion.getCompletion();
+            outcome.whenComplete((result, failure) -> {
+                if (failure != null) {
+                    // e.g. cancelled by interrupt(), which the consumer may not be told about
+                    buffer.abort();
+                }
+            });
+            CompletableFuture.anyOf(head, outcome).get();
+            return head.isDone() ? head.join() : outcome.get();
+        }
+
+        /**
+         * @return whether the response has a body, once {@link #awaitResponse(CompletionCallback)} returned
+         */
+        boolean hasBody() {
+            return response != null;
+        }
+
+        /**
+         * @return the body, read as it arrives
+         */
+        InputStream getBody() {
+            return new ContentInputStream(buffer);
+        }
+
+        /**
+         * @return the length of the body announced by the server, or a negative value
+         */
+        long getContentLength() {
+            return contentLength;
+        }
+    }
+
+    /**
+     * Completes a {@link CompletableFuture} with the outcome of an exchange. JMeter threads wait on it
+     * rather than on the future of the client, because it parks virtual threads without pinning their carrier.
+     */
+    private static final class CompletionCallback<T> implements FutureCallback<T> {
+        private final CompletableFuture<T> completion = new CompletableFuture<>();
+
+        @Override
+        public void completed(T result) {
+            completion.complete(result);
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            completion.completeExceptionally(cause);
+        }
+
+        @Override
+        public void cancelled() {
+            completion.cancel(false);
+        }
+
+        T get() throws InterruptedException, ExecutionException {
+            return completion.get();
+        }
+
+        CompletableFuture<T> getCompletion() {
+            return completion;
+        }
+    }
+
+    @Override
+    protected HTTPSampleResult sample(URL url, String method,
+            boolean areFollowingRedirect, int frameDepth) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Start : sample {} method {} followingRedirect {} depth {}",
+                    url, method, areFollowingRedirect, frameDepth);
+        }
+        HTTPSampleResult res = requestFactory.createSampleResult(url, method);
+
+        CloseableHttpAsyncClient client;
+        HttpRequestBase hc4Request;
+        SimpleHttpRequest request;
+        try {
+            if (isStaticProxy(url.getHost()) || isDynamicProxy(getProxyHost(), getProxyPortInt())) {
+                throw new IllegalArgumentException("The " + HTTPSamplerFactory.IMPL_HTTP_CLIENT5
+                        + " implementation does not support proxies");
+            }
+            if (!JOrphanUtils.isBlank(getIpSource())) {
+                throw new IllegalArgumentException("The " + HTTPSamplerFactory.IMPL_HTTP_CLIENT5
+                        + " implementation does not support source addresses");
+            }
+            client = setupClient(url);
+            URI uri = url.toURI();
+            hc4Request = requestFactory.createHttpRequest(uri, method, areFollowingRedirect);
+            requestFactory.setupRequest(url, hc4Request, res); // can throw IOException
+            requestFactory.handleMethod(method, res, hc4Request, null);
+            request = createRequest(url, uri, hc4Request);
+        } catch (Exception e) {
+            clearParentClients(frameDepth);
+            res.sampleStart();
+            res.sampleEnd();
+            errorResult(e, res);
+            return res;
+        }
+
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(createRequestConfig());
+        res.sampleStart();
+
+        final CacheManager cacheManager = getCacheManager();
+        if (cacheManager != null && HTTPConstants.GET.equalsIgnoreCase(method)
+                && cacheManager.inCache(url, hc4Request.getAllHeaders())) {
+            return updateSampleResultForResourceInCache(res);
+        }
+        // The pipeline of a streaming config reads the body as it arrives, others get it whole
+        StreamingResponseConsumer streamingConsumer = getResponseStreamingConfig() != null
+                ? new StreamingResponseConsumer()
+                : null;
+        TimedResponseConsumer consumer = new TimedResponseConsumer(
+                streamingConsumer != null ? streamingConsumer : SimpleResponseConsumer.create(), res);
+        CompletionCallback<SimpleHttpResponse> completion = new CompletionCallback<>();
+        try {
+            Future<SimpleHttpResponse> exchange = client.execute(
+                    new TimedRequestProducer(SimpleRequestProducer.create(request), res), consumer, context, completion);
+            currentRequest = exchange;
+            SimpleHttpResponse response = streamingConsumer != null
+                    ? streamingConsumer.awaitResponse(completion)
+                    : completion.get();
+            res.setRequestHeaders(getRequestHeaders(request));
+            res.setSentBytes(getSentBytes(request));
+
+            Header contentType = response.getLastHeader(HTTPConstants.HEADER_CONTENT_TYPE);
+            if (contentType != null) {
+                String ct = contentType.getValue();
+                res.setContentType(ct);
+                res.setEncodingAndType(ct);
+            }
+            byte[] body = response.getBodyBytes();
+            if (streamingConsumer != null) {
+                if (streamingConsumer.hasBody()) {
+                    // Reading notes the latency, keep the one noted when the response head arrived
+                    long latency = res.getLatency();
+                    try {
+                        readResponseData(res,
+                                decode(streamingConsumer.getBody(),
+                                        response.getFirstHeader(HTTPConstants.HEADER_CONTENT_ENCODING)),
+                                Math.max(streamingConsumer.getContentLength(), 0));
+                    } catch (IOException | RuntimeException e) {
+                        // Nobody reads the rest of the body, which the server would wait to send
+                        exchange.cancel(true);
+                        throw e;
+                    }
+                    res.setLatency(latency);
+                }
+                completion.get();
+            } else if (body != null) {
+                // Reading notes the latency, keep the one noted when the response head arrived
+                long latency = res.getLatency();
+                readResponseData(res,
+                        decode(new ByteArrayInputStream(body), response.getFirstHeader(HTTPConstants.HEADER_CONTENT_ENCODING)),
+                        body.length);
+                res.setLatency(latency);
+            }
+            if (res.getEndTime() == 0) {
+                res.sampleEnd(); // Done with the sampling proper.
+            }
+            currentRequest = null;
+
+            // Now collect the results into the HTTPSampleResult:
+            int statusCode = response.getCode();
+            res.setResponseCode(Integer.toString(statusCode));
+            res.setResponseMessage(getReasonPhrase(response));
+            res.setSuccessful(isSuccessCode(statusCode));
+            res.setResponseHeaders(getResponseHeaders(response));
+            if (res.isRedirect()) {
+                final Header headerLocation = response.getLastHeader(HTTPConstants.HEADER_LOCATION);
+                if (headerLocation == null) { // HTTP protocol violation, but avoids NPE
+                    throw new IllegalArgumentException("Missing location header in redirect for "
+                            + request.getMethod() + " " + url);
+                }
+                res.setRedirectLocation(headerLocation.getValue());
+            }
+            // HTTP/2 compresses the headers, count their size as if they were sent as text
+            res.setHeadersSize(res.getResponseHeaders().length() + response.getHeaders().length + 3);
+            res.setBodySize(consumer.getBodyBytes());
+
+            // If we redirected automatically, the URL may have changed
+            RedirectLocations redirects = context.getRedirectLocations();
+            if (getAutoRedirects() && redirects != null && redirects.size() > 0) {
+                res.setURL(redirects.get(redirects.size() - 1).toURL());
+            }
+
+            // Store any cookies received in the cookie manager:
+            saveConnectionCookies(response, res.getURL(), getCookieManager());
+
+            // Save cache information
+            if (cacheManager != null) {
+                cacheManager.saveDetails(toHC4Response(response), res);
+            }
+
+            // Follow redirects and download page resources if appropriate:
+            res = resultProcessing(areFollowingRedirect, frameDepth, res);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.debug("Exception while executing the request", cause);
+            return requestFailed(res, request, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return requestFailed(res, request, e);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Exception while reading the response", e);
+            return requestFailed(res, request, e);
+        } finally {
+            currentRequest = null;
+            clearParentClients(frameDepth);
+        }
+        return res;
+    }
+
+    /**
+     * Forgets the clients of the page once its sample is over. Embedded resources, downloaded
+     * in parallel at a greater depth, share the sampler context and leave them to the next resources.
+     */
+    private static void clearParentClients(int frameDepth) {
+        if (frameDepth == 0) {
+            JMeterContextService.getContext().getSamplerContext().remove(CONTEXT_ATTRIBUTE_PARENT_SAMPLE_CLIENT);
+        }
+    }
+
+    private HTTPSampleResult requestFailed(HTTPSampleResult res, SimpleHttpRequest request, Throwable cause) {
+        if (res.getEndTime() == 0) {
+            res.sampleEnd();
+        }
+        res.setRequestHeaders(getRequestHeaders(request));
+        errorResult(cause, res);
+        return res;
+    }
+
+    private RequestConfig createRequestConfig() {
+        RequestConfig.Builder builder = RequestConfig.custom();
+        int rto = getResponseTimeout();
+        if (rto > 0) {
+            builder.setResponseTimeout(Timeout.ofMilliseconds(rto));
+        }
+        int cto = getConnectTimeout();
+        if (cto > 0) {
+            builder.setConnectTimeout(Timeout.ofMilliseconds(cto));
+        }
+        builder.setRedirectsEnabled(getAutoRedirects());
+        builder.setMaxRedirects(HTTPSamplerBase.MAX_REDIRECTS);
+        return builder.build();
+    }
+
+    /**
+     * Copies a request built for HttpClient4 to an HTTP/2 request, leaving out the
+     * headers that are illegal in HTTP/2.
+     */
+    static SimpleHttpRequest createRequest(URL url, URI uri, HttpRequestBase hc4Request,
+            AuthManager authManager) throws IOException, URISyntaxException {
+        SimpleHttpRequest request = new SimpleHttpRequest(hc4Request.getMethod(), uri);
+        String contentType = null;
+        for (org.apache.http.Header header : hc4Request.getAllHeaders()) {
+            String name = header.getName();
+            if (HTTPConstants.HEADER_HOST.equalsIgnoreCase(name)) {
+                request.setAuthority(URIAuthority.create(header.getValue()));
+            } else if (HTTPConstants.HEADER_CONTENT_TYPE.equalsIgnoreCase(name)) {
+                contentType = header.getValue();
+            } else if (!isConnectionHeader(name)) {
+                request.addHeader(name, header.getValue());
+            }
+        }
+        if (authManager != null && !request.containsHeader(HTTPConstants.HEADER_AUTHORIZATION)) {
+            Authorization auth = authManager.getAuthForURL(url);
+            if (auth != null) {
+                request.addHeader(HTTPConstants.HEADER_AUTHORIZATION, auth.toBasicHeader());
+            }
+        }
+        HttpEntity entity = hc4Request instanceof HttpEntityEnclosingRequestBase
+                ? ((HttpEntityEnclosingRequestBase) hc4Request).getEntity()
+                : null;
+        if (entity != null) {
+            if (contentType == null && entity.getContentType() != null) {
+                contentType = entity.getContentType().getValue();
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream(
+                    entity.getContentLength() > 0 ? (int) Math.min(entity.getContentLength(), Integer.MAX_VALUE) : 256);
+            entity.writeTo(body);
+            request.setBody(body.toByteArray(), contentType == null ? null : ContentType.parse(contentType));
+        } else if (contentType != null) {
+            request.addHeader(HTTPConstants.HEADER_CONTENT_TYPE, contentType);
+        }
+        return request;
+    }
+
+    private SimpleHttpRequest createRequest(URL url, URI uri, HttpRequestBase hc4Request)
+            throws IOException, URISyntaxException {
+        return createRequest(url, uri, hc4Request, getAuthManager());
+    }
+
+    private static boolean isConnectionHeader(String name) {
+        for (String connectionHeader : CONNECTION_HEADERS) {
+            if (connectionHeader.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static InputStream decode(InputStream in, Header contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return in;
+        }
+        String coding = contentEncoding.getValue().trim().toLowerCase(Locale.ROOT);
+        switch (coding) {
+            case "gzip": //$NON-NLS-1$
+            case "x-gzip": //$NON-NLS-1$
+                return new LaxGZIPInputStream(in, GZIP_RELAX_MODE);
+            case "deflate": //$NON-NLS-1$
+                return new LaxDeflateInputStream(in, DEFLATE_RELAX_MODE);
+            case "br": //$NON-NLS-1$
+                return new BrotliInputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    private static String getReasonPhrase(SimpleHttpResponse response) {
+        String reason = response.getReasonPhrase();
+        if (JOrphanUtils.isBlank(reason)) {
+            // HTTP/2 has no reason phrase
+            reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(response.getCode(), Locale.ENGLISH);
+        }
+        return reason == null ? "" : reason;
+    }
+
+    static String getResponseHeaders(SimpleHttpResponse response) {
+        Header[] headers = response.getHeaders();
+        StringBuilder headerBuf = new StringBuilder(40 * (headers.length + 1));
+        ProtocolVersion version = response.getVersion();
+        headerBuf.append(version == null ? "HTTP/2.0" : version.format()) //$NON-NLS-1$
+                .append(' ')
+                .append(response.getCode())
+                .append(' ')
+                .append(getReasonPhrase(response))
+                .append('\n'); // $NON-NLS-1$
+        for (Header header : headers) {
+            writeHeader(headerBuf, header);
+        }
+        return headerBuf.toString();
+    }
+
+    private static String getRequestHeaders(SimpleHttpRequest request) {
+        if (request == null) {
+            return "";
+        }
+        StringBuilder headerBuf = new StringBuilder(150);
+        for (Header header : request.getHeaders()) {
+            if (ALL_EXCEPT_COOKIE.test(header.getName())) {
+                writeHeader(headerBuf, header);
+            }
+        }
+        if (localAddress != null) {
+            headerBuf.append(HEADER_LOCAL_ADDRESS).append(": ").append(localAddress).append('\n'); // $NON-NLS-1$
+        }
+        return headerBuf.toString();
+    }
+
+    private static void writeHeader(StringBuilder headerBuffer, Header header) {
+        headerBuffer.append(header.getName())
+                .append(": ") // $NON-NLS-1$
+                .append(header.getValue())
+                .append('\n'); // $NON-NLS-1$
+    }
+
+    /**
+     * HTTP/2 compresses the headers, count their size as if they were sent as text
+     */
+    private static long getSentBytes(SimpleHttpRequest request) {
+        long bytes = request.getMethod().length() + request.getRequestUri().length() + 12L;
+        for (Header header : request.getHeaders()) {
+            bytes += header.getName().length() + header.getValue().length() + 4L;
+        }
+        byte[] body = request.getBodyBytes();
+        return body == null ? bytes + 2L : bytes + 2L + body.length;
+    }
+
+    /**
+     * @return the response as expected by {@link CacheManager}
+     */
+    private static org.apache.http.HttpResponse toHC4Response(SimpleHttpResponse response) {
+        BasicHttpResponse hc4Response = new BasicHttpResponse(HttpVersion.HTTP_1_1, response.getCode(), getReasonPhrase(response));
+        for (Header header : response.getHeaders()) {
+            hc4Response.addHeader(header.getName(), header.getValue());
+        }
+        return hc4Response;
+    }
+
+    private static void saveConnectionCookies(SimpleHttpResponse response, URL u, CookieManager cookieManager) {
+        if (cookieManager != null) {
+            for (Header header : response.getHeaders(HTTPConstants.HEADER_SET_COOKIE)) {
+                cookieManager.addCookieFromHeader(header.getValue(), u);
+            }
+        }
+    }
+
+    /**
+     * Returns the client of the current thread for the scheme of the URL, or the client of the parent
+     * sample when downloading embedded resources in parallel, so that they are streams of the same connection.
+     */
+    private CloseableHttpAsyncClient setupClient(URL url) throws GeneralSecurityException {
+        if (sharedClient != null) {
+            return sharedClient.get();
+        }
+        Map<String, CloseableHttpAsyncClient> clients = CLIENTS_PER_THREAD.get();
+        Map<String, Object> samplerContext = JMeterContextService.getContext().getSamplerContext();
+        boolean concurrentDwn = testElement.isConcurrentDwn();
+        resetStateIfNeeded(clients);
+        // The client keeps one connection per target, HTTPS clients also hold the TLS context of the thread
+        String key = url.getProtocol().toLowerCase(Locale.ROOT);
+        CloseableHttpAsyncClient client = null;
+        if (concurrentDwn) {
+            @SuppressWarnings("unchecked")
+            Map<String, CloseableHttpAsyncClient> parentClients =
+                    (Map<String, CloseableHttpAsyncClient>) samplerContext.get(CONTEXT_ATTRIBUTE_PARENT_SAMPLE_CLIENT);
+            if (parentClients != null) {
+                clients = parentClients;
+            }
+        }
+        synchronized (clients) {
+            client = clients.get(key);
+            if (client == null) {
+                client = createClient(HTTPConstants.PROTOCOL_HTTPS.equalsIgnoreCase(url.getProtocol()));
+                client.start();
+                if (log.isDebugEnabled()) {
+                    log.debug("Created new HttpClient5: @{} {}", System.identityHashCode(client), key);
+                }
+                clients.put(key, client);
+            }
+        }
+        if (concurrentDwn) {
+            samplerContext.put(CONTEXT_ATTRIBUTE_PARENT_SAMPLE_CLIENT, clients);
+        }
+        return client;
+    }
+
+    private CloseableHttpAsyncClient createClient(boolean secure) throws GeneralSecurityException {
+        DNSCacheManager dnsCacheManager = testElement.getDNSResolver();
+        DnsResolver resolver = dnsCacheManager == null ? SystemDefaultDnsResolver.INSTANCE : new DnsResolver() {
+            @Override
+            public InetAddress[] resolve(String host) throws UnknownHostException {
+                return dnsCacheManager.resolve(host);
+            }
+
+            @Override
+            public String resolveCanonicalHostname(String host) throws UnknownHostException {
+                return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+            }
+        };
+        H2AsyncClientBuilder builder = H2AsyncClientBuilder.create()
+                .setH2Config(H2Config.custom().setPushEnabled(false).build())
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(IO_THREADS).build())
+                .setDnsResolver(resolver)
+                .disableCookieManagement()
+                .disableAutomaticRetries();
+        if (secure) {
+            builder.setTlsStrategy(createTlsStrategy());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates and starts a client for all JMeter threads.
+     */
+    private static CloseableHttpAsyncClient createSharedClient(HttpVersionPolicy versionPolicy)
+            throws GeneralSecurityException {
+        PoolingAsyncClientConnectionManagerBuilder connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setPoolConcurrencyPolicy(PoolConcurrencyPolicy.LAX)
+                .setMaxConnPerRoute(SHARED_MAX_CONNECTIONS_PER_ROUTE > 0 ? SHARED_MAX_CONNECTIONS_PER_ROUTE : Integer.MAX_VALUE)
+                .setTlsStrategy(createTlsStrategy());
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setVersionPolicy(versionPolicy)
+                .setH2Config(H2Config.custom().setPushEnabled(false).build())
+                .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(IO_THREADS).build())
+                .setConnectionManager(connectionManager.build())
+                .disableCookieManagement()
+                .disableAutomaticRetries()
+                .disableConnectionState()
+                .build();
+        client.start();
+        log.info("Started shared HttpClient5 with {} I/O threads, version policy {}", IO_THREADS, versionPolicy);
+        return client;
+    }
+
+    private static TlsStrategy createTlsStrategy() throws GeneralSecurityException {
+        // Same SSL context as HttpClient4, with the keystore and the per thread state of JMeter
+        return ClientTlsStrategyBuilder.create()
+                .setSslContext(((JsseSSLManager) SSLManager.getInstance()).getContext())
+                .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+                .build();
+    }
+
+    /**
+     * Closes the connections and resets the SSL state of the thread when it simulates a new user.
+     */
+    private static void resetStateIfNeeded(Map<String, CloseableHttpAsyncClient> clients) {
+        if (resetStateOnThreadGroupIteration.get()) {
+            closeClients(clients);
+            ((JsseSSLManager) SSLManager.getInstance()).resetContext();
+            resetStateOnThreadGroupIteration.set(Boolean.FALSE);
+        }
+    }
+
+    private static void closeClients(Map<String, CloseableHttpAsyncClient> clients) {
+        synchronized (clients) {
+            for (CloseableHttpAsyncClient client : clients.values()) {
+                client.close(CloseMode.GRACEFUL);
+            }
+            clients.clear();
+        }
+    }
+
+    @Override
+    protected void notifyFirstSampleAfterLoopRestart() {
+        JMeterVariables jMeterVariables = JMeterContextService.getContext().getVariables();
+        resetStateOnThreadGroupIteration.set(
+                !jMeterVariables.isSameUserOnNextIteration() && RESET_STATE_ON_THREAD_GROUP_ITERATION);
+    }
+
+    @Override
+    protected void threadFinished() {
+        log.debug("Thread Finished");
+        if (sharedClient != null) {
+            sharedClient.release();
+        } else {
+            closeClients(CLIENTS_PER_THREAD.get());
+        }
+    }
+
+    @Override
+    public boolean interrupt() {
+        Future<SimpleHttpResponse> request = currentRequest;
+        if (request != null) {
+            currentRequest = null; // don't try twice
+            request.cancel(true);
+        }
+        return request != null;
+    }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.samplers.ResponseBuffer;
 import org.apache.jmeter.samplers.SampleResult;
 
 /**
@@ -244,9 +245,8 @@ public class HTTPSampleResult extends SampleResult {
     @Override
     public String getDataEncodingNoDefault() {
         if (super.getDataEncodingNoDefault() == null && getContentType().startsWith("text/html")){ // $NON-NLS-1$
-            byte[] bytes=getResponseData();
             // get the start of the file
-            String prefix = new String(bytes, 0, Math.min(bytes.length, 2000), Charset.forName(DEFAULT_HTTP_ENCODING));
+            String prefix = getResponsePrefix(2000);
             // Preserve original case
             String matchAgainst = prefix.toLowerCase(java.util.Locale.ENGLISH);
             // Extract the content-type if present
@@ -264,6 +264,24 @@ public class HTTPSampleResult extends SampleResult {
         return super.getDataEncodingNoDefault();
     }
 
+    /**
+     * Decodes the start of the response data, reading a pooled buffer in place rather than copying the data.
+     */
+    private String getResponsePrefix(int maxLength) {
+        Charset charset = Charset.forName(DEFAULT_HTTP_ENCODING);
+        ResponseBuffer buffer = getResponseBuffer();
+        if (buffer != null && buffer.tryRetain()) {
+            // Keeps the array from going back to the pool while it is decoded
+            try {
+                return new String(buffer.getArray(), 0, Math.min(buffer.getLength(), maxLength), charset);
+            } finally {
+                buffer.release();
+            }
+        }
+        byte[] bytes = getResponseData();
+        return new String(bytes, 0, Math.min(bytes.length, maxLength), charset);
+    }
+
     public void setResponseNoContent(){
         setResponseCode(HTTP_NO_CONTENT_CODE);
         setResponseMessage(HTTP_NO_CONTENT_MSG);
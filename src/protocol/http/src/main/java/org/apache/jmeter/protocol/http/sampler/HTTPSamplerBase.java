@@ -52,6 +52,7 @@ import org.apache.jmeter.config.ConfigTestElement;
 import org.apache.jmeter.config.KeystoreConfig;
 import org.apache.jmeter.engine.event.LoopIterationEvent;
 import org.apache.jmeter.gui.Replaceable;
+import org.apache.jmeter.protocol.http.config.ResponseStreamingConfig;
 import org.apache.jmeter.protocol.http.control.AuthManager;
 import org.apache.jmeter.protocol.http.control.CacheManager;
 import org.apache.jmeter.protocol.http.control.Cookie;
@@ -62,17 +63,20 @@ import org.apache.jmeter.protocol.http.parser.BaseParser;
 import org.apache.jmeter.protocol.http.parser.LinkExtractorParseException;
 import org.apache.jmeter.protocol.http.parser.LinkExtractorParser;
 import org.apache.jmeter.protocol.http.sampler.ResourcesDownloader.AsynSamplerResultHolder;
+import org.apache.jmeter.protocol.http.sampler.stream.ResponseStreamPipeline;
 import org.apache.jmeter.protocol.http.util.ConversionUtils;
 import org.apache.jmeter.protocol.http.util.DirectAccessByteArrayOutputStream;
 import org.apache.jmeter.protocol.http.util.EncoderCache;
 import org.apache.jmeter.protocol.http.util.HTTPArgument;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
 import org.apache.jmeter.protocol.http.util.HTTPConstantsInterface;
+import org.apache.jmeter.protocol.http.util.ResponseBufferPool;
 import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.protocol.http.util.HTTPFileArgs;
 import org.apache.jmeter.report.utils.MetricUtils;
 import org.apache.jmeter.samplers.AbstractSampler;
 import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.ResponseBuffer;
 import org.apache.jmeter.samplers.SampleResult;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestIterationListener;
@@ -138,6 +142,8 @@ public abstract class HTTPSamplerBase extends AbstractSampler
 
     public static final String DNS_CACHE_MANAGER = "HTTPSampler.dns_cache_manager"; // $NON-NLS-1$
 
+    public static final String RESPONSE_STREAMING_CONFIG = "HTTPSampler.response_streaming_config"; // $NON-NLS-1$
+
     public static final String DOMAIN = "HTTPSampler.domain"; // $NON-NLS-1$
 
     public static final String PORT = "HTTPSampler.port"; // $NON-NLS-1$
@@ -210,6 +216,9 @@ public abstract class HTTPSamplerBase extends AbstractSampler
     private static final int MAX_BUFFER_SIZE =
             JMeterUtils.getPropDefault("httpsampler.max_buffer_size", 65 * 1024); // $NON-NLS-1$
 
+    private static final boolean POOLED_BUFFERS =
+            JMeterUtils.getPropDefault("httpsampler.pooled_buffers", false); // $NON-NLS-1$
+
     private static final boolean IGNORE_FAILED_EMBEDDED_RESOURCES =
             JMeterUtils.getPropDefault("httpsampler.ignore_failed_embedded_resources", false); // $NON-NLS-1$ // default value: false
 
@@ -347,6 +356,9 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         }
     }
 
+    /** Set while embedded resources are downloaded, their responses do not set variables */
+    private transient boolean downloadingResources;
+
     ////////////////////// Code ///////////////////////////
 
     protected HTTPSamplerBase() {
@@ -732,6 +744,8 @@ public abstract class HTTPSamplerBase extends AbstractSampler
             setDNSResolver((DNSCacheManager) el);
         } else if (el instanceof KeystoreConfig) {
             setKeystoreConfigProperty((KeystoreConfig) el);
+        } else if (el instanceof ResponseStreamingConfig) {
+            setResponseStreamingConfig((ResponseStreamingConfig) el);
         }  else {
             super.addTestElement(el);
         }
@@ -1014,6 +1028,26 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         setProperty(new TestElementProperty(DNS_CACHE_MANAGER, cacheManager));
     }
 
+    /**
+     * @return the configuration of the responses read through a pipeline, or null when they are stored
+     * @since 5.5.1
+     */
+    public ResponseStreamingConfig getResponseStreamingConfig() {
+        return (ResponseStreamingConfig) getProperty(RESPONSE_STREAMING_CONFIG).getObjectValue();
+    }
+
+    /**
+     * @param value configuration of the responses read through a pipeline
+     * @since 5.5.1
+     */
+    public void setResponseStreamingConfig(ResponseStreamingConfig value) {
+        ResponseStreamingConfig mgr = getResponseStreamingConfig();
+        if (mgr != null && log.isWarnEnabled()) {
+            log.warn("Existing ResponseStreamingConfig {} superseded by {}", mgr.getName(), value.getName());
+        }
+        setProperty(new TestElementProperty(RESPONSE_STREAMING_CONFIG, value));
+    }
+
     public boolean isImageParser() {
         return getPropertyAsBoolean(IMAGE_PARSER, false);
     }
@@ -1784,7 +1818,13 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                 if (!wasRedirected) {
                     HTTPSampleResult container = (HTTPSampleResult) (
                             areFollowingRedirect ? res.getParent() : SEPARATE_CONTAINER ? null : res);
-                    res = downloadPageResources(res, container, frameDepth);
+                    boolean wasDownloadingResources = downloadingResources;
+                    downloadingResources = true;
+                    try {
+                        res = downloadPageResources(res, container, frameDepth);
+                    } finally {
+                        downloadingResources = wasDownloadingResources;
+                    }
                 }
             }
         }
@@ -1905,6 +1945,10 @@ public abstract class HTTPSamplerBase extends AbstractSampler
      * <p>
      * For the MD5 case, the result byte count is set to the size of the original response.
      * <p>
+     * When a {@link ResponseStreamingConfig} applies and the MD5 property is not set, the response is read
+     * through its pipeline and only its first bytes are returned, the result byte count being
+     * the size of the original response. The variables are not set for embedded resources.
+     * <p>
      * Closes the inputStream
      *
      * @param sampleResult sample to store information about the response into
@@ -1915,9 +1959,26 @@ public abstract class HTTPSamplerBase extends AbstractSampler
      */
     public byte[] readResponse(SampleResult sampleResult, InputStream in, long length) throws IOException {
 
+        ResponseStreamingConfig streamingConfig = getResponseStreamingConfig();
+        JMeterContext context = JMeterContextService.getContext();
+        if (streamingConfig != null && !useMD5() && !context.isRecording()) {
+            try (Closeable ignore = in) {
+                ResponseStreamPipeline pipeline = streamingConfig.createPipeline(sampleResult);
+                if (POOLED_BUFFERS) {
+                    pipeline.setReadBuffer(ResponseBufferPool.get().getReadBuffer());
+                }
+                byte[] prefix = pipeline.read(sampleResult, in, length,
+                        downloadingResources ? null : context.getVariables());
+                sampleResult.setBytes(pipeline.getTotalBytes());
+                return prefix;
+            }
+        }
+
         OutputStream w = null;
         try (Closeable ignore = in) { // NOSONAR No try with resource as performance is critical here
-            byte[] readBuffer = new byte[8192]; // 8kB is the (max) size to have the latency ('the first packet')
+            byte[] readBuffer = POOLED_BUFFERS
+                    ? ResponseBufferPool.get().getReadBuffer()
+                    : new byte[8192]; // 8kB is the (max) size to have the latency ('the first packet')
             int bufferSize = 32;// Enough for MD5
 
             MessageDigest md = null;
@@ -1991,6 +2052,62 @@ public abstract class HTTPSamplerBase extends AbstractSampler
         }
     }
 
+    /**
+     * Read response from the input stream into the result.
+     * <p>
+     * When the {@code httpsampler.pooled_buffers} property is true, the response is read with the read buffer
+     * of the thread into a pooled {@link ResponseBuffer}, which the result holds until it is released.
+     * Otherwise, or when the response is converted to MD5, streamed or recorded,
+     * the result gets the data returned by {@link #readResponse(SampleResult, InputStream, long)}.
+     * <p>
+     * Closes the inputStream
+     *
+     * @param sampleResult sample to store the response into
+     * @param in input stream from which to read the response
+     * @param length expected input length or zero
+     * @throws IOException if reading the result fails
+     * @since 5.5.1
+     */
+    protected void readResponseData(SampleResult sampleResult, InputStream in, long length) throws IOException {
+        if (!POOLED_BUFFERS || useMD5() || getResponseStreamingConfig() != null
+                || JMeterContextService.getContext().isRecording()) {
+            sampleResult.setResponseData(readResponse(sampleResult, in, length));
+            return;
+        }
+        ResponseBufferPool pool = ResponseBufferPool.get();
+        ResponseBuffer buffer = null;
+        try (Closeable ignore = in) {
+            byte[] readBuffer = pool.getReadBuffer();
+            int bytesReadInBuffer;
+            long totalBytes = 0;
+            while ((bytesReadInBuffer = in.read(readBuffer)) > -1) {
+                if (buffer == null) {
+                    sampleResult.latencyEnd();
+                    buffer = pool.acquire(length > 0 ? (int) Math.min(MAX_BUFFER_SIZE, length) : 4 * 1024);
+                }
+                int stored = bytesReadInBuffer;
+                if (MAX_BYTES_TO_STORE_PER_REQUEST > 0
+                        && totalBytes + bytesReadInBuffer > MAX_BYTES_TO_STORE_PER_REQUEST) {
+                    log.debug("Big response, truncating it to {} bytes", MAX_BYTES_TO_STORE_PER_REQUEST);
+                    stored = (int) Math.max(0, MAX_BYTES_TO_STORE_PER_REQUEST - totalBytes);
+                }
+                buffer.write(readBuffer, 0, stored);
+                totalBytes += bytesReadInBuffer;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (buffer != null) {
+                buffer.release();
+            }
+            throw e;
+        }
+        if (buffer == null) { // Bug 46838 - if there was no data, still need to set latency
+            sampleResult.latencyEnd();
+            sampleResult.setResponseData(new byte[0]);
+        } else {
+            sampleResult.setResponseData(buffer);
+        }
+    }
+
     /**
      * Optimized method to get byte array from {@link OutputStream}
      * @param w {@link OutputStream}
@@ -2154,6 +2271,7 @@ public abstract class HTTPSamplerBase extends AbstractSampler
                 this.sampler.setCookieManagerProperty(clonedCookieManager);
             }
             this.sampler.setMD5(this.sampler.useMD5() || IGNORE_EMBEDDED_RESOURCES_DATA);
+            this.sampler.downloadingResources = true;
             this.jmeterContextOfParentThread = JMeterContextService.getContext();
         }
 
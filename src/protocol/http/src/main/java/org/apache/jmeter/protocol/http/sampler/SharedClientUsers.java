@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterThread;
+
+/**
+ * Tracks the JMeter threads that use the clients shared by all threads of an HTTP implementation,
+ * so that these clients are closed when the last of these threads finishes.
+ * <p>
+ * Embedded resources downloaded in parallel are sampled by other threads in the context of the
+ * JMeter thread of the parent sample, so they count as that JMeter thread.
+ */
+final class SharedClientUsers {
+
+    private final Set<Object> users = new HashSet<>();
+
+    /** JMeter thread registered from the current thread, to register each once */
+    private final ThreadLocal<Object> registeredUser = new ThreadLocal<>();
+
+    private final Runnable closeClients;
+
+    /**
+     * @param closeClients closes the shared clients, called with the lock of this object held
+     */
+    SharedClientUsers(Runnable closeClients) {
+        this.closeClients = closeClients;
+    }
+
+    /**
+     * Registers the JMeter thread of the current context as a user of the shared clients.
+     * Must be called before getting a shared client.
+     */
+    void register() {
+        Object user = currentUser();
+        if (registeredUser.get() != user) {
+            synchronized (this) {
+                users.add(user);
+            }
+            registeredUser.set(user);
+        }
+    }
+
+    /**
+     * Unregisters the JMeter thread of the current context, and closes the shared clients
+     * when it was their last user.
+     */
+    void release() {
+        Object user = currentUser();
+        registeredUser.remove();
+        synchronized (this) {
+            if (users.remove(user) && users.isEmpty()) {
+                closeClients.run();
+            }
+        }
+    }
+
+    private static Object currentUser() {
+        JMeterThread thread = JMeterContextService.getContext().getThread();
+        return thread != null ? thread : Thread.currentThread();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.util.JOrphanUtils;
+
+/**
+ * Computes a digest of the body and stores it in hexadecimal in a variable.
+ *
+ * @since 5.5.1
+ */
+public class DigestStreamConsumer implements ResponseStreamConsumer {
+
+    private final MessageDigest digest;
+    private final String variableName;
+
+    /**
+     * @param algorithm    name of the digest algorithm, e.g. {@code SHA-256}
+     * @param variableName name of the variable to store the digest into
+     * @throws NoSuchAlgorithmException when the algorithm is not available
+     */
+    public DigestStreamConsumer(String algorithm, String variableName) throws NoSuchAlgorithmException {
+        this.digest = MessageDigest.getInstance(algorithm);
+        this.variableName = variableName;
+    }
+
+    @Override
+    public void consume(byte[] buffer, int offset, int length) {
+        digest.update(buffer, offset, length);
+    }
+
+    @Override
+    public void end(SampleResult result, JMeterVariables variables) {
+        String hex = JOrphanUtils.baToHexString(digest.digest());
+        if (variables != null) {
+            variables.put(variableName, hex);
+        }
+    }
+}
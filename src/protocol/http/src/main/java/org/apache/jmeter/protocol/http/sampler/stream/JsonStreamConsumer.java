@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+/**
+ * Finds the first scalar value at a path of the body, parsing it as JSON tokens while it is read,
+ * and stores it in a variable. The variable is removed when the path is not found.
+ * <p>
+ * Paths are absolute and made of names and indexes only, e.g. {@code $.store.book[0].title}
+ * or {@code $['store']['book'][0]['title']}.
+ *
+ * @since 5.5.1
+ */
+public class JsonStreamConsumer implements ResponseStreamConsumer {
+    private static final Logger log = LoggerFactory.getLogger(JsonStreamConsumer.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Names and indexes of the path */
+    private final Object[] path;
+    private final String variableName;
+    private final JsonParser parser;
+    private String value;
+    private boolean done;
+
+    /**
+     * @param path         path of the value
+     * @param variableName name of the variable to store the value into
+     * @throws IOException when the parser cannot be created
+     * @throws IllegalArgumentException when the path is not supported
+     */
+    public JsonStreamConsumer(String path, String variableName) throws IOException {
+        this.path = parsePath(path);
+        this.variableName = variableName;
+        this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+    }
+
+    static Object[] parsePath(String path) {
+        String text = path.trim();
+        if (!text.startsWith("$")) { // $NON-NLS-1$
+            throw new IllegalArgumentException("JSON path must start with $: " + path);
+        }
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                int end = i + 1;
+                while (end < text.length() && text.charAt(end) != '.' && text.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i + 1) {
+                    throw new IllegalArgumentException("Unsupported JSON path: " + path);
+                }
+                segments.add(text.substring(i + 1, end));
+                i = end;
+            } else if (c == '[') {
+                int end = text.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unsupported JSON path: " + path);
+                }
+                String segment = text.substring(i + 1, end).trim();
+                if (segment.length() >= 2 && (segment.charAt(0) == '\'' || segment.charAt(0) == '"')
+                        && segment.charAt(segment.length() - 1) == segment.charAt(0)) {
+                    segments.add(segment.substring(1, segment.length() - 1));
+                } else {
+                    try {
+                        segments.add(Integer.valueOf(segment));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Unsupported JSON path: " + path, e);
+                    }
+                }
+                i = end + 1;
+            } else {
+                throw new IllegalArgumentException("Unsupported JSON path: " + path);
+            }
+        }
+        return segments.toArray();
+    }
+
+    @Override
+    public void consume(byte[] buffer, int offset, int length) throws IOException {
+        if (done) {
+            return;
+        }
+        ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(buffer, offset, offset + length);
+        nextTokens();
+    }
+
+    /**
+     * Reads the tokens available, the parser references the buffer until they are all read.
+     */
+    private void nextTokens() {
+        try {
+            JsonToken token;
+            while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (token.isScalarValue() && matches(parser.getParsingContext())) {
+                    value = parser.getText();
+                    done = true;
+                }
+            }
+            if (!done && parser.isClosed()) {
+                done = true;
+            }
+        } catch (IOException e) {
+            log.debug("Response is not JSON, stop looking for {}", variableName, e);
+            done = true;
+        }
+    }
+
+    private boolean matches(JsonStreamContext context) {
+        int i = path.length - 1;
+        for (JsonStreamContext c = context; !c.inRoot(); c = c.getParent(), i--) {
+            if (i < 0) {
+                return false;
+            }
+            Object segment = path[i];
+            if (c.inArray()) {
+                if (!(segment instanceof Integer) || (Integer) segment != c.getCurrentIndex()) {
+                    return false;
+                }
+            } else if (!segment.equals(c.getCurrentName())) {
+                return false;
+            }
+        }
+        return i == -1;
+    }
+
+    @Override
+    public void end(SampleResult result, JMeterVariables variables) throws IOException {
+        if (!done) {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+            nextTokens();
+        }
+        parser.close();
+        if (variables == null) {
+            return;
+        }
+        if (value != null) {
+            variables.put(variableName, value);
+        } else {
+            variables.remove(variableName);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * Finds the first match of a regular expression in the body, decoding it incrementally,
+ * and stores its first group, or the whole match when the expression has no group, in a variable.
+ * The variable is removed when nothing matches.
+ * <p>
+ * Only the last {@code maxMatchLength} characters are kept between two reads,
+ * so a match longer than that may be missed.
+ *
+ * @since 5.5.1
+ */
+public class RegexStreamConsumer implements ResponseStreamConsumer {
+
+    private final Matcher matcher;
+    private final String variableName;
+    private final int maxMatchLength;
+    private final CharsetDecoder decoder;
+    private final StringBuilder window = new StringBuilder();
+    private CharBuffer decoded = CharBuffer.allocate(8192);
+    /** Bytes of an incomplete character at the end of the previous read */
+    private ByteBuffer remaining = ByteBuffer.allocate(16);
+    private String value;
+
+    /**
+     * @param pattern        the regular expression
+     * @param variableName   name of the variable to store the match into
+     * @param maxMatchLength maximum length in characters of a match
+     * @param charset        charset of the body
+     */
+    public RegexStreamConsumer(Pattern pattern, String variableName, int maxMatchLength, Charset charset) {
+        this.matcher = pattern.matcher("");
+        this.variableName = variableName;
+        this.maxMatchLength = Math.max(1, maxMatchLength);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public void consume(byte[] buffer, int offset, int length) {
+        if (value != null) {
+            return;
+        }
+        ByteBuffer input = ByteBuffer.wrap(buffer, offset, length);
+        if (remaining.position() > 0) {
+            // Complete the character split over the two reads
+            while (remaining.hasRemaining() && input.hasRemaining()) {
+                remaining.put(input.get());
+                remaining.flip();
+                decode(remaining, false);
+                if (!remaining.hasRemaining()) {
+                    remaining.clear();
+                    break;
+                }
+                remaining.compact();
+            }
+        }
+        decode(input, false);
+        if (input.hasRemaining()) {
+            remaining.put(input);
+        }
+        find(false);
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) {
+        if (decoded.capacity() < input.remaining()) {
+            decoded = CharBuffer.allocate(input.remaining());
+        }
+        decoded.clear();
+        decoder.decode(input, decoded, endOfInput);
+        decoded.flip();
+        window.append(decoded);
+    }
+
+    /**
+     * Looks for a match in the window, keeping the match only when more input cannot change it.
+     */
+    private void find(boolean endOfInput) {
+        matcher.reset(window);
+        if (matcher.find() && (endOfInput || !matcher.hitEnd())) {
+            value = matcher.group(matcher.groupCount() > 0 ? 1 : 0);
+        }
+        if (value == null && !endOfInput && window.length() > maxMatchLength) {
+            window.delete(0, window.length() - maxMatchLength);
+        }
+    }
+
+    @Override
+    public void end(SampleResult result, JMeterVariables variables) {
+        if (value == null) {
+            remaining.flip();
+            decode(remaining, true);
+            find(true);
+        }
+        if (variables == null) {
+            return;
+        }
+        if (value != null) {
+            variables.put(variableName, value);
+        } else {
+            variables.remove(variableName);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import java.io.IOException;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apiguardian.api.API;
+
+/**
+ * Consumes the body of a response while it is read from the connection,
+ * so that what is needed from it is computed without keeping the body in memory.
+ * <p>
+ * A consumer is created for each response and used by a single thread.
+ *
+ * @see ResponseStreamPipeline
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public interface ResponseStreamConsumer {
+
+    /**
+     * Consumes the next bytes of the body. The buffer is reused once the method returns.
+     *
+     * @param buffer buffer holding the bytes
+     * @param offset offset of the first byte in the buffer
+     * @param length number of bytes
+     * @throws IOException when the bytes cannot be consumed
+     */
+    void consume(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Called once the whole body was consumed, to store what was computed.
+     *
+     * @param result    result of the sample that read the response
+     * @param variables variables of the thread, may be {@code null}
+     * @throws IOException when the end of the body cannot be consumed
+     */
+    void end(SampleResult result, JMeterVariables variables) throws IOException;
+}
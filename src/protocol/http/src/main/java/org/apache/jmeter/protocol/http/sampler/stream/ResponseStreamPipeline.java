@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apiguardian.api.API;
+
+/**
+ * Reads the body of a response through {@link ResponseStreamConsumer}s, keeping only its first bytes,
+ * so that the memory used does not depend on the size of the body.
+ * <p>
+ * When an {@link XPathStreamExtractor} is set, it reads the body first, the consumers getting
+ * the bytes as it reads them, then the rest of the body is read.
+ * A pipeline reads a single response.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public class ResponseStreamPipeline {
+
+    private final int prefixSize;
+    private final List<ResponseStreamConsumer> consumers = new ArrayList<>();
+    private XPathStreamExtractor xpathExtractor;
+    private byte[] readBuffer;
+
+    private ByteArrayOutputStream prefix;
+    private long totalBytes;
+
+    /**
+     * @param prefixSize number of bytes of the body to keep
+     */
+    public ResponseStreamPipeline(int prefixSize) {
+        this.prefixSize = Math.max(0, prefixSize);
+    }
+
+    /**
+     * @param consumer consumer to add, gets the bytes in the order of the calls
+     * @return this pipeline
+     */
+    public ResponseStreamPipeline addConsumer(ResponseStreamConsumer consumer) {
+        consumers.add(consumer);
+        return this;
+    }
+
+    /**
+     * @param extractor extractor that reads the body, replaces the previous one
+     * @return this pipeline
+     */
+    public ResponseStreamPipeline setXPathExtractor(XPathStreamExtractor extractor) {
+        this.xpathExtractor = extractor;
+        return this;
+    }
+
+    /**
+     * @param readBuffer buffer to read the body with, e.g. a pooled one, a new one is used by default
+     * @return this pipeline
+     */
+    public ResponseStreamPipeline setReadBuffer(byte[] readBuffer) {
+        this.readBuffer = readBuffer;
+        return this;
+    }
+
+    /**
+     * Reads the body, sets the latency of the result when the first bytes are read,
+     * then lets the consumers store what they computed.
+     *
+     * @param result    result of the sample
+     * @param in        body of the response, is not closed
+     * @param length    expected length of the body or zero
+     * @param variables variables of the thread, may be {@code null}
+     * @return the first bytes of the body
+     * @throws IOException when reading the body fails
+     */
+    public byte[] read(SampleResult result, InputStream in, long length, JMeterVariables variables)
+            throws IOException {
+        int initialSize = length > 0 ? (int) Math.min(prefixSize, length) : Math.min(prefixSize, 4 * 1024);
+        prefix = new ByteArrayOutputStream(initialSize);
+        ConsumingInputStream body = new ConsumingInputStream(in, result);
+        if (xpathExtractor != null) {
+            xpathExtractor.parse(body);
+        }
+        byte[] buffer = readBuffer != null ? readBuffer : new byte[8192];
+        while (body.read(buffer) > -1) { // NOSONAR Reads until the end, bytes are consumed by the stream
+        }
+        if (totalBytes == 0) {
+            result.latencyEnd();
+        }
+        for (ResponseStreamConsumer consumer : consumers) {
+            consumer.end(result, variables);
+        }
+        if (xpathExtractor != null) {
+            xpathExtractor.end(result, variables);
+        }
+        return prefix.toByteArray();
+    }
+
+    /**
+     * @return number of bytes of the body read
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void accept(SampleResult result, byte[] buffer, int offset, int length) throws IOException {
+        if (totalBytes == 0) {
+            result.latencyEnd();
+        }
+        int kept = (int) Math.min(length, prefixSize - (long) prefix.size());
+        if (kept > 0) {
+            prefix.write(buffer, offset, kept);
+        }
+        for (ResponseStreamConsumer consumer : consumers) {
+            consumer.consume(buffer, offset, length);
+        }
+        totalBytes += length;
+    }
+
+    /**
+     * Passes the bytes read to the pipeline. Closing it does not close the response,
+     * as parsers close their input once done.
+     */
+    private final class ConsumingInputStream extends FilterInputStream {
+        private final SampleResult result;
+
+        ConsumingInputStream(InputStream in, SampleResult result) {
+            super(in);
+            this.result = result;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) > 0 ? b[0] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                accept(result, b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] b = new byte[(int) Math.min(n, 8192)];
+            int read = read(b, 0, b.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // The sampler closes the response
+        }
+    }
+}
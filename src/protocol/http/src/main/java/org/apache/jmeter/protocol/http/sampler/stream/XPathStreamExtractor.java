@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Finds the first node at a path of the body, parsing it with SAX while it is read,
+ * and stores its text or the value of the attribute in a variable.
+ * The variable is removed when the path is not found.
+ * <p>
+ * Paths are made of element names or {@code *}, optionally start with {@code //} to match
+ * at any depth, and may end with {@code @attribute} or {@code text()},
+ * e.g. {@code /feed/entry/title} or {@code //entry/link/@href}. Namespace prefixes are ignored.
+ * <p>
+ * Unlike {@link ResponseStreamConsumer}s, the extractor reads the body itself, see {@link ResponseStreamPipeline}.
+ *
+ * @since 5.5.1
+ */
+public class XPathStreamExtractor {
+    private static final Logger log = LoggerFactory.getLogger(XPathStreamExtractor.class);
+
+    private static final String ANY = "*"; // $NON-NLS-1$
+
+    private static final ThreadLocal<SAXParser> PARSERS = ThreadLocal.withInitial(XPathStreamExtractor::createParser);
+
+    /** Thrown to stop parsing once the node is found */
+    private static final class Found extends SAXException {
+        private static final long serialVersionUID = 1L;
+
+        Found() {
+            super("Node found"); // $NON-NLS-1$
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    private final String[] steps;
+    private final boolean anywhere;
+    private final String attribute;
+    private final String variableName;
+    private String value;
+
+    /**
+     * @param path         path of the node
+     * @param variableName name of the variable to store the value into
+     * @throws IllegalArgumentException when the path is not supported
+     */
+    public XPathStreamExtractor(String path, String variableName) {
+        String text = path.trim();
+        this.anywhere = text.startsWith("//"); // $NON-NLS-1$
+        if (!text.startsWith("/")) { // $NON-NLS-1$
+            throw new IllegalArgumentException("XPath must be absolute: " + path);
+        }
+        List<String> parts = new ArrayList<>(Arrays.asList(text.substring(anywhere ? 2 : 1).split("/"))); // $NON-NLS-1$
+        String last = parts.get(parts.size() - 1);
+        if (last.startsWith("@")) { // $NON-NLS-1$
+            attribute = last.substring(1);
+            parts.remove(parts.size() - 1);
+        } else {
+            attribute = null;
+            if ("text()".equals(last)) { // $NON-NLS-1$
+                parts.remove(parts.size() - 1);
+            }
+        }
+        if (parts.isEmpty() || parts.contains("")) {
+            throw new IllegalArgumentException("Unsupported XPath: " + path);
+        }
+        this.steps = parts.toArray(new String[0]);
+        this.variableName = variableName;
+    }
+
+    private static SAXParser createParser() {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false); // $NON-NLS-1$
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false); // $NON-NLS-1$
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false); // $NON-NLS-1$
+            return factory.newSAXParser();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IllegalStateException("Could not create SAX parser", e);
+        }
+    }
+
+    /**
+     * Parses the body until the node is found. The caller reads the rest of the body.
+     *
+     * @param in body of the response, is not closed
+     * @throws IOException when reading the body fails
+     */
+    public void parse(InputStream in) throws IOException {
+        SAXParser parser = PARSERS.get();
+        try {
+            parser.parse(in, new Handler());
+        } catch (Found e) {
+            // value is set
+        } catch (SAXException e) {
+            log.debug("Response is not XML, stop looking for {}", variableName, e);
+        } finally {
+            parser.reset();
+        }
+    }
+
+    /**
+     * Stores the value found.
+     *
+     * @param result    result of the sample that read the response
+     * @param variables variables of the thread, may be {@code null}
+     */
+    public void end(SampleResult result, JMeterVariables variables) {
+        if (variables == null) {
+            return;
+        }
+        if (value != null) {
+            variables.put(variableName, value);
+        } else {
+            variables.remove(variableName);
+        }
+    }
+
+    private final class Handler extends DefaultHandler {
+        private final List<String> elements = new ArrayList<>();
+        /** Text of the element found, when it is being read */
+        private StringBuilder text;
+        private int textDepth;
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            elements.add(localName(qName));
+            if (text != null || !matches()) {
+                return;
+            }
+            if (attribute == null) {
+                text = new StringBuilder();
+                textDepth = elements.size();
+                return;
+            }
+            for (int i = 0; i < attributes.getLength(); i++) {
+                if (attribute.equals(localName(attributes.getQName(i)))) {
+                    value = attributes.getValue(i);
+                    throw new Found();
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (text != null) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (text != null && elements.size() == textDepth) {
+                value = text.toString();
+                throw new Found();
+            }
+            elements.remove(elements.size() - 1);
+        }
+
+        private boolean matches() {
+            int offset = elements.size() - steps.length;
+            if (offset < 0 || (offset > 0 && !anywhere)) {
+                return false;
+            }
+            for (int i = 0; i < steps.length; i++) {
+                String step = steps[i];
+                if (!ANY.equals(step) && !step.equals(elements.get(offset + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String localName(String qName) {
+            int colon = qName.indexOf(':');
+            return colon < 0 ? qName : qName.substring(colon + 1);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import org.apache.jmeter.samplers.ResponseBuffer;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apiguardian.api.API;
+
+/**
+ * Thread-affine pool of the buffers used to read responses and store their data,
+ * so that sampling allocates no buffer once the pool of the thread holds enough of them.
+ * <p>
+ * Each thread has its own pool, used without synchronization. Arrays of {@link ResponseBuffer}s released
+ * by another thread, or larger than {@code httpsampler.pooled_buffers.max_size}, are left to the garbage collector.
+ *
+ * @since 5.5.1
+ */
+@API(status = API.Status.EXPERIMENTAL, since = "5.5.1")
+public final class ResponseBufferPool {
+
+    /** Size of the read buffer, 8kB is the (max) size to have the latency ('the first packet') */
+    public static final int READ_BUFFER_SIZE = 8192;
+
+    private static final int MAX_POOLED_SIZE =
+            JMeterUtils.getPropDefault("httpsampler.pooled_buffers.max_size", 65 * 1024); // $NON-NLS-1$
+
+    private static final int MAX_POOLED_BUFFERS =
+            JMeterUtils.getPropDefault("httpsampler.pooled_buffers.per_thread", 4); // $NON-NLS-1$
+
+    private static final ThreadLocal<ResponseBufferPool> POOLS = ThreadLocal.withInitial(
+            () -> new ResponseBufferPool(MAX_POOLED_SIZE, MAX_POOLED_BUFFERS));
+
+    private final Thread owner = Thread.currentThread();
+    private final int maxPooledSize;
+    private final int maxPooledBuffers;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    /** Free arrays, most recently released first */
+    private final Deque<byte[]> arrays = new ArrayDeque<>();
+
+    ResponseBufferPool(int maxPooledSize, int maxPooledBuffers) {
+        this.maxPooledSize = maxPooledSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * @return the pool of the current thread
+     */
+    public static ResponseBufferPool get() {
+        return POOLS.get();
+    }
+
+    /**
+     * @return the buffer to read responses with, reused by all the reads of the current thread
+     */
+    public byte[] getReadBuffer() {
+        return readBuffer;
+    }
+
+    /**
+     * Gets a buffer to store response data into, whose array comes back to this pool once released
+     * by the current thread.
+     *
+     * @param expectedLength expected length of the data, the buffer grows when needed
+     * @return an empty buffer
+     */
+    public ResponseBuffer acquire(int expectedLength) {
+        byte[] array = null;
+        for (Iterator<byte[]> it = arrays.iterator(); it.hasNext();) {
+            byte[] candidate = it.next();
+            if (candidate.length >= expectedLength) {
+                array = candidate;
+                it.remove();
+                break;
+            }
+        }
+        if (array == null) {
+            // Let the largest one grow, the arrays pooled get as large as the responses
+            array = arrays.isEmpty() ? new byte[Math.max(expectedLength, 1024)] : removeLargest();
+        }
+        return new ResponseBuffer(array, this::recycle);
+    }
+
+    private byte[] removeLargest() {
+        byte[] largest = null;
+        for (byte[] candidate : arrays) {
+            if (largest == null || candidate.length > largest.length) {
+                largest = candidate;
+            }
+        }
+        arrays.remove(largest);
+        return largest;
+    }
+
+    private void recycle(byte[] array) {
+        if (Thread.currentThread() == owner
+                && array.length <= maxPooledSize
+                && arrays.size() < maxPooledBuffers) {
+            arrays.push(array);
+        }
+    }
+
+    /**
+     * @return the number of free arrays
+     */
+    int size() {
+        return arrays.size();
+    }
+}
@@ -109,6 +109,10 @@ public class ParallelResourcesAndIpSource {
         localIps.sort(Comparator.comparing(InetAddress::toString));
 
         for (String impl : HTTPSamplerFactory.getImplementations()) {
+            if (HTTPSamplerFactory.IMPL_HTTP_CLIENT5.equals(impl)) {
+                // It does not support IP source addresses, and WireMock serves HTTP/1.1 only
+                continue;
+            }
             for (String targetHost : new String[]{"127.0.0.1", "[::1]", "localhost"}) {
                 if ("localhost".equals(targetHost)) {
                     // Neither implementation supports resolving localhost
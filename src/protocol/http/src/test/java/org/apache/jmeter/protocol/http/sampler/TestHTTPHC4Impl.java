@@ -22,10 +22,46 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.jmeter.junit.JMeterTestCase;
 import org.apache.jmeter.protocol.http.control.gui.HttpTestSampleGui;
 import org.apache.jmeter.protocol.http.util.HTTPArgument;
 import org.apache.jmeter.protocol.http.util.HTTPConstants;
@@ -33,23 +69,200 @@ import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.threads.JMeterContext;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.parallel.Execution;
 import org.junit.jupiter.api.parallel.ExecutionMode;
 
 @Execution(ExecutionMode.CONCURRENT)
-public class TestHTTPHC4Impl {
+public class TestHTTPHC4Impl extends JMeterTestCase {
     private JMeterContext jmctx;
     private JMeterVariables jmvars;
     private static final String SAME_USER = "__jmv_SAME_USER";
 
+    /** Time in milliseconds before the server answers the samples of the shared pool */
+    private static final int RESPONSE_DELAY = 100;
+    private static final int THREADS = 4;
+
+    private final Set<SocketAddress> clientAddresses = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService delayedResponses = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final AtomicInteger maxRequestsInFlight = new AtomicInteger();
+    private HttpAsyncServer server;
+
     @BeforeEach
     public void setUp() {
         jmctx = JMeterContextService.getContext();
         jmvars = new JMeterVariables();
     }
 
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+        }
+        delayedResponses.shutdownNow();
+    }
+
+    /**
+     * Starts a HTTP/1.1 server that notes the connections of the requests, and answers "/slow"
+     * after {@link #RESPONSE_DELAY}
+     *
+     * @return the port of the server
+     */
+    private int startServer() throws Exception {
+        server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1)
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(
+                            HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+                        return new BasicRequestConsumer<>(entityDetails != null ? new StringAsyncEntityConsumer() : null);
+                    }
+
+                    @Override
+                    public void handle(Message<HttpRequest, String> message, ResponseTrigger responseTrigger,
+                            HttpContext context) {
+                        clientAddresses.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+                        maxRequestsInFlight.accumulateAndGet(requestsInFlight.incrementAndGet(), Math::max);
+                        Runnable respond = () -> {
+                            requestsInFlight.decrementAndGet();
+                            try {
+                                responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                                        .setEntity(AsyncEntityProducers.create("hello", ContentType.TEXT_PLAIN))
+                                        .build(), context);
+                            } catch (HttpException | IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        };
+                        if (message.getHead().getPath().equals("/slow")) {
+                            delayedResponses.schedule(respond, RESPONSE_DELAY, TimeUnit.MILLISECONDS);
+                        } else {
+                            respond.run();
+                        }
+                    }
+                })
+                .create();
+        server.start();
+        return listen();
+    }
+
+    /**
+     * Makes the server listen on another port, a target host of its own for the clients
+     *
+     * @return the port
+     */
+    private int listen() throws Exception {
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTP).get();
+        return ((InetSocketAddress) endpoint.getAddress()).getPort();
+    }
+
+    /**
+     * Samples the URLs from {@link #THREADS} threads that start together, each with its own sampler
+     * and implementation as JMeter threads have, and spread over the URLs
+     *
+     * @return the results of all the samples
+     */
+    private static List<HTTPSampleResult> sampleFromThreads(HTTPHC4Impl.SharedPool sharedPool,
+            int samplesPerThread, URL... urls) throws Exception {
+        Queue<HTTPSampleResult> results = new ConcurrentLinkedQueue<>();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        // Threads leave the pool together, as leaving last closes it
+        CountDownLatch sampled = new CountDownLatch(THREADS);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            URL url = urls[t % urls.length];
+            threads.add(new Thread(() -> {
+                JMeterContext context = JMeterContextService.getContext();
+                context.setVariables(new JMeterVariables());
+                HTTPSamplerBase sampler = (HTTPSamplerBase) new HttpTestSampleGui().createTestElement();
+                sampler.setThreadContext(context);
+                HTTPHC4Impl hc = new HTTPHC4Impl(sampler, sharedPool);
+                try {
+                    start.await();
+                    for (int i = 0; i < samplesPerThread; i++) {
+                        results.add(hc.sample(url, HTTPConstants.GET, false, 0));
+                    }
+                } catch (Exception | AssertionError e) {
+                    failures.add(e);
+                } finally {
+                    sampled.countDown();
+                    try {
+                        sampled.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    hc.threadFinished();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), new ArrayList<>(failures));
+        assertEquals(THREADS * samplesPerThread, results.size());
+        for (HTTPSampleResult result : results) {
+            assertTrue("sample failed: " + result.getResponseMessage(), result.isSuccessful());
+            assertEquals("hello", result.getResponseDataAsString());
+        }
+        return new ArrayList<>(results);
+    }
+
+    @Test
+    void testSharedPoolConnectionIsReusedByThreads() throws Exception {
+        int port = startServer();
+        HTTPHC4Impl.SharedPool sharedPool = new HTTPHC4Impl.SharedPool(1, 1, true);
+        sampleFromThreads(sharedPool, 5, new URL("http", "127.0.0.1", port, "/index.html"));
+        assertEquals(1, clientAddresses.size(), "connections used by the threads");
+    }
+
+    @Test
+    void testSharedPoolBoundsConnectionsPerRoute() throws Exception {
+        int port = startServer();
+        HTTPHC4Impl.SharedPool sharedPool = new HTTPHC4Impl.SharedPool(2, 10, true);
+        List<HTTPSampleResult> results = sampleFromThreads(sharedPool, 3, new URL("http", "127.0.0.1", port, "/slow"));
+        assertEquals(2, maxRequestsInFlight.get(), "requests sent at once");
+        assertEquals(2, clientAddresses.size(), "connections used by the threads");
+        // The threads beyond the bound waited for a lease, not inside the connection manager
+        long waitingSamples = results.stream()
+                .filter(result -> result.getPoolWaitTime() >= RESPONSE_DELAY / 2)
+                .count();
+        assertTrue("samples that waited for a lease: " + waitingSamples, waitingSamples > 0);
+    }
+
+    @Test
+    void testSharedPoolBoundsConnectionsOfAllTargets() throws Exception {
+        int port = startServer();
+        int otherPort = listen();
+        HTTPHC4Impl.SharedPool sharedPool = new HTTPHC4Impl.SharedPool(10, 2, true);
+        List<HTTPSampleResult> results = sampleFromThreads(sharedPool, 3,
+                new URL("http", "127.0.0.1", port, "/slow"), new URL("http", "127.0.0.1", otherPort, "/slow"));
+        assertEquals(2, maxRequestsInFlight.get(), "requests sent at once to both targets");
+        long waitingSamples = results.stream()
+                .filter(result -> result.getPoolWaitTime() >= RESPONSE_DELAY / 2)
+                .count();
+        assertTrue("samples that waited for a lease: " + waitingSamples, waitingSamples > 0);
+    }
+
+    @Test
+    void testSharedPoolNotesTimeWaitedForConnection() throws Exception {
+        int port = startServer();
+        HTTPHC4Impl.SharedPool sharedPool = new HTTPHC4Impl.SharedPool(1, 1, true);
+        List<HTTPSampleResult> results = sampleFromThreads(sharedPool, 1, new URL("http", "127.0.0.1", port, "/slow"));
+        long maxPoolWaitTime = 0;
+        for (HTTPSampleResult result : results) {
+            maxPoolWaitTime = Math.max(maxPoolWaitTime, result.getPoolWaitTime());
+        }
+        // The last thread to get the connection waited for the samples of the others
+        assertTrue("time waited for the connection: " + maxPoolWaitTime,
+                maxPoolWaitTime >= (THREADS - 1) * RESPONSE_DELAY - RESPONSE_DELAY / 2);
+    }
+
     @Test
     void testParameterWithMimeTypeWithCharset() throws Exception {
         HTTPSamplerBase sampler = (HTTPSamplerBase) new HttpTestSampleGui().createTestElement();
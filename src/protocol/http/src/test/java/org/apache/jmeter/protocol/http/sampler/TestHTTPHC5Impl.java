@@ -0,0 +1,484 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.jmeter.junit.JMeterTestCase;
+import org.apache.jmeter.protocol.http.config.ResponseStreamingConfig;
+import org.apache.jmeter.protocol.http.control.gui.HttpTestSampleGui;
+import org.apache.jmeter.protocol.http.sampler.stream.ResponseStreamConsumer;
+import org.apache.jmeter.protocol.http.sampler.stream.ResponseStreamPipeline;
+import org.apache.jmeter.protocol.http.util.HTTPConstants;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestHTTPHC5Impl extends JMeterTestCase {
+
+    private static final int RESOURCES = 6;
+
+    /** Time in milliseconds before the server answers the requests of the threads of the shared client */
+    private static final int SLOW_RESPONSE_DELAY = 20;
+
+    /** Body several times larger than the buffer of a streamed response */
+    private static final String LARGE_BODY = createLargeBody();
+
+    /** Time in seconds the server holds back the end of "/streamed" if the client reads nothing */
+    private static final int HOLD_BACK_TIMEOUT = 5;
+
+    private final Set<SocketAddress> clientAddresses = ConcurrentHashMap.newKeySet();
+    /** Answers the embedded resources later, so that several of them are requested at the same time */
+    private final ScheduledExecutorService resourceResponses = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicInteger resourcesInFlight = new AtomicInteger();
+    private final AtomicInteger maxResourcesInFlight = new AtomicInteger();
+    /** Released once the client read the first bytes of "/streamed" */
+    private final CountDownLatch firstBytesRead = new CountDownLatch(1);
+    private final AtomicBoolean endSentAfterFirstBytesRead = new AtomicBoolean();
+    private HttpAsyncServer server;
+    private int port;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        // HTTP/2 without TLS, as sent by the sampler to http URLs, or HTTP/1.1
+        server = H2ServerBootstrap.bootstrap()
+                .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                .register("*", new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+                    @Override
+                    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(
+                            HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+                        return new BasicRequestConsumer<>(entityDetails != null ? new StringAsyncEntityConsumer() : null);
+                    }
+
+                    @Override
+                    public void handle(Message<HttpRequest, String> message, ResponseTrigger responseTrigger,
+                            HttpContext context) throws HttpException, IOException {
+                        clientAddresses.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+                        String path = message.getHead().getPath();
+                        if (path.startsWith("/resource")) {
+                            maxResourcesInFlight.accumulateAndGet(resourcesInFlight.incrementAndGet(), Math::max);
+                            resourceResponses.schedule(() -> {
+                                resourcesInFlight.decrementAndGet();
+                                respond("resource", ContentType.TEXT_PLAIN, responseTrigger, context);
+                            }, 200, TimeUnit.MILLISECONDS);
+                        } else if (path.equals("/slow")) {
+                            resourceResponses.schedule(
+                                    () -> respond("slow", ContentType.TEXT_PLAIN, responseTrigger, context),
+                                    SLOW_RESPONSE_DELAY, TimeUnit.MILLISECONDS);
+                        } else if (path.equals("/streamed")) {
+                            try {
+                                responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                                        .setEntity(new HeldBackEntityProducer())
+                                        .build(), context);
+                            } catch (HttpException | IOException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        } else if (path.equals("/page.html")) {
+                            StringBuilder page = new StringBuilder("<html><body>");
+                            for (int i = 0; i < RESOURCES; i++) {
+                                page.append("<img src=\"/resource").append(i).append(".png\"/>");
+                            }
+                            respond(page.append("</body></html>").toString(), ContentType.TEXT_HTML, responseTrigger, context);
+                        } else {
+                            String body = message.getBody() == null ? "hello" : "posted " + message.getBody();
+                            respond(body, ContentType.TEXT_PLAIN, responseTrigger, context);
+                        }
+                    }
+
+                    private void respond(String body, ContentType contentType, ResponseTrigger responseTrigger,
+                            HttpContext context) {
+                        try {
+                            responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                                    .setEntity(AsyncEntityProducers.create(body, contentType))
+                                    .build(), context);
+                        } catch (HttpException | IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                })
+                .create();
+        server.start();
+        ListenerEndpoint endpoint = server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTP).get();
+        port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+        JMeterContextService.getContext().setVariables(new JMeterVariables());
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.close(CloseMode.IMMEDIATE);
+        resourceResponses.shutdownNow();
+    }
+
+    /**
+     * Sends {@link #LARGE_BODY} without its last bytes, and then the rest once the client read the first
+     * bytes, or after {@link #HOLD_BACK_TIMEOUT} when the client waits for the whole body first
+     */
+    private final class HeldBackEntityProducer implements AsyncEntityProducer {
+        private final ByteBuffer body = ByteBuffer.wrap(LARGE_BODY.getBytes(StandardCharsets.UTF_8));
+        private final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(HOLD_BACK_TIMEOUT);
+
+        HeldBackEntityProducer() {
+            body.limit(body.capacity() - 10);
+        }
+
+        @Override
+        public int available() {
+            return Math.max(body.remaining(), 1);
+        }
+
+        @Override
+        public void produce(DataStreamChannel channel) throws IOException {
+            if (body.hasRemaining()) {
+                channel.write(body);
+            } else if (body.limit() < body.capacity()) {
+                if (firstBytesRead.getCount() > 0 && System.nanoTime() < deadline) {
+                    resourceResponses.schedule(channel::requestOutput, 10, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                endSentAfterFirstBytesRead.set(firstBytesRead.getCount() == 0);
+                body.limit(body.capacity());
+                channel.write(body);
+            } else {
+                channel.endStream();
+            }
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.capacity();
+        }
+
+        @Override
+        public String getContentType() {
+            return ContentType.TEXT_PLAIN.toString();
+        }
+
+        @Override
+        public String getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public boolean isChunked() {
+            return false;
+        }
+
+        @Override
+        public Set<String> getTrailerNames() {
+            return null;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            // Nothing to release
+        }
+
+        @Override
+        public void releaseResources() {
+            // Nothing to release
+        }
+    }
+
+    private static String createLargeBody() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; body.length() < 1024 * 1024; i++) {
+            body.append("line ").append(i).append('\n');
+        }
+        return body.toString();
+    }
+
+    private HTTPSamplerBase createSampler() {
+        HTTPSamplerBase sampler = (HTTPSamplerBase) new HttpTestSampleGui().createTestElement();
+        // Embedded resources are sampled by clones of the sampler, with the implementation it names
+        sampler.setImplementation(HTTPSamplerFactory.IMPL_HTTP_CLIENT5);
+        sampler.setThreadContext(JMeterContextService.getContext());
+        return sampler;
+    }
+
+    @Test
+    void testSamplesOverOneHttp2Connection() throws Exception {
+        HTTPHC5Impl hc = new HTTPHC5Impl(createSampler());
+        try {
+            URL url = new URL("http", "127.0.0.1", port, "/index.html");
+            for (int i = 0; i < 2; i++) {
+                HTTPSampleResult result = hc.sample(url, HTTPConstants.GET, false, 0);
+                assertTrue(result.isSuccessful(), () -> "sample failed: " + result.getResponseMessage());
+                assertEquals("200", result.getResponseCode());
+                assertEquals("OK", result.getResponseMessage());
+                assertTrue(result.getResponseHeaders().startsWith("HTTP/2.0 200 OK\n"), result.getResponseHeaders());
+                assertEquals("hello", result.getResponseDataAsString());
+                assertEquals(5, result.getBodySizeAsLong());
+                assertTrue(result.getLatency() <= result.getTime());
+            }
+        } finally {
+            hc.threadFinished();
+        }
+        assertEquals(1, clientAddresses.size(), "connections used by the samples");
+    }
+
+    @Test
+    void testTargetsOfOneSchemeShareTheClientOfTheThread() throws Exception {
+        int otherPort = ((InetSocketAddress) server.listen(new InetSocketAddress("127.0.0.1", 0), URIScheme.HTTP)
+                .get().getAddress()).getPort();
+        Set<Thread> threadsBefore = Thread.getAllStackTraces().keySet();
+        HTTPHC5Impl hc = new HTTPHC5Impl(createSampler());
+        try {
+            for (int targetPort : new int[] { port, otherPort }) {
+                HTTPSampleResult result = hc.sample(new URL("http", "127.0.0.1", targetPort, "/index.html"),
+                        HTTPConstants.GET, false, 0);
+                assertTrue(result.isSuccessful(), () -> "sample failed: " + result.getResponseMessage());
+            }
+            long clientThreads = Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> !threadsBefore.contains(thread))
+                    .filter(thread -> thread.getName().startsWith("httpclient-"))
+                    .count();
+            // The main thread and the I/O thread of a single client
+            assertEquals(2, clientThreads, "threads started by the clients of the JMeter thread");
+        } finally {
+            hc.threadFinished();
+        }
+        assertEquals(2, clientAddresses.size(), "connections used by the samples");
+    }
+
+    @Test
+    void testParallelResourcesAreStreamsOfOneConnection() throws Exception {
+        HTTPSamplerBase sampler = createSampler();
+        sampler.setImageParser(true);
+        sampler.setConcurrentDwn(true);
+        // Fewer downloaders than resources, so that some resources start after others ended
+        sampler.setConcurrentPool("3");
+        HTTPHC5Impl hc = new HTTPHC5Impl(sampler);
+        try {
+            HTTPSampleResult result = hc.sample(new URL("http", "127.0.0.1", port, "/page.html"), HTTPConstants.GET, false, 0);
+            assertTrue(result.isSuccessful(), () -> "sample failed: " + result.getResponseMessage());
+            SampleResult[] subResults = result.getSubResults();
+            // The page, then its resources
+            assertEquals(RESOURCES + 1, subResults.length);
+            for (int i = 1; i < subResults.length; i++) {
+                SampleResult resource = subResults[i];
+                assertTrue(resource.isSuccessful(), () -> "resource failed: " + resource.getResponseMessage());
+                assertEquals("resource", resource.getResponseDataAsString());
+            }
+        } finally {
+            hc.threadFinished();
+        }
+        assertEquals(1, clientAddresses.size(), "connections used by the page and its resources");
+        assertTrue(maxResourcesInFlight.get() > 1,
+                () -> "resources in flight at the same time: " + maxResourcesInFlight.get());
+    }
+
+    @Test
+    void testConcurrentSamplesThroughSharedClientOverHttp2() throws Exception {
+        assertConcurrentSamplesThroughSharedClient(HttpVersionPolicy.FORCE_HTTP_2, "HTTP/2.0 200 OK\n");
+    }
+
+    @Test
+    void testConcurrentSamplesThroughSharedClientOverHttp11() throws Exception {
+        assertConcurrentSamplesThroughSharedClient(HttpVersionPolicy.NEGOTIATE, "HTTP/1.1 200 OK\n");
+    }
+
+    private void assertConcurrentSamplesThroughSharedClient(HttpVersionPolicy versionPolicy, String statusLine)
+            throws Exception {
+        HTTPHC5Impl.SharedClient sharedClient = new HTTPHC5Impl.SharedClient(versionPolicy);
+        URL url = new URL("http", "127.0.0.1", port, "/slow");
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                JMeterContextService.getContext().setVariables(new JMeterVariables());
+                HTTPHC5Impl hc = new HTTPHC5Impl(createSampler(), sharedClient);
+                try {
+                    for (int i = 0; i < 10; i++) {
+                        HTTPSampleResult result = hc.sample(url, HTTPConstants.GET, false, 0);
+                        if (!result.isSuccessful() || !result.getResponseHeaders().startsWith(statusLine)
+                                || !"slow".equals(result.getResponseDataAsString())) {
+                            failures.add("unexpected response: " + result.getResponseMessage()
+                                    + " " + result.getResponseHeaders());
+                        } else if (result.getStartTime() == 0 || result.getLatency() <= 0
+                                || result.getLatency() > result.getTime()
+                                || result.getConnectTime() > result.getLatency()) {
+                            failures.add("unexpected timings: start " + result.getStartTime()
+                                    + ", connect " + result.getConnectTime() + ", latency " + result.getLatency()
+                                    + ", elapsed " + result.getTime());
+                        }
+                    }
+                } finally {
+                    hc.threadFinished();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), () -> failures.size() + " failed samples, first: " + failures.peek());
+    }
+
+    @Test
+    void testResponseIsStreamedThroughPipeline() throws Exception {
+        ResponseStreamingConfig streamingConfig = new ResponseStreamingConfig() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public ResponseStreamPipeline createPipeline(SampleResult result) throws IOException {
+                return super.createPipeline(result).addConsumer(new ResponseStreamConsumer() {
+                    @Override
+                    public void consume(byte[] buffer, int offset, int length) {
+                        firstBytesRead.countDown();
+                    }
+
+                    @Override
+                    public void end(SampleResult result, JMeterVariables variables) {
+                        // Only notes the first bytes
+                    }
+                });
+            }
+        };
+        streamingConfig.setPrefixSize(100);
+        streamingConfig.setDigestAlgorithm("SHA-256");
+        streamingConfig.setDigestVariable("digest");
+        HTTPSamplerBase sampler = createSampler();
+        sampler.setResponseStreamingConfig(streamingConfig);
+        HTTPHC5Impl hc = new HTTPHC5Impl(sampler);
+        try {
+            HTTPSampleResult result = hc.sample(new URL("http", "127.0.0.1", port, "/streamed"), HTTPConstants.GET, false, 0);
+            assertTrue(result.isSuccessful(), () -> "sample failed: " + result.getResponseMessage());
+            byte[] body = LARGE_BODY.getBytes(StandardCharsets.UTF_8);
+            assertEquals(LARGE_BODY.substring(0, 100), result.getResponseDataAsString());
+            assertEquals(body.length, result.getBodySizeAsLong());
+            assertEquals(JOrphanUtils.baToHexString(MessageDigest.getInstance("SHA-256").digest(body)),
+                    JMeterContextService.getContext().getVariables().get("digest"));
+            assertTrue(result.getLatency() <= result.getTime());
+        } finally {
+            hc.threadFinished();
+        }
+        assertTrue(endSentAfterFirstBytesRead.get(), "the body was read before its end was received");
+    }
+
+    @Test
+    void testIpSourceIsNotSupported() throws Exception {
+        HTTPSamplerBase sampler = createSampler();
+        sampler.setIpSource("127.0.0.1");
+        HTTPHC5Impl hc = new HTTPHC5Impl(sampler);
+        try {
+            HTTPSampleResult result = hc.sample(new URL("http", "127.0.0.1", port, "/index.html"), HTTPConstants.GET, false, 0);
+            assertFalse(result.isSuccessful());
+            assertTrue(result.getResponseMessage().contains("source addresses"), result.getResponseMessage());
+            assertTrue(clientAddresses.isEmpty(), "no request is sent");
+        } finally {
+            hc.threadFinished();
+        }
+    }
+
+    @Test
+    void testPostBody() throws Exception {
+        HTTPSamplerBase sampler = createSampler();
+        sampler.setMethod(HTTPConstants.POST);
+        sampler.setPostBodyRaw(true);
+        sampler.addNonEncodedArgument("", "data", "");
+        HTTPHC5Impl hc = new HTTPHC5Impl(sampler);
+        try {
+            HTTPSampleResult result = hc.sample(new URL("http", "127.0.0.1", port, "/post"), HTTPConstants.POST, false, 0);
+            assertEquals("posted data", result.getResponseDataAsString());
+            assertEquals("data", result.getQueryString());
+        } finally {
+            hc.threadFinished();
+        }
+    }
+
+    @Test
+    void testRequestWithoutConnectionHeaders() throws Exception {
+        HttpPost post = new HttpPost("http://example.invalid/path?q=1");
+        post.setHeader(HTTPConstants.HEADER_CONNECTION, HTTPConstants.KEEP_ALIVE);
+        post.setHeader(HTTPConstants.HEADER_HOST, "example.invalid:8080");
+        post.setHeader(HTTPConstants.HEADER_CONTENT_TYPE, "application/json");
+        post.setHeader("X-Test", "value");
+        post.setEntity(new StringEntity("{}", StandardCharsets.UTF_8));
+        URI uri = post.getURI();
+
+        SimpleHttpRequest request = HTTPHC5Impl.createRequest(uri.toURL(), uri, post, null);
+
+        assertEquals("POST", request.getMethod());
+        assertEquals("/path?q=1", request.getRequestUri());
+        assertEquals("example.invalid:8080", request.getAuthority().toString());
+        assertNull(request.getFirstHeader(HTTPConstants.HEADER_CONNECTION));
+        assertFalse(request.containsHeader(HTTPConstants.HEADER_CONTENT_TYPE));
+        assertEquals("value", request.getFirstHeader("X-Test").getValue());
+        assertEquals("application/json", request.getContentType().getMimeType());
+        assertEquals("{}", request.getBodyText());
+    }
+}
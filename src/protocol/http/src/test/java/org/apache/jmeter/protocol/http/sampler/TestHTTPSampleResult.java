@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jmeter.samplers.ResponseBuffer;
+import org.junit.jupiter.api.Test;
+
+public class TestHTTPSampleResult {
+
+    @Test
+    public void testEncodingOfPooledHtmlIsReadWithoutCopy() {
+        List<byte[]> recycled = new ArrayList<>();
+        byte[] html = ("<html><head><meta http-equiv=\"content-type\" content=\"text/html; charset=ISO-8859-15\">"
+                + "</head><body>pooled</body></html>").getBytes(StandardCharsets.US_ASCII);
+        ResponseBuffer buffer = new ResponseBuffer(new byte[16], recycled::add);
+        buffer.write(html, 0, html.length);
+        HTTPSampleResult result = new HTTPSampleResult();
+        result.setContentType("text/html");
+        result.setResponseData(buffer);
+
+        assertEquals("ISO-8859-15", result.getDataEncodingNoDefault());
+        assertNotNull(result.getResponseBuffer(), "the data should stay in the pooled buffer");
+        assertEquals(0, recycled.size());
+    }
+}
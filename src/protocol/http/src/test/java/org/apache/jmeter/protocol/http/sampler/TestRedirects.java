@@ -41,7 +41,10 @@ class TestRedirects {
         List<Arguments> res = new ArrayList<>();
         // Nested for depth is 2 (max allowed is 1). [NestedForDepth]
         List<String> httpMethods = Arrays.asList("HEAD", "GET", "POST", "PUT", "DELETE");
-        Arrays.stream(HTTPSamplerFactory.getImplementations()).forEach(httpImpl -> {
+        // WireMock serves HTTP/1.1 only
+        Arrays.stream(HTTPSamplerFactory.getImplementations())
+                .filter(httpImpl -> !HTTPSamplerFactory.IMPL_HTTP_CLIENT5.equals(httpImpl))
+                .forEach(httpImpl -> {
             for (int statusCode : Arrays.asList(301, 302, 303, 307, 308)) {
                 for (String method : httpMethods) {
                     boolean shouldRedirect = statusCode != 307 || ("GET".equals(method) || "HEAD".equals(method));
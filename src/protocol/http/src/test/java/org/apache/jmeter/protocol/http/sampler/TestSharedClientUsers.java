@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jmeter.protocol.http.sampler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class TestSharedClientUsers {
+
+    @Test
+    void testClosesClientsWhenLastUserFinishes() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        SharedClientUsers users = new SharedClientUsers(closed::incrementAndGet);
+        users.register();
+        users.register();
+        Thread other = new Thread(() -> {
+            users.register();
+            users.release();
+        });
+        other.start();
+        other.join();
+        assertEquals(0, closed.get(), "clients are closed while used by a thread");
+
+        users.release();
+        assertEquals(1, closed.get());
+        // Already released
+        users.release();
+        assertEquals(1, closed.get());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.sampler.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jorphan.util.JOrphanUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestResponseStreamPipeline {
+
+    private JMeterVariables variables;
+    private SampleResult result;
+
+    @BeforeEach
+    public void setUp() {
+        variables = new JMeterVariables();
+        result = new SampleResult();
+        result.sampleStart();
+    }
+
+    /**
+     * Returns the body a few bytes at a time, to split it like the network does.
+     */
+    private static InputStream chunked(String body, int chunkSize) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, chunkSize));
+            }
+        };
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void testKeepsPrefixAndDigestsWholeBody() throws Exception {
+        String body = repeat("0123456789", 10_000);
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(16)
+                .addConsumer(new DigestStreamConsumer("SHA-256", "digest"));
+
+        byte[] prefix = pipeline.read(result, chunked(body, 1000), body.length(), variables);
+
+        assertEquals("0123456789012345", new String(prefix, StandardCharsets.US_ASCII));
+        assertEquals(body.length(), pipeline.getTotalBytes());
+        assertTrue(result.getLatency() >= 0);
+        String expected = JOrphanUtils.baToHexString(
+                MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected, variables.get("digest"));
+    }
+
+    @Test
+    public void testEmptyBody() throws Exception {
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(16);
+        assertArrayEquals(new byte[0], pipeline.read(result, chunked("", 1), 0, variables));
+        assertEquals(0, pipeline.getTotalBytes());
+    }
+
+    @Test
+    public void testRegexMatchesAcrossReads() throws Exception {
+        String body = repeat("filler ", 2000) + "token=\"\u00e9-42\" " + repeat("more ", 2000);
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(0)
+                .addConsumer(new RegexStreamConsumer(Pattern.compile("token=\"([^\"]+)\""), "token", 100,
+                        StandardCharsets.UTF_8))
+                .addConsumer(new RegexStreamConsumer(Pattern.compile("absent"), "absent", 100,
+                        StandardCharsets.UTF_8));
+        variables.put("absent", "previous value");
+
+        pipeline.read(result, chunked(body, 3), 0, variables);
+
+        assertEquals("\u00e9-42", variables.get("token"));
+        assertNull(variables.get("absent"), "variable should be removed when nothing matches");
+    }
+
+    @Test
+    public void testGreedyRegexWaitsForEndOfMatch() throws Exception {
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(0)
+                .addConsumer(new RegexStreamConsumer(Pattern.compile("id=(\\d+)"), "id", 100,
+                        StandardCharsets.UTF_8));
+        pipeline.read(result, chunked("id=1234567", 2), 0, variables);
+        assertEquals("1234567", variables.get("id"));
+    }
+
+    @Test
+    public void testJsonPath() throws Exception {
+        String body = "{\"meta\":{\"count\":2},\"items\":[{\"id\":\"a\",\"tags\":[1,2]},"
+                + "{\"id\":\"b\",\"tags\":[3,4]}],\"id\":\"root\"}";
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(0)
+                .addConsumer(new JsonStreamConsumer("$.items[1].id", "second"))
+                .addConsumer(new JsonStreamConsumer("$['items'][1]['tags'][0]", "tag"))
+                .addConsumer(new JsonStreamConsumer("$.id", "root"))
+                .addConsumer(new JsonStreamConsumer("$.meta.missing", "missing"));
+
+        pipeline.read(result, chunked(body, 5), 0, variables);
+
+        assertEquals("b", variables.get("second"));
+        assertEquals("3", variables.get("tag"));
+        assertEquals("root", variables.get("root"));
+        assertNull(variables.get("missing"));
+    }
+
+    @Test
+    public void testJsonPathOnOtherContent() throws Exception {
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(100)
+                .addConsumer(new JsonStreamConsumer("$.id", "id"));
+        byte[] prefix = pipeline.read(result, chunked("<html>not json</html>", 4), 0, variables);
+        assertEquals("<html>not json</html>", new String(prefix, StandardCharsets.UTF_8));
+        assertNull(variables.get("id"));
+    }
+
+    @Test
+    public void testUnsupportedJsonPath() {
+        assertThrows(IllegalArgumentException.class, () -> JsonStreamConsumer.parsePath("items[0]"));
+        assertThrows(IllegalArgumentException.class, () -> JsonStreamConsumer.parsePath("$.items[*]"));
+        assertEquals(Arrays.asList("a", 0, "b c"), Arrays.asList(JsonStreamConsumer.parsePath("$.a[0]['b c']")));
+    }
+
+    @Test
+    public void testXPathReadsBodyWithConsumers() throws Exception {
+        String body = "<?xml version=\"1.0\"?><feed xmlns:a=\"urn:a\"><entry><title>First</title></entry>"
+                + "<entry><a:link href=\"/second\"/><title>Sec<b>ond</b></title></entry>"
+                + repeat("<entry><title>Other</title></entry>", 1000) + "</feed>";
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(5)
+                .addConsumer(new DigestStreamConsumer("MD5", "md5"))
+                .setXPathExtractor(new XPathStreamExtractor("//entry/link/@href", "href"));
+
+        byte[] prefix = pipeline.read(result, chunked(body, 64), 0, variables);
+
+        assertEquals("<?xml", new String(prefix, StandardCharsets.UTF_8));
+        assertEquals("/second", variables.get("href"));
+        assertEquals(body.length(), pipeline.getTotalBytes(), "rest of the body should be read once found");
+        String expected = JOrphanUtils.baToHexString(
+                MessageDigest.getInstance("MD5").digest(body.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(expected, variables.get("md5"));
+
+        new ResponseStreamPipeline(0)
+                .setXPathExtractor(new XPathStreamExtractor("/feed/entry/title/text()", "title"))
+                .read(result, chunked(body, 64), 0, variables);
+        assertEquals("First", variables.get("title"));
+    }
+
+    @Test
+    public void testXPathOnOtherContent() throws IOException {
+        variables.put("title", "previous value");
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(0)
+                .setXPathExtractor(new XPathStreamExtractor("//title", "title"));
+        pipeline.read(result, chunked("{\"title\": 1}", 4), 0, variables);
+        assertNull(variables.get("title"));
+        assertEquals(12, pipeline.getTotalBytes());
+    }
+
+    @Test
+    public void testVariablesAreNotSetWithoutVariables() throws Exception {
+        ResponseStreamPipeline pipeline = new ResponseStreamPipeline(0)
+                .addConsumer(new RegexStreamConsumer(Pattern.compile("b"), "b", 10, StandardCharsets.UTF_8));
+        pipeline.read(result, chunked("abc", 1), 0, null);
+        assertEquals(3, pipeline.getTotalBytes());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to you under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jmeter.protocol.http.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.jmeter.samplers.ResponseBuffer;
+import org.junit.jupiter.api.Test;
+
+public class TestResponseBufferPool {
+
+    @Test
+    public void testReleasedArrayIsReused() {
+        ResponseBufferPool pool = new ResponseBufferPool(4096, 2);
+        ResponseBuffer buffer = pool.acquire(2000);
+        buffer.write(new byte[]{1, 2, 3}, 0, 3);
+        byte[] array = buffer.getArray();
+        buffer.release();
+        assertEquals(1, pool.size());
+
+        ResponseBuffer next = pool.acquire(100);
+        assertSame(array, next.getArray());
+        assertEquals(0, next.getLength());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void testLargeArraysAreNotPooled() {
+        ResponseBufferPool pool = new ResponseBufferPool(4096, 2);
+        ResponseBuffer buffer = pool.acquire(100);
+        buffer.write(new byte[5000], 0, 5000);
+        buffer.release();
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        ResponseBufferPool pool = new ResponseBufferPool(4096, 2);
+        ResponseBuffer[] buffers = {pool.acquire(10), pool.acquire(10), pool.acquire(10)};
+        for (ResponseBuffer buffer : buffers) {
+            buffer.release();
+        }
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testArraysReleasedByOtherThreadsAreNotPooled() throws Exception {
+        ResponseBufferPool pool = new ResponseBufferPool(4096, 2);
+        ResponseBuffer buffer = pool.acquire(10);
+        byte[] array = buffer.getArray();
+        Thread thread = new Thread(buffer::release);
+        thread.start();
+        thread.join();
+        assertEquals(0, pool.size());
+        assertNotSame(array, pool.acquire(10).getArray());
+    }
+}